@@ -0,0 +1,156 @@
+package com.zychen.bank.benchmark;
+
+import com.zychen.bank.dto.ReportResponseDTO;
+import com.zychen.bank.model.Transaction;
+import com.zychen.bank.model.TransactionAggregate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试用的交易数据，固定随机种子，保证每次运行的输入一致
+ */
+final class BenchmarkData {
+
+    private static final String[] TYPES = {"DEPOSIT", "WITHDRAW", "TRANSFER", "INTEREST"};
+
+    // 实际会出现的 类型/子类型 组合（见各服务写入流水时的 transType / transSubtype）
+    private static final String[][] AGGREGATE_GROUPS = {
+            {"DEPOSIT", "CURRENT_DEPOSIT"},
+            {"DEPOSIT", "FIXED_DEPOSIT_EARLY"},
+            {"DEPOSIT", "FIXED_DEPOSIT_MATURE"},
+            {"WITHDRAW", "CURRENT_WITHDRAW"},
+            {"TRANSFER", "FIXED_DEPOSIT_IN"},
+            {"TRANSFER", null},
+            {"INTEREST", null},
+    };
+
+    private BenchmarkData() {
+    }
+
+    static List<Transaction> transactions(int size) {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        BigDecimal balance = new BigDecimal("10000.00");
+        List<Transaction> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String type = TYPES[random.nextInt(TYPES.length)];
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(500_000) + 1, 2);
+            BigDecimal signed = "WITHDRAW".equals(type) || "TRANSFER".equals(type) ? amount.negate() : amount;
+
+            Transaction tx = new Transaction();
+            tx.setTransId((long) i + 1);
+            tx.setTransNo("T" + (1_000_000_000L + i));
+            tx.setCardId("622200000001");
+            tx.setUserId("U0000001");
+            tx.setTransType(type);
+            tx.setTransSubtype("CURRENT_DEPOSIT");
+            tx.setAmount(signed);
+            tx.setBalanceBefore(balance);
+            balance = balance.add(signed);
+            tx.setBalanceAfter(balance);
+            tx.setFee(random.nextInt(10) == 0 ? new BigDecimal("2.00") : BigDecimal.ZERO);
+            tx.setStatus(1);
+            tx.setTransTime(start.plusMinutes(i));
+            list.add(tx);
+        }
+        return list;
+    }
+
+    /**
+     * 报表统计查询（TransactionMapper.aggregateByMonthAndType）的返回行：每月每个 类型/子类型 组合一行，
+     * 转账组合同时有转入和转出金额
+     */
+    static List<TransactionAggregate> aggregateRows(int months) {
+        Random random = new Random(42);
+        List<TransactionAggregate> rows = new ArrayList<>(months * AGGREGATE_GROUPS.length);
+        for (int month = 1; month <= months; month++) {
+            for (String[] group : AGGREGATE_GROUPS) {
+                boolean outgoing = "WITHDRAW".equals(group[0]);
+                boolean transfer = "TRANSFER".equals(group[0]);
+                TransactionAggregate row = new TransactionAggregate();
+                row.setTransMonth(month);
+                row.setTransType(group[0]);
+                row.setTransSubtype(group[1]);
+                row.setTransCount(random.nextInt(50) + 1);
+                row.setPositiveAmount(outgoing ? BigDecimal.ZERO : BigDecimal.valueOf(random.nextInt(5_000_000) + 1, 2));
+                row.setNegativeAmount(outgoing || transfer
+                        ? BigDecimal.valueOf(random.nextInt(5_000_000) + 1, 2) : BigDecimal.ZERO);
+                row.setFeeAmount(BigDecimal.valueOf(random.nextInt(1000), 2));
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 管理员交易查询返回的行（与 TransactionMapper.findAdminTransactions 的列名一致）
+     */
+    static List<Map<String, Object>> adminRows(int size) {
+        List<Map<String, Object>> rows = new ArrayList<>(size);
+        for (Transaction tx : transactions(size)) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("trans_id", tx.getTransId());
+            row.put("trans_no", tx.getTransNo());
+            row.put("card_id", tx.getCardId());
+            row.put("user_id", tx.getUserId());
+            row.put("trans_type", tx.getTransType());
+            row.put("amount", tx.getAmount());
+            row.put("fee", tx.getFee());
+            row.put("status", (int) (tx.getTransId() % 20 == 0 ? 0 : 1));
+            row.put("trans_time", tx.getTransTime());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    static ReportResponseDTO report(int size) {
+        List<Transaction> transactions = transactions(size);
+
+        ReportResponseDTO report = new ReportResponseDTO();
+        report.setReportId("RPT-BENCH");
+        report.setUserId("U0000001");
+        report.setCardId("622200000001");
+        report.setReportType("monthly");
+        report.setPeriod("2024年01月");
+        report.setGeneratedTime(new Date(0));
+
+        ReportResponseDTO.ReportSummary summary = new ReportResponseDTO.ReportSummary();
+        summary.setStartBalance(transactions.get(0).getBalanceBefore());
+        summary.setEndBalance(transactions.get(size - 1).getBalanceAfter());
+        summary.setTotalDeposit(BigDecimal.ZERO);
+        summary.setTotalWithdraw(BigDecimal.ZERO);
+        summary.setInterestEarned(BigDecimal.ZERO);
+        summary.setTransactionCount(size);
+        summary.setNetChange(summary.getEndBalance().subtract(summary.getStartBalance()));
+        report.setSummary(summary);
+
+        ReportResponseDTO.CategoryStatistics stats = new ReportResponseDTO.CategoryStatistics();
+        stats.setDepositAmount(BigDecimal.ZERO);
+        stats.setWithdrawAmount(BigDecimal.ZERO);
+        stats.setInterestAmount(BigDecimal.ZERO);
+        stats.setTransferAmount(BigDecimal.ZERO);
+        stats.setFeeAmount(BigDecimal.ZERO);
+        report.setCategoryStatistics(stats);
+
+        List<ReportResponseDTO.TransactionSummary> details = new ArrayList<>(size);
+        for (Transaction tx : transactions) {
+            ReportResponseDTO.TransactionSummary detail = new ReportResponseDTO.TransactionSummary();
+            detail.setTransTime(tx.getTransTime());
+            detail.setTransType(tx.getTransType());
+            detail.setTransSubtype(tx.getTransSubtype());
+            detail.setAmount(tx.getAmount());
+            detail.setBalanceAfter(tx.getBalanceAfter());
+            detail.setRemark("存取款");
+            details.add(detail);
+        }
+        report.setTransactions(details);
+        return report;
+    }
+}
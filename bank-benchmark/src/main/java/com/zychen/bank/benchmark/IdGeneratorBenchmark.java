@@ -0,0 +1,69 @@
+package com.zychen.bank.benchmark;
+
+import com.zychen.bank.utils.IDGenerator;
+import com.zychen.bank.utils.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交易流水号生成基准：旧实现（时间格式化 + 随机数）对比雪花算法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private final SnowflakeIdGenerator snowflake = new SnowflakeIdGenerator(1);
+    private IDGenerator idGenerator;
+
+    @Setup
+    public void setup() {
+        idGenerator = new IDGenerator();
+        ReflectionTestUtils.setField(idGenerator, "nodeId", 1L);
+        idGenerator.init();
+    }
+
+    @Benchmark
+    public String legacyTransNo() {
+        return "T" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
+                + String.format("%04d", (int) (Math.random() * 10000));
+    }
+
+    @Benchmark
+    public String snowflakeTransNo() {
+        return snowflake.nextNo("T");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String snowflakeTransNoContended() {
+        return snowflake.nextNo("T");
+    }
+
+    @Benchmark
+    public String generateTransNo() {
+        return idGenerator.generateTransNo();
+    }
+
+    @Benchmark
+    public long snowflakeId() {
+        return snowflake.nextId();
+    }
+}
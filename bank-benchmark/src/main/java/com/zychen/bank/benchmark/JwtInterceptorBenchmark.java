@@ -0,0 +1,85 @@
+package com.zychen.bank.benchmark;
+
+import com.zychen.bank.utils.JwtInterceptor;
+import com.zychen.bank.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT拦截器开销基准：旧实现（每次请求构建3次密钥和解析器、验签3次）对比单次解析+缓存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtInterceptorBenchmark {
+
+    private static final String SECRET = "bank-system-jwt-secret-key-2024-abcdefghijklmnopqrstuvwxyz";
+
+    private JwtUtil jwtUtil;
+    private JwtInterceptor interceptor;
+    private String token;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 86400000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 10000);
+        jwtUtil.init();
+
+        interceptor = new JwtInterceptor();
+        ReflectionTestUtils.setField(interceptor, "jwtUtil", jwtUtil);
+
+        token = jwtUtil.generateToken("U0000001", 0);
+        request = new MockHttpServletRequest("POST", "/api/transactions/deposit");
+        request.addHeader("Authorization", "Bearer " + token);
+    }
+
+    @Benchmark
+    public Object legacyTripleParse() {
+        Claims validate = legacyParse(token);
+        boolean valid = validate != null && validate.getExpiration().after(new java.util.Date());
+        String userId = legacyParse(token).getSubject();
+        Integer role = (Integer) legacyParse(token).get("role");
+        return valid ? userId + role : null;
+    }
+
+    @Benchmark
+    public Object parseOnce() {
+        return jwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    public boolean interceptorPreHandle() throws Exception {
+        return interceptor.preHandle(request, new MockHttpServletResponse(), null);
+    }
+
+    // 旧版 JwtUtil.parseToken：每次调用重新派生密钥并构建解析器
+    private static Claims legacyParse(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
@@ -0,0 +1,63 @@
+package com.zychen.bank.benchmark;
+
+import com.zychen.bank.utils.CardPasswordVerifier;
+import com.zychen.bank.utils.PasswordUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密码校验基准：BCrypt直接比对对比卡密码校验缓存命中
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordBenchmark {
+
+    private static final String CARD_ID = "622200000001";
+    private static final String RAW_PASSWORD = "123456";
+
+    private PasswordUtil passwordUtil;
+    private CardPasswordVerifier verifier;
+    private String encodedPassword;
+
+    @Setup
+    public void setup() {
+        passwordUtil = new PasswordUtil();
+        encodedPassword = passwordUtil.encode(RAW_PASSWORD);
+
+        verifier = new CardPasswordVerifier();
+        ReflectionTestUtils.setField(verifier, "passwordUtil", passwordUtil);
+        ReflectionTestUtils.setField(verifier, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(verifier, "maxSize", 10000);
+        verifier.matches(CARD_ID, RAW_PASSWORD, encodedPassword);
+    }
+
+    @Benchmark
+    public boolean bcryptMatches() {
+        return passwordUtil.matches(RAW_PASSWORD, encodedPassword);
+    }
+
+    @Benchmark
+    public boolean bcryptMismatch() {
+        return passwordUtil.matches("654321", encodedPassword);
+    }
+
+    @Benchmark
+    public boolean cachedCardPasswordMatches() {
+        return verifier.matches(CARD_ID, RAW_PASSWORD, encodedPassword);
+    }
+}
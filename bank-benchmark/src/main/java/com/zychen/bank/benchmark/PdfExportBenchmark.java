@@ -0,0 +1,76 @@
+package com.zychen.bank.benchmark;
+
+import com.zychen.bank.dto.ReportResponseDTO;
+import com.zychen.bank.service.PdfExportService;
+import com.zychen.bank.utils.PdfFontCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 报表PDF导出基准，对比字体缓存的效果：
+ * shared     —— 进程内共享一个PdfFontCache，字体只解析一次（当前实现）
+ * perExport  —— 每次导出新建PdfFontCache，重新查找、解析字体文件（原先的做法）
+ * 结果与运行机器上的字体有关，可用 -Dpdf.font=字体文件路径 指定（如 DejaVuSans.ttf），
+ * 对比不同版本时请在同一台机器上运行。加 -t 4 等参数可测并发导出。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PdfExportBenchmark {
+
+    // 报表中的交易明细条数（月报常见几十条，大客户上千条）
+    @Param({"50", "2000"})
+    private int size;
+
+    @Param({"shared", "perExport"})
+    private String fontCache;
+
+    private final String fontPath = System.getProperty("pdf.font", "");
+
+    private PdfFontCache sharedFontCache;
+    private ReportResponseDTO report;
+
+    @Setup
+    public void setup() throws IOException {
+        sharedFontCache = newFontCache();
+        report = BenchmarkData.report(size);
+        // 预热一次，字体解析不计入shared的测量
+        newService(sharedFontCache).exportReportToPdf(report);
+    }
+
+    @Benchmark
+    public byte[] exportReportToPdf() throws IOException {
+        if ("shared".equals(fontCache)) {
+            return newService(sharedFontCache).exportReportToPdf(report);
+        }
+        return newService(newFontCache()).exportReportToPdf(report);
+    }
+
+    private PdfFontCache newFontCache() {
+        PdfFontCache cache = new PdfFontCache();
+        ReflectionTestUtils.setField(cache, "fontPath", fontPath);
+        return cache;
+    }
+
+    private PdfExportService newService(PdfFontCache cache) {
+        PdfExportService service = new PdfExportService();
+        ReflectionTestUtils.setField(service, "pdfFontCache", cache);
+        return service;
+    }
+}
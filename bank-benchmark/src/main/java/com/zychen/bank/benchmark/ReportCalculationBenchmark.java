@@ -0,0 +1,90 @@
+package com.zychen.bank.benchmark;
+
+import com.zychen.bank.dto.ReportResponseDTO;
+import com.zychen.bank.model.TransactionAggregate;
+import com.zychen.bank.service.ReportCalculationAccess;
+import com.zychen.bank.service.ReportServiceImpl;
+import com.zychen.bank.service.TransactionServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 报表汇总计算基准：calculateSummary / calculateCategoryStatistics 的输入是按 月×类型×子类型 分组后的汇总行，
+ * 行数只取决于报告覆盖的月数（months=1 为月度报告，12 为年度报告），与交易笔数无关；
+ * calculateAdminSummary 的输入是管理员交易查询的当前页（pageSize 行）。
+ * 两组参数分属不同的State，各基准只按自己用到的参数展开。
+ * 服务内部方法经同包的 ReportCalculationAccess 直接调用，测量结果不含反射开销。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportCalculationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ReportInput {
+
+        @Param({"1", "12"})
+        private int months;
+
+        private ReportServiceImpl reportService;
+        private List<TransactionAggregate> aggregates;
+        private BigDecimal startBalance;
+        private BigDecimal endBalance;
+
+        @Setup
+        public void setup() {
+            reportService = new ReportServiceImpl();
+            aggregates = BenchmarkData.aggregateRows(months);
+            startBalance = new BigDecimal("10000.00");
+            endBalance = new BigDecimal("20000.00");
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class AdminInput {
+
+        @Param({"20", "1000"})
+        private int pageSize;
+
+        private TransactionServiceImpl transactionService;
+        private List<Map<String, Object>> rows;
+
+        @Setup
+        public void setup() {
+            transactionService = new TransactionServiceImpl();
+            rows = BenchmarkData.adminRows(pageSize);
+        }
+    }
+
+    @Benchmark
+    public ReportResponseDTO.ReportSummary calculateSummary(ReportInput input) {
+        return ReportCalculationAccess.calculateSummary(input.reportService, input.aggregates,
+                input.startBalance, input.endBalance);
+    }
+
+    @Benchmark
+    public ReportResponseDTO.CategoryStatistics calculateCategoryStatistics(ReportInput input) {
+        return ReportCalculationAccess.calculateCategoryStatistics(input.reportService, input.aggregates);
+    }
+
+    @Benchmark
+    public Map<String, Object> calculateAdminSummary(AdminInput input) {
+        return ReportCalculationAccess.calculateAdminSummary(input.transactionService, input.rows);
+    }
+}
@@ -0,0 +1,34 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.dto.ReportResponseDTO;
+import com.zychen.bank.model.TransactionAggregate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试调用服务内部汇总方法的入口：与服务同包，直接调用包内可见方法，
+ * 不经过反射（Method.invoke 的参数数组和装箱会计入 gc.alloc.rate.norm）
+ */
+public final class ReportCalculationAccess {
+
+    private ReportCalculationAccess() {
+    }
+
+    public static ReportResponseDTO.ReportSummary calculateSummary(ReportServiceImpl service,
+                                                                   List<TransactionAggregate> aggregates,
+                                                                   BigDecimal startBalance, BigDecimal endBalance) {
+        return service.calculateSummary(aggregates, startBalance, endBalance);
+    }
+
+    public static ReportResponseDTO.CategoryStatistics calculateCategoryStatistics(ReportServiceImpl service,
+                                                                                   List<TransactionAggregate> aggregates) {
+        return service.calculateCategoryStatistics(aggregates);
+    }
+
+    public static Map<String, Object> calculateAdminSummary(TransactionServiceImpl service,
+                                                            List<Map<String, Object>> rows) {
+        return service.calculateAdminSummary(rows);
+    }
+}
@@ -0,0 +1,36 @@
+package com.zychen.bank.aspect;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记需要记录操作日志的接口方法，由OperationLogAspect统一记录结果和耗时
+ * detail为SpEL模板（#{...}），targetId为SpEL表达式，均可引用方法参数名，
+ * 另外可用 #currentUserId 引用当前登录用户ID、#result 引用接口返回值（ResponseEntity取其body）；type、action、targetType中含#{...}时也按模板求值。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface LogOperation {
+
+    // 模块：AUTH/CARD/TRANSACTION/SECURITY/FIXED_DEPOSIT/USER/ADMIN
+    String module();
+
+    // 操作类型：DEPOSIT/WITHDRAW/BIND_CARD等
+    String type();
+
+    // 操作名称，用于拼接"xx成功"/"xx失败：原因"
+    String action();
+
+    // 操作详情模板，如 "金额：#{#depositDTO.amount}元，卡号：#{#depositDTO.cardId}"
+    String detail() default "";
+
+    // 操作对象类型：USER/CARD/ACCOUNT
+    String targetType() default "";
+
+    // 操作对象ID表达式，如 "#depositDTO.cardId"
+    String targetId() default "";
+}
@@ -0,0 +1,204 @@
+package com.zychen.bank.aspect;
+
+import com.zychen.bank.service.OperationLogService;
+import com.zychen.bank.utils.CurrentUser;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParserContext;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 操作日志切面
+ * 按接口返回结果判断成功/失败：抛出异常，或返回的ResponseEntity非2xx、body中code不为200都记为失败，
+ * 失败原因取异常信息或body中的message。耗时用System.nanoTime测量，按毫秒写入日志。
+ * 在 app.operation-log.disabled-modules 中的模块直接放行，不做任何表达式求值和字符串拼接。
+ */
+@Slf4j
+@Aspect
+@Component
+public class OperationLogAspect {
+
+    private static final int MAX_TEXT_LENGTH = 200;
+
+    @Autowired
+    private OperationLogService operationLogService;
+
+    private final Set<String> disabledModules = ConcurrentHashMap.newKeySet();
+
+    private final SpelExpressionParser parser = new SpelExpressionParser();
+    private final ParserContext templateContext = new TemplateParserContext();
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+    // 表达式只解析一次
+    private final Map<String, Expression> templateCache = new ConcurrentHashMap<>();
+    private final Map<String, Expression> expressionCache = new ConcurrentHashMap<>();
+
+    @Value("${app.operation-log.disabled-modules:}")
+    public void setDisabledModules(String[] modules) {
+        disabledModules.clear();
+        for (String module : modules) {
+            if (!module.isBlank()) {
+                disabledModules.add(module.trim());
+            }
+        }
+    }
+
+    @Around("@annotation(logOperation)")
+    public Object around(ProceedingJoinPoint joinPoint, LogOperation logOperation) throws Throwable {
+        if (disabledModules.contains(logOperation.module())) {
+            return joinPoint.proceed();
+        }
+
+        long start = System.nanoTime();
+        Object result = null;
+        Throwable error = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } catch (Throwable t) {
+            error = t;
+            throw t;
+        } finally {
+            long elapsedNanos = System.nanoTime() - start;
+            try {
+                record(joinPoint, logOperation, result, error, elapsedNanos);
+            } catch (Exception e) {
+                // 日志记录失败不影响业务结果
+                log.warn("记录操作日志失败: {}.{}, error={}", logOperation.module(), logOperation.type(), e.getMessage());
+            }
+        }
+    }
+
+    private void record(ProceedingJoinPoint joinPoint, LogOperation logOperation,
+                        Object result, Throwable error, long elapsedNanos) {
+        String errorMessage = null;
+        boolean success;
+        if (error != null) {
+            success = false;
+            errorMessage = firstLine(error.getMessage());
+        } else if (result instanceof ResponseEntity<?> response) {
+            Object body = response.getBody();
+            Object code = body instanceof Map<?, ?> map ? map.get("code") : null;
+            success = response.getStatusCode().is2xxSuccessful() && (code == null || Integer.valueOf(200).equals(code));
+            if (!success && body instanceof Map<?, ?> map && map.get("message") != null) {
+                errorMessage = firstLine(String.valueOf(map.get("message")));
+            }
+        } else {
+            success = true;
+        }
+
+        MethodBasedEvaluationContext context = null;
+        if (isTemplate(logOperation.type()) || isTemplate(logOperation.action())
+                || isTemplate(logOperation.targetType()) || !logOperation.detail().isEmpty()
+                || !logOperation.targetId().isEmpty()) {
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            context = new MethodBasedEvaluationContext(null, method, joinPoint.getArgs(), parameterNameDiscoverer);
+            context.setVariable("currentUserId", CurrentUser.getUserId());
+            context.setVariable("result", result instanceof ResponseEntity<?> response ? response.getBody() : result);
+        }
+
+        String type = resolve(logOperation.type(), context);
+        String action = resolve(logOperation.action(), context);
+        String targetType = resolve(logOperation.targetType(), context);
+        String detail = logOperation.detail().isEmpty() ? null
+                : evaluate(templateCache, logOperation.detail(), true, context);
+        String targetId = logOperation.targetId().isEmpty() ? null
+                : evaluate(expressionCache, logOperation.targetId(), false, context);
+
+        StringBuilder operationDetail = new StringBuilder(action != null ? action : "");
+        if (success) {
+            operationDetail.append("成功");
+        } else {
+            operationDetail.append("失败");
+            if (errorMessage != null) {
+                operationDetail.append('：').append(errorMessage);
+            }
+        }
+        if (detail != null && !detail.isEmpty()) {
+            operationDetail.append('，').append(detail);
+        }
+
+        String ipAddress = null;
+        String userAgent = null;
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            ipAddress = request.getRemoteAddr();
+            userAgent = request.getHeader("User-Agent");
+        }
+
+        operationLogService.logOperation(
+                CurrentUser.getUserId(),
+                CurrentUser.getRole(),
+                logOperation.module(),
+                type,
+                truncate(operationDetail.toString()),
+                targetType == null || targetType.isEmpty() ? null : targetType,
+                targetId,
+                ipAddress,
+                userAgent,
+                success ? 1 : 0,
+                truncate(errorMessage),
+                (int) TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+        );
+    }
+
+    private boolean isTemplate(String text) {
+        return text.contains("#{");
+    }
+
+    // 含#{...}时按模板求值，否则原样返回
+    private String resolve(String text, MethodBasedEvaluationContext context) {
+        return isTemplate(text) ? evaluate(templateCache, text, true, context) : text;
+    }
+
+    private String evaluate(Map<String, Expression> cache, String text, boolean template,
+                            MethodBasedEvaluationContext context) {
+        Expression expression = cache.computeIfAbsent(text,
+                t -> template ? parser.parseExpression(t, templateContext) : parser.parseExpression(t));
+        try {
+            Object value = expression.getValue(context);
+            return value != null ? value.toString() : null;
+        } catch (Exception e) {
+            log.debug("操作日志表达式求值失败: {}, error={}", text, e.getMessage());
+            return null;
+        }
+    }
+
+    // 异常信息只取第一行，避免把SQL、堆栈等写入日志
+    private String firstLine(String text) {
+        if (text == null) {
+            return null;
+        }
+        int newline = text.indexOf('\n');
+        return newline >= 0 ? text.substring(0, newline).trim() : text;
+    }
+
+    private String truncate(String text) {
+        if (text == null || text.length() <= MAX_TEXT_LENGTH) {
+            return text;
+        }
+        return text.substring(0, MAX_TEXT_LENGTH - 3) + "...";
+    }
+}
@@ -1,11 +1,22 @@
 package com.zychen.bank.controller;
 
 import com.zychen.bank.dto.*;
+import com.zychen.bank.aspect.LogOperation;
 import com.zychen.bank.model.User;
+import com.zychen.bank.service.BalanceSnapshotService;
+import com.zychen.bank.service.InterestRateService;
 import com.zychen.bank.service.OperationLogService;
+import com.zychen.bank.service.ReportJobService;
+import com.zychen.bank.service.StatementJobService;
 import com.zychen.bank.service.TransactionService;
 import com.zychen.bank.service.UserService;
+import com.zychen.bank.utils.CardLockManager;
+import com.zychen.bank.utils.CurrentUser;
+import com.zychen.bank.utils.CardPasswordVerifier;
 import com.zychen.bank.utils.JwtUtil;
+import com.zychen.bank.utils.OperationLogWriter;
+import com.zychen.bank.utils.ReportCache;
+import com.zychen.bank.utils.UserDisplayNameCache;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
@@ -44,36 +55,19 @@ public class AdminController {
      * 仅管理员可访问
      */
     @PostMapping("/users/admins")
+    @LogOperation(module = "USER", type = "ADD_ADMIN", action = "添加新管理员",
+            detail = "用户名：#{#addAdminDTO.username}",
+            targetType = "USER", targetId = "#result?.get('data')?.get('user_id')")
     public ResponseEntity<?> addAdmin(
             @Valid @RequestBody AddAdminDTO addAdminDTO,
             HttpServletRequest request) {
         try {
             // 从token获取当前用户信息
-            String token = request.getHeader("Authorization").substring(7);
-            String currentUserId = jwtUtil.getUserIdFromToken(token);
-            Integer currentUserRole = jwtUtil.getRoleFromToken(token);
+            String currentUserId = CurrentUser.getUserId();
+            Integer currentUserRole = CurrentUser.getRole();
 
             // 验证当前用户是管理员
             if (currentUserRole != 1) {
-                // ============ 添加权限拒绝日志 ============
-                String ipAddress = request.getRemoteAddr();
-                String userAgent = request.getHeader("User-Agent");
-
-                operationLogService.logOperation(
-                        currentUserId,
-                        currentUserRole,
-                        "USER",
-                        "ADD_ADMIN",
-                        "尝试添加管理员被拒绝：权限不足，当前角色：" + currentUserRole,
-                        "USER",
-                        null,
-                        ipAddress,
-                        userAgent,
-                        0,
-                        "权限不足",
-                        0
-                );
-                // ============ 日志结束 ============
                 Map<String, Object> error = new HashMap<>();
                 error.put("code", 403);
                 error.put("message", "权限不足，仅管理员可操作");
@@ -83,28 +77,6 @@ public class AdminController {
 
             // 调用Service添加管理员
             Map<String, Object> result = userService.addAdmin(addAdminDTO, currentUserId);
-            // ============ 添加成功日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            // 获取新管理员的ID
-            String newAdminId = (String) result.get("user_id");
-
-            operationLogService.logOperation(
-                    currentUserId,
-                    currentUserRole,
-                    "USER",
-                    "ADD_ADMIN",
-                    "管理员添加新管理员成功，新管理员ID：" + newAdminId + "，用户名：" + addAdminDTO.getUsername(),
-                    "USER",
-                    newAdminId,
-                    ipAddress,
-                    userAgent,
-                    1,
-                    null,
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "管理员账号创建成功");
@@ -112,61 +84,12 @@ public class AdminController {
 
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
-            // ============ 添加失败日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-            String safeErrorMsg = truncateErrorMessage(e.getMessage(), 200);
-            // 获取操作者信息
-            String currentUserId = null;
-            Integer currentUserRole = null;
-            try {
-                String token = request.getHeader("Authorization").substring(7);
-                currentUserId = jwtUtil.getUserIdFromToken(token);
-                currentUserRole = jwtUtil.getRoleFromToken(token);
-            } catch (Exception ex) {
-                // 忽略
-            }
-
-            operationLogService.logOperation(
-                    currentUserId,
-                    currentUserRole,
-                    "USER",
-                    "ADD_ADMIN",
-                    "添加新管理员失败：" + "，尝试添加的用户名：" + addAdminDTO.getUsername(),
-                    "USER",
-                    null,
-                    ipAddress,
-                    userAgent,
-                    0,
-                    safeErrorMsg,
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> error = new HashMap<>();
             error.put("code", 400);
             error.put("message", e.getMessage());
             error.put("data", null);
             return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
-            // ============ 添加系统异常日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            operationLogService.logOperation(
-                    null,
-                    null,
-                    "USER",
-                    "ADD_ADMIN",
-                    "添加新管理员时发生系统异常",
-                    "USER",
-                    null,
-                    ipAddress,
-                    userAgent,
-                    0,
-                    "系统内部错误",
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> error = new HashMap<>();
             error.put("code", 500);
             error.put("message", "系统内部错误");
@@ -184,8 +107,7 @@ public class AdminController {
             HttpServletRequest request) {
         try {
             // 验证管理员权限
-            String token = request.getHeader("Authorization").substring(7);
-            Integer currentUserRole = jwtUtil.getRoleFromToken(token);
+            Integer currentUserRole = CurrentUser.getRole();
 
             if (currentUserRole != 1) {
 
@@ -229,8 +151,7 @@ public class AdminController {
             HttpServletRequest request) {
         try {
             // 验证管理员权限
-            String token = request.getHeader("Authorization").substring(7);
-            Integer currentUserRole = jwtUtil.getRoleFromToken(token);
+            Integer currentUserRole = CurrentUser.getRole();
 
             if (currentUserRole != 1) {
                 Map<String, Object> error = new HashMap<>();
@@ -270,8 +191,7 @@ public class AdminController {
             HttpServletRequest request) {
         try {
             // 验证管理员权限
-            String token = request.getHeader("Authorization").substring(7);
-            Integer currentUserRole = jwtUtil.getRoleFromToken(token);
+            Integer currentUserRole = CurrentUser.getRole();
 
             if (currentUserRole != 1) {
                 Map<String, Object> error = new HashMap<>();
@@ -310,13 +230,15 @@ public class AdminController {
      * POST /api/admin/users/reset-password
      */
     @PostMapping("/users/reset-password")
+    @LogOperation(module = "ADMIN", type = "RESET_USER_PASSWORD", action = "管理员重置用户密码",
+            detail = "目标用户：#{#dto.targetUserId}#{#dto.reason != null ? '，原因：' + #dto.reason : ''}",
+            targetType = "USER", targetId = "#dto.targetUserId")
     public ResponseEntity<?> resetUserPassword(
             @Valid @RequestBody ResetUserPasswordDTO dto,
             HttpServletRequest request) {
         try {
             // 获取管理员ID
-            String token = request.getHeader("Authorization").substring(7);
-            String adminId = jwtUtil.getUserIdFromToken(token);
+            String adminId = CurrentUser.getUserId();
 
             // 验证管理员角色 - 使用正确的方法名
             User admin = userService.findByUserId(adminId);  // 修复这里！
@@ -330,26 +252,6 @@ public class AdminController {
             // 执行密码重置
             userService.resetUserPassword(adminId, dto.getTargetUserId(), dto.getReason());
 
-            // 记录操作日志
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            operationLogService.logOperation(
-                    adminId,
-                    1,  // 管理员角色
-                    "ADMIN",
-                    "RESET_USER_PASSWORD",
-                    "管理员重置用户密码，目标用户：" + dto.getTargetUserId() +
-                            (dto.getReason() != null ? "，原因：" + dto.getReason() : ""),
-                    "USER",
-                    dto.getTargetUserId(),
-                    ipAddress,
-                    userAgent,
-                    1,
-                    null,
-                    0
-            );
-
             // 返回成功
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
@@ -365,30 +267,6 @@ public class AdminController {
         } catch (Exception e) {
             log.error("重置用户密码失败", e);
 
-            // 记录失败日志
-            String safeErrorMsg = truncateErrorMessage(e.getMessage(), 200);
-            try {
-                String token = request.getHeader("Authorization").substring(7);
-                String adminId = jwtUtil.getUserIdFromToken(token);
-
-                operationLogService.logOperation(
-                        adminId,
-                        1,
-                        "ADMIN",
-                        "RESET_USER_PASSWORD",
-                        "重置用户密码失败：" ,
-                        "USER",
-                        dto != null ? dto.getTargetUserId() : null,
-                        request.getRemoteAddr(),
-                        request.getHeader("User-Agent"),
-                        0,
-                        safeErrorMsg,
-                        0
-                );
-            } catch (Exception logEx) {
-                log.error("记录操作日志失败", logEx);
-            }
-
             Map<String, Object> error = new HashMap<>();
             error.put("code", 400);
             error.put("message", e.getMessage());
@@ -396,24 +274,13 @@ public class AdminController {
         }
     }
 
-
-
     @GetMapping("/dashboard/stats")
     public ResponseEntity<?> getDashboardStats(HttpServletRequest request) {
         try {
             log.info("收到仪表盘统计请求");
 
             // 验证管理员权限
-            String authHeader = request.getHeader("Authorization");
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("code", 401);
-                error.put("message", "未授权访问");
-                return ResponseEntity.status(401).body(error);
-            }
-
-            String token = authHeader.substring(7);
-            Integer currentUserRole = jwtUtil.getRoleFromToken(token);
+            Integer currentUserRole = CurrentUser.getRole();
 
             if (currentUserRole == null || currentUserRole != 1) {
                 log.warn("权限不足，用户角色: {}", currentUserRole);
@@ -463,8 +330,7 @@ public class AdminController {
             HttpServletRequest request) {
         try {
             // 验证管理员权限
-            String token = request.getHeader("Authorization").substring(7);
-            Integer currentUserRole = jwtUtil.getRoleFromToken(token);
+            Integer currentUserRole = CurrentUser.getRole();
 
             if (currentUserRole != 1) {
                 Map<String, Object> error = new HashMap<>();
@@ -516,16 +382,7 @@ public class AdminController {
             log.info("查询交易记录参数: {}", queryDTO);
 
             // 验证管理员权限
-            String authHeader = request.getHeader("Authorization");
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("code", 401);
-                error.put("message", "未授权访问");
-                return ResponseEntity.status(401).body(error);
-            }
-
-            String token = authHeader.substring(7);
-            Integer currentUserRole = jwtUtil.getRoleFromToken(token);
+            Integer currentUserRole = CurrentUser.getRole();
 
             if (currentUserRole == null || currentUserRole != 1) {
                 log.warn("权限不足，用户角色: {}", currentUserRole);
@@ -571,16 +428,7 @@ public class AdminController {
             HttpServletRequest request) {
         try {
             // 验证管理员权限
-            String authHeader = request.getHeader("Authorization");
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("code", 401);
-                error.put("message", "未授权访问");
-                return ResponseEntity.status(401).body(error);
-            }
-
-            String token = authHeader.substring(7);
-            Integer currentUserRole = jwtUtil.getRoleFromToken(token);
+            Integer currentUserRole = CurrentUser.getRole();
 
             if (currentUserRole == null || currentUserRole != 1) {
                 log.warn("权限不足，用户角色: {}", currentUserRole);
@@ -625,4 +473,327 @@ public class AdminController {
             return ResponseEntity.internalServerError().body(error);
         }
     }
-}
\ No newline at end of file
+
+    @Autowired
+    private CardLockManager cardLockManager;
+
+    /**
+     * 银行卡分段锁统计（等待时间、各分段竞争情况）
+     * GET /admin/metrics/card-locks
+     */
+    @GetMapping("/metrics/card-locks")
+    public ResponseEntity<?> getCardLockStats(HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可查看");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", cardLockManager.getStatistics());
+        return ResponseEntity.ok(response);
+    }
+
+    @Autowired
+    private CardPasswordVerifier cardPasswordVerifier;
+
+    /**
+     * 交易密码校验缓存统计（命中/未命中次数）
+     * GET /admin/metrics/card-password-cache
+     */
+    @GetMapping("/metrics/card-password-cache")
+    public ResponseEntity<?> getCardPasswordCacheStats(HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可查看");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", cardPasswordVerifier.getStatistics());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * JWT解析缓存统计（命中/未命中次数）
+     * GET /admin/metrics/jwt-cache
+     */
+    @GetMapping("/metrics/jwt-cache")
+    public ResponseEntity<?> getJwtCacheStats(HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可查看");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", jwtUtil.getCacheStatistics());
+        return ResponseEntity.ok(response);
+    }
+
+    @Autowired
+    private UserDisplayNameCache userDisplayNameCache;
+
+    /**
+     * 用户展示名缓存统计（命中/未命中、淘汰次数）
+     * GET /admin/metrics/user-display-name-cache
+     */
+    @GetMapping("/metrics/user-display-name-cache")
+    public ResponseEntity<?> getUserDisplayNameCacheStats(HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可查看");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", userDisplayNameCache.getStatistics());
+        return ResponseEntity.ok(response);
+    }
+
+    @Autowired
+    private OperationLogWriter operationLogWriter;
+
+    /**
+     * 操作日志异步写入统计（队列深度、丢弃/落盘数量）
+     * GET /admin/metrics/operation-log
+     */
+    @GetMapping("/metrics/operation-log")
+    public ResponseEntity<?> getOperationLogStats(HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可查看");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", operationLogWriter.getStatistics());
+        return ResponseEntity.ok(response);
+    }
+
+    @Autowired
+    private ReportCache reportCache;
+
+    /**
+     * 报告缓存统计（内存/磁盘命中、淘汰数量）
+     * GET /admin/metrics/report-cache
+     */
+    @GetMapping("/metrics/report-cache")
+    public ResponseEntity<?> getReportCacheStats(HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可查看");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", reportCache.getStatistics());
+        return ResponseEntity.ok(response);
+    }
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    /**
+     * 异步报告生成线程池统计（排队数、进行中用户数、成功/失败/拒绝数）
+     * GET /admin/metrics/report-jobs
+     */
+    @GetMapping("/metrics/report-jobs")
+    public ResponseEntity<?> getReportJobStats(HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可查看");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", reportJobService.getStatistics());
+        return ResponseEntity.ok(response);
+    }
+
+    @Autowired
+    private InterestRateService interestRateService;
+
+    /**
+     * 立即重新加载利率表（修改利率配置后调用，否则按刷新间隔自动生效）
+     * POST /admin/interest-rates/refresh
+     */
+    @PostMapping("/interest-rates/refresh")
+    @LogOperation(module = "ADMIN", type = "REFRESH_INTEREST_RATES", action = "刷新利率缓存")
+    public ResponseEntity<?> refreshInterestRates(HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可操作");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "刷新完成");
+        response.put("data", interestRateService.refreshRates());
+        return ResponseEntity.ok(response);
+    }
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    /**
+     * 按交易流水重建日终余额快照（数据修复用）
+     * POST /admin/balance-snapshots/rebuild
+     */
+    @PostMapping("/balance-snapshots/rebuild")
+    @LogOperation(module = "ADMIN", type = "REBUILD_BALANCE_SNAPSHOT", action = "重建日终余额快照")
+    public ResponseEntity<?> rebuildBalanceSnapshots(HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可操作");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 200);
+            response.put("message", "重建完成");
+            response.put("data", balanceSnapshotService.rebuild());
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.warn("重建余额快照失败: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 400);
+            error.put("message", e.getMessage());
+            error.put("data", null);
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @Autowired
+    private StatementJobService statementJobService;
+
+    /**
+     * 启动批量生成月度账单任务（后台执行，同一月份再次启动时从检查点继续）
+     * POST /admin/statement-jobs?year=2024&month=1
+     */
+    @PostMapping("/statement-jobs")
+    @LogOperation(module = "ADMIN", type = "START_STATEMENT_JOB", action = "批量生成月度账单")
+    public ResponseEntity<?> startStatementJob(@RequestParam int year,
+                                               @RequestParam int month,
+                                               HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可操作");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 200);
+            response.put("message", "账单任务已启动");
+            response.put("data", statementJobService.start(year, month));
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.warn("启动账单任务失败: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 400);
+            error.put("message", e.getMessage());
+            error.put("data", null);
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * 账单任务进度（已生成/跳过/失败数、检查点、吞吐）
+     * GET /admin/statement-jobs/current
+     */
+    @GetMapping("/statement-jobs/current")
+    public ResponseEntity<?> getStatementJobStatus(HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可查看");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "查询成功");
+        response.put("data", statementJobService.getStatus());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 停止账单任务（当前一批完成后停止，可再次启动继续）
+     * POST /admin/statement-jobs/current/stop
+     */
+    @PostMapping("/statement-jobs/current/stop")
+    @LogOperation(module = "ADMIN", type = "STOP_STATEMENT_JOB", action = "停止批量生成月度账单")
+    public ResponseEntity<?> stopStatementJob(HttpServletRequest request) {
+        Integer currentUserRole = CurrentUser.getRole();
+
+        if (currentUserRole == null || currentUserRole != 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 403);
+            error.put("message", "权限不足，仅管理员可操作");
+            return ResponseEntity.status(403).body(error);
+        }
+
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 200);
+            response.put("message", "账单任务正在停止");
+            response.put("data", statementJobService.stop());
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 400);
+            error.put("message", e.getMessage());
+            error.put("data", null);
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.zychen.bank.dto.*;
 import com.zychen.bank.model.User;
 import com.zychen.bank.service.OperationLogService;
 import com.zychen.bank.service.UserService;
+import com.zychen.bank.utils.CurrentUser;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -172,8 +173,8 @@ public class AuthController {
      */
     @GetMapping("/test-token")
     public ResponseEntity<Map<String, Object>> testToken(HttpServletRequest request) {
-        String userId = (String) request.getAttribute("userId");
-        Integer role = (Integer) request.getAttribute("role");
+        String userId = CurrentUser.getUserId();
+        Integer role = CurrentUser.getRole();
 
         Map<String, Object> response = new HashMap<>();
         response.put("code", 200);
@@ -1,16 +1,15 @@
 package com.zychen.bank.controller;
 
+import com.zychen.bank.aspect.LogOperation;
 import com.zychen.bank.dto.BindCardDTO;
 import com.zychen.bank.mapper.BankCardMapper;
 import com.zychen.bank.model.BankCard;
 import com.zychen.bank.service.BankCardService;
-import com.zychen.bank.service.OperationLogService;
-import com.zychen.bank.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import com.zychen.bank.utils.JwtUtil;
+import com.zychen.bank.utils.CurrentUser;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
@@ -22,67 +21,27 @@ import com.zychen.bank.dto.UnbindCardDTO;
 @RestController
 @RequestMapping("/cards")
 public class BankCardController {
-    @Autowired
-    private OperationLogService operationLogService;
-    @Autowired
-    private UserService userService;
 
-    @Autowired
-    private JwtUtil jwtUtil;
 
     @Autowired
     private BankCardService bankCardService;
     @Autowired
     private BankCardMapper bankCardMapper;
 
-    // 安全截断错误信息
-    private String truncateErrorMessage(String errorMsg, int maxLength) {
-        if (errorMsg == null) return null;
-        if (errorMsg.length() <= maxLength) return errorMsg;
-        return errorMsg.substring(0, maxLength - 3) + "...";
-    }
     /**
      * 绑定银行卡
      */
     @PostMapping("/bind")
+    @LogOperation(module = "CARD", type = "BIND_CARD", action = "绑定银行卡",
+            detail = "卡号：#{#bindCardDTO.cardId}", targetType = "CARD", targetId = "#bindCardDTO.cardId")
 
     public ResponseEntity<Map<String, Object>> bindCard(
             @Valid @RequestBody BindCardDTO bindCardDTO,
             HttpServletRequest request) {
         try {
-            String userId = (String) request.getAttribute("userId");
+            String userId = CurrentUser.getUserId();
 
             BankCard bankCard = bankCardService.bindCard(userId, bindCardDTO);
-            // ============ 添加操作日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-        // 获取用户角色
-            Integer userRole = null;
-            if (userId != null) {
-                try {
-                    userRole = userService.getUserRole(userId);
-                } catch (Exception e) {
-                    log.warn("获取用户角色失败: {}", userId, e);
-                    userRole = 0; // 默认普通用户
-                }
-            }
-
-            operationLogService.logOperation(
-                    userId,
-                    userRole,
-                    "CARD",
-                    "BIND_CARD",
-                    "绑定银行卡成功，卡号：" + bindCardDTO.getCardId(),
-                    "CARD",
-                    bindCardDTO.getCardId(),
-                    ipAddress,
-                    userAgent,
-                    1,
-                    null,
-                    0
-            );
-// ============ 日志结束 ============
             // 银行卡信息脱敏处理
             Map<String, Object> cardInfo = new HashMap<>();
             cardInfo.put("cardId", maskCardId(bankCard.getCardId()));  // 卡号脱敏
@@ -103,33 +62,6 @@ public class BankCardController {
             return ResponseEntity.ok(response);
 
         } catch (RuntimeException e) {
-            // ============ 失败时也记录日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            // 获取用户ID（可能为null）
-            String userId = null;
-            try {
-                userId = (String) request.getAttribute("userId");
-            } catch (Exception ex) {
-                // 忽略
-            }
-
-            operationLogService.logOperation(
-                    userId,
-                    null,
-                    "CARD",
-                    "BIND_CARD",
-                    "绑定银行卡失败：" +"，卡号：" + bindCardDTO.getCardId(),
-                    "CARD",
-                    bindCardDTO.getCardId(),
-                    ipAddress,
-                    userAgent,
-                    0,  // 失败
-                    truncateErrorMessage(e.getMessage(), 200),
-                    0
-            );
-            // ============ 日志结束 ============
             log.warn("银行卡绑定失败: {}", e.getMessage());
 
             Map<String, Object> error = new HashMap<>();
@@ -150,14 +82,13 @@ public class BankCardController {
         }
     }
 
-
     /**
      * 查询我的所有银行卡
      */
     @GetMapping("/my")
     public ResponseEntity<Map<String, Object>> getMyCards(HttpServletRequest request) {
         try {
-            String userId = (String) request.getAttribute("userId");
+            String userId = CurrentUser.getUserId();
 
             List<BankCard> cards = bankCardService.getUserCards(userId);
 
@@ -202,7 +133,6 @@ public class BankCardController {
         }
     }
 
-
     /**
      * 查询银行卡详情
      */
@@ -211,7 +141,7 @@ public class BankCardController {
             @PathVariable String cardId,
             HttpServletRequest request) {
         try {
-            String userId = (String) request.getAttribute("userId");
+            String userId = CurrentUser.getUserId();
 
             BankCard bankCard = bankCardService.getCardDetail(cardId, userId);
 
@@ -262,15 +192,13 @@ public class BankCardController {
         }
     }
 
-
     // BankCardController.java - 余额查询接口
     @GetMapping("/{cardId}/balance")
     public ResponseEntity<?> getCardBalance(
             @PathVariable String cardId,
             HttpServletRequest request) {
         try {
-            String token = request.getHeader("Authorization").substring(7);
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = CurrentUser.getUserId();
 
             BankCard bankCard = bankCardMapper.findByCardId(cardId);
             if (bankCard == null) {
@@ -310,63 +238,25 @@ public class BankCardController {
         }
     }
 
-
     /**
      * 解绑银行卡
      */
     @PostMapping("/{cardId}/unbind")
+    @LogOperation(module = "CARD", type = "UNBIND_CARD", action = "解绑银行卡",
+            detail = "卡号：#{#cardId}", targetType = "CARD", targetId = "#cardId")
     public ResponseEntity<?> unbindCard(
             @PathVariable String cardId,
             @Valid @RequestBody UnbindCardDTO dto,
             HttpServletRequest request) {
         try {
-            String token = request.getHeader("Authorization").substring(7);
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = CurrentUser.getUserId();
 
             // 验证路径参数和body中的cardId一致
             if (!cardId.equals(dto.getCardId())) {
-                // ============ 失败日志：卡号不一致 ============
-                String ipAddress = request.getRemoteAddr();
-                String userAgent = request.getHeader("User-Agent");
-
-                operationLogService.logOperation(
-                        userId,
-                        userService.getUserRole(userId),
-                        "CARD",
-                        "UNBIND_CARD",
-                        "解绑银行卡失败：卡号不一致，路径卡号=" + cardId + "，请求卡号=" + dto.getCardId(),
-                        "CARD",
-                        cardId,
-                        ipAddress,
-                        userAgent,
-                        0,
-                        "卡号不一致",
-                        0
-                );
-                // ============ 日志结束 ============
                 throw new RuntimeException("卡号不一致");
             }
 
             Map<String, Object> result = bankCardService.unbindCard(dto, userId);
-            // ============ 成功日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            operationLogService.logOperation(
-                    userId,
-                    userService.getUserRole(userId),
-                    "CARD",
-                    "UNBIND_CARD",
-                    "解绑银行卡成功，卡号：" + cardId,
-                    "CARD",
-                    cardId,
-                    ipAddress,
-                    userAgent,
-                    1,
-                    null,
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "银行卡解绑成功");
@@ -374,44 +264,6 @@ public class BankCardController {
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            // ============ 失败日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            // 获取用户ID（如果之前已经获取过）
-            String userId = null;
-            try {
-                String token = request.getHeader("Authorization").substring(7);
-                userId = jwtUtil.getUserIdFromToken(token);
-            } catch (Exception ex) {
-                // 如果获取不到userId，就设为null
-            }
-
-            // 获取用户角色
-            Integer userRole = null;
-            if (userId != null) {
-                try {
-                    userRole = userService.getUserRole(userId);
-                } catch (Exception ex) {
-                    // 如果获取失败，就设为null
-                }
-            }
-
-            operationLogService.logOperation(
-                    userId,
-                    userRole,
-                    "CARD",
-                    "UNBIND_CARD",
-                    "解绑银行卡失败：" +"，卡号：" + cardId,
-                    "CARD",
-                    cardId,
-                    ipAddress,
-                    userAgent,
-                    0,
-                    truncateErrorMessage(e.getMessage(), 200),
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("code", 400);
             errorResponse.put("message", e.getMessage());
@@ -1,13 +1,12 @@
 package com.zychen.bank.controller;
 
+import com.zychen.bank.aspect.LogOperation;
 import com.zychen.bank.dto.EarlyWithdrawDTO;
 import com.zychen.bank.dto.FixedDepositDTO;
 import com.zychen.bank.dto.MatureWithdrawDTO;
 import com.zychen.bank.model.FixedDeposit;
 import com.zychen.bank.service.FixedDepositService;
-import com.zychen.bank.service.OperationLogService;
-import com.zychen.bank.service.UserService;
-import com.zychen.bank.utils.JwtUtil;
+import com.zychen.bank.utils.CurrentUser;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,68 +24,22 @@ public class FixedDepositController {
     @Autowired
     private FixedDepositService fixedDepositService;
 
-    @Autowired
-    private JwtUtil jwtUtil;
-
-    @Autowired
-    private OperationLogService operationLogService;
-    @Autowired
-    private UserService userService;
 
-    // 安全截断错误信息
-    private String truncateErrorMessage(String errorMsg, int maxLength) {
-        if (errorMsg == null) return null;
-        if (errorMsg.length() <= maxLength) return errorMsg;
-        return errorMsg.substring(0, maxLength - 3) + "...";
-    }
-
-    /**
-     * 安全获取用户角色，避免异常影响主流程
-     */
-    private Integer getUserRoleSafely(String userId) {
-        if (userId == null) {
-            return null;
-        }
-        try {
-            return userService.getUserRole(userId);
-        } catch (Exception e) {
-            return 0;  // 默认普通用户
-        }
-    }
     /**
      * 创建定期存款
      */
     @PostMapping("/create")
+    @LogOperation(module = "FIXED_DEPOSIT", type = "CREATE_FD", action = "创建定期存款",
+            detail = "金额：#{#dto.principal}元，卡号：#{#dto.cardId}，期限：#{#dto.term}个月",
+            targetType = "CARD", targetId = "#dto.cardId")
     public ResponseEntity<?> createFixedDeposit(
             @Valid @RequestBody FixedDepositDTO dto,
             HttpServletRequest request) {
         try {
             // 从token获取用户ID
-            String token = request.getHeader("Authorization").substring(7);
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = CurrentUser.getUserId();
 
             FixedDeposit fixedDeposit = fixedDepositService.createFixedDeposit(dto, userId);
-            // ============ 添加成功日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            Integer userRole = getUserRoleSafely(userId);
-
-            operationLogService.logOperation(
-                    userId,
-                    userRole,
-                    "FIXED_DEPOSIT",
-                    "CREATE_FD",
-                    "创建定期存款成功，金额：" + dto.getPrincipal() + "元，卡号：" + dto.getCardId() + "，期限：" + dto.getTerm() + "个月",
-                    "CARD",
-                    dto.getCardId(),
-                    ipAddress,
-                    userAgent,
-                    1,
-                    null,
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "定期存款创建成功");
@@ -94,51 +47,6 @@ public class FixedDepositController {
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            // ============ 添加失败日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            // 获取用户ID
-            String userId = null;
-            try {
-                String token = request.getHeader("Authorization").substring(7);
-                userId = jwtUtil.getUserIdFromToken(token);
-            } catch (Exception ex) {
-                // 忽略
-            }
-
-            // ✅ 关键：不要将异常信息放到 operation_detail 中
-            // 只放简单的描述
-            String operationDetail = "创建定期存款失败";
-
-            // ✅ 只截取第一行异常信息（不要包含堆栈跟踪）
-            String errorMsg = e.getMessage();
-            if (errorMsg != null) {
-                // 只取第一行，去掉堆栈跟踪
-                String[] lines = errorMsg.split("\n");
-                errorMsg = lines[0].trim();
-                // 截断到195字符
-                if (errorMsg.length() > 195) {
-                    errorMsg = errorMsg.substring(0, 195) + "...";
-                }
-            }
-
-            operationLogService.logOperation(
-                    userId,
-                    userId != null ? getUserRoleSafely(userId) : null,
-                    "FIXED_DEPOSIT",
-                    "CREATE_FD",
-                    operationDetail,  // ✅ 简单描述
-                    "CARD",
-                    dto.getCardId(),
-                    ipAddress,
-                    userAgent,
-                    0,
-                    errorMsg,  // ✅ 只放简洁的错误信息
-                    0
-            );
-            // ============ 日志结束 ============
-
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("code", 400);
             errorResponse.put("message", e.getMessage());
@@ -152,8 +60,7 @@ public class FixedDepositController {
     @GetMapping("/my")
     public ResponseEntity<?> getMyFixedDeposits(HttpServletRequest request) {
         try {
-            String token = request.getHeader("Authorization").substring(7);
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = CurrentUser.getUserId();
 
             List<FixedDeposit> deposits = fixedDepositService.getFixedDepositsByUser(userId);
 
@@ -179,8 +86,7 @@ public class FixedDepositController {
             @PathVariable Integer fdId,
             HttpServletRequest request) {
         try {
-            String token = request.getHeader("Authorization").substring(7);
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = CurrentUser.getUserId();
 
             FixedDeposit deposit = fixedDepositService.getFixedDepositDetail(fdId, userId);
 
@@ -206,8 +112,7 @@ public class FixedDepositController {
             @PathVariable String cardId,
             HttpServletRequest request) {
         try {
-            String token = request.getHeader("Authorization").substring(7);
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = CurrentUser.getUserId();
 
             List<FixedDeposit> deposits = fixedDepositService.getFixedDepositsByCard(cardId, userId);
 
@@ -225,43 +130,21 @@ public class FixedDepositController {
         }
     }
 
-
     /**
      * 提前支取定期存款
      */
     @PostMapping("/{fdId}/early-withdraw")
+    @LogOperation(module = "FIXED_DEPOSIT", type = "EARLY_WITHDRAW_FD", action = "提前支取定期存款",
+            detail = "存单ID：#{#fdId}", targetType = "FIXED_DEPOSIT", targetId = "#fdId")
     public ResponseEntity<?> earlyWithdraw(
             @PathVariable Integer fdId,
             @Valid @RequestBody EarlyWithdrawDTO dto,
             HttpServletRequest request) {
         try {
             // 从token获取用户ID
-            String token = request.getHeader("Authorization").substring(7);
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = CurrentUser.getUserId();
 
             Map<String, Object> result = fixedDepositService.earlyWithdraw(fdId, userId, dto.getCardPassword());
-            // ============ 添加成功日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            // 获取定期存款详情（用于记录卡号）
-            FixedDeposit deposit = fixedDepositService.getFixedDepositDetail(fdId, userId);
-
-            operationLogService.logOperation(
-                    userId,
-                    getUserRoleSafely(userId),
-                    "FIXED_DEPOSIT",
-                    "EARLY_WITHDRAW_FD",
-                    "提前支取定期存款成功，存单ID：" + fdId + "，卡号：" + deposit.getCardId() + "，本金：" + deposit.getPrincipal() + "元",
-                    "FIXED_DEPOSIT",
-                    String.valueOf(fdId),
-                    ipAddress,
-                    userAgent,
-                    1,
-                    null,
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "定期存款提前支取成功");
@@ -269,33 +152,6 @@ public class FixedDepositController {
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            // ============ 添加失败日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            String userId = null;
-            try {
-                String token = request.getHeader("Authorization").substring(7);
-                userId = jwtUtil.getUserIdFromToken(token);
-            } catch (Exception ex) {
-                // 忽略
-            }
-
-            operationLogService.logOperation(
-                    userId,
-                    userId != null ? getUserRoleSafely(userId) : null,
-                    "FIXED_DEPOSIT",
-                    "EARLY_WITHDRAW_FD",
-                    "提前支取定期存款失败：" +  "，存单ID：" + fdId,
-                    "FIXED_DEPOSIT",
-                    String.valueOf(fdId),
-                    ipAddress,
-                    userAgent,
-                    0,
-                    truncateErrorMessage(e.getMessage(), 200),
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("code", 400);
             errorResponse.put("message", e.getMessage());
@@ -307,38 +163,17 @@ public class FixedDepositController {
      * 到期转出定期存款
      */
     @PostMapping("/{fdId}/mature")
+    @LogOperation(module = "FIXED_DEPOSIT", type = "MATURE_FD", action = "到期转出定期存款",
+            detail = "存单ID：#{#fdId}", targetType = "FIXED_DEPOSIT", targetId = "#fdId")
     public ResponseEntity<?> matureWithdraw(
             @PathVariable Integer fdId,
             @Valid @RequestBody MatureWithdrawDTO dto,
             HttpServletRequest request) {
         try {
             // 从token获取用户ID
-            String token = request.getHeader("Authorization").substring(7);
-            String userId = jwtUtil.getUserIdFromToken(token);
+            String userId = CurrentUser.getUserId();
 
             Map<String, Object> result = fixedDepositService.matureWithdraw(fdId, userId, dto.getCardPassword());
-            // ============ 添加成功日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            // 获取定期存款详情
-            FixedDeposit deposit = fixedDepositService.getFixedDepositDetail(fdId, userId);
-
-            operationLogService.logOperation(
-                    userId,
-                    getUserRoleSafely(userId),
-                    "FIXED_DEPOSIT",
-                    "MATURE_FD",
-                    "到期转出定期存款成功，存单ID：" + fdId + "，卡号：" + deposit.getCardId() + "，本金：" + deposit.getPrincipal() + "元",
-                    "FIXED_DEPOSIT",
-                    String.valueOf(fdId),
-                    ipAddress,
-                    userAgent,
-                    1,
-                    null,
-                    0
-            );
-            // ============ 日志结束 ============
 
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
@@ -347,33 +182,6 @@ public class FixedDepositController {
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            // ============ 添加失败日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            String userId = null;
-            try {
-                String token = request.getHeader("Authorization").substring(7);
-                userId = jwtUtil.getUserIdFromToken(token);
-            } catch (Exception ex) {
-                // 忽略
-            }
-
-            operationLogService.logOperation(
-                    userId,
-                    userId != null ? getUserRoleSafely(userId) : null,
-                    "FIXED_DEPOSIT",
-                    "MATURE_FD",
-                    "到期转出定期存款失败：" + "，存单ID：" + fdId,
-                    "FIXED_DEPOSIT",
-                    String.valueOf(fdId),
-                    ipAddress,
-                    userAgent,
-                    0,
-                    truncateErrorMessage(e.getMessage(), 200),
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("code", 400);
             errorResponse.put("message", e.getMessage());
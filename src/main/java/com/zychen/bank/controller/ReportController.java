@@ -1,23 +1,29 @@
 package com.zychen.bank.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zychen.bank.dto.GenerateReportDTO;
+import com.zychen.bank.dto.ReportJobDTO;
 import com.zychen.bank.dto.ReportResponseDTO;
 import com.zychen.bank.service.OperationLogService;
 import com.zychen.bank.service.PdfExportService;
+import com.zychen.bank.service.ReportJobService;
 import com.zychen.bank.service.ReportService;
-import com.zychen.bank.service.UserService;
-import com.zychen.bank.utils.JwtUtil;
+import com.zychen.bank.utils.CurrentUser;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
@@ -32,6 +38,16 @@ public class ReportController {
     @Autowired
     private PdfExportService pdfExportService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    // 长轮询最多等待的秒数
+    @Value("${app.report-job.max-wait-seconds:30}")
+    private int reportJobMaxWaitSeconds;
+
     /**
      * 生成账单报告
      * API: POST /api/reports/generate
@@ -42,12 +58,11 @@ public class ReportController {
             HttpServletRequest httpRequest) {
         try {
             // 权限验证：用户只能生成自己的报告
-            String currentUserId = (String) httpRequest.getAttribute("userId");
+            String currentUserId = CurrentUser.getUserId();
 
             if (!request.getUserId().equals(currentUserId)) {
                 // 检查是否是管理员
-                String token = httpRequest.getHeader("Authorization").substring(7);
-                Integer role = jwtUtil.getRoleFromToken(token);
+                Integer role = CurrentUser.getRole();
 
                 if (role == null || role != 1) { // 不是管理员
                     Map<String, Object> error = new HashMap<>();
@@ -75,7 +90,7 @@ public class ReportController {
             log.warn("生成账单报告失败: {}", e.getMessage());
 
             // 记录失败日志
-            String currentUserId = (String) httpRequest.getAttribute("userId");
+            String currentUserId = CurrentUser.getUserId();
             logOperation(httpRequest, currentUserId, "生成账单报告失败", e.getMessage(), 0, e.getMessage());
 
             Map<String, Object> error = new HashMap<>();
@@ -92,74 +107,197 @@ public class ReportController {
         }
     }
 
+    /**
+     * 异步生成账单报告：立即返回任务ID，报告在后台线程池中生成，不占用请求线程
+     * API: POST /api/reports/jobs
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitReportJob(
+            @Valid @RequestBody GenerateReportDTO request,
+            HttpServletRequest httpRequest) {
+        String currentUserId = CurrentUser.getUserId();
+        try {
+            // 权限验证：用户只能生成自己的报告
+            if (!request.getUserId().equals(currentUserId) && !isAdmin()) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("code", 403);
+                error.put("message", "只能生成自己的账单报告");
+                return ResponseEntity.status(403).body(error);
+            }
+
+            ReportJobDTO job = reportJobService.submit(request, currentUserId);
+            logOperation(httpRequest, currentUserId, "提交账单报告生成任务", request.getReportType(), 1, null);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 202);
+            response.put("message", "报告生成任务已提交");
+            response.put("data", job);
+            return ResponseEntity.accepted().body(response);
+
+        } catch (RuntimeException e) {
+            log.warn("提交报告生成任务失败: {}", e.getMessage());
+            logOperation(httpRequest, currentUserId, "提交账单报告生成任务失败", e.getMessage(), 0, e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 400);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * 查询报告生成任务状态，完成后附带报告内容和下载链接
+     * wait>0 时为长轮询：任务未结束则最多等待wait秒，任务结束或超时时返回当前状态
+     * API: GET /api/reports/jobs/{jobId}?wait=20
+     */
+    @GetMapping("/jobs/{jobId}")
+    public DeferredResult<ResponseEntity<Map<String, Object>>> getReportJob(
+            @PathVariable String jobId,
+            @RequestParam(required = false, defaultValue = "0") int wait,
+            HttpServletRequest request) {
+        ReportJobDTO job;
+        try {
+            job = reportJobService.getJob(jobId);
+        } catch (RuntimeException e) {
+            return completed(jobError(404, e.getMessage()));
+        }
+
+        // 权限验证：提交人、报告所属用户或管理员可查看
+        String currentUserId = CurrentUser.getUserId();
+        if (!job.getUserId().equals(currentUserId) && !job.getSubmitterId().equals(currentUserId)
+                && !isAdmin()) {
+            return completed(jobError(403, "无权查看此任务"));
+        }
+
+        int waitSeconds = Math.min(Math.max(wait, 0), reportJobMaxWaitSeconds);
+        if (waitSeconds == 0 || job.isFinished()) {
+            return completed(jobResponse(job));
+        }
+
+        // 等待期间不占用请求线程，任务结束时由任务线程写回结果
+        DeferredResult<ResponseEntity<Map<String, Object>>> result =
+                new DeferredResult<>(TimeUnit.SECONDS.toMillis(waitSeconds));
+        result.onTimeout(() -> {
+            try {
+                result.setResult(jobResponse(reportJobService.getJob(jobId)));
+            } catch (RuntimeException e) {
+                result.setResult(jobError(404, e.getMessage()));
+            }
+        });
+        reportJobService.whenFinished(jobId).thenAccept(finished -> result.setResult(jobResponse(finished)));
+        return result;
+    }
+
+    private static boolean isAdmin() {
+        Integer role = CurrentUser.getRole();
+        return role != null && role == 1;
+    }
+
+    private static DeferredResult<ResponseEntity<Map<String, Object>>> completed(
+            ResponseEntity<Map<String, Object>> response) {
+        DeferredResult<ResponseEntity<Map<String, Object>>> result = new DeferredResult<>();
+        result.setResult(response);
+        return result;
+    }
+
+    private static ResponseEntity<Map<String, Object>> jobResponse(ReportJobDTO job) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "查询成功");
+        response.put("data", job);
+        return ResponseEntity.ok(response);
+    }
+
+    private static ResponseEntity<Map<String, Object>> jobError(int code, String message) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("code", code);
+        error.put("message", message);
+        return ResponseEntity.status(code).body(error);
+    }
+
+    /**
+     * 下载报告（PDF/CSV），文件边生成边写入响应（分块传输），不在内存中保留整个文件
+     * API: GET /api/reports/{reportId}/download?format=pdf|csv
+     */
     @GetMapping("/{reportId}/download")
-    public ResponseEntity<?> downloadReport(
+    public ResponseEntity<StreamingResponseBody> downloadReport(
             @PathVariable String reportId,
             @RequestParam(required = false, defaultValue = "pdf") String format,
             HttpServletRequest request) {
         try {
             // 权限验证
-            String currentUserId = (String) request.getAttribute("userId");
+            String currentUserId = CurrentUser.getUserId();
 
             // 获取报告数据
             ReportResponseDTO report = reportService.getReportData(reportId);
-            if (report == null) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("code", 404);
-                error.put("message", "报告不存在或已过期");
-                return ResponseEntity.status(404).body(error);
-            }
 
             // 验证权限：用户只能下载自己的报告
             if (!report.getUserId().equals(currentUserId)) {
                 // 检查是否是管理员
-                String token = request.getHeader("Authorization").substring(7);
-                Integer role = jwtUtil.getRoleFromToken(token);
+                Integer role = CurrentUser.getRole();
 
                 if (role == null || role != 1) { // 不是管理员
-                    Map<String, Object> error = new HashMap<>();
-                    error.put("code", 403);
-                    error.put("message", "无权下载此报告");
-                    return ResponseEntity.status(403).body(error);
+                    return errorResponse(403, "无权下载此报告");
                 }
             }
 
-            byte[] fileContent;
+            StreamingResponseBody body;
             String contentType;
             String fileName;
 
             if ("csv".equalsIgnoreCase(format)) {
-                // CSV导出（如果实现了）
-                fileContent = reportService.exportReportAsCsv(reportId);
+                body = out -> reportService.writeReportAsCsv(report, out);
                 contentType = "text/csv;charset=UTF-8";
                 fileName = report.getReportId() + ".csv";
             } else {
-                // PDF导出
-                // fileContent = pdfExportService.exportReportToPdf(report);
-                fileContent = reportService.exportReportAsPdf(reportId);
+                body = out -> reportService.writeReportAsPdf(report, out);
                 contentType = "application/pdf";
                 fileName = report.getReportId() + ".pdf";
             }
 
-            // 设置响应头
+            // 设置响应头（不设Content-Length，按分块传输）
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.parseMediaType(contentType));
             headers.setContentDispositionFormData("attachment", fileName);
             headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
 
+            // 导出名额在返回响应体之前申请：排队超时直接返回503，而不是先返回200再中断下载；
+            // 名额在响应体写完（或写出失败）时归还
+            if (!reportService.tryAcquireExportPermit()) {
+                log.warn("导出名额不足: reportId={}", reportId);
+                return errorResponse(503, "当前导出任务较多，请稍后再试");
+            }
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(fileContent);
+                    .body(out -> {
+                        try {
+                            body.writeTo(out);
+                        } finally {
+                            reportService.releaseExportPermit();
+                        }
+                    });
 
+        } catch (RuntimeException e) {
+            log.warn("下载报告失败: {}", e.getMessage());
+            return errorResponse(404, e.getMessage());
         } catch (Exception e) {
             log.error("下载报告异常", e);
-            Map<String, Object> error = new HashMap<>();
-            error.put("code", 500);
-            error.put("message", "系统内部错误: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(error);
+            return errorResponse(500, "系统内部错误: " + e.getMessage());
         }
     }
 
+    /**
+     * 下载接口的错误响应，格式与其他接口一致
+     */
+    private ResponseEntity<StreamingResponseBody> errorResponse(int code, String message) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("code", code);
+        error.put("message", message);
+        return ResponseEntity.status(code)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, error));
+    }
+
     /**
      * 记录操作日志
      */
@@ -171,13 +309,7 @@ public class ReportController {
             String userAgent = request.getHeader("User-Agent");
 
             // 获取用户角色
-            Integer userRole = null;
-            try {
-                userRole = userService.getUserRole(userId);
-            } catch (Exception e) {
-                log.warn("获取用户角色失败: {}", userId, e);
-                userRole = 0; // 默认普通用户
-            }
+            Integer userRole = CurrentUser.getRole(userId);
 // ✅ 新增：安全截断
             String safeDetail = truncateErrorMessage(detail, 200);
             String safeErrorMsg = truncateErrorMessage(errorMessage, 200);
@@ -205,10 +337,4 @@ public class ReportController {
         if (errorMsg.length() <= maxLength) return errorMsg;
         return errorMsg.substring(0, maxLength - 3) + "...";
     }
-    // 需要注入的依赖
-    @Autowired
-    private JwtUtil jwtUtil;
-
-    @Autowired
-    private UserService userService;
 }
\ No newline at end of file
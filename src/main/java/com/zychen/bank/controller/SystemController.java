@@ -1,13 +1,17 @@
 package com.zychen.bank.controller;
 
 
+import com.zychen.bank.dto.PrecomputedResponse;
 import com.zychen.bank.service.InterestRateService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.sql.DataSource;
 import java.lang.management.ManagementFactory;
@@ -90,28 +94,21 @@ public class SystemController {
     /**
      * 获取利率配置
      * GET /api/system/interest-rates
+     * 返回利率表刷新时预先序列化好的响应；带ETag，客户端用If-None-Match请求且利率未变化时返回304
      */
     @GetMapping("/interest-rates")
-    public ResponseEntity<Map<String, Object>> getInterestRates() {
-        try {
-            Map<String, Object> rates = interestRateService.getFormattedInterestRates();
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("code", 200);
-            response.put("message", "获取利率配置成功");
-            response.put("data", rates);
-
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
-            log.error("获取利率配置失败", e);
-
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("code", 500);
-            errorResponse.put("message", "获取利率配置失败: " + e.getMessage());
-
-            return ResponseEntity.internalServerError().body(errorResponse);
+    public ResponseEntity<byte[]> getInterestRates(WebRequest webRequest) {
+        PrecomputedResponse rates = interestRateService.getInterestRatesResponse();
+        if (webRequest.checkNotModified(rates.getEtag())) {
+            // 已设置304状态和ETag响应头，不需要响应体
+            return null;
         }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(rates.getEtag())
+                // 客户端可以缓存，但每次使用前须用ETag确认
+                .cacheControl(CacheControl.noCache())
+                .body(rates.getBody());
     }
 
     /**
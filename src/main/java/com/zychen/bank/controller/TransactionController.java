@@ -1,11 +1,11 @@
 package com.zychen.bank.controller;
 
+import com.zychen.bank.aspect.LogOperation;
 import com.zychen.bank.dto.DepositDTO;
 import com.zychen.bank.dto.TransactionQueryDTO;
 import com.zychen.bank.dto.WithdrawDTO;
-import com.zychen.bank.service.OperationLogService;
 import com.zychen.bank.service.TransactionService;
-import com.zychen.bank.service.UserService;
+import com.zychen.bank.utils.CurrentUser;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -23,60 +23,21 @@ public class TransactionController {
 
     @Autowired
     private TransactionService transactionService;
-    @Autowired
-    private OperationLogService operationLogService;
-
-    @Autowired
-    private UserService userService;
-
-    /**
-     * 安全获取用户角色，避免异常影响主流程
-     */
-    private Integer getSafeUserRole(String userId) {
-        if (userId == null) {
-            return null;
-        }
-        try {
-            return userService.getUserRole(userId);
-        } catch (Exception e) {
-            log.warn("获取用户角色失败: {}", userId, e);
-            return 0;  // 默认普通用户
-        }
-    }
 
     /**
      * 存款
      */
     @PostMapping("/deposit")
+    @LogOperation(module = "TRANSACTION", type = "DEPOSIT", action = "存款",
+            detail = "金额：#{#depositDTO.amount}元，卡号：#{#depositDTO.cardId}",
+            targetType = "CARD", targetId = "#depositDTO.cardId")
     public ResponseEntity<Map<String, Object>> deposit(
             @Valid @RequestBody DepositDTO depositDTO,
             HttpServletRequest request) {
         try {
-            String userId = (String) request.getAttribute("userId");
+            String userId = CurrentUser.getUserId();
 
             Map<String, Object> depositResult = transactionService.deposit(userId, depositDTO);
-            // ============ 添加成功日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            // 获取用户角色（安全方式）
-            Integer userRole = getSafeUserRole(userId);
-
-            operationLogService.logOperation(
-                    userId,
-                    userRole,
-                    "TRANSACTION",
-                    "DEPOSIT",
-                    "存款成功，金额：" + depositDTO.getAmount() + "元，卡号：" + depositDTO.getCardId(),
-                    "CARD",
-                    depositDTO.getCardId(),
-                    ipAddress,
-                    userAgent,
-                    1,  // 成功
-                    null,
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "存款成功");
@@ -85,39 +46,6 @@ public class TransactionController {
             return ResponseEntity.ok(response);
 
         } catch (RuntimeException e) {
-            // ============ 添加失败日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            // 获取用户ID（从request中）
-            String userId = null;
-            try {
-                userId = (String) request.getAttribute("userId");
-            } catch (Exception ex) {
-                // 忽略
-            }
-
-            // 获取用户角色
-            Integer userRole = null;
-            if (userId != null) {
-                userRole = getSafeUserRole(userId);
-            }
-
-            operationLogService.logOperation(
-                    userId,
-                    userRole,
-                    "TRANSACTION",
-                    "DEPOSIT",
-                    "存款失败：" + e.getMessage() + "，金额：" + depositDTO.getAmount() + "元，卡号：" + depositDTO.getCardId(),
-                    "CARD",
-                    depositDTO.getCardId(),
-                    ipAddress,
-                    userAgent,
-                    0,  // 失败
-                    e.getMessage(),
-                    0
-            );
-            // ============ 日志结束 ============
             log.warn("存款失败: {}", e.getMessage());
 
             Map<String, Object> error = new HashMap<>();
@@ -138,37 +66,20 @@ public class TransactionController {
         }
     }
 
-
     /**
      * 取款
      */
     @PostMapping("/withdraw")
+    @LogOperation(module = "TRANSACTION", type = "WITHDRAW", action = "取款",
+            detail = "金额：#{#withdrawDTO.amount}元，卡号：#{#withdrawDTO.cardId}",
+            targetType = "CARD", targetId = "#withdrawDTO.cardId")
     public ResponseEntity<Map<String, Object>> withdraw(
             @Valid @RequestBody WithdrawDTO withdrawDTO,
             HttpServletRequest request) {
         try {
-            String userId = (String) request.getAttribute("userId");
+            String userId = CurrentUser.getUserId();
 
             Map<String, Object> withdrawResult = transactionService.withdraw(userId, withdrawDTO);
-            // ============ 添加成功日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            operationLogService.logOperation(
-                    userId,
-                    getSafeUserRole(userId),
-                    "TRANSACTION",
-                    "WITHDRAW",
-                    "取款成功，金额：" + withdrawDTO.getAmount() + "元，卡号：" + withdrawDTO.getCardId(),
-                    "CARD",
-                    withdrawDTO.getCardId(),
-                    ipAddress,
-                    userAgent,
-                    1,
-                    null,
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "取款成功");
@@ -178,32 +89,6 @@ public class TransactionController {
 
         } catch (RuntimeException e) {
             log.warn("取款失败: {}", e.getMessage());
-            // ============ 添加失败日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            String userId = null;
-            try {
-                userId = (String) request.getAttribute("userId");
-            } catch (Exception ex) {
-                // 忽略
-            }
-
-            operationLogService.logOperation(
-                    userId,
-                    userId != null ? getSafeUserRole(userId) : null,
-                    "TRANSACTION",
-                    "WITHDRAW",
-                    "取款失败：" + e.getMessage() + "，金额：" + withdrawDTO.getAmount() + "元，卡号：" + withdrawDTO.getCardId(),
-                    "CARD",
-                    withdrawDTO.getCardId(),
-                    ipAddress,
-                    userAgent,
-                    0,
-                    e.getMessage(),
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> error = new HashMap<>();
             error.put("code", 400);
             error.put("message", e.getMessage());
@@ -222,7 +107,6 @@ public class TransactionController {
         }
     }
 
-
     /**
      * 查询交易记录
      */
@@ -231,7 +115,7 @@ public class TransactionController {
             @ModelAttribute TransactionQueryDTO queryDTO,
             HttpServletRequest request) {
         try {
-            String userId = (String) request.getAttribute("userId");
+            String userId = CurrentUser.getUserId();
 
             Map<String, Object> result = transactionService.getTransactions(userId, queryDTO);
 
@@ -242,6 +126,14 @@ public class TransactionController {
 
             return ResponseEntity.ok(response);
 
+        } catch (RuntimeException e) {
+            log.warn("查询交易记录失败: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 400);
+            error.put("message", e.getMessage());
+            error.put("data", null);
+
+            return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             log.error("查询交易记录异常", e);
 
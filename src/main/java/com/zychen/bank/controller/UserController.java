@@ -1,12 +1,12 @@
 package com.zychen.bank.controller;
 
+import com.zychen.bank.aspect.LogOperation;
 import com.zychen.bank.dto.ChangePasswordDTO;
 import com.zychen.bank.dto.UpdateUserInfoDTO;
 import com.zychen.bank.dto.UserStatisticsDTO;
 import com.zychen.bank.model.User;
-import com.zychen.bank.service.OperationLogService;
 import com.zychen.bank.service.UserService;
-import com.zychen.bank.utils.JwtUtil;
+import com.zychen.bank.utils.CurrentUser;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,13 +21,9 @@ import java.util.Map;
 @RestController
 @RequestMapping("/user")
 public class UserController {
-    @Autowired
-    private JwtUtil jwtUtil;
 
     @Autowired
     private UserService userService;
-    @Autowired
-    private OperationLogService operationLogService;
     /**
      * 获取当前登录用户信息
      */
@@ -35,7 +31,7 @@ public class UserController {
     public ResponseEntity<Map<String, Object>> getUserInfo(HttpServletRequest request) {
         try {
             // 从拦截器设置的属性中获取用户ID
-            String userId = (String) request.getAttribute("userId");
+            String userId = CurrentUser.getUserId();
 
             if (userId == null || userId.isEmpty()) {
                 throw new RuntimeException("未找到用户信息");
@@ -99,41 +95,15 @@ public class UserController {
      * 修改密码
      */
     @PutMapping("/password")
+    @LogOperation(module = "SECURITY", type = "CHANGE_PASSWORD", action = "修改密码",
+            targetType = "USER", targetId = "#currentUserId")
     public ResponseEntity<Map<String, Object>> changePassword(
             @Valid @RequestBody ChangePasswordDTO changePasswordDTO,
             HttpServletRequest request) {
         try {
-            String userId = (String) request.getAttribute("userId");
+            String userId = CurrentUser.getUserId();
 
             userService.changePassword(userId, changePasswordDTO);
-            // ============ 添加成功日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            // 获取用户角色
-            Integer userRole = null;
-            try {
-                userRole = userService.getUserRole(userId);
-            } catch (Exception e) {
-                log.warn("获取用户角色失败: {}", userId, e);
-                userRole = 0; // 默认普通用户
-            }
-
-            operationLogService.logOperation(
-                    userId,
-                    userRole,
-                    "SECURITY",
-                    "CHANGE_PASSWORD",
-                    "修改密码成功",
-                    "USER",
-                    userId,
-                    ipAddress,
-                    userAgent,
-                    1,  // 成功
-                    null,
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "密码修改成功");
@@ -144,43 +114,6 @@ public class UserController {
 
         } catch (RuntimeException e) {
             log.warn("密码修改失败: {}", e.getMessage());
-            // ============ 添加失败日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            // 获取用户ID（可能为null）
-            String userId = null;
-            try {
-                userId = (String) request.getAttribute("userId");
-            } catch (Exception ex) {
-                log.warn("获取用户ID失败", ex);
-            }
-
-            // 获取用户角色
-            Integer userRole = null;
-            if (userId != null) {
-                try {
-                    userRole = userService.getUserRole(userId);
-                } catch (Exception ex) {
-                    userRole = 0; // 默认普通用户
-                }
-            }
-
-            operationLogService.logOperation(
-                    userId,
-                    userRole,
-                    "SECURITY",
-                    "CHANGE_PASSWORD",
-                    "修改密码失败：" + e.getMessage(),
-                    "USER",
-                    userId,
-                    ipAddress,
-                    userAgent,
-                    0,  // 失败
-                    e.getMessage(),
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> error = new HashMap<>();
             error.put("code", 400);
             error.put("message", e.getMessage());
@@ -189,25 +122,6 @@ public class UserController {
             return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             log.error("密码修改异常", e);
-            // ============ 添加系统异常日志 ============
-            String ipAddress = request.getRemoteAddr();
-            String userAgent = request.getHeader("User-Agent");
-
-            operationLogService.logOperation(
-                    null,
-                    null,
-                    "SECURITY",
-                    "CHANGE_PASSWORD",
-                    "修改密码时发生系统异常",
-                    "USER",
-                    null,
-                    ipAddress,
-                    userAgent,
-                    0,
-                    "系统内部错误",
-                    0
-            );
-            // ============ 日志结束 ============
             Map<String, Object> error = new HashMap<>();
             error.put("code", 500);
             error.put("message", "系统内部错误");
@@ -217,7 +131,6 @@ public class UserController {
         }
     }
 
-
     /**
      * 更新用户信息
      * 用户只能更新自己的信息
@@ -229,9 +142,8 @@ public class UserController {
             HttpServletRequest request) {
         try {
             // 从token获取当前用户ID
-            String token = request.getHeader("Authorization").substring(7);
-            String currentUserId = jwtUtil.getUserIdFromToken(token);
-            Integer currentUserRole = jwtUtil.getRoleFromToken(token);
+            String currentUserId = CurrentUser.getUserId();
+            Integer currentUserRole = CurrentUser.getRole();
 
             // 权限验证：用户只能更新自己的信息，管理员可以更新任何用户
             if (!currentUserId.equals(userId) && currentUserRole != 1) {
@@ -276,12 +188,11 @@ public class UserController {
             HttpServletRequest request) {
         try {
             // 权限验证：用户只能查看自己的统计信息
-            String currentUserId = (String) request.getAttribute("userId");
+            String currentUserId = CurrentUser.getUserId();
 
             if (!userId.equals(currentUserId)) {
                 // 检查是否是管理员
-                String token = request.getHeader("Authorization").substring(7);
-                Integer role = jwtUtil.getRoleFromToken(token);
+                Integer role = CurrentUser.getRole();
 
                 if (role == null || role != 1) { // 不是管理员
                     Map<String, Object> error = new HashMap<>();
@@ -16,4 +16,6 @@ public class AdminTransactionQueryDTO {
     private LocalDate startDate;             // 开始日期
     private LocalDate endDate;               // 结束日期
     private String userName;                 // 用户名筛选（需要关联查询）
+    private String cursor;                   // 游标（上一页返回的nextCursor），传入后忽略page
+    private Boolean includeTotal;            // 是否统计总数，游标模式默认不统计
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.zychen.bank.dto;
+
+
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * 预先序列化好的JSON响应体及其ETag，数据不变时直接返回同一份字节
+ */
+@Getter
+public class PrecomputedResponse {
+    private final byte[] body;
+    private final String etag;
+    private final Date lastModified;
+
+    public PrecomputedResponse(byte[] body, String etag, Date lastModified) {
+        this.body = body;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+}
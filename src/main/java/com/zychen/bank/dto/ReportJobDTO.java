@@ -0,0 +1,41 @@
+package com.zychen.bank.dto;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 异步报告生成任务的状态
+ */
+@Data
+public class ReportJobDTO {
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+
+    private String jobId;
+    private String userId;             // 报告所属用户
+    private String submitterId;        // 提交人（管理员可为他人提交）
+    private String reportType;
+    private String status;             // PENDING=排队中，RUNNING=生成中，SUCCESS=已完成，FAILED=失败
+    private Date submitTime;
+    private Date startTime;
+    private Date finishTime;
+    private String errorMessage;
+
+    // 以下仅在SUCCESS时有值
+    private String reportId;
+    private String downloadUrl;
+    private ReportResponseDTO report;
+
+    /**
+     * 任务已结束（成功或失败）
+     */
+    @JsonIgnore
+    public boolean isFinished() {
+        return SUCCESS.equals(status) || FAILED.equals(status);
+    }
+}
@@ -3,6 +3,7 @@ package com.zychen.bank.dto;
 
 import lombok.Data;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
@@ -14,6 +15,8 @@ public class ReportResponseDTO {
     private String cardId;
     private String reportType;         // "monthly"或"yearly"
     private String period;             // 时间段，如"2024年01月"
+    private LocalDate startDate;       // 报告期起止日期（含），导出时按此区间读取全部明细
+    private LocalDate endDate;
     private Date generatedTime;        // 生成时间
 
     // 汇总统计
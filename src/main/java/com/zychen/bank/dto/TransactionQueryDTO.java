@@ -21,4 +21,8 @@ public class TransactionQueryDTO {
     private Integer page = 1;  // 页码，默认第1页
 
     private Integer pageSize = 20;  // 每页大小，默认20条
+
+    private String cursor;  // 游标（上一页返回的nextCursor），传入后忽略page
+
+    private Boolean includeTotal;  // 是否统计总数，游标模式默认不统计
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.zychen.bank.mapper;
+
+import com.zychen.bank.model.BankCard;
+import com.zychen.bank.model.CardDailyBalance;
+import org.apache.ibatis.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 银行卡日终余额快照 card_daily_balance(card_id + balance_date 主键, user_id, closing_balance, last_trans_time)
+ */
+@Mapper
+public interface BalanceSnapshotMapper {
+
+    // 记录一笔交易后的余额：当天没有快照则新建，有则只在交易时间不早于已记录时间时覆盖
+    @Insert("INSERT INTO card_daily_balance (card_id, balance_date, user_id, closing_balance, last_trans_time) " +
+            "VALUES (#{cardId}, #{balanceDate}, #{userId}, #{closingBalance}, #{transTime}) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "closing_balance = CASE WHEN VALUES(last_trans_time) >= last_trans_time " +
+            "THEN VALUES(closing_balance) ELSE closing_balance END, " +
+            "user_id = VALUES(user_id), " +
+            "last_trans_time = GREATEST(last_trans_time, VALUES(last_trans_time))")
+    int upsert(@Param("cardId") String cardId,
+               @Param("balanceDate") LocalDate balanceDate,
+               @Param("userId") String userId,
+               @Param("closingBalance") BigDecimal closingBalance,
+               @Param("transTime") LocalDateTime transTime);
+
+    // 某张卡在某天（含）之前最近一天的日终余额，没有记录返回null
+    @Select("SELECT closing_balance FROM card_daily_balance " +
+            "WHERE card_id = #{cardId} AND balance_date <= #{date} " +
+            "ORDER BY balance_date DESC LIMIT 1")
+    BigDecimal findClosingBalance(@Param("cardId") String cardId, @Param("date") LocalDate date);
+
+    // 用户名下所有卡在某天的日终余额合计（每张卡取该天及之前最近的一条）
+    @Select("SELECT COALESCE(SUM(s.closing_balance), 0) FROM card_daily_balance s " +
+            "JOIN (SELECT card_id, MAX(balance_date) AS balance_date FROM card_daily_balance " +
+            "      WHERE user_id = #{userId} AND balance_date <= #{date} GROUP BY card_id) latest " +
+            "ON s.card_id = latest.card_id AND s.balance_date = latest.balance_date")
+    BigDecimal sumUserClosingBalance(@Param("userId") String userId, @Param("date") LocalDate date);
+
+    // 某天（含）之前每张卡最近一天的日终余额，cardId为空时取用户名下所有卡
+    @Select("<script>" +
+            "SELECT s.card_id, s.balance_date, s.closing_balance FROM card_daily_balance s " +
+            "JOIN (SELECT card_id, MAX(balance_date) AS balance_date FROM card_daily_balance " +
+            "      WHERE user_id = #{userId} <if test='cardId != null'>AND card_id = #{cardId}</if> " +
+            "      AND balance_date &lt;= #{date} GROUP BY card_id) latest " +
+            "ON s.card_id = latest.card_id AND s.balance_date = latest.balance_date" +
+            "</script>")
+    List<CardDailyBalance> findLatestBalances(@Param("userId") String userId,
+                                              @Param("cardId") String cardId,
+                                              @Param("date") LocalDate date);
+
+    // 区间 [firstDay, lastDay] 内的日终余额，按日期升序；只有发生过交易的卡、日期才有记录
+    @Select("<script>" +
+            "SELECT card_id, balance_date, closing_balance FROM card_daily_balance " +
+            "WHERE user_id = #{userId} <if test='cardId != null'>AND card_id = #{cardId}</if> " +
+            "AND balance_date &gt;= #{firstDay} AND balance_date &lt;= #{lastDay} " +
+            "ORDER BY balance_date" +
+            "</script>")
+    List<CardDailyBalance> findBalancesBetween(@Param("userId") String userId,
+                                               @Param("cardId") String cardId,
+                                               @Param("firstDay") LocalDate firstDay,
+                                               @Param("lastDay") LocalDate lastDay);
+
+    // 按卡号分页取 卡号、持卡人（回填用）
+    @Select("<script>" +
+            "SELECT card_id, user_id FROM bank_card " +
+            "<if test='afterCardId != null'>WHERE card_id &gt; #{afterCardId}</if> " +
+            "ORDER BY card_id LIMIT #{limit}" +
+            "</script>")
+    List<BankCard> findCardsAfter(@Param("afterCardId") String afterCardId, @Param("limit") int limit);
+
+    // 按卡号分页取缺快照的卡：有成功交易早于该卡最早一天的快照（或该卡还没有快照）。
+    // 已回填过的卡最早快照就是最早交易那天，按 (user_id, card_id, trans_time) 索引的范围扫描立即结束
+    @Select("<script>" +
+            "SELECT c.card_id, c.user_id FROM bank_card c " +
+            "WHERE <if test='afterCardId != null'>c.card_id &gt; #{afterCardId} AND </if>" +
+            "EXISTS (SELECT 1 FROM transaction t " +
+            "        WHERE t.user_id = c.user_id AND t.card_id = c.card_id " +
+            "        AND t.status = 1 AND t.balance_after IS NOT NULL " +
+            "        AND (NOT EXISTS (SELECT 1 FROM card_daily_balance s WHERE s.card_id = c.card_id) " +
+            "             OR t.trans_time &lt; (SELECT MIN(s.balance_date) FROM card_daily_balance s " +
+            "                                  WHERE s.card_id = c.card_id))) " +
+            "ORDER BY c.card_id LIMIT #{limit}" +
+            "</script>")
+    List<BankCard> findCardsMissingSnapshotsAfter(@Param("afterCardId") String afterCardId, @Param("limit") int limit);
+
+    // 用交易流水重算一张卡的全部日终余额（每天取trans_id最大的成功交易），已有快照不会被更早的交易覆盖
+    @Insert("INSERT INTO card_daily_balance (card_id, balance_date, user_id, closing_balance, last_trans_time) " +
+            "SELECT t.card_id, CAST(t.trans_time AS DATE), t.user_id, t.balance_after, t.trans_time " +
+            "FROM transaction t " +
+            "JOIN (SELECT MAX(trans_id) AS trans_id FROM transaction " +
+            "      WHERE user_id = #{userId} AND card_id = #{cardId} AND status = 1 AND balance_after IS NOT NULL " +
+            "      GROUP BY CAST(trans_time AS DATE)) last_of_day " +
+            "ON t.trans_id = last_of_day.trans_id " +
+            "ON DUPLICATE KEY UPDATE " +
+            "closing_balance = CASE WHEN VALUES(last_trans_time) >= last_trans_time " +
+            "THEN VALUES(closing_balance) ELSE closing_balance END, " +
+            "user_id = VALUES(user_id), " +
+            "last_trans_time = GREATEST(last_trans_time, VALUES(last_trans_time))")
+    int rebuildCard(@Param("userId") String userId, @Param("cardId") String cardId);
+}
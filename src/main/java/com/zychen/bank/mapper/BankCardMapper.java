@@ -40,6 +40,27 @@ public interface BankCardMapper {
                       @Param("availableBalance") BigDecimal availableBalance,
                       @Param("lastTransactionTime") LocalDateTime lastTransactionTime);
 
+    // 按增量原子更新余额：余额和可用余额同时加上delta（取款传负数），
+    // 可用余额不足或卡状态不符时不更新，返回0
+    @Update("<script>" +
+            "UPDATE bank_card SET balance = balance + #{delta}, " +
+            "available_balance = available_balance + #{delta}, " +
+            "version = version + 1, " +
+            "last_transaction_time = #{lastTransactionTime} " +
+            "WHERE card_id = #{cardId} " +
+            "AND available_balance + #{delta} &gt;= 0 " +
+            "<if test='expectedStatus != null'>AND status = #{expectedStatus}</if>" +
+            "</script>")
+    int updateBalanceByDelta(@Param("cardId") String cardId,
+                             @Param("delta") BigDecimal delta,
+                             @Param("expectedStatus") Integer expectedStatus,
+                             @Param("lastTransactionTime") LocalDateTime lastTransactionTime);
+
+    // 查询余额快照（在同一事务内紧跟updateBalanceByDelta调用，得到更新后的余额）
+    @Select("SELECT card_id, balance, available_balance, frozen_amount, version, last_transaction_time " +
+            "FROM bank_card WHERE card_id = #{cardId}")
+    BankCard findBalanceByCardId(@Param("cardId") String cardId);
+
     @Update("UPDATE bank_card SET status = #{status} WHERE card_id = #{cardId}")
     int updateStatus(@Param("cardId") String cardId, @Param("status") Integer status);
 
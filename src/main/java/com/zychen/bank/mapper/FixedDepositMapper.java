@@ -49,6 +49,12 @@ public interface FixedDepositMapper {
     @Update("UPDATE fixed_deposit SET status = #{status} WHERE fd_id = #{fdId}")
     int updateStatus(@Param("fdId") Integer fdId, @Param("status") Integer status);
 
+    // 条件更新状态：只有当前状态等于expectedStatus时才更新，防止重复支取
+    @Update("UPDATE fixed_deposit SET status = #{status} WHERE fd_id = #{fdId} AND status = #{expectedStatus}")
+    int updateStatusIfMatch(@Param("fdId") Integer fdId,
+                            @Param("expectedStatus") Integer expectedStatus,
+                            @Param("status") Integer status);
+
 
     @Select("SELECT COUNT(*) FROM fixed_deposit WHERE status = #{status}")
     Long countByStatus(@Param("status") Integer status);
@@ -0,0 +1,24 @@
+package com.zychen.bank.mapper;
+
+import org.apache.ibatis.annotations.*;
+
+/**
+ * ID号段表 id_sequence(seq_name 主键, next_value 下一个未分配的值, updated_time)
+ */
+@Mapper
+public interface IdSequenceMapper {
+
+    // 初始化号段（已存在则忽略）
+    @Insert("INSERT IGNORE INTO id_sequence (seq_name, next_value, updated_time) " +
+            "VALUES (#{seqName}, #{initialValue}, NOW())")
+    int insertIfAbsent(@Param("seqName") String seqName, @Param("initialValue") long initialValue);
+
+    // 推进号段（同时持有该行的行锁，直到事务提交）
+    @Update("UPDATE id_sequence SET next_value = next_value + #{step}, updated_time = NOW() " +
+            "WHERE seq_name = #{seqName}")
+    int advance(@Param("seqName") String seqName, @Param("step") long step);
+
+    // 查询当前值
+    @Select("SELECT next_value FROM id_sequence WHERE seq_name = #{seqName}")
+    Long findNextValue(@Param("seqName") String seqName);
+}
@@ -2,9 +2,12 @@ package com.zychen.bank.mapper;
 
 import com.zychen.bank.dto.OperationLogQueryDTO;
 import com.zychen.bank.model.OperationLog;
+import com.zychen.bank.utils.DateRange;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface OperationLogMapper {
@@ -19,6 +22,19 @@ public interface OperationLogMapper {
     @Options(useGeneratedKeys = true, keyProperty = "logId")
     int insert(OperationLog operationLog);
 
+    // 批量插入操作日志（多行VALUES，一次往返）
+    @Insert("<script>" +
+            "INSERT INTO operation_log (user_id, user_role, module, operation_type, " +
+            "operation_detail, target_type, target_id, ip_address, user_agent, " +
+            "status, error_message, execution_time, created_time) VALUES " +
+            "<foreach collection='logs' item='log' separator=','>" +
+            "(#{log.userId}, #{log.userRole}, #{log.module}, #{log.operationType}, " +
+            "#{log.operationDetail}, #{log.targetType}, #{log.targetId}, #{log.ipAddress}, #{log.userAgent}, " +
+            "#{log.status}, #{log.errorMessage}, #{log.executionTime}, #{log.createdTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("logs") List<OperationLog> logs);
+
     // 查询操作日志（带分页和条件）
     @Select("<script>" +
             "SELECT * FROM operation_log " +
@@ -27,13 +43,14 @@ public interface OperationLogMapper {
             "   <if test='query.targetType != null'>AND target_type = #{query.targetType}</if>" +
             "   <if test='query.targetId != null'>AND target_id = #{query.targetId}</if>" +
             "   <if test='query.operationType != null'>AND operation_type = #{query.operationType}</if>" +
-            "   <if test='query.startTime != null'>AND DATE(created_time) &gt;= #{query.startTime}</if>" +
-            "   <if test='query.endTime != null'>AND DATE(created_time) &lt;= #{query.endTime}</if>" +
+            "   <if test='range.start != null'>AND created_time &gt;= #{range.start}</if>" +
+            "   <if test='range.end != null'>AND created_time &lt; #{range.end}</if>" +
             "</where>" +
             "ORDER BY created_time DESC " +
             "LIMIT #{offset}, #{pageSize}" +
             "</script>")
     List<OperationLog> findLogs(@Param("query") OperationLogQueryDTO queryDTO,
+                                @Param("range") DateRange range,
                                 @Param("offset") int offset,
                                 @Param("pageSize") int pageSize);
 
@@ -41,17 +58,26 @@ public interface OperationLogMapper {
     @Select("<script>" +
             "SELECT COUNT(*) FROM operation_log " +
             "<where>" +
-            "   <if test='userId != null'>AND user_id = #{userId}</if>" +
-            "   <if test='targetType != null'>AND target_type = #{targetType}</if>" +
-            "   <if test='targetId != null'>AND target_id = #{targetId}</if>" +
-            "   <if test='operationType != null'>AND operation_type = #{operationType}</if>" +
-            "   <if test='startTime != null'>AND DATE(created_time) &gt;= #{startTime}</if>" +
-            "   <if test='endTime != null'>AND DATE(created_time) &lt;= #{endTime}</if>" +
+            "   <if test='query.userId != null'>AND user_id = #{query.userId}</if>" +
+            "   <if test='query.targetType != null'>AND target_type = #{query.targetType}</if>" +
+            "   <if test='query.targetId != null'>AND target_id = #{query.targetId}</if>" +
+            "   <if test='query.operationType != null'>AND operation_type = #{query.operationType}</if>" +
+            "   <if test='range.start != null'>AND created_time &gt;= #{range.start}</if>" +
+            "   <if test='range.end != null'>AND created_time &lt; #{range.end}</if>" +
             "</where>" +
             "</script>")
-    int countLogs(OperationLogQueryDTO queryDTO);
+    int countLogs(@Param("query") OperationLogQueryDTO queryDTO, @Param("range") DateRange range);
 
     // 根据ID查询
     @Select("SELECT * FROM operation_log WHERE log_id = #{logId}")
     OperationLog findById(@Param("logId") Long logId);
-}
\ No newline at end of file
+
+    // 批量查询操作人的用户名和真实姓名（一次查询，用于日志列表展示）
+    @Select("<script>" +
+            "SELECT u.user_id AS userId, u.username AS username, ui.name AS realName " +
+            "FROM user u LEFT JOIN user_info ui ON ui.user_id = u.user_id " +
+            "WHERE u.user_id IN " +
+            "<foreach collection='userIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Map<String, Object>> findUserDisplayNames(@Param("userIds") Collection<String> userIds);
+}
@@ -1,10 +1,14 @@
 package com.zychen.bank.mapper;
 
 import com.zychen.bank.model.Transaction;
+import com.zychen.bank.model.TransactionAggregate;
+import com.zychen.bank.utils.DateRange;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -25,16 +29,19 @@ public interface TransactionMapper {
             "SELECT * FROM transaction WHERE user_id = #{userId} " +
             "<if test='cardId != null'>AND card_id = #{cardId}</if> " +
             "<if test='transType != null and transType != \"ALL\"'>AND trans_type = #{transType}</if> " +
-            "<if test='startDate != null'>AND DATE(trans_time) &gt;= #{startDate}</if> " +
-            "<if test='endDate != null'>AND DATE(trans_time) &lt;= #{endDate}</if> " +
-            "ORDER BY trans_time DESC " +
+            "<if test='range.start != null'>AND trans_time &gt;= #{range.start}</if> " +
+            "<if test='range.end != null'>AND trans_time &lt; #{range.end}</if> " +
+            "<if test='cursorTime != null'>AND (trans_time &lt; #{cursorTime} " +
+            "OR (trans_time = #{cursorTime} AND trans_id &lt; #{cursorId}))</if> " +
+            "ORDER BY trans_time DESC, trans_id DESC " +
             "LIMIT #{offset}, #{pageSize}" +
             "</script>")
     List<Transaction> findByConditions(@Param("userId") String userId,
                                        @Param("cardId") String cardId,
                                        @Param("transType") String transType,
-                                       @Param("startDate") LocalDate startDate,
-                                       @Param("endDate") LocalDate endDate,
+                                       @Param("range") DateRange range,
+                                       @Param("cursorTime") LocalDateTime cursorTime,
+                                       @Param("cursorId") Long cursorId,
                                        @Param("offset") int offset,
                                        @Param("pageSize") int pageSize);
 
@@ -43,66 +50,48 @@ public interface TransactionMapper {
             "SELECT COUNT(*) FROM transaction WHERE user_id = #{userId} " +
             "<if test='cardId != null'>AND card_id = #{cardId}</if> " +
             "<if test='transType != null and transType != \"ALL\"'>AND trans_type = #{transType}</if> " +
-            "<if test='startDate != null'>AND DATE(trans_time) &gt;= #{startDate}</if> " +
-            "<if test='endDate != null'>AND DATE(trans_time) &lt;= #{endDate}</if>" +
+            "<if test='range.start != null'>AND trans_time &gt;= #{range.start}</if> " +
+            "<if test='range.end != null'>AND trans_time &lt; #{range.end}</if>" +
             "</script>")
     int countByConditions(@Param("userId") String userId,
                           @Param("cardId") String cardId,
                           @Param("transType") String transType,
-                          @Param("startDate") LocalDate startDate,
-                          @Param("endDate") LocalDate endDate);
+                          @Param("range") DateRange range);
 
     /**
-     * 根据用户ID和年月查询交易记录
+     * 根据用户ID和时间区间查询成功的交易记录（如某个自然月）
      */
     @Select("SELECT * FROM transaction " +
             "WHERE user_id = #{userId} " +
-            "AND YEAR(trans_time) = #{year} " +
-            "AND MONTH(trans_time) = #{month} " +
+            "AND trans_time >= #{range.start} " +
+            "AND trans_time < #{range.end} " +
             "AND status = 1 " +  // 只统计成功的交易
             "ORDER BY trans_time DESC")
-    List<Transaction> findByUserIdAndMonth(
+    List<Transaction> findByUserIdAndPeriod(
             @Param("userId") String userId,
-            @Param("year") int year,
-            @Param("month") int month);
-
-    /**
-     * 查询指定日期前的最后一笔交易
-     */
-    @Select("<script>" +
-            "SELECT * FROM transaction " +
-            "WHERE user_id = #{userId} " +
-            "<if test='cardId != null'>AND card_id = #{cardId}</if> " +
-            "AND DATE(trans_time) &lt;= DATE(#{date}) " +  // 两边都用DATE()函数
-            "AND status = 1 " +
-            "ORDER BY trans_time DESC " +
-            "LIMIT 1" +
-            "</script>")
-    Transaction findLastTransactionBeforeDate(
-            @Param("userId") String userId,
-            @Param("cardId") String cardId,
-            @Param("date") java.sql.Date date);
-
+            @Param("range") DateRange range);
 
     @Select("SELECT COUNT(*) FROM transaction WHERE status = 1")
     Long countTotalTransactions();
 
-    @Select("SELECT COUNT(*) FROM transaction WHERE DATE(trans_time) = CURDATE() AND status = 1")
-    Long countTodayTransactions();
+    @Select("SELECT COUNT(*) FROM transaction WHERE status = 1 " +
+            "AND trans_time >= #{today.start} AND trans_time < #{today.end}")
+    Long countTodayTransactions(@Param("today") DateRange today);
 
     @Select("SELECT COUNT(*) FROM transaction WHERE status = 2")
     Long countPendingTransactions();
 
-    @Select("SELECT IFNULL(SUM(amount), 0) FROM transaction WHERE DATE(trans_time) = CURDATE() " +
-            "AND trans_type = 'DEPOSIT' AND status = 1")
-    BigDecimal getTodayIncome();
+    @Select("SELECT IFNULL(SUM(amount), 0) FROM transaction WHERE status = 1 " +
+            "AND trans_time >= #{today.start} AND trans_time < #{today.end} " +
+            "AND trans_type = 'DEPOSIT'")
+    BigDecimal getTodayIncome(@Param("today") DateRange today);
 
     @Select("SELECT IFNULL(SUM(CASE " +
             "WHEN trans_type = 'WITHDRAW' AND status = 1 THEN amount " +
             "WHEN trans_type = 'TRANSFER' AND amount < 0 AND status = 1 THEN ABS(amount) " +
             "ELSE 0 " +
-            "END), 0) FROM transaction WHERE DATE(trans_time) = CURDATE()")
-    BigDecimal getTodayOutcome();
+            "END), 0) FROM transaction WHERE trans_time >= #{today.start} AND trans_time < #{today.end}")
+    BigDecimal getTodayOutcome(@Param("today") DateRange today);
 
 
     // TransactionMapper.java - 修复版本
@@ -133,13 +122,16 @@ public interface TransactionMapper {
             "<if test='status != null'>" +
             "  AND t.status = #{status} " +  // 状态保持精确匹配
             "</if> " +
-            "<if test='startDate != null'>" +
-            "  AND DATE(t.trans_time) &gt;= #{startDate} " +
+            "<if test='range.start != null'>" +
+            "  AND t.trans_time &gt;= #{range.start} " +
             "</if> " +
-            "<if test='endDate != null'>" +
-            "  AND DATE(t.trans_time) &lt;= #{endDate} " +
+            "<if test='range.end != null'>" +
+            "  AND t.trans_time &lt; #{range.end} " +
             "</if> " +
-            "ORDER BY t.trans_time DESC " +
+            "<if test='cursorTime != null'>" +
+            "  AND (t.trans_time &lt; #{cursorTime} OR (t.trans_time = #{cursorTime} AND t.trans_id &lt; #{cursorId})) " +
+            "</if> " +
+            "ORDER BY t.trans_time DESC, t.trans_id DESC " +
             "LIMIT #{offset}, #{pageSize}" +
             "</script>")
     @Results({
@@ -152,8 +144,9 @@ public interface TransactionMapper {
             @Param("transType") String transType,
             @Param("transNo") String transNo,
             @Param("status") Integer status,
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
+            @Param("range") DateRange range,
+            @Param("cursorTime") LocalDateTime cursorTime,
+            @Param("cursorId") Long cursorId,
             @Param("offset") int offset,
             @Param("pageSize") int pageSize);
 
@@ -184,11 +177,11 @@ public interface TransactionMapper {
             "<if test='status != null'>" +
             "  AND t.status = #{status} " +  // 状态保持精确匹配
             "</if> " +
-            "<if test='startDate != null'>" +
-            "  AND DATE(t.trans_time) &gt;= #{startDate} " +
+            "<if test='range.start != null'>" +
+            "  AND t.trans_time &gt;= #{range.start} " +
             "</if> " +
-            "<if test='endDate != null'>" +
-            "  AND DATE(t.trans_time) &lt;= #{endDate} " +
+            "<if test='range.end != null'>" +
+            "  AND t.trans_time &lt; #{range.end} " +
             "</if>" +
             "</script>")
     int countAdminTransactions(
@@ -198,8 +191,7 @@ public interface TransactionMapper {
             @Param("transType") String transType,
             @Param("transNo") String transNo,
             @Param("status") Integer status,
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate);
+            @Param("range") DateRange range);
 //    /**
 //     * 管理员查询交易记录（修复NPE问题）
 //     */
@@ -301,14 +293,12 @@ public interface TransactionMapper {
             "SELECT trans_type, COUNT(*) as count, SUM(amount) as total_amount " +
             "FROM transaction " +
             "WHERE 1=1 " +
-            "<if test='startDate != null'>AND DATE(trans_time) &gt;= #{startDate}</if> " +
-            "<if test='endDate != null'>AND DATE(trans_time) &lt;= #{endDate}</if> " +
+            "<if test='range.start != null'>AND trans_time &gt;= #{range.start}</if> " +
+            "<if test='range.end != null'>AND trans_time &lt; #{range.end}</if> " +
             "AND status = 1 " +  // 只统计成功的交易
             "GROUP BY trans_type" +
             "</script>")
-    List<Map<String, Object>> getTransactionTypeStats(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate);
+    List<Map<String, Object>> getTransactionTypeStats(@Param("range") DateRange range);
 
     /**
      * 获取每日交易统计（用于折线图）
@@ -322,14 +312,12 @@ public interface TransactionMapper {
             "SUM(CASE WHEN trans_type = 'WITHDRAW' AND status = 1 THEN amount ELSE 0 END) as withdraw_amount " +
             "FROM transaction " +
             "WHERE 1=1 " +
-            "<if test='startDate != null'>AND DATE(trans_time) &gt;= #{startDate}</if> " +
-            "<if test='endDate != null'>AND DATE(trans_time) &lt;= #{endDate}</if> " +
+            "<if test='range.start != null'>AND trans_time &gt;= #{range.start}</if> " +
+            "<if test='range.end != null'>AND trans_time &lt; #{range.end}</if> " +
             "GROUP BY DATE(trans_time) " +
             "ORDER BY date DESC" +
             "</script>")
-    List<Map<String, Object>> getDailyTransactionStats(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate);
+    List<Map<String, Object>> getDailyTransactionStats(@Param("range") DateRange range);
 
     /**
      * 统计指定日期范围内的转账转出金额
@@ -338,8 +326,59 @@ public interface TransactionMapper {
             "WHERE trans_type = 'TRANSFER' " +
             "AND amount < 0 " +  // 添加：只统计转出（金额为负）
             "AND status = 1 " +  // 添加：只统计成功的
-            "AND DATE(trans_time) >= #{startDate} " +
-            "AND DATE(trans_time) <= #{endDate}")
-    BigDecimal sumTransferOutAmount(@Param("startDate") LocalDate startDate,
-                                    @Param("endDate") LocalDate endDate);
-}
\ No newline at end of file
+            "AND trans_time >= #{range.start} " +
+            "AND trans_time < #{range.end}")
+    BigDecimal sumTransferOutAmount(@Param("range") DateRange range);
+
+    /**
+     * 报表统计：按 月份 × 交易类型 × 子类型 分组汇总区间内的交易，一次查询得到汇总、分类和月度数据
+     */
+    @Select("<script>" +
+            "SELECT MONTH(trans_time) AS trans_month, trans_type, trans_subtype, COUNT(*) AS trans_count, " +
+            "COALESCE(SUM(CASE WHEN amount &gt; 0 THEN amount ELSE 0 END), 0) AS positive_amount, " +
+            "COALESCE(SUM(CASE WHEN amount &lt; 0 THEN -amount ELSE 0 END), 0) AS negative_amount, " +
+            "COALESCE(SUM(CASE WHEN fee &gt; 0 THEN fee ELSE 0 END), 0) AS fee_amount " +
+            "FROM transaction WHERE user_id = #{userId} " +
+            "<if test='cardId != null'>AND card_id = #{cardId}</if> " +
+            "AND trans_time &gt;= #{range.start} AND trans_time &lt; #{range.end} " +
+            "GROUP BY MONTH(trans_time), trans_type, trans_subtype" +
+            "</script>")
+    List<TransactionAggregate> aggregateByMonthAndType(@Param("userId") String userId,
+                                                       @Param("cardId") String cardId,
+                                                       @Param("range") DateRange range);
+
+    /**
+     * 报表明细：区间内金额绝对值超过 minAmount 的交易，按金额绝对值从大到小取前 limit 条
+     */
+    @Select("<script>" +
+            "SELECT * FROM transaction WHERE user_id = #{userId} " +
+            "<if test='cardId != null'>AND card_id = #{cardId}</if> " +
+            "AND trans_time &gt;= #{range.start} AND trans_time &lt; #{range.end} " +
+            "AND ABS(amount) &gt; #{minAmount} " +
+            "ORDER BY ABS(amount) DESC, trans_time DESC " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<Transaction> findLargestTransactions(@Param("userId") String userId,
+                                              @Param("cardId") String cardId,
+                                              @Param("range") DateRange range,
+                                              @Param("minAmount") BigDecimal minAmount,
+                                              @Param("limit") int limit);
+
+    /**
+     * 按时间顺序逐行读取区间内的交易，交给 handler 处理，不在内存中汇集结果（报表统计、导出用）
+     * MySQL需在连接参数中开启 useCursorFetch=true，驱动才会按 fetchSize 分批拉取，否则会一次读入整个结果集
+     */
+    @Select("<script>" +
+            "SELECT * FROM transaction WHERE user_id = #{userId} " +
+            "<if test='cardId != null'>AND card_id = #{cardId}</if> " +
+            "<if test='range.start != null'>AND trans_time &gt;= #{range.start}</if> " +
+            "<if test='range.end != null'>AND trans_time &lt; #{range.end}</if> " +
+            "ORDER BY trans_time ASC, trans_id ASC" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    @ResultType(Transaction.class)
+    void streamTransactions(@Param("userId") String userId,
+                            @Param("cardId") String cardId,
+                            @Param("range") DateRange range,
+                            ResultHandler<Transaction> handler);
+}
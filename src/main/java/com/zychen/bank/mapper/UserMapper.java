@@ -2,6 +2,7 @@ package com.zychen.bank.mapper;
 
 
 import com.zychen.bank.model.User;
+import com.zychen.bank.utils.DateRange;
 import org.apache.ibatis.annotations.*;
 
 import java.time.LocalDateTime;
@@ -91,8 +92,19 @@ public interface UserMapper {
     @Select("SELECT COUNT(*) FROM user WHERE account_status = 1")
     Long countFrozenUsers();
 
-    @Select("SELECT COUNT(*) FROM user WHERE DATE(created_time) = CURDATE()")
-    Long countNewUsersToday();
+    @Select("SELECT COUNT(*) FROM user WHERE created_time >= #{today.start} AND created_time < #{today.end}")
+    Long countNewUsersToday(@Param("today") DateRange today);
+
+    @Select("SELECT COUNT(*) FROM user WHERE role = 0")
+    Long countCustomers();
+
+    // 按用户ID分页取普通用户ID（批量生成账单用），走主键范围扫描
+    @Select("<script>" +
+            "SELECT user_id FROM user WHERE role = 0 " +
+            "<if test='afterUserId != null'>AND user_id &gt; #{afterUserId}</if> " +
+            "ORDER BY user_id LIMIT #{limit}" +
+            "</script>")
+    List<String> findCustomerIdsAfter(@Param("afterUserId") String afterUserId, @Param("limit") int limit);
 
     @Select("SELECT " +
             "u.user_id as userId, " +
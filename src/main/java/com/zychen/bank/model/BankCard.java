@@ -18,4 +18,5 @@ public class BankCard {
     private LocalDateTime lastTransactionTime;  // 最后交易时间
     private BigDecimal dailyLimit;   // 日交易限额
     private BigDecimal monthlyLimit; // 月交易限额
+    private Long version;            // 余额版本号，每次余额变动+1
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.zychen.bank.model;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 银行卡某天的日终余额快照（card_daily_balance 的一行）
+ */
+@Data
+public class CardDailyBalance {
+    private String cardId;
+    private LocalDate balanceDate;
+    private BigDecimal closingBalance;   // 当天最后一笔成功交易后的余额
+}
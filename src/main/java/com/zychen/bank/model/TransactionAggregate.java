@@ -0,0 +1,19 @@
+package com.zychen.bank.model;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+/**
+ * 交易按 月份 × 交易类型 × 子类型 分组后的汇总行（报表统计用）
+ * 正负金额分开累计：TRANSFER需要区分转入/转出，取款类按绝对值统计
+ */
+@Data
+public class TransactionAggregate {
+    private Integer transMonth;
+    private String transType;
+    private String transSubtype;
+    private Integer transCount;
+    private BigDecimal positiveAmount;   // 金额为正的交易合计
+    private BigDecimal negativeAmount;   // 金额为负的交易合计（取绝对值）
+    private BigDecimal feeAmount;        // 手续费合计
+}
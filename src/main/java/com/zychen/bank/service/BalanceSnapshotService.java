@@ -0,0 +1,33 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 银行卡日终余额快照
+ */
+public interface BalanceSnapshotService {
+
+    /**
+     * 交易入账后更新当天的日终余额，需与交易流水在同一事务中调用
+     */
+    void recordTransaction(Transaction transaction);
+
+    /**
+     * 某天日终的余额：指定卡号时为该卡余额，cardId为空时为用户名下所有卡的余额合计
+     */
+    BigDecimal getBalanceAt(String userId, String cardId, LocalDate date);
+
+    /**
+     * [firstDay, lastDay] 内每天日终余额的平均值，cardId为空时按用户名下所有卡的合计计算
+     */
+    BigDecimal getAverageBalance(String userId, String cardId, LocalDate firstDay, LocalDate lastDay);
+
+    /**
+     * 按交易流水分批重建所有卡的快照（数据修复用）
+     */
+    Map<String, Object> rebuild();
+}
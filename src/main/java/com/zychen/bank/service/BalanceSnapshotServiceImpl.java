@@ -0,0 +1,149 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.mapper.BalanceSnapshotMapper;
+import com.zychen.bank.model.BankCard;
+import com.zychen.bank.model.CardDailyBalance;
+import com.zychen.bank.model.Transaction;
+import com.zychen.bank.utils.DailyBalanceAccumulator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+@Slf4j
+@Service
+public class BalanceSnapshotServiceImpl implements BalanceSnapshotService {
+
+    @Autowired
+    private BalanceSnapshotMapper balanceSnapshotMapper;
+
+    // 重建时每批查询的卡数；每张卡单独提交，一张卡失败不影响其他卡
+    @Value("${app.balance-snapshot.rebuild-batch-size:200}")
+    private int rebuildBatchSize;
+
+    // V5迁移只建表，已有交易的快照在启动后回填
+    @Value("${app.balance-snapshot.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    /**
+     * 启动完成后在后台线程中回填缺快照的卡，不阻塞启动；
+     * 按卡判断是否缺快照而不是看整表是否为空，上次回填中途失败或被中断时，下次启动会继续处理剩下的卡。
+     * 回填与正常入账并发时，较早的交易不会覆盖已记录的日终余额
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                Map<String, Object> result = rebuildCards(balanceSnapshotMapper::findCardsMissingSnapshotsAfter);
+                log.info("余额快照回填完成: {}", result);
+            } catch (RuntimeException e) {
+                log.warn("余额快照回填失败，下次启动时重试，也可调用 /admin/balance-snapshots/rebuild: {}", e.getMessage());
+            }
+        }, "balance-snapshot-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void recordTransaction(Transaction transaction) {
+        // 失败、处理中的交易不影响余额
+        if (transaction.getStatus() == null || transaction.getStatus() != 1
+                || transaction.getBalanceAfter() == null || transaction.getTransTime() == null) {
+            return;
+        }
+        balanceSnapshotMapper.upsert(transaction.getCardId(),
+                transaction.getTransTime().toLocalDate(),
+                transaction.getUserId(),
+                transaction.getBalanceAfter(),
+                transaction.getTransTime());
+    }
+
+    @Override
+    public BigDecimal getBalanceAt(String userId, String cardId, LocalDate date) {
+        if (cardId != null) {
+            BigDecimal balance = balanceSnapshotMapper.findClosingBalance(cardId, date);
+            // 该日之前没有任何交易，余额为0
+            return balance != null ? balance : BigDecimal.ZERO;
+        }
+        return balanceSnapshotMapper.sumUserClosingBalance(userId, date);
+    }
+
+    @Override
+    public BigDecimal getAverageBalance(String userId, String cardId, LocalDate firstDay, LocalDate lastDay) {
+        // 每张卡的期初余额 + 区间内的日终快照，读取行数与 卡数×有交易的天数 相当，与交易笔数无关
+        DailyBalanceAccumulator accumulator = new DailyBalanceAccumulator(firstDay, lastDay);
+        for (CardDailyBalance opening : balanceSnapshotMapper.findLatestBalances(userId, cardId, firstDay.minusDays(1))) {
+            accumulator.seed(opening.getCardId(), opening.getClosingBalance());
+        }
+        for (CardDailyBalance snapshot : balanceSnapshotMapper.findBalancesBetween(userId, cardId, firstDay, lastDay)) {
+            accumulator.add(snapshot);
+        }
+        return accumulator.getAverage();
+    }
+
+    @Override
+    public Map<String, Object> rebuild() {
+        Map<String, Object> result = rebuildCards(balanceSnapshotMapper::findCardsAfter);
+        log.info("余额快照重建完成: {}", result);
+        return result;
+    }
+
+    /**
+     * 按卡号分页取卡，逐张用交易流水重算快照；失败的卡记录日志后跳过
+     */
+    private Map<String, Object> rebuildCards(BiFunction<String, Integer, List<BankCard>> nextCards) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new RuntimeException("余额快照正在重建中，请稍后再试");
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            int cardCount = 0;
+            int failedCount = 0;
+            long rowCount = 0;
+            String afterCardId = null;
+
+            while (true) {
+                List<BankCard> cards = nextCards.apply(afterCardId, rebuildBatchSize);
+                if (cards.isEmpty()) {
+                    break;
+                }
+                for (BankCard card : cards) {
+                    try {
+                        // 单条 INSERT ... SELECT，自身即一个事务
+                        rowCount += balanceSnapshotMapper.rebuildCard(card.getUserId(), card.getCardId());
+                        cardCount++;
+                    } catch (RuntimeException e) {
+                        failedCount++;
+                        log.warn("余额快照重建失败: cardId={}, {}", card.getCardId(), e.getMessage());
+                    }
+                }
+                afterCardId = cards.get(cards.size() - 1).getCardId();
+                log.info("余额快照重建进度: 已处理 {} 张卡, 失败 {} 张", cardCount, failedCount);
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("cards", cardCount);
+            result.put("failedCards", failedCount);
+            result.put("affectedRows", rowCount);
+            result.put("elapsedMs", System.currentTimeMillis() - startTime);
+            return result;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.zychen.bank.model.FixedDeposit;
 import com.zychen.bank.model.FreezeRecord;
 import com.zychen.bank.model.UserInfo;
 import com.zychen.bank.service.BankCardService;
+import com.zychen.bank.utils.CardPasswordVerifier;
 import com.zychen.bank.utils.PasswordUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +42,9 @@ public class BankCardServiceImpl implements BankCardService {
     @Autowired
     private PasswordUtil passwordUtil;
 
+    @Autowired
+    private CardPasswordVerifier cardPasswordVerifier;
+
     @Override
     @Transactional
     public BankCard bindCard(String userId, BindCardDTO bindCardDTO) {
@@ -124,7 +128,7 @@ public class BankCardServiceImpl implements BankCardService {
         }
 
         // 3. 验证交易密码
-        if (!passwordUtil.matches(dto.getCardPassword(), bankCard.getCardPassword())) {
+        if (!cardPasswordVerifier.matches(bankCard.getCardId(), dto.getCardPassword(), bankCard.getCardPassword())) {
             throw new RuntimeException("交易密码错误");
         }
 
@@ -154,6 +158,7 @@ public class BankCardServiceImpl implements BankCardService {
 
         // 8. 更新银行卡状态为"已注销"(3)
         bankCardMapper.updateStatus(dto.getCardId(), 3);
+        cardPasswordVerifier.invalidate(dto.getCardId());
 
         // 9. 返回结果
         Map<String, Object> result = new HashMap<>();
@@ -8,11 +8,12 @@ import com.zychen.bank.model.BankCard;
 import com.zychen.bank.model.FixedDeposit;
 import com.zychen.bank.model.Transaction;
 import com.zychen.bank.service.FixedDepositService;
+import com.zychen.bank.utils.CardLockManager;
 import com.zychen.bank.utils.IDGenerator;
-import com.zychen.bank.utils.PasswordUtil;
+import com.zychen.bank.utils.CardPasswordVerifier;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -26,7 +27,7 @@ import java.time.ZoneId;
 @Service
 public class FixedDepositServiceImpl implements FixedDepositService {
     @Autowired
-    private PasswordUtil passwordUtil;
+    private CardPasswordVerifier cardPasswordVerifier;
     @Autowired
     private FixedDepositMapper fixedDepositMapper;
 
@@ -39,6 +40,12 @@ public class FixedDepositServiceImpl implements FixedDepositService {
     private InterestRateService interestRateService;
     @Autowired
     private IDGenerator idGenerator;
+    @Autowired
+    private CardLockManager cardLockManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
     // 添加这个辅助方法
     private boolean isValidTerm(Integer term) {
         if (term == null) return false;
@@ -61,8 +68,8 @@ public class FixedDepositServiceImpl implements FixedDepositService {
 //    }
 
     @Override
-    @Transactional
     public FixedDeposit createFixedDeposit(FixedDepositDTO dto, String userId) {
+        // ===== 预授权阶段：不开事务、不持有卡锁，BCrypt校验期间不占用数据库连接 =====
         // 1. 验证银行卡信息
         BankCard bankCard = bankCardMapper.findByCardId(dto.getCardId());
         if (bankCard == null) {
@@ -75,7 +82,7 @@ public class FixedDepositServiceImpl implements FixedDepositService {
         }
 
         // 3. 验证交易密码
-        if (!passwordUtil.matches(dto.getCardPassword(), bankCard.getCardPassword())) {
+        if (!cardPasswordVerifier.matches(bankCard.getCardId(), dto.getCardPassword(), bankCard.getCardPassword())) {
             throw new RuntimeException("交易密码错误");
         }
 
@@ -88,9 +95,6 @@ public class FixedDepositServiceImpl implements FixedDepositService {
         if (bankCard.getBalance().compareTo(dto.getPrincipal()) < 0) {
             throw new RuntimeException("余额不足");
         }
-        // 获取当前余额（扣除前）
-        BigDecimal currentBalance = bankCard.getBalance();
-        BigDecimal currentAvailableBalance = bankCard.getAvailableBalance();
 
 //        // 6. 验证存款期限是否合法
 //        if (!INTEREST_RATES.containsKey(dto.getTerm())) {
@@ -103,21 +107,31 @@ public class FixedDepositServiceImpl implements FixedDepositService {
             throw new RuntimeException("存款期限不合法，请选择3、6、12、24、36个月");
         }
 
-        // 7. 从活期账户扣除本金
-        BigDecimal newBalance = bankCard.getBalance().subtract(dto.getPrincipal());
-        BigDecimal newAvailableBalance = bankCard.getAvailableBalance().subtract(dto.getPrincipal());
+        // ===== 写入阶段：持有卡锁的短事务 =====
+        String authorizedPassword = bankCard.getCardPassword();
+        return cardLockManager.executeWithLock(dto.getCardId(),
+                () -> transactionTemplate.execute(status -> doCreateFixedDeposit(dto, userId, authorizedPassword)));
+    }
+
+    private FixedDeposit doCreateFixedDeposit(FixedDepositDTO dto, String userId, String authorizedPassword) {
+        cardPasswordVerifier.ensureUnchanged(dto.getCardId(), authorizedPassword);
 
-        int updateResult = bankCardMapper.updateBalance(
+        // 7. 从活期账户原子扣除本金（可用余额不足时不更新）
+        int updateResult = bankCardMapper.updateBalanceByDelta(
                 dto.getCardId(),
-                newBalance,
-                newAvailableBalance,
+                dto.getPrincipal().negate(),
+                0,
                 java.time.LocalDateTime.now()
         );
 
         if (updateResult == 0) {
-            throw new RuntimeException("扣除余额失败");
+            throw new RuntimeException("余额不足");
         }
 
+        // 获取扣除后的余额，并反推扣除前余额
+        BigDecimal newBalance = bankCardMapper.findBalanceByCardId(dto.getCardId()).getBalance();
+        BigDecimal currentBalance = newBalance.add(dto.getPrincipal());
+
 //        // 8. 创建定期存款记录
 //        FixedDeposit fixedDeposit = new FixedDeposit();
 //        String fdNo = "FD" + new java.text.SimpleDateFormat("yyyyMMddHHmmss").format(new Date())
@@ -150,11 +164,10 @@ public class FixedDepositServiceImpl implements FixedDepositService {
         depositTransaction.setCompletedTime(java.time.LocalDateTime.now());
 
         transactionMapper.insert(depositTransaction);
+        balanceSnapshotService.recordTransaction(depositTransaction);
         // 8. 创建定期存款记录 - 修改利率获取方式
         FixedDeposit fixedDeposit = new FixedDeposit();
-        String fdNo = "FD" + new java.text.SimpleDateFormat("yyyyMMddHHmmss").format(new Date())
-                + String.format("%04d", (int)(Math.random() * 10000));
-        fixedDeposit.setFdNo(fdNo);
+        fixedDeposit.setFdNo(idGenerator.generateFdNo());
         fixedDeposit.setCardId(dto.getCardId());
         fixedDeposit.setUserId(userId);
         fixedDeposit.setPrincipal(dto.getPrincipal());
@@ -222,8 +235,8 @@ public class FixedDepositServiceImpl implements FixedDepositService {
 
 
     @Override
-    @Transactional
     public Map<String, Object> earlyWithdraw(Integer fdId, String userId, String cardPassword) {
+        // ===== 预授权阶段：不开事务、不持有卡锁 =====
         // 1. 查询定期存款
         FixedDeposit fixedDeposit = fixedDepositMapper.findById(fdId);
         if (fixedDeposit == null) {
@@ -247,10 +260,20 @@ public class FixedDepositServiceImpl implements FixedDepositService {
         }
 
         // 5. 验证交易密码
-        if (!passwordUtil.matches(cardPassword, bankCard.getCardPassword())) {
+        if (!cardPasswordVerifier.matches(bankCard.getCardId(), cardPassword, bankCard.getCardPassword())) {
             throw new RuntimeException("交易密码错误");
         }
 
+        // ===== 写入阶段：持有卡锁的短事务 =====
+        String authorizedPassword = bankCard.getCardPassword();
+        return cardLockManager.executeWithLock(fixedDeposit.getCardId(),
+                () -> transactionTemplate.execute(status -> doEarlyWithdraw(fixedDeposit, userId, authorizedPassword)));
+    }
+
+    private Map<String, Object> doEarlyWithdraw(FixedDeposit fixedDeposit, String userId, String authorizedPassword) {
+        Integer fdId = fixedDeposit.getFdId();
+        cardPasswordVerifier.ensureUnchanged(fixedDeposit.getCardId(), authorizedPassword);
+
         // 6. 计算持有天数
         Date startDate = fixedDeposit.getStartTime();
         Date currentDate = new Date();
@@ -278,23 +301,24 @@ public class FixedDepositServiceImpl implements FixedDepositService {
         // 8. 计算总金额（本金 + 活期利息）
         BigDecimal totalAmount = principal.add(interest);
 
-        // 9. 更新银行卡余额
-        BigDecimal newBalance = bankCard.getBalance().add(totalAmount);
-        BigDecimal newAvailableBalance = bankCard.getAvailableBalance().add(totalAmount);
+        // 9. 先条件更新定期存款状态为"已支取"，并发重复支取时只有一个请求能成功
+        if (fixedDepositMapper.updateStatusIfMatch(fdId, 0, 2) == 0) { // 2=已支取
+            throw new RuntimeException("定期存款状态异常，无法提前支取");
+        }
 
-        int updateResult = bankCardMapper.updateBalance(
+        // 10. 按增量原子更新银行卡余额
+        int updateResult = bankCardMapper.updateBalanceByDelta(
                 fixedDeposit.getCardId(),
-                newBalance,
-                newAvailableBalance,
+                totalAmount,
+                null,
                 java.time.LocalDateTime.now()
         );
 
         if (updateResult == 0) {
             throw new RuntimeException("更新余额失败");
         }
-
-        // 10. 更新定期存款状态为"已支取"
-        fixedDepositMapper.updateStatus(fdId, 2); // 2=已支取
+        BigDecimal newBalance = bankCardMapper.findBalanceByCardId(fixedDeposit.getCardId()).getBalance();
+        BigDecimal balanceBefore = newBalance.subtract(totalAmount);
 
         // 11. 记录交易流水（添加这部分代码）
         Transaction transaction = new Transaction();
@@ -304,7 +328,7 @@ public class FixedDepositServiceImpl implements FixedDepositService {
         transaction.setTransType("DEPOSIT");
         transaction.setTransSubtype("FIXED_DEPOSIT_EARLY");
         transaction.setAmount(totalAmount);
-        transaction.setBalanceBefore(bankCard.getBalance());
+        transaction.setBalanceBefore(balanceBefore);
         transaction.setBalanceAfter(newBalance);
         transaction.setFee(BigDecimal.ZERO);
         transaction.setCurrency("CNY");
@@ -315,6 +339,7 @@ public class FixedDepositServiceImpl implements FixedDepositService {
         transaction.setTransTime(java.time.LocalDateTime.now());
         transaction.setCompletedTime(java.time.LocalDateTime.now());
         transactionMapper.insert(transaction);
+        balanceSnapshotService.recordTransaction(transaction);
 
         // 12. 返回结果
         Map<String, Object> result = new HashMap<>();
@@ -331,8 +356,8 @@ public class FixedDepositServiceImpl implements FixedDepositService {
     }
 
     @Override
-    @Transactional
     public Map<String, Object> matureWithdraw(Integer fdId, String userId, String cardPassword) {
+        // ===== 预授权阶段：不开事务、不持有卡锁 =====
         // 1. 查询定期存款
         FixedDeposit fixedDeposit = fixedDepositMapper.findById(fdId);
         if (fixedDeposit == null) {
@@ -363,10 +388,21 @@ public class FixedDepositServiceImpl implements FixedDepositService {
         }
 
         // 6. 验证交易密码
-        if (!passwordUtil.matches(cardPassword, bankCard.getCardPassword())) {
+        if (!cardPasswordVerifier.matches(bankCard.getCardId(), cardPassword, bankCard.getCardPassword())) {
             throw new RuntimeException("交易密码错误");
         }
 
+        // ===== 写入阶段：持有卡锁的短事务 =====
+        String authorizedPassword = bankCard.getCardPassword();
+        return cardLockManager.executeWithLock(fixedDeposit.getCardId(),
+                () -> transactionTemplate.execute(status -> doMatureWithdraw(fixedDeposit, userId, authorizedPassword)));
+    }
+
+    private Map<String, Object> doMatureWithdraw(FixedDeposit fixedDeposit, String userId, String authorizedPassword) {
+        Integer fdId = fixedDeposit.getFdId();
+        Date currentDate = new Date();
+        cardPasswordVerifier.ensureUnchanged(fixedDeposit.getCardId(), authorizedPassword);
+
         // 7. 计算利息（按定期利率）
         BigDecimal principal = fixedDeposit.getPrincipal();
         BigDecimal annualRate = fixedDeposit.getRate(); // 定期年利率
@@ -387,39 +423,35 @@ public class FixedDepositServiceImpl implements FixedDepositService {
         // 8. 计算总金额（本金 + 定期利息）
         BigDecimal totalAmount = principal.add(interest);
 
-        // 9. 更新银行卡余额
-        BigDecimal newBalance = bankCard.getBalance().add(totalAmount);
-        BigDecimal newAvailableBalance = bankCard.getAvailableBalance().add(totalAmount);
+        // 9. 先条件更新定期存款状态为"已转出"，并发重复转出时只有一个请求能成功
+        if (fixedDepositMapper.updateStatusIfMatch(fdId, 0, 3) == 0) { // 3=已转出（根据你的数据库状态）
+            throw new RuntimeException("定期存款状态异常，无法转出");
+        }
 
-        int updateResult = bankCardMapper.updateBalance(
+        // 10. 按增量原子更新银行卡余额
+        int updateResult = bankCardMapper.updateBalanceByDelta(
                 fixedDeposit.getCardId(),
-                newBalance,
-                newAvailableBalance,
+                totalAmount,
+                null,
                 java.time.LocalDateTime.now()
         );
 
         if (updateResult == 0) {
             throw new RuntimeException("更新余额失败");
         }
-
-        // 10. 更新定期存款状态为"已转出"
-        fixedDepositMapper.updateStatus(fdId, 3); // 3=已转出（根据你的数据库状态）
+        BigDecimal newBalance = bankCardMapper.findBalanceByCardId(fixedDeposit.getCardId()).getBalance();
+        BigDecimal balanceBefore = newBalance.subtract(totalAmount);
 
         // 11. 记录交易流水
         Transaction transaction = new Transaction();
 
-        // 生成交易流水号
-        String transNo = "T" + java.time.LocalDateTime.now().format(
-                java.time.format.DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
-                + String.format("%04d", (int)(Math.random() * 10000));
-
-        transaction.setTransNo(transNo);
+        transaction.setTransNo(idGenerator.generateTransNo());
         transaction.setCardId(fixedDeposit.getCardId());
         transaction.setUserId(userId);
         transaction.setTransType("DEPOSIT");
         transaction.setTransSubtype("FIXED_DEPOSIT_MATURE");
         transaction.setAmount(totalAmount);
-        transaction.setBalanceBefore(bankCard.getBalance());
+        transaction.setBalanceBefore(balanceBefore);
         transaction.setBalanceAfter(newBalance);
         transaction.setFee(BigDecimal.ZERO);
         transaction.setCurrency("CNY");
@@ -431,6 +463,7 @@ public class FixedDepositServiceImpl implements FixedDepositService {
         transaction.setCompletedTime(java.time.LocalDateTime.now());
 
         transactionMapper.insert(transaction);
+        balanceSnapshotService.recordTransaction(transaction);
 
         // 12. 返回结果
         Map<String, Object> result = new HashMap<>();
@@ -441,10 +474,9 @@ public class FixedDepositServiceImpl implements FixedDepositService {
         result.put("interest", interest);
         result.put("totalAmount", totalAmount);
         result.put("heldMonths", diffInMonths);
-        result.put("transNo", transNo);
+        result.put("transNo", transaction.getTransNo());
         result.put("withdrawTime", new Date());
 
         return result;
     }
-
 }
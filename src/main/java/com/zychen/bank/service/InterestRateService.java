@@ -1,4 +1,5 @@
 package com.zychen.bank.service;
+import com.zychen.bank.dto.PrecomputedResponse;
 import com.zychen.bank.model.InterestRate;
 
 import java.math.BigDecimal;
@@ -26,4 +27,14 @@ public interface InterestRateService {
      * 获取活期利率
      */
     BigDecimal getCurrentRate();
-}
\ No newline at end of file
+
+    /**
+     * /system/interest-rates 的完整响应（已序列化的JSON及ETag），利率表变化时重新生成
+     */
+    PrecomputedResponse getInterestRatesResponse();
+
+    /**
+     * 立即从数据库重新加载利率表（利率配置修改后调用），返回加载结果
+     */
+    Map<String, Object> refreshRates();
+}
@@ -1,101 +1,223 @@
 package com.zychen.bank.service;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zychen.bank.dto.PrecomputedResponse;
 import com.zychen.bank.mapper.InterestRateMapper;
 import com.zychen.bank.model.InterestRate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 利率配置很少变化，不再每次调用都查库：
+ * 有效利率一次查出后构建成不可变的利率表（活期利率、按期限的定期利率、前端用的格式化结果、
+ * 序列化好的接口响应及ETag），整表替换volatile引用，读取方无锁且总是看到一致的一份。
+ * 利率表按固定间隔后台刷新，修改利率后可调用refreshRates立即重新加载；数据没变时保留原表，ETag不变。
+ */
 @Slf4j
 @Service
 public class InterestRateServiceImpl implements InterestRateService {
 
+    // 数据库不可用、使用默认利率时，至少间隔这么久再重试加载
+    private static final long FALLBACK_RETRY_MS = 30_000;
+
     @Autowired
     private InterestRateMapper interestRateMapper;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.interest-rate-cache.refresh-minutes:5}")
+    private long refreshMinutes;
+
+    private volatile RateTable table;
+    private volatile String lastRefreshError;
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    public void init() {
+        // 首次加载在第一次访问时进行，启动时不依赖数据库
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "interest-rate-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::reload, refreshMinutes, refreshMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
     @Override
     public List<InterestRate> getAllInterestRates() {
-        try {
-            return interestRateMapper.findAllActiveRates();
-        } catch (Exception e) {
-            log.error("获取利率配置失败", e);
-            return new ArrayList<>();
-        }
+        return new ArrayList<>(table().rates);
     }
 
     @Override
     public Map<String, Object> getFormattedInterestRates() {
-        Map<String, Object> result = new HashMap<>();
+        return table().formatted;
+    }
 
-        try {
-            // 获取活期利率
-            InterestRate currentRate = interestRateMapper.findCurrentDepositRate();
-            if (currentRate != null) {
-                Map<String, Object> current = new HashMap<>();
-                current.put("rate", currentRate.getAnnualRate());
-                current.put("name", "活期存款");
-                current.put("description", "按日计息，按季结息");
-                current.put("effective_date", currentRate.getEffectiveDate());
-                result.put("current", current);
-            }
+    @Override
+    public BigDecimal getRateByTerm(Integer termMonths) {
+        RateTable current = table();
+        BigDecimal rate = current.fixedRates.get(termMonths);
+        if (rate != null) {
+            return rate;
+        }
+        // 数据库不可用时按期限取默认利率；数据库中没有该期限时沿用统一的默认值
+        return current.fallback ? getDefaultRateByTerm(termMonths) : new BigDecimal("0.0150");
+    }
 
-            // 获取定期利率
-            List<InterestRate> fixedRates = interestRateMapper.findAllActiveRates();
-            List<Map<String, Object>> fixedRateList = new ArrayList<>();
+    @Override
+    public BigDecimal getCurrentRate() {
+        BigDecimal rate = table().currentRate;
+        return rate != null ? rate : new BigDecimal("0.0035");
+    }
 
-            for (InterestRate rate : fixedRates) {
-                if (rate.getAccountType().startsWith("FIXED_")) {
-                    Map<String, Object> fixedRate = new HashMap<>();
-                    fixedRate.put("term_months", rate.getTermMonths());
-                    fixedRate.put("rate", rate.getAnnualRate());
+    @Override
+    public PrecomputedResponse getInterestRatesResponse() {
+        return table().response;
+    }
+
+    @Override
+    public Map<String, Object> refreshRates() {
+        RateTable previous = table;
+        RateTable current = reload();
 
-                    // 根据期限设置名称
-                    String termName = getTermName(rate.getTermMonths());
-                    fixedRate.put("name", termName);
-                    fixedRate.put("effective_date", rate.getEffectiveDate());
+        Map<String, Object> result = new HashMap<>();
+        result.put("changed", current != previous);
+        result.put("rateCount", current.rates.size());
+        result.put("fallback", current.fallback);
+        result.put("loadedTime", new Date(current.loadedTime));
+        result.put("etag", current.response.getEtag());
+        result.put("error", lastRefreshError);
+        return result;
+    }
 
-                    fixedRateList.add(fixedRate);
+    private RateTable table() {
+        RateTable current = table;
+        if (current == null || current.fallback && System.currentTimeMillis() - current.loadedTime >= FALLBACK_RETRY_MS) {
+            synchronized (this) {
+                current = table;
+                if (current == null || current.fallback
+                        && System.currentTimeMillis() - current.loadedTime >= FALLBACK_RETRY_MS) {
+                    current = reload();
                 }
             }
-
-            // 按期限排序
-            fixedRateList.sort(Comparator.comparing(m -> (Integer) m.get("term_months")));
-            result.put("fixed_rates", fixedRateList);
-            result.put("last_updated", new Date());
-
-        } catch (Exception e) {
-            log.error("格式化利率信息失败", e);
-            // 返回默认值
-            result = getDefaultRates();
         }
-
-        return result;
+        return current;
     }
 
-    @Override
-    public BigDecimal getRateByTerm(Integer termMonths) {
+    /**
+     * 从数据库重新加载利率表；加载失败时保留已有的表，从未加载成功则使用默认利率
+     */
+    private synchronized RateTable reload() {
+        RateTable previous = table;
+        long now = System.currentTimeMillis();
         try {
-            InterestRate rate = interestRateMapper.findFixedRateByTerm(termMonths);
-            return rate != null ? rate.getAnnualRate() : new BigDecimal("0.0150");
+            List<InterestRate> rates = List.copyOf(interestRateMapper.findAllActiveRates());
+            lastRefreshError = null;
+            if (previous != null && !previous.fallback && previous.rates.equals(rates)) {
+                return previous;
+            }
+            RateTable loaded = buildTable(rates, now);
+            table = loaded;
+            log.info("利率表已加载: {} 条有效利率", rates.size());
+            return loaded;
         } catch (Exception e) {
-            log.error("获取定期利率失败，期限：{}", termMonths, e);
-            // 返回默认利率
-            return getDefaultRateByTerm(termMonths);
+            lastRefreshError = e.getMessage();
+            if (previous != null && !previous.fallback) {
+                log.warn("刷新利率表失败，继续使用已加载的利率: {}", e.getMessage());
+                return previous;
+            }
+            log.error("加载利率表失败，使用默认利率", e);
+            Map<String, Object> formatted = getDefaultRates();
+            formatted.put("last_updated", new Date(now));
+            RateTable fallback = new RateTable(List.of(), null, Collections.emptyMap(),
+                    Collections.unmodifiableMap(formatted), buildResponse(formatted, now), true, now);
+            table = fallback;
+            return fallback;
         }
     }
 
-    @Override
-    public BigDecimal getCurrentRate() {
+    private RateTable buildTable(List<InterestRate> rates, long loadedTime) {
+        // 活期取最新生效的一条，定期每个期限取最新生效的一条（与按条件查询时的排序一致）
+        InterestRate current = null;
+        Map<Integer, InterestRate> latestFixed = new HashMap<>();
+        List<Map<String, Object>> fixedRateList = new ArrayList<>();
+
+        for (InterestRate rate : rates) {
+            if ("CURRENT".equals(rate.getAccountType())) {
+                if (current == null || isLater(rate, current)) {
+                    current = rate;
+                }
+            } else if (rate.getAccountType() != null && rate.getAccountType().startsWith("FIXED_")) {
+                latestFixed.merge(rate.getTermMonths(), rate, (existing, other) -> isLater(other, existing) ? other : existing);
+
+                Map<String, Object> fixedRate = new HashMap<>();
+                fixedRate.put("term_months", rate.getTermMonths());
+                fixedRate.put("rate", rate.getAnnualRate());
+                // 根据期限设置名称
+                fixedRate.put("name", getTermName(rate.getTermMonths()));
+                fixedRate.put("effective_date", rate.getEffectiveDate());
+                fixedRateList.add(Collections.unmodifiableMap(fixedRate));
+            }
+        }
+
+        Map<String, Object> formatted = new HashMap<>();
+        if (current != null) {
+            Map<String, Object> currentInfo = new HashMap<>();
+            currentInfo.put("rate", current.getAnnualRate());
+            currentInfo.put("name", "活期存款");
+            currentInfo.put("description", "按日计息，按季结息");
+            currentInfo.put("effective_date", current.getEffectiveDate());
+            formatted.put("current", Collections.unmodifiableMap(currentInfo));
+        }
+        // 按期限排序
+        fixedRateList.sort(Comparator.comparing(m -> (Integer) m.get("term_months")));
+        formatted.put("fixed_rates", Collections.unmodifiableList(fixedRateList));
+        // 利率表的加载时间，数据不变时保持不变
+        formatted.put("last_updated", new Date(loadedTime));
+
+        Map<Integer, BigDecimal> fixedRates = new HashMap<>();
+        latestFixed.forEach((term, rate) -> fixedRates.put(term, rate.getAnnualRate()));
+
+        return new RateTable(rates, current != null ? current.getAnnualRate() : null,
+                Collections.unmodifiableMap(fixedRates), Collections.unmodifiableMap(formatted),
+                buildResponse(formatted, loadedTime), false, loadedTime);
+    }
+
+    private static boolean isLater(InterestRate rate, InterestRate than) {
+        return rate.getEffectiveDate() != null
+                && (than.getEffectiveDate() == null || rate.getEffectiveDate().after(than.getEffectiveDate()));
+    }
+
+    // 接口响应与SystemController原先返回的结构一致，序列化一次，ETag取响应体摘要
+    private PrecomputedResponse buildResponse(Map<String, Object> data, long loadedTime) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取利率配置成功");
+        response.put("data", data);
         try {
-            InterestRate rate = interestRateMapper.findCurrentDepositRate();
-            return rate != null ? rate.getAnnualRate() : new BigDecimal("0.0035");
-        } catch (Exception e) {
-            log.error("获取活期利率失败", e);
-            return new BigDecimal("0.0035");
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            return new PrecomputedResponse(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"", new Date(loadedTime));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("利率响应序列化失败: " + e.getMessage());
         }
     }
 
@@ -155,4 +277,30 @@ public class InterestRateServiceImpl implements InterestRateService {
             default: return new BigDecimal("0.0150");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 不可变的利率表，构建完成后不再修改
+     */
+    private static class RateTable {
+        private final List<InterestRate> rates;
+        private final BigDecimal currentRate;
+        private final Map<Integer, BigDecimal> fixedRates;
+        private final Map<String, Object> formatted;
+        private final PrecomputedResponse response;
+        // 数据库不可用时构建的默认利率表
+        private final boolean fallback;
+        private final long loadedTime;
+
+        private RateTable(List<InterestRate> rates, BigDecimal currentRate, Map<Integer, BigDecimal> fixedRates,
+                          Map<String, Object> formatted, PrecomputedResponse response,
+                          boolean fallback, long loadedTime) {
+            this.rates = rates;
+            this.currentRate = currentRate;
+            this.fixedRates = fixedRates;
+            this.formatted = formatted;
+            this.response = response;
+            this.fallback = fallback;
+            this.loadedTime = loadedTime;
+        }
+    }
+}
@@ -3,10 +3,12 @@ package com.zychen.bank.service;
 
 import com.zychen.bank.dto.OperationLogQueryDTO;
 import com.zychen.bank.mapper.OperationLogMapper;
-import com.zychen.bank.mapper.UserMapper;
 import com.zychen.bank.model.OperationLog;
-import com.zychen.bank.model.User;
 import com.zychen.bank.service.OperationLogService;
+import com.zychen.bank.utils.CurrentUser;
+import com.zychen.bank.utils.DateRange;
+import com.zychen.bank.utils.OperationLogWriter;
+import com.zychen.bank.utils.UserDisplayNameCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -14,6 +16,8 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Service
 public class OperationLogServiceImpl implements OperationLogService {
@@ -22,7 +26,10 @@ public class OperationLogServiceImpl implements OperationLogService {
     private OperationLogMapper operationLogMapper;
 
     @Autowired
-    private UserMapper userMapper;
+    private UserDisplayNameCache userDisplayNameCache;
+
+    @Autowired
+    private OperationLogWriter operationLogWriter;
 
     @Override
     public void logOperation(String userId, Integer userRole, String module,
@@ -31,6 +38,14 @@ public class OperationLogServiceImpl implements OperationLogService {
                              String ipAddress, String userAgent,
                              Integer status, String errorMessage, Integer executionTime) {
 
+        // 调用方未传用户信息时，从当前请求的登录身份中补全（不查询用户表）
+        if (userId == null) {
+            userId = CurrentUser.getUserId();
+        }
+        if (userRole == null) {
+            userRole = CurrentUser.getRole(userId);
+        }
+
         OperationLog log = new OperationLog();
         log.setUserId(userId);
         log.setUserRole(userRole);
@@ -46,7 +61,7 @@ public class OperationLogServiceImpl implements OperationLogService {
         log.setExecutionTime(executionTime);
         log.setCreatedTime(LocalDateTime.now());
 
-        operationLogMapper.insert(log);
+        operationLogWriter.submit(log);
     }
 
     @Override
@@ -56,11 +71,18 @@ public class OperationLogServiceImpl implements OperationLogService {
         // 计算分页偏移量
         int offset = (queryDTO.getPage() - 1) * queryDTO.getPageSize();
 
+        // 日期条件转成半开时间区间
+        DateRange range = DateRange.parse(queryDTO.getStartTime(), queryDTO.getEndTime());
+
         // 查询日志列表
-        List<OperationLog> logs = operationLogMapper.findLogs(queryDTO, offset, queryDTO.getPageSize());
+        List<OperationLog> logs = operationLogMapper.findLogs(queryDTO, range, offset, queryDTO.getPageSize());
 
         // 查询总数
-        int total = operationLogMapper.countLogs(queryDTO);
+        int total = operationLogMapper.countLogs(queryDTO, range);
+
+        // 批量获取本页操作人的姓名（缓存 + 一次IN查询）
+        Map<String, UserDisplayNameCache.DisplayName> names = userDisplayNameCache.getAll(
+                logs.stream().map(OperationLog::getUserId).filter(Objects::nonNull).collect(Collectors.toSet()));
 
         // 转换日志数据，添加用户姓名
         List<Map<String, Object>> logList = logs.stream().map(log -> {
@@ -70,17 +92,9 @@ public class OperationLogServiceImpl implements OperationLogService {
             logMap.put("userRole", log.getUserRole());
             logMap.put("userRoleText", getRoleText(log.getUserRole()));
 
-            // 尝试获取用户姓名
-            String userName = "未知用户";
-            if (log.getUserId() != null) {
-                User user = userMapper.findByUserId(log.getUserId());
-                if (user != null) {
-                    // 需要根据你的实际结构获取姓名
-                    // 这里假设User实体有getName()方法，如果没有需要调整
-                    userName = user.getUsername(); // 或从userInfo获取真实姓名
-                }
-            }
-            logMap.put("userName", userName);
+            UserDisplayNameCache.DisplayName name = log.getUserId() != null ? names.get(log.getUserId()) : null;
+            logMap.put("userName", name != null && name.getUsername() != null ? name.getUsername() : "未知用户");
+            logMap.put("realName", name != null ? name.getRealName() : null);
 
             logMap.put("module", log.getModule());
             logMap.put("moduleText", getModuleText(log.getModule()));
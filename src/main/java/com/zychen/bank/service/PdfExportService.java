@@ -487,26 +487,30 @@
 package com.zychen.bank.service;
 
 import com.zychen.bank.dto.ReportResponseDTO;
+import com.zychen.bank.utils.PdfFontCache;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDFont;
-import org.apache.pdfbox.pdmodel.font.PDType0Font;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -524,471 +528,483 @@ public class PdfExportService {
     // 表格行高（固定）
     private static final float TABLE_ROW_HEIGHT = 22;
 
-    // 字体变量（动态加载）
-    private PDFont chineseTitleFont;
-    private PDFont chineseHeaderFont;
-    private PDFont chineseNormalFont;
-
-    // 默认英文字体（备用）
+    // 默认英文字体（未找到中文字体时使用）
     private static final PDFont ENGLISH_TITLE_FONT = PDType1Font.HELVETICA_BOLD;
     private static final PDFont ENGLISH_HEADER_FONT = PDType1Font.HELVETICA_BOLD;
     private static final PDFont ENGLISH_NORMAL_FONT = PDType1Font.HELVETICA;
 
-    // 格式化
-    private static final DecimalFormat AMOUNT_FORMAT = new DecimalFormat("#,##0.00");
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-    private static final SimpleDateFormat SIMPLE_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
+    private static final DateTimeFormatter SHORT_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    // 明细表格列位置（固定位置，确保对齐）：时间、类型、金额、余额、备注
+    private static final float[] COLUMN_POSITIONS = {
+            MARGIN + 10, MARGIN + 120, MARGIN + 180, MARGIN + 250, MARGIN + 350
+    };
+
+    // 明细表格下方至少要留出的高度，不足时换页
+    private static final float TABLE_BOTTOM = MARGIN + TABLE_ROW_HEIGHT * 2;
+
+    @Autowired
+    private PdfFontCache pdfFontCache;
+
+    // 单个文档内容流在内存中的上限，超出部分写临时文件，明细很多时内存占用不随页数增长
+    @Value("${app.report-export.pdf-memory-kb:4096}")
+    private long pdfMemoryKb = 4096;
 
     /**
-     * 加载中文字体
+     * 交易明细来源：可以是内存中的列表，也可以是数据库流式查询
      */
-    private void loadChineseFonts(PDDocument document) throws IOException {
-        try {
-            // 1. 尝试加载系统字体
-            String[] fontPaths = {
-                    "C:/Windows/Fonts/simhei.ttf",           // Windows 黑体
-                    "C:/Windows/Fonts/simsun.ttc",           // Windows 宋体
-                    "C:/Windows/Fonts/msyh.ttc",             // Windows 微软雅黑
-                    "/System/Library/Fonts/PingFang.ttc",    // Mac 苹方
-                    "/System/Library/Fonts/STHeiti Light.ttc", // Mac 黑体
-                    "/usr/share/fonts/truetype/wqy/wqy-microhei.ttc" // Linux 文泉驿
-            };
-
-            File fontFile = null;
-            for (String path : fontPaths) {
-                File f = new File(path);
-                if (f.exists()) {
-                    fontFile = f;
-                    log.info("找到系统字体: {}", path);
-                    break;
-                }
-            }
+    @FunctionalInterface
+    public interface TransactionSource {
+        void forEach(Consumer<ReportResponseDTO.TransactionSummary> action);
+    }
 
-            if (fontFile != null) {
-                // 加载中文字体
-                chineseTitleFont = PDType0Font.load(document, fontFile);
-                chineseHeaderFont = chineseTitleFont;
-                chineseNormalFont = chineseTitleFont;
-                log.info("成功加载系统字体");
-                return;
+    /**
+     * 导出报告为PDF（明细取报告中附带的交易）
+     */
+    public byte[] exportReportToPdf(ReportResponseDTO report) throws IOException {
+        List<ReportResponseDTO.TransactionSummary> transactions =
+                report.getTransactions() != null ? report.getTransactions() : List.of();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeReportToPdf(report, transactions::forEach, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * 导出报告为PDF并写入输出流 - 支持多页
+     * 明细逐条排版，当前页放不下时换页；页眉页脚需要总页数，在全部明细写完后补画。
+     */
+    public void writeReportToPdf(ReportResponseDTO report, TransactionSource transactions,
+                                 OutputStream out) throws IOException {
+        try (PDDocument document = new PDDocument(MemoryUsageSetting.setupMixed(pdfMemoryKb * 1024))) {
+
+            // 字体和格式化器都是本次导出独享的
+            DocumentRenderer renderer = new DocumentRenderer(document, report);
+            renderer.beginFirstPage();
+            try {
+                transactions.forEach(renderer::addTransaction);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
+            renderer.finish();
 
-            // 2. 如果系统字体不存在，使用默认英文字体
-            log.warn("未找到系统字体，使用默认英文字体（中文将显示为方块）");
-            chineseTitleFont = ENGLISH_TITLE_FONT;
-            chineseHeaderFont = ENGLISH_HEADER_FONT;
-            chineseNormalFont = ENGLISH_NORMAL_FONT;
+            // 保存文档
+            document.save(out);
+            log.info("PDF导出成功，共{}页，{}条明细，报告ID: {}",
+                    document.getNumberOfPages(), renderer.transactionCount, report.getReportId());
 
         } catch (Exception e) {
-            log.error("加载字体失败，使用默认字体", e);
-            chineseTitleFont = ENGLISH_TITLE_FONT;
-            chineseHeaderFont = ENGLISH_HEADER_FONT;
-            chineseNormalFont = ENGLISH_NORMAL_FONT;
+            log.error("PDF导出失败", e);
+            throw new IOException("生成PDF失败: " + e.getMessage(), e);
         }
     }
 
     /**
-     * 安全显示文本（防止字体不支持字符）
+     * 单个PDF文档的渲染状态：字体绑定到当前文档，格式化器不是线程安全的，
+     * 每次导出新建一个，导出之间不共享可变状态，可以并发导出
      */
-    private void safeShowText(PDPageContentStream contentStream, String text) throws IOException {
-        try {
-            contentStream.showText(text);
-        } catch (IllegalArgumentException e) {
-            // 如果字体不支持某些字符，替换为问号
-            log.warn("字体不支持字符: {}, 替换为?", text);
-            contentStream.showText("?");
+    private class DocumentRenderer {
+
+        private final PDDocument document;
+        private final ReportResponseDTO report;
+
+        private final PDFont chineseTitleFont;
+        private final PDFont chineseHeaderFont;
+        private final PDFont chineseNormalFont;
+
+        private final DecimalFormat amountFormat = new DecimalFormat("#,##0.00");
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        // 当前页的内容流和绘制位置
+        private PDPageContentStream contentStream;
+        private float y;
+        private boolean tableStarted;
+        private int transactionCount;
+
+        private DocumentRenderer(PDDocument document, ReportResponseDTO report) {
+            this.document = document;
+            this.report = report;
+            PDFont font = null;
+            try {
+                font = pdfFontCache.loadFont(document);
+            } catch (Exception e) {
+                log.error("加载字体失败，使用默认字体", e);
+            }
+            chineseTitleFont = font != null ? font : ENGLISH_TITLE_FONT;
+            chineseHeaderFont = font != null ? font : ENGLISH_HEADER_FONT;
+            chineseNormalFont = font != null ? font : ENGLISH_NORMAL_FONT;
         }
-    }
 
-    /**
-     * 导出报告为PDF - 支持多页
-     */
-    public byte[] exportReportToPdf(ReportResponseDTO report) throws IOException {
-        try (PDDocument document = new PDDocument();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+        /**
+         * 第一页：显示完整报告信息
+         */
+        private void beginFirstPage() throws IOException {
+            newPage();
+            y = addFirstPageContent(contentStream, report, y);
+        }
 
-            // 加载字体
-            loadChineseFonts(document);
+        /**
+         * 追加一条明细，当前页放不下时换页并重画表头
+         */
+        private void addTransaction(ReportResponseDTO.TransactionSummary trans) {
+            try {
+                // 表头之后至少还能放一行
+                float needed = tableStarted ? 0 : LINE_HEIGHT * 1.5f + TABLE_ROW_HEIGHT;
+                if (y - needed < TABLE_BOTTOM) {
+                    newPage();
+                    // 后续页顶部留出页眉位置
+                    y -= LINE_HEIGHT * 2;
+                }
+                if (!tableStarted) {
+                    y = addTableHeader(contentStream, transactionCount == 0 ? "交易明细" : "交易明细（续）", y);
+                    tableStarted = true;
+                }
+                y = addTransactionRow(contentStream, trans, y);
+                transactionCount++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
-            // 获取交易记录
-            List<ReportResponseDTO.TransactionSummary> allTransactions =
-                    report.getTransactions() != null ? report.getTransactions() : new ArrayList<>();
+        /**
+         * 写完明细后补画记录统计、各页页眉和页脚
+         */
+        private void finish() throws IOException {
+            // 显示记录统计
+            if (transactionCount > 0) {
+                contentStream.beginText();
+                contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
+                contentStream.newLineAtOffset(MARGIN, y);
+                safeShowText(contentStream, String.format("共 %d 条记录", transactionCount));
+                contentStream.endText();
+            }
+            contentStream.close();
+
+            int totalPages = document.getNumberOfPages();
+            int pageNum = 0;
+            for (PDPage page : document.getPages()) {
+                pageNum++;
+                try (PDPageContentStream stream = new PDPageContentStream(document, page,
+                        PDPageContentStream.AppendMode.APPEND, true, true)) {
+                    if (pageNum > 1) {
+                        addPageHeader(stream, report, pageNum, totalPages, PAGE_SIZE.getHeight() - MARGIN);
+                    }
+                    addPageFooter(stream, report, pageNum, totalPages, 0);
+                }
+            }
+        }
 
-            // 计算每页能显示的交易记录数量
-            int transactionsPerPage = calculateTransactionsPerPage();
+        private void newPage() throws IOException {
+            if (contentStream != null) {
+                contentStream.close();
+            }
+            PDPage page = new PDPage(PAGE_SIZE);
+            document.addPage(page);
+            contentStream = new PDPageContentStream(document, page);
+            y = PAGE_SIZE.getHeight() - MARGIN;
+            tableStarted = false;
+        }
 
-            // 将交易记录分页
-            List<List<ReportResponseDTO.TransactionSummary>> transactionPages = new ArrayList<>();
-            if (!allTransactions.isEmpty()) {
-                for (int i = 0; i < allTransactions.size(); i += transactionsPerPage) {
-                    int end = Math.min(i + transactionsPerPage, allTransactions.size());
-                    transactionPages.add(allTransactions.subList(i, end));
-                }
-            } else {
-                transactionPages.add(new ArrayList<>()); // 空页面
+        /**
+         * 安全显示文本（防止字体不支持字符）
+         */
+        private void safeShowText(PDPageContentStream contentStream, String text) throws IOException {
+            try {
+                contentStream.showText(text);
+            } catch (IllegalArgumentException e) {
+                // 如果字体不支持某些字符，替换为问号（明细可能有上万行，不逐条告警）
+                log.debug("字体不支持字符: {}, 替换为?", text);
+                contentStream.showText("?");
             }
+        }
 
-            int totalPages = transactionPages.size();
+        /**
+         * 添加第一页内容
+         */
+        private float addFirstPageContent(PDPageContentStream contentStream,
+                                          ReportResponseDTO report, float y) throws IOException {
+            // 1. 标题
+            y = addTitle(contentStream, "银行账单报告", y);
+            y -= LINE_HEIGHT * 0.5f;
 
-            // 生成每一页
-            for (int pageNum = 1; pageNum <= totalPages; pageNum++) {
-                List<ReportResponseDTO.TransactionSummary> pageTransactions =
-                        transactionPages.get(pageNum - 1);
+            // 2. 报告基本信息
+            y = addReportInfo(contentStream, report, y);
+            y -= LINE_HEIGHT * 0.5f;
 
-                // 创建新页面
-                PDPage page = new PDPage(PAGE_SIZE);
-                document.addPage(page);
+            // 3. 汇总信息
+            y = addSummary(contentStream, report.getSummary(), y);
+            y -= LINE_HEIGHT * 0.5f;
 
-                // 创建内容流
-                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-                    float y = PAGE_SIZE.getHeight() - MARGIN;
+            // 4. 分类统计
+            if (report.getCategoryStatistics() != null) {
+                y = addCategoryStatistics(contentStream, report.getCategoryStatistics(), y);
+                y -= LINE_HEIGHT * 0.5f;
+            }
 
-                    if (pageNum == 1) {
-                        // 第一页：显示完整报告信息
-                        y = addFirstPageContent(contentStream, report, y);
-                    } else {
-                        // 后续页：显示页眉
-                        y = addPageHeader(contentStream, report, pageNum, totalPages, y);
-                    }
+            return y;
+        }
 
-                    // 添加当前页的交易明细
-                    if (!pageTransactions.isEmpty()) {
-                        String tableTitle = pageNum == 1 ?
-                                "交易明细" :
-                                String.format("交易明细（续 %d/%d）", pageNum, totalPages);
+        /**
+         * 添加后续页的页眉
+         */
+        private float addPageHeader(PDPageContentStream contentStream,
+                                    ReportResponseDTO report,
+                                    int currentPage,
+                                    int totalPages,
+                                    float y) throws IOException {
+            String header = String.format("银行账单报告 - 第 %d/%d 页", currentPage, totalPages);
 
-                        y = addTransactionDetailsTable(contentStream, pageTransactions, tableTitle, y);
-                    }
+            contentStream.beginText();
+            contentStream.setFont(chineseTitleFont, TITLE_FONT_SIZE);
+            contentStream.newLineAtOffset(MARGIN, y);
+            safeShowText(contentStream, header);
+            contentStream.endText();
 
-                    // 添加页脚（带页码）
-                    addPageFooter(contentStream, report, pageNum, totalPages, y);
-                }
-            }
+            y -= LINE_HEIGHT;
 
-            // 保存文档
-            document.save(baos);
-            log.info("PDF导出成功，共{}页，报告ID: {}", totalPages, report.getReportId());
+            contentStream.beginText();
+            contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE - 2);
+            contentStream.newLineAtOffset(MARGIN, y);
+            safeShowText(contentStream, String.format("报告编号: %s | 用户: %s | %s",
+                    report.getReportId(), report.getUserId(), report.getPeriod()));
+            contentStream.endText();
 
-            return baos.toByteArray();
+            return y - LINE_HEIGHT;
+        }
 
-        } catch (Exception e) {
-            log.error("PDF导出失败", e);
-            throw new IOException("生成PDF失败: " + e.getMessage(), e);
+        /**
+         * 添加标题
+         */
+        private float addTitle(PDPageContentStream contentStream, String title, float y) throws IOException {
+            contentStream.beginText();
+            contentStream.setFont(chineseTitleFont, TITLE_FONT_SIZE);
+            contentStream.newLineAtOffset(MARGIN, y);
+            safeShowText(contentStream, title);
+            contentStream.endText();
+            return y - LINE_HEIGHT * 1.5f;
         }
-    }
 
-    /**
-     * 计算每页能显示的交易记录数量
-     */
-    private int calculateTransactionsPerPage() {
-        // 页面可用高度 = 总高度 - 上下边距 - 页眉页脚空间 - 标题空间
-        float availableHeight = PAGE_SIZE.getHeight() - (2 * MARGIN) - 100;
-        int linesPerPage = (int) (availableHeight / TABLE_ROW_HEIGHT);
-        return Math.max(10, linesPerPage); // 至少显示10行
-    }
+        /**
+         * 添加报告基本信息
+         */
+        private float addReportInfo(PDPageContentStream contentStream, ReportResponseDTO report, float y) throws IOException {
+            contentStream.beginText();
+            contentStream.setFont(chineseHeaderFont, HEADER_FONT_SIZE);
+            contentStream.newLineAtOffset(MARGIN, y);
+            safeShowText(contentStream, "报告信息");
+            contentStream.endText();
+            y -= LINE_HEIGHT;
 
-    /**
-     * 添加第一页内容
-     */
-    private float addFirstPageContent(PDPageContentStream contentStream,
-                                      ReportResponseDTO report, float y) throws IOException {
-        // 1. 标题
-        y = addTitle(contentStream, "银行账单报告", y);
-        y -= LINE_HEIGHT * 0.5f;
-
-        // 2. 报告基本信息
-        y = addReportInfo(contentStream, report, y);
-        y -= LINE_HEIGHT * 0.5f;
-
-        // 3. 汇总信息
-        y = addSummary(contentStream, report.getSummary(), y);
-        y -= LINE_HEIGHT * 0.5f;
-
-        // 4. 分类统计
-        if (report.getCategoryStatistics() != null) {
-            y = addCategoryStatistics(contentStream, report.getCategoryStatistics(), y);
-            y -= LINE_HEIGHT * 0.5f;
+            contentStream.beginText();
+            contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
+            contentStream.newLineAtOffset(MARGIN + 20, y);
+            safeShowText(contentStream, "报告编号: " + report.getReportId());
+            contentStream.endText();
+            y -= LINE_HEIGHT;
+
+            contentStream.beginText();
+            contentStream.newLineAtOffset(MARGIN + 20, y);
+            safeShowText(contentStream, "用户ID: " + report.getUserId());
+            contentStream.endText();
+            y -= LINE_HEIGHT;
+
+            contentStream.beginText();
+            contentStream.newLineAtOffset(MARGIN + 20, y);
+            safeShowText(contentStream, "报告类型: " + (report.getReportType().equals("monthly") ? "月度账单" : "年度账单"));
+            contentStream.endText();
+            y -= LINE_HEIGHT;
+
+            contentStream.beginText();
+            contentStream.newLineAtOffset(MARGIN + 20, y);
+            safeShowText(contentStream, "时间段: " + report.getPeriod());
+            contentStream.endText();
+            y -= LINE_HEIGHT;
+
+            contentStream.beginText();
+            contentStream.newLineAtOffset(MARGIN + 20, y);
+            safeShowText(contentStream, "生成时间: " + dateFormat.format(report.getGeneratedTime()));
+            contentStream.endText();
+
+            return y - LINE_HEIGHT;
         }
 
-        return y;
-    }
+        /**
+         * 添加汇总信息
+         */
+        private float addSummary(PDPageContentStream contentStream,
+                                 ReportResponseDTO.ReportSummary summary, float y) throws IOException {
+            if (summary == null) return y;
 
-    /**
-     * 添加后续页的页眉
-     */
-    private float addPageHeader(PDPageContentStream contentStream,
-                                ReportResponseDTO report,
-                                int currentPage,
-                                int totalPages,
-                                float y) throws IOException {
-        String header = String.format("银行账单报告 - 第 %d/%d 页", currentPage, totalPages);
-
-        contentStream.beginText();
-        contentStream.setFont(chineseTitleFont, TITLE_FONT_SIZE);
-        contentStream.newLineAtOffset(MARGIN, y);
-        safeShowText(contentStream, header);
-        contentStream.endText();
-
-        y -= LINE_HEIGHT;
-
-        contentStream.beginText();
-        contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE - 2);
-        contentStream.newLineAtOffset(MARGIN, y);
-        safeShowText(contentStream, String.format("报告编号: %s | 用户: %s | %s",
-                report.getReportId(), report.getUserId(), report.getPeriod()));
-        contentStream.endText();
-
-        return y - LINE_HEIGHT;
-    }
+            contentStream.beginText();
+            contentStream.setFont(chineseHeaderFont, HEADER_FONT_SIZE);
+            contentStream.newLineAtOffset(MARGIN, y);
+            safeShowText(contentStream, "汇总信息");
+            contentStream.endText();
+            y -= LINE_HEIGHT;
 
-    /**
-     * 添加标题
-     */
-    private float addTitle(PDPageContentStream contentStream, String title, float y) throws IOException {
-        contentStream.beginText();
-        contentStream.setFont(chineseTitleFont, TITLE_FONT_SIZE);
-        contentStream.newLineAtOffset(MARGIN, y);
-        safeShowText(contentStream, title);
-        contentStream.endText();
-        return y - LINE_HEIGHT * 1.5f;
-    }
+            contentStream.beginText();
+            contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
+
+            float x1 = MARGIN + 20;
+            float x2 = MARGIN + 200;
+
+            // 第一列
+            contentStream.newLineAtOffset(x1, y);
+            safeShowText(contentStream, "期初余额:");
+            contentStream.newLineAtOffset(x1, y - LINE_HEIGHT);
+            safeShowText(contentStream, "期末余额:");
+            contentStream.newLineAtOffset(x1, y - LINE_HEIGHT * 2);
+            safeShowText(contentStream, "总收入:");
+            contentStream.newLineAtOffset(x1, y - LINE_HEIGHT * 3);
+            safeShowText(contentStream, "总支出:");
+            contentStream.newLineAtOffset(x1, y - LINE_HEIGHT * 4);
+            safeShowText(contentStream, "利息收入:");
+            contentStream.endText();
 
-    /**
-     * 添加报告基本信息
-     */
-    private float addReportInfo(PDPageContentStream contentStream, ReportResponseDTO report, float y) throws IOException {
-        contentStream.beginText();
-        contentStream.setFont(chineseHeaderFont, HEADER_FONT_SIZE);
-        contentStream.newLineAtOffset(MARGIN, y);
-        safeShowText(contentStream, "报告信息");
-        contentStream.endText();
-        y -= LINE_HEIGHT;
-
-        contentStream.beginText();
-        contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
-        contentStream.newLineAtOffset(MARGIN + 20, y);
-        safeShowText(contentStream, "报告编号: " + report.getReportId());
-        contentStream.endText();
-        y -= LINE_HEIGHT;
-
-        contentStream.beginText();
-        contentStream.newLineAtOffset(MARGIN + 20, y);
-        safeShowText(contentStream, "用户ID: " + report.getUserId());
-        contentStream.endText();
-        y -= LINE_HEIGHT;
-
-        contentStream.beginText();
-        contentStream.newLineAtOffset(MARGIN + 20, y);
-        safeShowText(contentStream, "报告类型: " + (report.getReportType().equals("monthly") ? "月度账单" : "年度账单"));
-        contentStream.endText();
-        y -= LINE_HEIGHT;
-
-        contentStream.beginText();
-        contentStream.newLineAtOffset(MARGIN + 20, y);
-        safeShowText(contentStream, "时间段: " + report.getPeriod());
-        contentStream.endText();
-        y -= LINE_HEIGHT;
-
-        contentStream.beginText();
-        contentStream.newLineAtOffset(MARGIN + 20, y);
-        safeShowText(contentStream, "生成时间: " + DATE_FORMAT.format(report.getGeneratedTime()));
-        contentStream.endText();
-
-        return y - LINE_HEIGHT;
-    }
+            // 第二列
+            contentStream.beginText();
+            contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
+            contentStream.newLineAtOffset(x2, y);
+            safeShowText(contentStream, formatAmount(summary.getStartBalance()) + " 元");
+            contentStream.newLineAtOffset(x2, y - LINE_HEIGHT);
+            safeShowText(contentStream, formatAmount(summary.getEndBalance()) + " 元");
+            contentStream.newLineAtOffset(x2, y - LINE_HEIGHT * 2);
+            safeShowText(contentStream, formatAmount(summary.getTotalDeposit()) + " 元");
+            contentStream.newLineAtOffset(x2, y - LINE_HEIGHT * 3);
+            safeShowText(contentStream, formatAmount(summary.getTotalWithdraw()) + " 元");
+            contentStream.newLineAtOffset(x2, y - LINE_HEIGHT * 4);
+            safeShowText(contentStream, formatAmount(summary.getInterestEarned()) + " 元");
+            contentStream.endText();
 
-    /**
-     * 添加汇总信息
-     */
-    private float addSummary(PDPageContentStream contentStream,
-                             ReportResponseDTO.ReportSummary summary, float y) throws IOException {
-        if (summary == null) return y;
-
-        contentStream.beginText();
-        contentStream.setFont(chineseHeaderFont, HEADER_FONT_SIZE);
-        contentStream.newLineAtOffset(MARGIN, y);
-        safeShowText(contentStream, "汇总信息");
-        contentStream.endText();
-        y -= LINE_HEIGHT;
-
-        contentStream.beginText();
-        contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
-
-        float x1 = MARGIN + 20;
-        float x2 = MARGIN + 200;
-
-        // 第一列
-        contentStream.newLineAtOffset(x1, y);
-        safeShowText(contentStream, "期初余额:");
-        contentStream.newLineAtOffset(x1, y - LINE_HEIGHT);
-        safeShowText(contentStream, "期末余额:");
-        contentStream.newLineAtOffset(x1, y - LINE_HEIGHT * 2);
-        safeShowText(contentStream, "总收入:");
-        contentStream.newLineAtOffset(x1, y - LINE_HEIGHT * 3);
-        safeShowText(contentStream, "总支出:");
-        contentStream.newLineAtOffset(x1, y - LINE_HEIGHT * 4);
-        safeShowText(contentStream, "利息收入:");
-        contentStream.endText();
-
-        // 第二列
-        contentStream.beginText();
-        contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
-        contentStream.newLineAtOffset(x2, y);
-        safeShowText(contentStream, formatAmount(summary.getStartBalance()) + " 元");
-        contentStream.newLineAtOffset(x2, y - LINE_HEIGHT);
-        safeShowText(contentStream, formatAmount(summary.getEndBalance()) + " 元");
-        contentStream.newLineAtOffset(x2, y - LINE_HEIGHT * 2);
-        safeShowText(contentStream, formatAmount(summary.getTotalDeposit()) + " 元");
-        contentStream.newLineAtOffset(x2, y - LINE_HEIGHT * 3);
-        safeShowText(contentStream, formatAmount(summary.getTotalWithdraw()) + " 元");
-        contentStream.newLineAtOffset(x2, y - LINE_HEIGHT * 4);
-        safeShowText(contentStream, formatAmount(summary.getInterestEarned()) + " 元");
-        contentStream.endText();
-
-        // 第三列
-        float x3 = MARGIN + 350;
-        contentStream.beginText();
-        contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
-        contentStream.newLineAtOffset(x3, y);
-        safeShowText(contentStream, "交易笔数:");
-        contentStream.newLineAtOffset(x3, y - LINE_HEIGHT);
-        safeShowText(contentStream, "净变化:");
-        contentStream.endText();
-
-        contentStream.beginText();
-        contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
-        contentStream.newLineAtOffset(x3 + 80, y);
-        safeShowText(contentStream, String.valueOf(summary.getTransactionCount()));
-        contentStream.newLineAtOffset(x3 + 80, y - LINE_HEIGHT);
-        safeShowText(contentStream, formatAmount(summary.getNetChange()) + " 元");
-        contentStream.endText();
-
-        return y - LINE_HEIGHT * 6;
-    }
+            // 第三列
+            float x3 = MARGIN + 350;
+            contentStream.beginText();
+            contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
+            contentStream.newLineAtOffset(x3, y);
+            safeShowText(contentStream, "交易笔数:");
+            contentStream.newLineAtOffset(x3, y - LINE_HEIGHT);
+            safeShowText(contentStream, "净变化:");
+            contentStream.endText();
 
-    /**
-     * 添加分类统计
-     */
-    private float addCategoryStatistics(PDPageContentStream contentStream,
-                                        ReportResponseDTO.CategoryStatistics stats, float y) throws IOException {
-        if (stats == null) return y;
-
-        contentStream.beginText();
-        contentStream.setFont(chineseHeaderFont, HEADER_FONT_SIZE);
-        contentStream.newLineAtOffset(MARGIN, y);
-        safeShowText(contentStream, "分类统计");
-        contentStream.endText();
-        y -= LINE_HEIGHT;
-
-        contentStream.beginText();
-        contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
-
-        float x1 = MARGIN + 20;
-        float x2 = MARGIN + 200;
-
-        contentStream.newLineAtOffset(x1, y);
-        safeShowText(contentStream, "存款总额:");
-        contentStream.newLineAtOffset(x1, y - LINE_HEIGHT);
-        safeShowText(contentStream, "取款总额:");
-        contentStream.newLineAtOffset(x1, y - LINE_HEIGHT * 2);
-        safeShowText(contentStream, "利息总额:");
-        contentStream.newLineAtOffset(x1, y - LINE_HEIGHT * 3);
-        safeShowText(contentStream, "手续费总额:");
-        contentStream.endText();
-
-        contentStream.beginText();
-        contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
-        contentStream.newLineAtOffset(x2, y);
-        safeShowText(contentStream, formatAmount(stats.getDepositAmount()) + " 元");
-        contentStream.newLineAtOffset(x2, y - LINE_HEIGHT);
-        safeShowText(contentStream, formatAmount(stats.getWithdrawAmount()) + " 元");
-        contentStream.newLineAtOffset(x2, y - LINE_HEIGHT * 2);
-        safeShowText(contentStream, formatAmount(stats.getInterestAmount()) + " 元");
-        contentStream.newLineAtOffset(x2, y - LINE_HEIGHT * 3);
-        safeShowText(contentStream, formatAmount(stats.getFeeAmount()) + " 元");
-        contentStream.endText();
-
-        return y - LINE_HEIGHT * 5;
-    }
+            contentStream.beginText();
+            contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
+            contentStream.newLineAtOffset(x3 + 80, y);
+            safeShowText(contentStream, String.valueOf(summary.getTransactionCount()));
+            contentStream.newLineAtOffset(x3 + 80, y - LINE_HEIGHT);
+            safeShowText(contentStream, formatAmount(summary.getNetChange()) + " 元");
+            contentStream.endText();
+
+            return y - LINE_HEIGHT * 6;
+        }
+
+        /**
+         * 添加分类统计
+         */
+        private float addCategoryStatistics(PDPageContentStream contentStream,
+                                            ReportResponseDTO.CategoryStatistics stats, float y) throws IOException {
+            if (stats == null) return y;
 
-    /**
-     * 添加交易明细表格 - 支持分页
-     */
-    private float addTransactionDetailsTable(PDPageContentStream contentStream,
-                                             List<ReportResponseDTO.TransactionSummary> transactions,
-                                             String title,
-                                             float startY) throws IOException {
-        float currentY = startY;
-
-        // 表格标题
-        contentStream.beginText();
-        contentStream.setFont(chineseHeaderFont, HEADER_FONT_SIZE);
-        contentStream.newLineAtOffset(MARGIN, currentY);
-        safeShowText(contentStream, title);
-        contentStream.endText();
-        currentY -= LINE_HEIGHT * 1.5f;
-
-        // 定义表格列位置（固定位置，确保对齐）
-        float[] columnPositions = {
-                MARGIN + 10,     // 时间列
-                MARGIN + 120,    // 类型列
-                MARGIN + 180,    // 金额列
-                MARGIN + 250,    // 余额列
-                MARGIN + 350     // 备注列
-        };
-
-        String[] headers = {"时间", "类型", "金额 (元)", "余额 (元)", "备注"};
-
-        // 绘制表头
-        for (int i = 0; i < headers.length; i++) {
             contentStream.beginText();
-            contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-            contentStream.newLineAtOffset(columnPositions[i], currentY);
-            safeShowText(contentStream, headers[i]);
+            contentStream.setFont(chineseHeaderFont, HEADER_FONT_SIZE);
+            contentStream.newLineAtOffset(MARGIN, y);
+            safeShowText(contentStream, "分类统计");
+            contentStream.endText();
+            y -= LINE_HEIGHT;
+
+            contentStream.beginText();
+            contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
+
+            float x1 = MARGIN + 20;
+            float x2 = MARGIN + 200;
+
+            contentStream.newLineAtOffset(x1, y);
+            safeShowText(contentStream, "存款总额:");
+            contentStream.newLineAtOffset(x1, y - LINE_HEIGHT);
+            safeShowText(contentStream, "取款总额:");
+            contentStream.newLineAtOffset(x1, y - LINE_HEIGHT * 2);
+            safeShowText(contentStream, "利息总额:");
+            contentStream.newLineAtOffset(x1, y - LINE_HEIGHT * 3);
+            safeShowText(contentStream, "手续费总额:");
             contentStream.endText();
+
+            contentStream.beginText();
+            contentStream.setFont(chineseNormalFont, NORMAL_FONT_SIZE);
+            contentStream.newLineAtOffset(x2, y);
+            safeShowText(contentStream, formatAmount(stats.getDepositAmount()) + " 元");
+            contentStream.newLineAtOffset(x2, y - LINE_HEIGHT);
+            safeShowText(contentStream, formatAmount(stats.getWithdrawAmount()) + " 元");
+            contentStream.newLineAtOffset(x2, y - LINE_HEIGHT * 2);
+            safeShowText(contentStream, formatAmount(stats.getInterestAmount()) + " 元");
+            contentStream.newLineAtOffset(x2, y - LINE_HEIGHT * 3);
+            safeShowText(contentStream, formatAmount(stats.getFeeAmount()) + " 元");
+            contentStream.endText();
+
+            return y - LINE_HEIGHT * 5;
         }
 
-        // 表头下划线
-        contentStream.setLineWidth(0.5f);
-        contentStream.moveTo(MARGIN, currentY - 5);
-        contentStream.lineTo(PAGE_SIZE.getWidth() - MARGIN, currentY - 5);
-        contentStream.stroke();
+        /**
+         * 添加交易明细表格的标题和表头
+         */
+        private float addTableHeader(PDPageContentStream contentStream, String title, float startY) throws IOException {
+            float currentY = startY;
+
+            // 表格标题
+            contentStream.beginText();
+            contentStream.setFont(chineseHeaderFont, HEADER_FONT_SIZE);
+            contentStream.newLineAtOffset(MARGIN, currentY);
+            safeShowText(contentStream, title);
+            contentStream.endText();
+            currentY -= LINE_HEIGHT * 1.5f;
 
-        currentY -= TABLE_ROW_HEIGHT;
+            String[] headers = {"时间", "类型", "金额 (元)", "余额 (元)", "备注"};
 
-        // 绘制数据行
-        for (ReportResponseDTO.TransactionSummary trans : transactions) {
-            // 检查页面空间是否足够
-            if (currentY < MARGIN + TABLE_ROW_HEIGHT * 2) {
-                // 空间不足，需要在外部创建新页面
-                break;
+            // 绘制表头
+            for (int i = 0; i < headers.length; i++) {
+                contentStream.beginText();
+                contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
+                contentStream.newLineAtOffset(COLUMN_POSITIONS[i], currentY);
+                safeShowText(contentStream, headers[i]);
+                contentStream.endText();
             }
 
+            // 表头下划线
+            contentStream.setLineWidth(0.5f);
+            contentStream.moveTo(MARGIN, currentY - 5);
+            contentStream.lineTo(PAGE_SIZE.getWidth() - MARGIN, currentY - 5);
+            contentStream.stroke();
+
+            return currentY - TABLE_ROW_HEIGHT;
+        }
+
+        /**
+         * 绘制一行交易明细
+         */
+        private float addTransactionRow(PDPageContentStream contentStream,
+                                        ReportResponseDTO.TransactionSummary trans, float currentY) throws IOException {
             // 时间
             contentStream.beginText();
             contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-            contentStream.newLineAtOffset(columnPositions[0], currentY);
+            contentStream.newLineAtOffset(COLUMN_POSITIONS[0], currentY);
             safeShowText(contentStream, formatShortDate(trans.getTransTime()));
             contentStream.endText();
 
             // 类型
             contentStream.beginText();
             contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-            contentStream.newLineAtOffset(columnPositions[1], currentY);
+            contentStream.newLineAtOffset(COLUMN_POSITIONS[1], currentY);
             safeShowText(contentStream, getTransTypeChinese(trans.getTransType()));
             contentStream.endText();
 
             // 金额
             contentStream.beginText();
             contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-            contentStream.newLineAtOffset(columnPositions[2], currentY);
+            contentStream.newLineAtOffset(COLUMN_POSITIONS[2], currentY);
             safeShowText(contentStream, formatAmount(trans.getAmount()));
             contentStream.endText();
 
             // 余额
             contentStream.beginText();
             contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-            contentStream.newLineAtOffset(columnPositions[3], currentY);
+            contentStream.newLineAtOffset(COLUMN_POSITIONS[3], currentY);
             safeShowText(contentStream, formatAmount(trans.getBalanceAfter()));
             contentStream.endText();
 
@@ -999,118 +1015,76 @@ public class PdfExportService {
             }
             contentStream.beginText();
             contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-            contentStream.newLineAtOffset(columnPositions[4], currentY);
+            contentStream.newLineAtOffset(COLUMN_POSITIONS[4], currentY);
             safeShowText(contentStream, remark);
             contentStream.endText();
 
-            currentY -= TABLE_ROW_HEIGHT;
+            return currentY - TABLE_ROW_HEIGHT;
         }
 
-        // 显示记录统计
-        if (transactions.size() > 0) {
+        /**
+         * 添加页脚（分三列显示）- 更美观的版本
+         */
+        private void addPageFooter(PDPageContentStream contentStream,
+                                   ReportResponseDTO report,
+                                   int currentPage,
+                                   int totalPages,
+                                   float currentY) throws IOException {
+            float footerY = MARGIN - 25; // 稍微降低位置，给更多空间
+            float columnSpacing = (PAGE_SIZE.getWidth() - 2 * MARGIN) / 3; // 三等分
+
+            // 第一列：系统信息（居左）
             contentStream.beginText();
             contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-            contentStream.newLineAtOffset(MARGIN, currentY);
-            safeShowText(contentStream, String.format("共 %d 条记录", transactions.size()));
+            contentStream.newLineAtOffset(MARGIN, footerY);
+            safeShowText(contentStream, "银行管理系统 - 账单报告");
             contentStream.endText();
-            currentY -= LINE_HEIGHT;
-        }
 
-        return currentY;
-    }
+            // 第二列：免责声明（居中）
+            String disclaimer = "本报告仅供参考，具体以银行系统为准";
+            float disclaimerWidth = textWidth(chineseNormalFont, disclaimer, SMALL_FONT_SIZE);
+            contentStream.beginText();
+            contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
+            contentStream.newLineAtOffset(MARGIN + columnSpacing + (columnSpacing - disclaimerWidth) / 2, footerY);
+            safeShowText(contentStream, disclaimer);
+            contentStream.endText();
 
-//    /**
-//     * 添加页脚（带页码）
-//     */
-//    private void addPageFooter(PDPageContentStream contentStream,
-//                               ReportResponseDTO report,
-//                               int currentPage,
-//                               int totalPages,
-//                               float currentY) throws IOException {
-//        float footerY = MARGIN - 20;
-//
-//        // 左侧：系统信息
-//        contentStream.beginText();
-//        contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-//        contentStream.newLineAtOffset(MARGIN, footerY);
-//        safeShowText(contentStream, "银行管理系统 - 账单报告");
-//        contentStream.endText();
-//
-//        // 中间：免责声明
-//        String disclaimer = "本报告仅供参考，具体以银行系统为准";
-//        float disclaimerWidth = chineseNormalFont.getStringWidth(disclaimer) / 1000 * SMALL_FONT_SIZE;
-//        contentStream.beginText();
-//        contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-//        contentStream.newLineAtOffset((PAGE_SIZE.getWidth() - disclaimerWidth) / 2, footerY);
-//        safeShowText(contentStream, disclaimer);
-//        contentStream.endText();
-//
-//        // 右侧：页码和生成时间
-//        String pageInfo = String.format("第 %d/%d 页 | 生成时间: %s",
-//                currentPage, totalPages, DATE_FORMAT.format(new Date()));
-//        float pageInfoWidth = chineseNormalFont.getStringWidth(pageInfo) / 1000 * SMALL_FONT_SIZE;
-//        contentStream.beginText();
-//        contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-//        contentStream.newLineAtOffset(PAGE_SIZE.getWidth() - MARGIN - pageInfoWidth, footerY);
-//        safeShowText(contentStream, pageInfo);
-//        contentStream.endText();
-//    }
-    /**
-     * 添加页脚（分三列显示）- 更美观的版本
-     */
-    private void addPageFooter(PDPageContentStream contentStream,
-                               ReportResponseDTO report,
-                               int currentPage,
-                               int totalPages,
-                               float currentY) throws IOException {
-        float footerY = MARGIN - 25; // 稍微降低位置，给更多空间
-        float columnSpacing = (PAGE_SIZE.getWidth() - 2 * MARGIN) / 3; // 三等分
-
-        // 第一列：系统信息（居左）
-        contentStream.beginText();
-        contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-        contentStream.newLineAtOffset(MARGIN, footerY);
-        safeShowText(contentStream, "银行管理系统 - 账单报告");
-        contentStream.endText();
-
-        // 第二列：免责声明（居中）
-        String disclaimer = "本报告仅供参考，具体以银行系统为准";
-        float disclaimerWidth = chineseNormalFont.getStringWidth(disclaimer) / 1000 * SMALL_FONT_SIZE;
-        contentStream.beginText();
-        contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-        contentStream.newLineAtOffset(MARGIN + columnSpacing + (columnSpacing - disclaimerWidth) / 2, footerY);
-        safeShowText(contentStream, disclaimer);
-        contentStream.endText();
-
-        // 第三列：页码和时间（居右）
-        String pageInfo = String.format("第 %d/%d 页 | %s",
-                currentPage, totalPages, DATE_FORMAT.format(new Date()));
-        float pageInfoWidth = chineseNormalFont.getStringWidth(pageInfo) / 1000 * SMALL_FONT_SIZE;
-        contentStream.beginText();
-        contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
-        contentStream.newLineAtOffset(PAGE_SIZE.getWidth() - MARGIN - pageInfoWidth, footerY);
-        safeShowText(contentStream, pageInfo);
-        contentStream.endText();
-    }
+            // 第三列：页码和时间（居右）
+            String pageInfo = String.format("第 %d/%d 页 | %s",
+                    currentPage, totalPages, dateFormat.format(new Date()));
+            float pageInfoWidth = textWidth(chineseNormalFont, pageInfo, SMALL_FONT_SIZE);
+            contentStream.beginText();
+            contentStream.setFont(chineseNormalFont, SMALL_FONT_SIZE);
+            contentStream.newLineAtOffset(PAGE_SIZE.getWidth() - MARGIN - pageInfoWidth, footerY);
+            safeShowText(contentStream, pageInfo);
+            contentStream.endText();
+        }
 
-    // ============ 辅助方法 ============
+        /**
+         * 文本宽度，字体不支持其中的字符时按0处理（与safeShowText的替换保持一致，不中断导出）
+         */
+        private float textWidth(PDFont font, String text, float fontSize) throws IOException {
+            try {
+                return font.getStringWidth(text) / 1000 * fontSize;
+            } catch (IllegalArgumentException e) {
+                return 0;
+            }
+        }
 
-    private String formatAmount(java.math.BigDecimal amount) {
-        if (amount == null) return "0.00";
-        return AMOUNT_FORMAT.format(amount);
+        private String formatAmount(java.math.BigDecimal amount) {
+            if (amount == null) return "0.00";
+            return amountFormat.format(amount);
+        }
     }
 
-    private String formatShortDate(Date date) {
-        if (date == null) return "";
-        return SIMPLE_DATE_FORMAT.format(date);
-    }
+    // ============ 辅助方法 ============
 
-    private String formatShortDate(LocalDateTime dateTime) {
+    private static String formatShortDate(LocalDateTime dateTime) {
         if (dateTime == null) return "";
-        return dateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+        return dateTime.format(SHORT_DATE_FORMAT);
     }
 
-    private String getTransTypeChinese(String type) {
+    private static String getTransTypeChinese(String type) {
         if (type == null) return "";
         switch (type.toUpperCase()) {
             case "DEPOSIT": return "存款";
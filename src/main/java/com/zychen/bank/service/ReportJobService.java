@@ -0,0 +1,33 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.dto.GenerateReportDTO;
+import com.zychen.bank.dto.ReportJobDTO;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步生成报告：提交后立即返回任务ID，报告在独立的线程池中生成，客户端轮询任务状态后下载
+ */
+public interface ReportJobService {
+
+    /**
+     * 提交报告生成任务；线程池队列已满或提交人进行中的任务数达到上限时抛出异常
+     */
+    ReportJobDTO submit(GenerateReportDTO request, String submitterId);
+
+    /**
+     * 查询任务状态，已完成的任务附带报告内容
+     */
+    ReportJobDTO getJob(String jobId);
+
+    /**
+     * 任务结束（成功或失败）时完成，用于长轮询
+     */
+    CompletableFuture<ReportJobDTO> whenFinished(String jobId);
+
+    /**
+     * 线程池和任务统计
+     */
+    Map<String, Object> getStatistics();
+}
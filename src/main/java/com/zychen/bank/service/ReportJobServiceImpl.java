@@ -0,0 +1,246 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.dto.GenerateReportDTO;
+import com.zychen.bank.dto.ReportJobDTO;
+import com.zychen.bank.utils.IDGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 报告在固定大小的线程池中生成，排队数有上限，队列满时拒绝提交而不是无限堆积；
+ * 每个提交人同时进行（排队+生成中）的任务数受限，单个用户无法占满线程池。
+ * 生成好的报告放入ReportCache，任务本身只保留状态，结束后保留一段时间供查询。
+ */
+@Slf4j
+@Service
+public class ReportJobServiceImpl implements ReportJobService {
+
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private IDGenerator idGenerator;
+
+    @Value("${app.report-job.threads:4}")
+    private int threads;
+
+    @Value("${app.report-job.queue-capacity:100}")
+    private int queueCapacity;
+
+    // 每个提交人同时进行的任务数上限
+    @Value("${app.report-job.max-per-user:2}")
+    private int maxPerUser;
+
+    // 任务结束后保留多久（分钟），过期后查询返回任务不存在
+    @Value("${app.report-job.retention-minutes:30}")
+    private long retentionMinutes;
+
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+    // 提交人 -> 进行中的任务数，归零时移除
+    private final ConcurrentHashMap<String, Integer> activeByUser = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger index = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "report-job-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("报告生成线程池初始化完成: threads={}, queueCapacity={}, maxPerUser={}",
+                threads, queueCapacity, maxPerUser);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ReportJobDTO submit(GenerateReportDTO request, String submitterId) {
+        validate(request);
+        removeExpired();
+
+        if (!tryAcquire(submitterId)) {
+            rejected.incrementAndGet();
+            throw new RuntimeException("您已有" + maxPerUser + "个报告正在生成，请等待完成后再提交");
+        }
+        Job job = new Job(idGenerator.generateReportNo("JOB"), request, submitterId);
+        jobs.put(job.jobId, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.jobId);
+            release(submitterId);
+            rejected.incrementAndGet();
+            throw new RuntimeException("报告生成任务较多，请稍后再试");
+        }
+        submitted.incrementAndGet();
+        log.info("报告生成任务已提交: jobId={}, userId={}, type={}",
+                job.jobId, request.getUserId(), request.getReportType());
+        return toDTO(job);
+    }
+
+    @Override
+    public ReportJobDTO getJob(String jobId) {
+        return toDTO(findJob(jobId));
+    }
+
+    @Override
+    public CompletableFuture<ReportJobDTO> whenFinished(String jobId) {
+        Job job = findJob(jobId);
+        return job.done.thenApply(v -> toDTO(job));
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        removeExpired();
+        Map<String, Object> result = new HashMap<>();
+        result.put("threads", threads);
+        result.put("activeThreads", executor.getActiveCount());
+        result.put("queued", executor.getQueue().size());
+        result.put("queueCapacity", queueCapacity);
+        result.put("maxPerUser", maxPerUser);
+        result.put("activeUsers", activeByUser.size());
+        result.put("retainedJobs", jobs.size());
+        result.put("submitted", submitted.get());
+        result.put("succeeded", succeeded.get());
+        result.put("failed", failed.get());
+        result.put("rejected", rejected.get());
+        return result;
+    }
+
+    private void run(Job job) {
+        job.startTime = new Date();
+        job.status = ReportJobDTO.RUNNING;
+        String status = ReportJobDTO.FAILED;
+        try {
+            // generateReport 会把报告放入ReportCache，任务完成后按reportId取回、下载
+            job.reportId = reportService.generateReport(job.request).getReportId();
+            status = ReportJobDTO.SUCCESS;
+            succeeded.incrementAndGet();
+        } catch (RuntimeException e) {
+            log.warn("报告生成任务失败: jobId={}, {}", job.jobId, e.getMessage());
+            job.errorMessage = e.getMessage();
+            failed.incrementAndGet();
+        } finally {
+            // 先写结束时间再改状态，查询方看到结束状态时其他字段已就绪
+            job.finishTime = new Date();
+            job.status = status;
+            release(job.submitterId);
+            job.done.complete(null);
+        }
+    }
+
+    // 提交时先做参数校验，明显错误的请求不进入队列
+    private void validate(GenerateReportDTO request) {
+        if ("monthly".equalsIgnoreCase(request.getReportType())) {
+            if (request.getMonth() == null) {
+                throw new RuntimeException("月度报告需要指定月份");
+            }
+        } else if (!"yearly".equalsIgnoreCase(request.getReportType())) {
+            throw new RuntimeException("不支持的报告类型: " + request.getReportType());
+        }
+    }
+
+    private boolean tryAcquire(String submitterId) {
+        boolean[] acquired = {false};
+        activeByUser.compute(submitterId, (key, count) -> {
+            int current = count != null ? count : 0;
+            if (current >= maxPerUser) {
+                return count;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void release(String submitterId) {
+        activeByUser.computeIfPresent(submitterId, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private Job findJob(String jobId) {
+        Job job = jobId != null ? jobs.get(jobId) : null;
+        if (job == null) {
+            throw new RuntimeException("任务不存在或已过期");
+        }
+        return job;
+    }
+
+    private void removeExpired() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+        jobs.values().removeIf(job -> job.finishTime != null && job.finishTime.getTime() < expireBefore);
+    }
+
+    private ReportJobDTO toDTO(Job job) {
+        ReportJobDTO dto = new ReportJobDTO();
+        dto.setJobId(job.jobId);
+        dto.setUserId(job.request.getUserId());
+        dto.setSubmitterId(job.submitterId);
+        dto.setReportType(job.request.getReportType());
+        dto.setStatus(job.status);
+        dto.setSubmitTime(job.submitTime);
+        dto.setStartTime(job.startTime);
+        dto.setFinishTime(job.finishTime);
+        dto.setErrorMessage(job.errorMessage);
+        if (ReportJobDTO.SUCCESS.equals(job.status)) {
+            dto.setReportId(job.reportId);
+            dto.setDownloadUrl("/api/reports/" + job.reportId + "/download");
+            try {
+                dto.setReport(reportService.getReportData(job.reportId));
+            } catch (RuntimeException e) {
+                // 报告已从缓存中过期
+                dto.setErrorMessage(e.getMessage());
+            }
+        }
+        return dto;
+    }
+
+    private static class Job {
+        private final String jobId;
+        private final GenerateReportDTO request;
+        private final String submitterId;
+        private final Date submitTime = new Date();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private volatile String status = ReportJobDTO.PENDING;
+        private volatile Date startTime;
+        private volatile Date finishTime;
+        private volatile String reportId;
+        private volatile String errorMessage;
+
+        private Job(String jobId, GenerateReportDTO request, String submitterId) {
+            this.jobId = jobId;
+            this.request = request;
+            this.submitterId = submitterId;
+        }
+    }
+}
@@ -4,6 +4,9 @@ package com.zychen.bank.service;
 import com.zychen.bank.dto.GenerateReportDTO;
 import com.zychen.bank.dto.ReportResponseDTO;
 
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
 public interface ReportService {
 
     /**
@@ -33,13 +36,33 @@ public interface ReportService {
     ReportResponseDTO getReportData(String reportId);
 
     /**
-     * 导出报告为CSV文件
+     * 申请一个导出名额（同时进行的导出数受限），排队超时或被中断返回false；
+     * 申请成功后必须在导出结束时调用 releaseExportPermit
+     */
+    boolean tryAcquireExportPermit();
+
+    /**
+     * 归还导出名额
+     */
+    void releaseExportPermit();
+
+    /**
+     * 导出报告为CSV文件，边查询边写入输出流（包含报告期内全部交易明细）
+     * 传入调用方已取得并完成权限校验的报告，写出期间不再访问报告缓存
+     * 不申请导出名额，由调用方在导出前后申请、归还
+     */
+    void writeReportAsCsv(ReportResponseDTO report, OutputStream out);
+
+    /**
+     * 导出报告为PDF文件，写入输出流（包含报告期内全部交易明细）
+     * 传入调用方已取得并完成权限校验的报告，写出期间不再访问报告缓存
+     * 不申请导出名额，由调用方在导出前后申请、归还
      */
-    byte[] exportReportAsCsv(String reportId);
+    void writeReportAsPdf(ReportResponseDTO report, OutputStream out);
 
     /**
-     * 导出报告为PDF文件
+     * 逐条读取报告期内的全部交易明细（不经过报告缓存，供批量账单等直接使用生成结果的场景）
      */
-    byte[] exportReportAsPdf(String reportId);
+    void forEachReportTransaction(ReportResponseDTO report, Consumer<ReportResponseDTO.TransactionSummary> action);
 
 }
@@ -7,23 +7,37 @@ import com.zychen.bank.mapper.FixedDepositMapper;
 import com.zychen.bank.mapper.TransactionMapper;
 import com.zychen.bank.model.BankCard;
 import com.zychen.bank.model.Transaction;
+import com.zychen.bank.model.TransactionAggregate;
 import com.zychen.bank.service.ReportService;
+import com.zychen.bank.utils.DateRange;
+import com.zychen.bank.utils.IDGenerator;
+import com.zychen.bank.utils.ReportCache;
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -42,6 +56,43 @@ public class ReportServiceImpl implements ReportService {
     @Autowired
     private PdfExportService pdfExportService;
 
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private IDGenerator idGenerator;
+
+    // 同时进行的报告导出数上限，及排队等待的最长时间
+    @Value("${app.report-export.max-concurrent:4}")
+    private int exportMaxConcurrent;
+
+    @Value("${app.report-export.acquire-timeout-seconds:5}")
+    private long exportAcquireTimeoutSeconds;
+
+    // CSV写出缓冲区大小，满了即写到响应流
+    @Value("${app.report-export.csv-buffer-kb:64}")
+    private int csvBufferKb;
+
+    private Semaphore exportPermits;
+
+    @PostConstruct
+    public void init() {
+        exportPermits = new Semaphore(exportMaxConcurrent);
+    }
+
+    // 报告中附带交易明细的上限：交易笔数不超过该值时附带全部明细
+    private static final int MONTHLY_DETAIL_LIMIT = 20;
+    private static final int YEARLY_DETAIL_LIMIT = 100;
+    // 年度交易过多时只附带大额交易
+    private static final BigDecimal LARGE_TRANSACTION_AMOUNT = new BigDecimal("1000");
+    private static final int LARGE_TRANSACTION_LIMIT = 50;
+
+    // 导出明细逐行格式化，复用同一个（线程安全的）格式化器
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     // ============ 月度报告 ============
     @Override
     public ReportResponseDTO generateMonthlyReport(String userId, String cardId, int year, int month) {
@@ -59,6 +110,8 @@ public class ReportServiceImpl implements ReportService {
         YearMonth yearMonth = YearMonth.of(year, month);
         LocalDate startDate = yearMonth.atDay(1);
         LocalDate endDate = yearMonth.atEndOfMonth();
+        response.setStartDate(startDate);
+        response.setEndDate(endDate);
 
         // 3. 获取期初余额（上月最后一天的余额）
         LocalDate previousMonthLastDay = startDate.minusDays(1);
@@ -67,29 +120,30 @@ public class ReportServiceImpl implements ReportService {
         // 4. 获取期末余额（本月最后一天的余额）
         BigDecimal endBalance = calculateBalanceAtDate(userId, cardId, endDate);
 
-        // 5. 获取本月所有交易
-        List<Transaction> transactions = getTransactionsInPeriod(userId, cardId, startDate, endDate);
+        // 5. 本月交易按类型汇总（一次分组查询，不加载明细）
+        DateRange range = DateRange.of(startDate, endDate);
+        List<TransactionAggregate> aggregates = getAggregatesInPeriod(userId, cardId, range);
 
         // 6. 计算统计信息（✅ 使用新的calculateSummary方法）
-        ReportResponseDTO.ReportSummary summary = calculateSummary(transactions, startBalance, endBalance);
+        ReportResponseDTO.ReportSummary summary = calculateSummary(aggregates, startBalance, endBalance);
+        summary.setAvgDailyBalance(calculateAvgDailyBalance(userId, cardId, startDate, endDate, startBalance));
         response.setSummary(summary);
 
         // 7. 计算分类统计（✅ 使用新的calculateCategoryStatistics方法）
-        ReportResponseDTO.CategoryStatistics categoryStats = calculateCategoryStatistics(transactions);
+        ReportResponseDTO.CategoryStatistics categoryStats = calculateCategoryStatistics(aggregates);
         response.setCategoryStatistics(categoryStats);
 
-        // 8. 添加交易明细（简化版，只取前20条）
-        if (transactions.size() <= 20) {
-            List<ReportResponseDTO.TransactionSummary> transactionSummaries = transactions.stream()
-                    .map(this::convertToTransactionSummary)
-                    .collect(Collectors.toList());
-            response.setTransactions(transactionSummaries);
+        // 8. 添加交易明细（接口返回的预览，不超过20条时才查询明细；下载的文件包含全部明细）
+        int transactionCount = summary.getTransactionCount();
+        if (transactionCount <= MONTHLY_DETAIL_LIMIT) {
+            response.setTransactions(toTransactionSummaries(
+                    getTransactionsInPeriod(userId, cardId, range, MONTHLY_DETAIL_LIMIT)));
         }
 
         // 9. 设置下载URL
         response.setDownloadUrl("/api/reports/" + response.getReportId() + "/download");
 
-        log.info("月度报告生成完成: reportId={}, 交易笔数={}", response.getReportId(), transactions.size());
+        log.info("月度报告生成完成: reportId={}, 交易笔数={}", response.getReportId(), transactionCount);
         return response;
     }
 
@@ -111,6 +165,8 @@ public class ReportServiceImpl implements ReportService {
         // 2. 计算年度时间段
         LocalDate startDate = LocalDate.of(year, 1, 1);      // 年初
         LocalDate endDate = LocalDate.of(year, 12, 31);      // 年末
+        response.setStartDate(startDate);
+        response.setEndDate(endDate);
 
         // 3. 获取年初余额（上一年最后一天的余额）
         LocalDate lastYearEnd = startDate.minusDays(1);
@@ -119,36 +175,32 @@ public class ReportServiceImpl implements ReportService {
         // 4. 获取年末余额（本年最后一天的余额）
         BigDecimal endBalance = calculateBalanceAtDate(userId, cardId, endDate);
 
-        // 5. 获取本年所有交易
-        List<Transaction> transactions = getTransactionsInPeriod(userId, cardId, startDate, endDate);
+        // 5. 本年交易按 月份×类型 汇总（一次分组查询，汇总、分类、月度统计都基于它计算）
+        DateRange range = DateRange.of(startDate, endDate);
+        List<TransactionAggregate> aggregates = getAggregatesInPeriod(userId, cardId, range);
 
         // 6. 计算年度汇总信息
-        ReportResponseDTO.ReportSummary summary = calculateYearlySummary(transactions, startBalance, endBalance);
+        ReportResponseDTO.ReportSummary summary = calculateYearlySummary(aggregates, startBalance, endBalance);
+        summary.setAvgDailyBalance(calculateAvgDailyBalance(userId, cardId, startDate, endDate, startBalance));
         response.setSummary(summary);
 
         // 7. 计算年度分类统计
-        ReportResponseDTO.CategoryStatistics categoryStats = calculateCategoryStatistics(transactions);
+        ReportResponseDTO.CategoryStatistics categoryStats = calculateCategoryStatistics(aggregates);
         response.setCategoryStatistics(categoryStats);
 
         // 8. 计算月度统计（按月份分组）
-        Map<Integer, MonthlySummary> monthlyStats = calculateMonthlyStats(userId, cardId, year);
+        Map<Integer, MonthlySummary> monthlyStats = calculateMonthlyStats(aggregates);
         // 如果ReportResponseDTO有monthlyStats字段，可以设置
 
-        // 9. 添加交易明细（可限制数量）
-        if (transactions.size() <= 100) {
-            List<ReportResponseDTO.TransactionSummary> transactionSummaries = transactions.stream()
-                    .map(this::convertToTransactionSummary)
-                    .collect(Collectors.toList());
-            response.setTransactions(transactionSummaries);
+        // 9. 添加交易明细（接口返回的预览，可限制数量；下载的文件包含全部明细）
+        int transactionCount = summary.getTransactionCount();
+        if (transactionCount <= YEARLY_DETAIL_LIMIT) {
+            response.setTransactions(toTransactionSummaries(
+                    getTransactionsInPeriod(userId, cardId, range, YEARLY_DETAIL_LIMIT)));
         } else {
-            // 如果交易太多，可以只取大额交易
-            List<ReportResponseDTO.TransactionSummary> largeTransactions = transactions.stream()
-                    .filter(t -> t.getAmount().abs().compareTo(new BigDecimal("1000")) > 0)
-                    .sorted((t1, t2) -> t2.getAmount().abs().compareTo(t1.getAmount().abs()))
-                    .limit(50)
-                    .map(this::convertToTransactionSummary)
-                    .collect(Collectors.toList());
-            response.setTransactions(largeTransactions);
+            // 如果交易太多，只取大额交易
+            response.setTransactions(toTransactionSummaries(transactionMapper.findLargestTransactions(
+                    userId, cardId, range, LARGE_TRANSACTION_AMOUNT, LARGE_TRANSACTION_LIMIT)));
         }
 
         // 10. 设置下载URL
@@ -157,7 +209,7 @@ public class ReportServiceImpl implements ReportService {
         // ✅ 验证数据一致性
         validateReportConsistency(response);
 
-        log.info("年度报告生成完成: reportId={}, 交易笔数={}", response.getReportId(), transactions.size());
+        log.info("年度报告生成完成: reportId={}, 交易笔数={}", response.getReportId(), transactionCount);
         return response;
     }
 
@@ -165,51 +217,23 @@ public class ReportServiceImpl implements ReportService {
 
     /**
      * ✅ 统一的汇总计算方法（用于月度报告）
+     * 包内可见，基准测试通过同包入口直接调用
      */
-    private ReportResponseDTO.ReportSummary calculateSummary(List<Transaction> transactions,
-                                                             BigDecimal startBalance, BigDecimal endBalance) {
+    ReportResponseDTO.ReportSummary calculateSummary(List<TransactionAggregate> aggregates,
+                                                     BigDecimal startBalance, BigDecimal endBalance) {
         ReportResponseDTO.ReportSummary summary = new ReportResponseDTO.ReportSummary();
 
         summary.setStartBalance(startBalance);
         summary.setEndBalance(endBalance);
         summary.setNetChange(endBalance.subtract(startBalance));
 
-        // 计算各种类型的总额（✅ 使用统一逻辑）
-        BigDecimal totalDeposit = BigDecimal.ZERO;
-        BigDecimal totalWithdraw = BigDecimal.ZERO;
-        BigDecimal totalInterest = BigDecimal.ZERO;
+        PeriodTotals totals = PeriodTotals.of(aggregates);
 
-        for (Transaction trans : transactions) {
-            BigDecimal amount = trans.getAmount() != null ? trans.getAmount() : BigDecimal.ZERO;
-            String type = trans.getTransType();
-            String subtype = trans.getTransSubtype();
-
-            if ("DEPOSIT".equalsIgnoreCase(type)) {
-                totalDeposit = totalDeposit.add(amount);
-            } else if ("WITHDRAW".equalsIgnoreCase(type)) {
-                if ("FIXED_DEPOSIT_EARLY".equalsIgnoreCase(subtype) ||
-                        "FIXED_DEPOSIT_MATURE".equalsIgnoreCase(subtype)) {
-                    totalDeposit = totalDeposit.add(amount.abs());
-                } else if ("CURRENT_WITHDRAW".equalsIgnoreCase(subtype)) {
-                    totalWithdraw = totalWithdraw.add(amount.abs());
-                }
-            } else if ("TRANSFER".equalsIgnoreCase(type)) {  // ✅ 新增处理
-                // TRANSFER金额为负数表示转出（支出）
-                if (amount.compareTo(BigDecimal.ZERO) < 0) {
-                    totalWithdraw = totalWithdraw.add(amount.abs());
-                } else {
-                    // 正数表示转入（收入）
-                    totalDeposit = totalDeposit.add(amount);
-                }
-            } else if ("INTEREST".equalsIgnoreCase(type)) {
-                totalInterest = totalInterest.add(amount);
-            }
-        }
-
-        summary.setTotalDeposit(totalDeposit);
-        summary.setTotalWithdraw(totalWithdraw);
-        summary.setInterestEarned(totalInterest);
-        summary.setTransactionCount(transactions.size());
+        // 月度报告中转入算收入、转出算支出
+        summary.setTotalDeposit(totals.deposit.add(totals.transferIn));
+        summary.setTotalWithdraw(totals.withdraw.add(totals.transferOut));
+        summary.setInterestEarned(totals.interest);
+        summary.setTransactionCount(totals.count);
 
         return summary;
     }
@@ -217,7 +241,7 @@ public class ReportServiceImpl implements ReportService {
     /**
      * ✅ 年度汇总计算方法
      */
-    private ReportResponseDTO.ReportSummary calculateYearlySummary(List<Transaction> transactions,
+    private ReportResponseDTO.ReportSummary calculateYearlySummary(List<TransactionAggregate> aggregates,
                                                                    BigDecimal startBalance, BigDecimal endBalance) {
         ReportResponseDTO.ReportSummary summary = new ReportResponseDTO.ReportSummary();
 
@@ -232,87 +256,33 @@ public class ReportServiceImpl implements ReportService {
         log.info("余额计算: 期初={}, 期末={}, 净变化={}",
                 startBalance, endBalance, netChange);
 
-        // 计算年度各项总额（✅ 使用统一逻辑）
-        BigDecimal totalDeposit = BigDecimal.ZERO;
-        BigDecimal totalWithdraw = BigDecimal.ZERO;
-        BigDecimal totalInterest = BigDecimal.ZERO;
+        PeriodTotals totals = PeriodTotals.of(aggregates);
 
-        for (Transaction trans : transactions) {
-            BigDecimal amount = trans.getAmount() != null ? trans.getAmount() : BigDecimal.ZERO;
-            String type = trans.getTransType();
-            String subtype = trans.getTransSubtype();
-
-            // ✅ 统一分类逻辑
-            if ("DEPOSIT".equalsIgnoreCase(type)) {
-                totalDeposit = totalDeposit.add(amount);
-            } else if ("WITHDRAW".equalsIgnoreCase(type)) {
-                if ("FIXED_DEPOSIT_EARLY".equalsIgnoreCase(subtype) ||
-                        "FIXED_DEPOSIT_MATURE".equalsIgnoreCase(subtype)) {
-                    // ✅ 定期存款支取：算作存款类收入
-                    totalDeposit = totalDeposit.add(amount.abs());
-                } else if ("CURRENT_WITHDRAW".equalsIgnoreCase(subtype)) {
-                    totalWithdraw = totalWithdraw.add(amount.abs());
-                }
-            } else if ("INTEREST".equalsIgnoreCase(type)) {
-                totalInterest = totalInterest.add(amount);
-            }
-        }
-
-        summary.setTotalDeposit(totalDeposit);
-        summary.setTotalWithdraw(totalWithdraw);
-        summary.setInterestEarned(totalInterest);
-        summary.setTransactionCount(transactions.size());
+        summary.setTotalDeposit(totals.deposit);
+        summary.setTotalWithdraw(totals.withdraw);
+        summary.setInterestEarned(totals.interest);
+        summary.setTransactionCount(totals.count);
 
         return summary;
     }
 
     /**
-     * ✅ 统一的分类统计计算方法
+     * ✅ 统一的分类统计计算方法（包内可见，同上）
      */
-    private ReportResponseDTO.CategoryStatistics calculateCategoryStatistics(List<Transaction> transactions) {
+    ReportResponseDTO.CategoryStatistics calculateCategoryStatistics(List<TransactionAggregate> aggregates) {
         ReportResponseDTO.CategoryStatistics stats = new ReportResponseDTO.CategoryStatistics();
 
-        BigDecimal depositAmount = BigDecimal.ZERO;
-        BigDecimal withdrawAmount = BigDecimal.ZERO;
-        BigDecimal interestAmount = BigDecimal.ZERO;
-        BigDecimal feeAmount = BigDecimal.ZERO;
-        BigDecimal transferAmount = BigDecimal.ZERO;
-
-        for (Transaction trans : transactions) {
-            BigDecimal amount = trans.getAmount() != null ? trans.getAmount() : BigDecimal.ZERO;
-            String type = trans.getTransType();
-            String subtype = trans.getTransSubtype();
-
-            // ✅ 使用和summary相同的分类逻辑
-            if ("DEPOSIT".equalsIgnoreCase(type)) {
-                depositAmount = depositAmount.add(amount);
-            } else if ("WITHDRAW".equalsIgnoreCase(type)) {
-                if ("FIXED_DEPOSIT_EARLY".equalsIgnoreCase(subtype) ||
-                        "FIXED_DEPOSIT_MATURE".equalsIgnoreCase(subtype)) {
-                    depositAmount = depositAmount.add(amount.abs());
-                } else if ("CURRENT_WITHDRAW".equalsIgnoreCase(subtype)) {
-                    withdrawAmount = withdrawAmount.add(amount.abs());
-                }
-            } else if ("TRANSFER".equalsIgnoreCase(type)) {
-                transferAmount = transferAmount.add(amount.abs());
-            } else if ("INTEREST".equalsIgnoreCase(type)) {
-                interestAmount = interestAmount.add(amount);
-            }
-
-            // 手续费
-            if (trans.getFee() != null && trans.getFee().compareTo(BigDecimal.ZERO) > 0) {
-                feeAmount = feeAmount.add(trans.getFee());
-            }
-        }
+        PeriodTotals totals = PeriodTotals.of(aggregates);
 
-        stats.setDepositAmount(depositAmount);
-        stats.setWithdrawAmount(withdrawAmount);
-        stats.setInterestAmount(interestAmount);
-        stats.setTransferAmount(transferAmount);
-        stats.setFeeAmount(feeAmount);
+        stats.setDepositAmount(totals.deposit);
+        stats.setWithdrawAmount(totals.withdraw);
+        stats.setInterestAmount(totals.interest);
+        stats.setTransferAmount(totals.transferIn.add(totals.transferOut));
+        stats.setFeeAmount(totals.fee);
 
         log.info("分类统计: 存款={}, 取款={}, 利息={}, 转账={}, 手续费={}",
-                depositAmount, withdrawAmount, interestAmount, transferAmount, feeAmount);
+                stats.getDepositAmount(), stats.getWithdrawAmount(), stats.getInterestAmount(),
+                stats.getTransferAmount(), stats.getFeeAmount());
 
         return stats;
     }
@@ -371,52 +341,23 @@ public class ReportServiceImpl implements ReportService {
 
     // ============ 辅助方法 ============
 
-    private Map<Integer, MonthlySummary> calculateMonthlyStats(String userId, String cardId, int year) {
-        Map<Integer, MonthlySummary> monthlyStats = new HashMap<>();
+    private Map<Integer, MonthlySummary> calculateMonthlyStats(List<TransactionAggregate> aggregates) {
+        Map<Integer, List<TransactionAggregate>> byMonth = aggregates.stream()
+                .collect(Collectors.groupingBy(TransactionAggregate::getTransMonth, TreeMap::new, Collectors.toList()));
 
-        for (int month = 1; month <= 12; month++) {
-            LocalDate monthStart = LocalDate.of(year, month, 1);
-            LocalDate monthEnd = monthStart.withDayOfMonth(monthStart.lengthOfMonth());
-
-            // 获取本月交易
-            List<Transaction> monthlyTransactions = getTransactionsInPeriod(userId, cardId, monthStart, monthEnd);
-
-            if (!monthlyTransactions.isEmpty()) {
-                MonthlySummary monthSummary = new MonthlySummary();
-
-                BigDecimal monthDeposit = BigDecimal.ZERO;
-                BigDecimal monthWithdraw = BigDecimal.ZERO;
-                BigDecimal monthInterest = BigDecimal.ZERO;
-
-                for (Transaction trans : monthlyTransactions) {
-                    BigDecimal amount = trans.getAmount() != null ? trans.getAmount() : BigDecimal.ZERO;
-                    String type = trans.getTransType();
-                    String subtype = trans.getTransSubtype();
-
-                    // ✅ 使用统一逻辑
-                    if ("DEPOSIT".equalsIgnoreCase(type)) {
-                        monthDeposit = monthDeposit.add(amount);
-                    } else if ("WITHDRAW".equalsIgnoreCase(type)) {
-                        if ("FIXED_DEPOSIT_EARLY".equalsIgnoreCase(subtype) ||
-                                "FIXED_DEPOSIT_MATURE".equalsIgnoreCase(subtype)) {
-                            monthDeposit = monthDeposit.add(amount.abs());
-                        } else if ("CURRENT_WITHDRAW".equalsIgnoreCase(subtype)) {
-                            monthWithdraw = monthWithdraw.add(amount.abs());
-                        }
-                    } else if ("INTEREST".equalsIgnoreCase(type)) {
-                        monthInterest = monthInterest.add(amount);
-                    }
-                }
+        Map<Integer, MonthlySummary> monthlyStats = new HashMap<>();
+        byMonth.forEach((month, rows) -> {
+            PeriodTotals totals = PeriodTotals.of(rows);
 
-                monthSummary.setMonth(month);
-                monthSummary.setTotalDeposit(monthDeposit);
-                monthSummary.setTotalWithdraw(monthWithdraw);
-                monthSummary.setTotalInterest(monthInterest);
-                monthSummary.setTransactionCount(monthlyTransactions.size());
+            MonthlySummary monthSummary = new MonthlySummary();
+            monthSummary.setMonth(month);
+            monthSummary.setTotalDeposit(totals.deposit);
+            monthSummary.setTotalWithdraw(totals.withdraw);
+            monthSummary.setTotalInterest(totals.interest);
+            monthSummary.setTransactionCount(totals.count);
 
-                monthlyStats.put(month, monthSummary);
-            }
-        }
+            monthlyStats.put(month, monthSummary);
+        });
 
         return monthlyStats;
     }
@@ -428,59 +369,56 @@ public class ReportServiceImpl implements ReportService {
         String prefix = "RPT";
         String typeCode = "monthly".equals(reportType) ? "M" : "Y";
         String datePart = year + (month != null ? String.format("%02d", month) : "00");
-        String randomPart = String.format("%04d", new Random().nextInt(10000));
 
-        return prefix + datePart + typeCode + randomPart;
+        // 雪花ID保证多实例、同一毫秒内也不重复
+        return idGenerator.generateReportNo(prefix + datePart + typeCode);
     }
 
+    /**
+     * 某天日终余额：查日终余额快照，cardId为空时为用户所有卡的合计
+     */
     private BigDecimal calculateBalanceAtDate(String userId, String cardId, LocalDate date) {
-        log.info("查询 {} 在 {} 的余额", userId, date);
+        BigDecimal balance = balanceSnapshotService.getBalanceAt(userId, cardId, date);
+        log.info("{} 卡号 {} 在 {} 的日终余额: {}", userId, cardId != null ? cardId : "全部", date, balance);
+        return balance;
+    }
 
-        try {
-            java.sql.Date sqlDate = java.sql.Date.valueOf(date);
-            Transaction lastTransaction = transactionMapper.findLastTransactionBeforeDate(
-                    userId, cardId, sqlDate);
-
-            if (lastTransaction != null && lastTransaction.getBalanceAfter() != null) {
-                log.info("找到最近交易: time={}, type={}, amount={}, balanceAfter={}",
-                        lastTransaction.getTransTime(),
-                        lastTransaction.getTransType(),
-                        lastTransaction.getAmount(),
-                        lastTransaction.getBalanceAfter());
-                return lastTransaction.getBalanceAfter();
-            } else {
-                log.warn("未找到 {} 在 {} 之前的交易记录", userId, date);
-                return BigDecimal.ZERO;
-            }
-        } catch (Exception e) {
-            log.warn("查询历史余额失败: ", e);
-            return BigDecimal.ZERO;
+    /**
+     * 日均余额：按日终余额快照计算，cardId为空时包含区间内没有交易的卡
+     * 区间包含未来日期时只统计到今天
+     */
+    private BigDecimal calculateAvgDailyBalance(String userId, String cardId,
+                                                LocalDate startDate, LocalDate endDate, BigDecimal startBalance) {
+        LocalDate today = LocalDate.now();
+        if (startDate.isAfter(today)) {
+            return startBalance;
         }
+        LocalDate lastDay = endDate.isAfter(today) ? today : endDate;
+
+        BigDecimal average = balanceSnapshotService.getAverageBalance(userId, cardId, startDate, lastDay);
+        log.info("日均余额: {} ~ {}, 日均余额={}", startDate, lastDay, average);
+        return average;
     }
 
-    private List<Transaction> getTransactionsInPeriod(String userId, String cardId,
-                                                      LocalDate startDate, LocalDate endDate) {
-        log.info("查询交易: userId={}, cardId={}, start={}, end={}",
-                userId, cardId, startDate, endDate);
-
-        List<Transaction> result = transactionMapper.findByConditions(
-                userId,
-                cardId,
-                "ALL",
-                startDate,
-                endDate,
-                0,
-                10000
-        );
-
-        log.info("查询结果: 找到 {} 条记录", result.size());
-        if (!result.isEmpty()) {
-            log.info("第一条记录: {}", result.get(0));
-        }
+    private List<TransactionAggregate> getAggregatesInPeriod(String userId, String cardId, DateRange range) {
+        log.info("汇总交易: userId={}, cardId={}, range={}", userId, cardId, range);
+
+        List<TransactionAggregate> result = transactionMapper.aggregateByMonthAndType(userId, cardId, range);
 
+        log.info("汇总结果: {} 个分组", result.size());
         return result;
     }
 
+    private List<Transaction> getTransactionsInPeriod(String userId, String cardId, DateRange range, int limit) {
+        return transactionMapper.findByConditions(userId, cardId, "ALL", range, null, null, 0, limit);
+    }
+
+    private List<ReportResponseDTO.TransactionSummary> toTransactionSummaries(List<Transaction> transactions) {
+        return transactions.stream()
+                .map(this::convertToTransactionSummary)
+                .collect(Collectors.toList());
+    }
+
     private ReportResponseDTO.TransactionSummary convertToTransactionSummary(Transaction trans) {
         ReportResponseDTO.TransactionSummary summary = new ReportResponseDTO.TransactionSummary();
         summary.setTransTime(trans.getTransTime());
@@ -494,8 +432,6 @@ public class ReportServiceImpl implements ReportService {
 
     // ============ 缓存相关 ============
 
-    private final Map<String, ReportResponseDTO> reportCache = new ConcurrentHashMap<>();
-
     @Override
     public ReportResponseDTO getReportData(String reportId) {
         ReportResponseDTO report = reportCache.get(reportId);
@@ -506,25 +442,71 @@ public class ReportServiceImpl implements ReportService {
     }
 
     @Override
-    public byte[] exportReportAsCsv(String reportId) {
+    public void writeReportAsCsv(ReportResponseDTO report, OutputStream out) {
+        runExport(() -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), csvBufferKb * 1024);
+            writeCsvContent(report, reportTransactions(report), writer);
+            writer.flush();
+        }, "CSV");
+    }
+
+    @Override
+    public void writeReportAsPdf(ReportResponseDTO report, OutputStream out) {
+        runExport(() -> pdfExportService.writeReportToPdf(report, reportTransactions(report), out), "PDF");
+    }
+
+    @Override
+    public void forEachReportTransaction(ReportResponseDTO report,
+                                         Consumer<ReportResponseDTO.TransactionSummary> action) {
+        reportTransactions(report).forEach(action);
+    }
+
+    /**
+     * 同时进行的导出数受限：每个导出占用一个数据库连接（流式读取明细）和一份内存预算
+     * 在返回响应体之前申请，名额不够时请求直接失败，不会先返回200再中断下载
+     */
+    @Override
+    public boolean tryAcquireExportPermit() {
         try {
-            ReportResponseDTO report = getReportData(reportId);
-            return generateCsvContent(report);
-        } catch (Exception e) {
-            log.error("导出CSV失败", e);
-            throw new RuntimeException("导出CSV失败: " + e.getMessage());
+            return exportPermits.tryAcquire(exportAcquireTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
     @Override
-    public byte[] exportReportAsPdf(String reportId) {
+    public void releaseExportPermit() {
+        exportPermits.release();
+    }
+
+    private void runExport(ExportTask task, String format) {
         try {
-            ReportResponseDTO report = getReportData(reportId);
-            return pdfExportService.exportReportToPdf(report);
-        } catch (Exception e) {
-            log.error("导出PDF失败", e);
-            throw new RuntimeException("导出PDF失败: " + e.getMessage());
+            task.run();
+        } catch (IOException | RuntimeException e) {
+            log.error("导出{}失败", format, e);
+            throw new RuntimeException("导出" + format + "失败: " + e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface ExportTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * 导出用的交易明细：按报告期从数据库流式读取全部明细（不受报告预览条数限制）；
+     * 没有报告期的报告只导出生成时附带的明细
+     */
+    private PdfExportService.TransactionSource reportTransactions(ReportResponseDTO report) {
+        if (report.getStartDate() == null || report.getEndDate() == null) {
+            List<ReportResponseDTO.TransactionSummary> transactions =
+                    report.getTransactions() != null ? report.getTransactions() : List.of();
+            return transactions::forEach;
         }
+        DateRange range = DateRange.of(report.getStartDate(), report.getEndDate());
+        return action -> transactionMapper.streamTransactions(report.getUserId(), report.getCardId(), range,
+                context -> action.accept(convertToTransactionSummary(context.getResultObject())));
     }
 
     @Override
@@ -546,19 +528,16 @@ public class ReportServiceImpl implements ReportService {
             throw new RuntimeException("不支持的报告类型: " + request.getReportType());
         }
 
-        // 缓存报告
-        reportCache.put(report.getReportId(), report);
-
-        // 定时清理（1小时后）
-        scheduleReportCleanup(report.getReportId());
+        // 缓存报告，过期清理由ReportCache负责
+        reportCache.put(report);
 
         return report;
     }
 
     // ============ 工具方法 ============
 
-    private byte[] generateCsvContent(ReportResponseDTO report) throws IOException {
-        StringBuilder csv = new StringBuilder();
+    private void writeCsvContent(ReportResponseDTO report, PdfExportService.TransactionSource transactions,
+                                 Writer csv) throws IOException {
 
         // 使用UTF-8 BOM确保Excel正确显示中文
         csv.append("\uFEFF");
@@ -581,7 +560,7 @@ public class ReportServiceImpl implements ReportService {
             csv.append("总收入,").append(formatAmount(report.getSummary().getTotalDeposit())).append("\n");
             csv.append("总支出,").append(formatAmount(report.getSummary().getTotalWithdraw())).append("\n");
             csv.append("利息收入,").append(formatAmount(report.getSummary().getInterestEarned())).append("\n");
-            csv.append("交易笔数,").append(report.getSummary().getTransactionCount()).append("\n");
+            csv.append("交易笔数,").append(String.valueOf(report.getSummary().getTransactionCount())).append("\n");
             csv.append("净变化,").append(formatAmount(report.getSummary().getNetChange())).append("\n\n");
         }
 
@@ -595,40 +574,36 @@ public class ReportServiceImpl implements ReportService {
             csv.append("手续费总额,").append(formatAmount(report.getCategoryStatistics().getFeeAmount())).append("\n\n");
         }
 
-        // 4. 交易明细
-        if (report.getTransactions() != null && !report.getTransactions().isEmpty()) {
-            csv.append("【交易明细】\n");
-            csv.append("时间,类型,金额(元),余额(元),备注\n");
-
-            for (var trans : report.getTransactions()) {
-                csv.append(formatDate(trans.getTransTime())).append(",");
-                csv.append(trans.getTransType()).append(",");
-                csv.append(formatAmount(trans.getAmount())).append(",");
-                csv.append(formatAmount(trans.getBalanceAfter())).append(",");
-                csv.append(trans.getRemark() != null ? trans.getRemark().replace(",", "，") : "").append("\n");
-            }
+        // 4. 交易明细（逐条写出，不在内存中拼接整个文件）
+        int[] count = {0};
+        try {
+            transactions.forEach(trans -> {
+                try {
+                    if (count[0]++ == 0) {
+                        csv.append("【交易明细】\n");
+                        csv.append("时间,类型,金额(元),余额(元),备注\n");
+                    }
+                    csv.append(formatDate(trans.getTransTime())).append(",");
+                    csv.append(trans.getTransType()).append(",");
+                    csv.append(formatAmount(trans.getAmount())).append(",");
+                    csv.append(formatAmount(trans.getBalanceAfter())).append(",");
+                    csv.append(trans.getRemark() != null ? trans.getRemark().replace(",", "，") : "").append("\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
 
         csv.append("\n");
         csv.append("银行管理系统\n");
         csv.append("生成时间,").append(formatDate(new Date())).append("\n");
-
-        return csv.toString().getBytes("UTF-8");
-    }
-
-    private void scheduleReportCleanup(String reportId) {
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
-                reportCache.remove(reportId);
-                log.info("清理过期报告: {}", reportId);
-            }
-        }, 60 * 60 * 1000); // 1小时
     }
 
     private String formatDate(LocalDateTime dateTime) {
         if (dateTime == null) return "";
-        return dateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        return dateTime.format(DATE_TIME_FORMAT);
     }
 
     private String formatDate(Date date) {
@@ -643,6 +618,61 @@ public class ReportServiceImpl implements ReportService {
 
     // ============ 内部类 ============
 
+    /**
+     * 分组汇总行按报表口径归类后的合计
+     * - 取款：定期支取（FIXED_DEPOSIT_EARLY/MATURE）算存款类收入，活期取款（CURRENT_WITHDRAW）算支出
+     * - 转账：金额为负是转出，为正是转入
+     */
+    static class PeriodTotals {
+        BigDecimal deposit = BigDecimal.ZERO;
+        BigDecimal withdraw = BigDecimal.ZERO;
+        BigDecimal interest = BigDecimal.ZERO;
+        BigDecimal transferIn = BigDecimal.ZERO;
+        BigDecimal transferOut = BigDecimal.ZERO;
+        BigDecimal fee = BigDecimal.ZERO;
+        int count;
+
+        static PeriodTotals of(List<TransactionAggregate> aggregates) {
+            PeriodTotals totals = new PeriodTotals();
+            for (TransactionAggregate row : aggregates) {
+                totals.add(row);
+            }
+            return totals;
+        }
+
+        private void add(TransactionAggregate row) {
+            BigDecimal positive = row.getPositiveAmount() != null ? row.getPositiveAmount() : BigDecimal.ZERO;
+            BigDecimal negative = row.getNegativeAmount() != null ? row.getNegativeAmount() : BigDecimal.ZERO;
+            BigDecimal signed = positive.subtract(negative);
+            BigDecimal absolute = positive.add(negative);
+            String type = row.getTransType();
+            String subtype = row.getTransSubtype();
+
+            if ("DEPOSIT".equalsIgnoreCase(type)) {
+                deposit = deposit.add(signed);
+            } else if ("WITHDRAW".equalsIgnoreCase(type)) {
+                if ("FIXED_DEPOSIT_EARLY".equalsIgnoreCase(subtype) ||
+                        "FIXED_DEPOSIT_MATURE".equalsIgnoreCase(subtype)) {
+                    deposit = deposit.add(absolute);
+                } else if ("CURRENT_WITHDRAW".equalsIgnoreCase(subtype)) {
+                    withdraw = withdraw.add(absolute);
+                }
+            } else if ("TRANSFER".equalsIgnoreCase(type)) {
+                transferIn = transferIn.add(positive);
+                transferOut = transferOut.add(negative);
+            } else if ("INTEREST".equalsIgnoreCase(type)) {
+                interest = interest.add(signed);
+            }
+
+            if (row.getFeeAmount() != null) {
+                fee = fee.add(row.getFeeAmount());
+            }
+            if (row.getTransCount() != null) {
+                count += row.getTransCount();
+            }
+        }
+    }
+
     @Getter
     @Setter
     class MonthlySummary {
@@ -12,13 +12,15 @@ import com.zychen.bank.model.BankCard;
 import com.zychen.bank.model.FreezeRecord;
 import com.zychen.bank.model.User;
 import com.zychen.bank.service.SecurityService;
-import com.zychen.bank.utils.PasswordUtil;
+import com.zychen.bank.utils.CardLockManager;
+import com.zychen.bank.utils.CardPasswordVerifier;
+import com.zychen.bank.utils.IDGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,26 +37,31 @@ public class SecurityServiceImpl implements SecurityService {
     private FreezeRecordMapper freezeRecordMapper;
 
     @Autowired
-    private PasswordUtil passwordUtil;
+    private CardPasswordVerifier cardPasswordVerifier;
+
+    @Autowired
+    private CardLockManager cardLockManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private IDGenerator idGenerator;
 
     @Override
-    @Transactional
     public Map<String, Object> freezeCard(FreezeCardDTO dto, String userId) {
-        // 1. 验证银行卡
-        BankCard bankCard = bankCardMapper.findByCardId(dto.getCardId());
-        if (bankCard == null) {
-            throw new RuntimeException("银行卡不存在");
-        }
+        // ===== 预授权阶段：不开事务、不持有卡锁（BCrypt校验较慢） =====
+        String authorizedPassword = authorizeCard(dto.getCardId(), dto.getCardPassword(), userId);
 
-        // 2. 验证权限
-        if (!bankCard.getUserId().equals(userId)) {
-            throw new RuntimeException("无权操作此银行卡");
-        }
+        // ===== 写入阶段：持有卡锁的短事务 =====
+        return cardLockManager.executeWithLock(dto.getCardId(),
+                () -> transactionTemplate.execute(status -> doFreezeCard(dto, userId, authorizedPassword)));
+    }
 
-        // 3. 验证交易密码
-        if (!passwordUtil.matches(dto.getCardPassword(), bankCard.getCardPassword())) {
-            throw new RuntimeException("交易密码错误");
-        }
+    private Map<String, Object> doFreezeCard(FreezeCardDTO dto, String userId, String authorizedPassword) {
+        // 确认预授权后交易密码未被修改，重新读取卡状态
+        cardPasswordVerifier.ensureUnchanged(dto.getCardId(), authorizedPassword);
+        BankCard bankCard = bankCardMapper.findByCardId(dto.getCardId());
 
         // 4. 验证银行卡状态
         if (bankCard.getStatus() != 0) {
@@ -70,14 +77,13 @@ public class SecurityServiceImpl implements SecurityService {
 
         // 6. 更新银行卡状态为"冻结"(2)
         bankCardMapper.updateStatus(dto.getCardId(), 2);
+        cardPasswordVerifier.invalidate(dto.getCardId());
 
         // 7. 创建冻结记录
         FreezeRecord freezeRecord = new FreezeRecord();
 
         // 生成冻结编号
-        String freezeNo = "FZ" + LocalDateTime.now().format(
-                java.time.format.DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
-                + String.format("%04d", (int)(Math.random() * 10000));
+        String freezeNo = idGenerator.generateFreezeNo();
 
         freezeRecord.setFreezeNo(freezeNo);
         freezeRecord.setFreezeType(1);        // 1=银行卡冻结
@@ -107,23 +113,19 @@ public class SecurityServiceImpl implements SecurityService {
     }
 
     @Override
-    @Transactional
     public Map<String, Object> unfreezeCard(UnfreezeCardDTO dto, String userId) {
-        // 1. 验证银行卡
-        BankCard bankCard = bankCardMapper.findByCardId(dto.getCardId());
-        if (bankCard == null) {
-            throw new RuntimeException("银行卡不存在");
-        }
+        // ===== 预授权阶段：不开事务、不持有卡锁（BCrypt校验较慢） =====
+        String authorizedPassword = authorizeCard(dto.getCardId(), dto.getCardPassword(), userId);
 
-        // 2. 验证权限
-        if (!bankCard.getUserId().equals(userId)) {
-            throw new RuntimeException("无权操作此银行卡");
-        }
+        // ===== 写入阶段：持有卡锁的短事务 =====
+        return cardLockManager.executeWithLock(dto.getCardId(),
+                () -> transactionTemplate.execute(status -> doUnfreezeCard(dto, userId, authorizedPassword)));
+    }
 
-        // 3. 验证交易密码
-        if (!passwordUtil.matches(dto.getCardPassword(), bankCard.getCardPassword())) {
-            throw new RuntimeException("交易密码错误");
-        }
+    private Map<String, Object> doUnfreezeCard(UnfreezeCardDTO dto, String userId, String authorizedPassword) {
+        // 确认预授权后交易密码未被修改，重新读取卡状态
+        cardPasswordVerifier.ensureUnchanged(dto.getCardId(), authorizedPassword);
+        BankCard bankCard = bankCardMapper.findByCardId(dto.getCardId());
 
         // 4. 验证银行卡状态
         if (bankCard.getStatus() != 2) {
@@ -148,6 +150,7 @@ public class SecurityServiceImpl implements SecurityService {
 
         // 6. 更新银行卡状态为"正常"(0)
         bankCardMapper.updateStatus(dto.getCardId(), 0);
+        cardPasswordVerifier.invalidate(dto.getCardId());
 
         // 7. 更新冻结记录状态为"已解冻"(0)
         LocalDateTime now = LocalDateTime.now();
@@ -165,6 +168,28 @@ public class SecurityServiceImpl implements SecurityService {
         return result;
     }
 
+    /**
+     * 预授权：验证卡存在、归属和交易密码，返回校验时的密码密文，供持锁后确认密码未变
+     */
+    private String authorizeCard(String cardId, String cardPassword, String userId) {
+        // 1. 验证银行卡
+        BankCard bankCard = bankCardMapper.findByCardId(cardId);
+        if (bankCard == null) {
+            throw new RuntimeException("银行卡不存在");
+        }
+
+        // 2. 验证权限
+        if (!bankCard.getUserId().equals(userId)) {
+            throw new RuntimeException("无权操作此银行卡");
+        }
+
+        // 3. 验证交易密码
+        if (!cardPasswordVerifier.matches(bankCard.getCardId(), cardPassword, bankCard.getCardPassword())) {
+            throw new RuntimeException("交易密码错误");
+        }
+        return bankCard.getCardPassword();
+    }
+
     @Override
     public List<FreezeRecord> getFreezeRecords(String userId, String cardId) {
         if (cardId != null) {
@@ -185,8 +210,16 @@ public class SecurityServiceImpl implements SecurityService {
     }
 
     @Override
-    @Transactional
     public Map<String, Object> adminFreezeOrUnfreeze(AdminFreezeRequestDTO request, String operatorId) {
+        // 账户冻结/解冻会批量修改该用户名下所有银行卡，需要一次锁住全部卡
+        List<String> cardIds = "account".equals(request.getTargetType())
+                ? bankCardMapper.findByUserId(request.getTargetId()).stream().map(BankCard::getCardId).toList()
+                : Collections.singletonList(request.getTargetId());
+        return cardLockManager.executeWithLocks(cardIds,
+                () -> transactionTemplate.execute(status -> doAdminFreezeOrUnfreeze(request, operatorId)));
+    }
+
+    private Map<String, Object> doAdminFreezeOrUnfreeze(AdminFreezeRequestDTO request, String operatorId) {
         Map<String, Object> result = new HashMap<>();
 
         try {
@@ -219,8 +252,12 @@ public class SecurityServiceImpl implements SecurityService {
     }
 
     @Override
-    @Transactional
     public Map<String, Object> adminLostReport(LostReportDTO request, String operatorId) {
+        return cardLockManager.executeWithLock(request.getCardId(),
+                () -> transactionTemplate.execute(status -> doAdminLostReport(request, operatorId)));
+    }
+
+    private Map<String, Object> doAdminLostReport(LostReportDTO request, String operatorId) {
         Map<String, Object> result = new HashMap<>();
 
         try {
@@ -260,13 +297,12 @@ public class SecurityServiceImpl implements SecurityService {
 
                 // 更新银行卡状态为挂失
                 bankCardMapper.updateStatus(cardId, 1);
+                cardPasswordVerifier.invalidate(cardId);
 
                 // 创建冻结记录（为了记录挂失操作）
                 FreezeRecord freezeRecord = new FreezeRecord();
 
-                String freezeNo = "LS" + LocalDateTime.now().format(
-                        DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
-                        + String.format("%04d", (int)(Math.random() * 10000));
+                String freezeNo = idGenerator.generateLostReportNo();
 
                 freezeRecord.setFreezeNo(freezeNo);
                 freezeRecord.setFreezeType(1);        // 1=银行卡冻结
@@ -303,6 +339,7 @@ public class SecurityServiceImpl implements SecurityService {
 
                 // 更新银行卡状态为正常
                 bankCardMapper.updateStatus(cardId, 0);
+                cardPasswordVerifier.invalidate(cardId);
 
                 // 更新冻结记录状态
                 FreezeRecord activeFreeze = freezeRecordMapper.findActiveFreezeByCardId(cardId);
@@ -365,6 +402,7 @@ public class SecurityServiceImpl implements SecurityService {
             for (BankCard card : cards) {
                 if (card.getStatus() == 0) { // 只冻结正常状态的卡
                     bankCardMapper.updateStatus(card.getCardId(), 2);
+                    cardPasswordVerifier.invalidate(card.getCardId());
                     frozenCards++;
                 }
             }
@@ -372,9 +410,7 @@ public class SecurityServiceImpl implements SecurityService {
             // 创建冻结记录
             FreezeRecord freezeRecord = new FreezeRecord();
 
-            String freezeNo = "FZ" + LocalDateTime.now().format(
-                    DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
-                    + String.format("%04d", (int)(Math.random() * 10000));
+            String freezeNo = idGenerator.generateFreezeNo();
 
             freezeRecord.setFreezeNo(freezeNo);
             freezeRecord.setFreezeType(2);        // 2=账户冻结
@@ -425,6 +461,7 @@ public class SecurityServiceImpl implements SecurityService {
             for (BankCard card : cards) {
                 if (card.getStatus() == 2) { // 只解冻冻结状态的卡
                     bankCardMapper.updateStatus(card.getCardId(), 0);
+                    cardPasswordVerifier.invalidate(card.getCardId());
                     unfrozenCards++;
                 }
             }
@@ -479,13 +516,12 @@ public class SecurityServiceImpl implements SecurityService {
 
             // 更新银行卡状态
             bankCardMapper.updateStatus(cardId, 2);
+            cardPasswordVerifier.invalidate(cardId);
 
             // 创建冻结记录
             FreezeRecord freezeRecord = new FreezeRecord();
 
-            String freezeNo = "FZ" + LocalDateTime.now().format(
-                    DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
-                    + String.format("%04d", (int)(Math.random() * 10000));
+            String freezeNo = idGenerator.generateFreezeNo();
 
             freezeRecord.setFreezeNo(freezeNo);
             freezeRecord.setFreezeType(1);        // 1=银行卡冻结
@@ -526,6 +562,7 @@ public class SecurityServiceImpl implements SecurityService {
 
             // 更新银行卡状态
             bankCardMapper.updateStatus(cardId, 0);
+            cardPasswordVerifier.invalidate(cardId);
 
             // 更新冻结记录状态
             FreezeRecord activeFreeze = freezeRecordMapper.findActiveFreezeByCardId(cardId);
@@ -0,0 +1,25 @@
+package com.zychen.bank.service;
+
+import java.util.Map;
+
+/**
+ * 批量生成月度账单（管理员月末任务）：为所有用户生成指定月份的账单PDF，写入本地目录
+ */
+public interface StatementJobService {
+
+    /**
+     * 后台启动指定月份的账单任务，同一时间只运行一个任务；
+     * 同一月份再次启动时从检查点继续，已生成的账单文件跳过
+     */
+    Map<String, Object> start(int year, int month);
+
+    /**
+     * 停止当前任务：正在处理的一批完成并记录检查点后停止
+     */
+    Map<String, Object> stop();
+
+    /**
+     * 当前（或最近一次）任务的进度和吞吐统计
+     */
+    Map<String, Object> getStatus();
+}
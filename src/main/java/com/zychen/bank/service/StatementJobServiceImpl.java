@@ -0,0 +1,470 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.dto.ReportResponseDTO;
+import com.zychen.bank.mapper.UserMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 账单任务按用户ID分批处理，每批内两段流水线：
+ * 查询阶段（数据库线程池，线程数受连接池约束）生成月度报告，把全部明细流式写入临时文件，
+ * 渲染阶段（CPU线程池）从临时文件逐条读取明细排版PDF，写入 输出目录/yyyy-MM/用户ID.pdf。
+ * 明细不在内存中保留；已查出、尚未渲染的明细行数受 max-pending-rows 限制，渲染跟不上时查询阶段等待。
+ * 一批全部完成后把该批最后一个用户ID写入检查点，任务中断后重新启动从检查点继续。
+ */
+@Slf4j
+@Service
+public class StatementJobServiceImpl implements StatementJobService {
+
+    private static final String CHECKPOINT_FILE = "checkpoint.properties";
+    private static final String CHECKPOINT_KEY = "lastUserId";
+    private static final String FILE_SUFFIX = ".pdf";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String ROWS_SUFFIX = ".rows" + TEMP_SUFFIX;
+    private static final int RECENT_FAILURE_LIMIT = 20;
+    private static final DateTimeFormatter PERIOD_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private PdfExportService pdfExportService;
+
+    @Value("${app.statement-job.output-dir:data/statements}")
+    private String outputDir;
+
+    // 查询阶段线程数，每个线程占用一个数据库连接，需小于连接池大小
+    @Value("${app.statement-job.db-threads:4}")
+    private int dbThreads;
+
+    // 渲染阶段线程数，0表示按CPU核数
+    @Value("${app.statement-job.render-threads:0}")
+    private int renderThreads;
+
+    // 每批用户数，一批全部完成后记录检查点
+    @Value("${app.statement-job.batch-size:50}")
+    private int batchSize;
+
+    // 已查出、尚未渲染完的明细行数上限（明细在临时文件中），单个账单超过上限时独占全部额度
+    @Value("${app.statement-job.max-pending-rows:200000}")
+    private int maxPendingRows;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile Job currentJob;
+
+    @Override
+    public Map<String, Object> start(int year, int month) {
+        if (month < 1 || month > 12) {
+            throw new RuntimeException("月份必须在1-12之间");
+        }
+        YearMonth period = YearMonth.of(year, month);
+        if (!period.isBefore(YearMonth.now())) {
+            throw new RuntimeException("只能生成已结束月份的账单");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("已有账单任务在运行，请稍后再试");
+        }
+        try {
+            Path dir = Paths.get(outputDir, period.format(PERIOD_FORMAT));
+            Files.createDirectories(dir);
+            deleteTempFiles(dir);
+            Job job = new Job(period, dir, readCheckpoint(dir), userMapper.countCustomers(), maxPendingRows);
+            currentJob = job;
+
+            Thread thread = new Thread(() -> run(job), "statement-job");
+            thread.setDaemon(true);
+            thread.start();
+            log.info("账单任务启动: period={}, 用户数={}, 检查点={}", job.period, job.totalUsers, job.checkpoint);
+            return job.toMap();
+        } catch (IOException e) {
+            running.set(false);
+            throw new RuntimeException("账单目录创建失败: " + e.getMessage());
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<String, Object> stop() {
+        Job job = currentJob;
+        if (job == null || !running.get()) {
+            throw new RuntimeException("当前没有运行中的账单任务");
+        }
+        job.stopRequested = true;
+        return job.toMap();
+    }
+
+    @Override
+    public Map<String, Object> getStatus() {
+        Job job = currentJob;
+        if (job == null) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("status", "IDLE");
+            return result;
+        }
+        return job.toMap();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Job job = currentJob;
+        if (job != null) {
+            job.stopRequested = true;
+        }
+    }
+
+    private void run(Job job) {
+        ExecutorService dbExecutor = Executors.newFixedThreadPool(dbThreads, namedThreads("statement-db"));
+        ExecutorService renderExecutor = Executors.newFixedThreadPool(
+                renderThreads > 0 ? renderThreads : Runtime.getRuntime().availableProcessors(),
+                namedThreads("statement-render"));
+        try {
+            String afterUserId = job.checkpoint;
+            boolean completed = false;
+            while (!job.stopRequested) {
+                List<String> userIds = userMapper.findCustomerIdsAfter(afterUserId, batchSize);
+                if (userIds.isEmpty()) {
+                    completed = true;
+                    break;
+                }
+
+                List<CompletableFuture<Void>> futures = new ArrayList<>(userIds.size());
+                for (String userId : userIds) {
+                    Path file = job.dir.resolve(userId + FILE_SUFFIX);
+                    if (Files.exists(file)) {
+                        job.skipped.incrementAndGet();
+                        continue;
+                    }
+                    futures.add(CompletableFuture
+                            .supplyAsync(() -> loadStatement(job, userId), dbExecutor)
+                            .thenAcceptAsync(statement -> renderStatement(job, statement, file), renderExecutor)
+                            .exceptionally(e -> {
+                                job.recordFailure(userId, e);
+                                return null;
+                            }));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+                afterUserId = userIds.get(userIds.size() - 1);
+                // 出现失败后检查点不再前移，重新启动时从失败处继续扫描（已生成的文件跳过），失败的用户会被重试
+                if (job.failed.get() == 0) {
+                    writeCheckpoint(job.dir, afterUserId);
+                    job.checkpoint = afterUserId;
+                }
+                log.info("账单任务进度: 已生成 {}, 跳过 {}, 失败 {}",
+                        job.generated.get(), job.skipped.get(), job.failed.get());
+            }
+            job.finish(completed ? "COMPLETED" : "STOPPED", null);
+        } catch (IOException | RuntimeException e) {
+            log.error("账单任务异常终止: period={}", job.period, e);
+            job.finish("FAILED", e.getMessage());
+        } finally {
+            dbExecutor.shutdownNow();
+            renderExecutor.shutdownNow();
+            running.set(false);
+            log.info("账单任务结束: {}", job.toMap());
+        }
+    }
+
+    private Statement loadStatement(Job job, String userId) {
+        long start = System.nanoTime();
+        ReportResponseDTO report = reportService.generateMonthlyReport(userId, null,
+                job.period.getYear(), job.period.getMonthValue());
+
+        // 按报告中的交易笔数预占额度，渲染完成后归还
+        int rows = Math.max(1, Math.min(report.getSummary().getTransactionCount(), job.maxPendingRows));
+        try {
+            job.pendingRows.acquire(rows);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("账单任务被中断");
+        }
+
+        Path rowsFile = job.dir.resolve(userId + ROWS_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(rowsFile)))) {
+                reportService.forEachReportTransaction(report, transaction -> writeRow(out, transaction));
+            }
+        } catch (IOException e) {
+            discard(rowsFile);
+            job.pendingRows.release(rows);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            discard(rowsFile);
+            job.pendingRows.release(rows);
+            throw e;
+        }
+        job.queryNanos.addAndGet(System.nanoTime() - start);
+        return new Statement(report, rowsFile, rows);
+    }
+
+    private void renderStatement(Job job, Statement statement, Path file) {
+        long start = System.nanoTime();
+        Path temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                pdfExportService.writeReportToPdf(statement.report, action -> readRows(statement.rowsFile, action), out);
+            }
+            // 写完再改名，账单文件存在即表示已完整生成
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.bytesWritten.addAndGet(Files.size(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            // 失败时留下的临时文件不会被当作账单，一并删除
+            discard(temp);
+            discard(statement.rowsFile);
+            job.pendingRows.release(statement.rows);
+        }
+        job.renderNanos.addAndGet(System.nanoTime() - start);
+        job.generated.incrementAndGet();
+    }
+
+    /**
+     * 明细临时文件的一行：交易时间、类型、子类型、金额、余额、备注，均可为空
+     */
+    private static void writeRow(DataOutputStream out, ReportResponseDTO.TransactionSummary transaction) {
+        try {
+            writeNullable(out, transaction.getTransTime() != null ? transaction.getTransTime().toString() : null);
+            writeNullable(out, transaction.getTransType());
+            writeNullable(out, transaction.getTransSubtype());
+            writeNullable(out, transaction.getAmount() != null ? transaction.getAmount().toPlainString() : null);
+            writeNullable(out, transaction.getBalanceAfter() != null ? transaction.getBalanceAfter().toPlainString() : null);
+            writeNullable(out, transaction.getRemark());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void readRows(Path rowsFile, Consumer<ReportResponseDTO.TransactionSummary> action) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(rowsFile)))) {
+            while (true) {
+                String transTime;
+                try {
+                    transTime = readNullable(in);
+                } catch (EOFException end) {
+                    return;
+                }
+                ReportResponseDTO.TransactionSummary transaction = new ReportResponseDTO.TransactionSummary();
+                transaction.setTransTime(transTime != null ? LocalDateTime.parse(transTime) : null);
+                transaction.setTransType(readNullable(in));
+                transaction.setTransSubtype(readNullable(in));
+                String amount = readNullable(in);
+                transaction.setAmount(amount != null ? new BigDecimal(amount) : null);
+                String balanceAfter = readNullable(in);
+                transaction.setBalanceAfter(balanceAfter != null ? new BigDecimal(balanceAfter) : null);
+                transaction.setRemark(readNullable(in));
+                action.accept(transaction);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void discard(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", file);
+        }
+    }
+
+    /**
+     * 删除上次任务被强杀（进程退出、断电）时留下的 *.rows.tmp / *.pdf.tmp，
+     * 正常失败的临时文件在 renderStatement 里已经删除；同一时间只有一个任务在运行，不会误删
+     */
+    private static void deleteTempFiles(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + TEMP_SUFFIX)) {
+            for (Path file : files) {
+                discard(file);
+            }
+        }
+    }
+
+    private String readCheckpoint(Path dir) throws IOException {
+        Path file = dir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return properties.getProperty(CHECKPOINT_KEY);
+    }
+
+    private void writeCheckpoint(Path dir, String lastUserId) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(CHECKPOINT_KEY, lastUserId);
+        Path temp = dir.resolve(CHECKPOINT_FILE + TEMP_SUFFIX);
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "statement job checkpoint");
+        }
+        Files.move(temp, dir.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger index = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 查询阶段的结果，交给渲染阶段：报告和明细临时文件，以及预占的明细行数额度
+     */
+    private static class Statement {
+        private final ReportResponseDTO report;
+        private final Path rowsFile;
+        private final int rows;
+
+        private Statement(ReportResponseDTO report, Path rowsFile, int rows) {
+            this.report = report;
+            this.rowsFile = rowsFile;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * 一次任务的进度，计数器由工作线程更新，状态查询随时读取
+     */
+    private static class Job {
+        private final YearMonth period;
+        private final Path dir;
+        private final long totalUsers;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicLong generated = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong bytesWritten = new AtomicLong();
+        private final AtomicLong queryNanos = new AtomicLong();
+        private final AtomicLong renderNanos = new AtomicLong();
+        private final Deque<String> recentFailures = new ArrayDeque<>();
+        private final int maxPendingRows;
+        private final Semaphore pendingRows;
+
+        private volatile String checkpoint;
+        private volatile boolean stopRequested;
+        private volatile String status = "RUNNING";
+        private volatile String error;
+        private volatile long endTime;
+
+        private Job(YearMonth period, Path dir, String checkpoint, Long totalUsers, int maxPendingRows) {
+            this.period = period;
+            this.dir = dir;
+            this.checkpoint = checkpoint;
+            this.totalUsers = totalUsers != null ? totalUsers : 0;
+            this.maxPendingRows = maxPendingRows;
+            this.pendingRows = new Semaphore(maxPendingRows);
+        }
+
+        private void recordFailure(String userId, Throwable e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.warn("用户账单生成失败: userId={}, {}", userId, cause.getMessage());
+            failed.incrementAndGet();
+            synchronized (recentFailures) {
+                recentFailures.addLast(userId + ": " + cause.getMessage());
+                if (recentFailures.size() > RECENT_FAILURE_LIMIT) {
+                    recentFailures.removeFirst();
+                }
+            }
+        }
+
+        private void finish(String status, String error) {
+            this.error = error;
+            this.endTime = System.currentTimeMillis();
+            this.status = status;
+        }
+
+        private Map<String, Object> toMap() {
+            long elapsedMs = (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+            long generatedCount = generated.get();
+            long processed = generatedCount + skipped.get() + failed.get();
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("status", stopRequested && "RUNNING".equals(status) ? "STOPPING" : status);
+            result.put("period", period.format(PERIOD_FORMAT));
+            result.put("outputDir", dir.toAbsolutePath().toString());
+            result.put("startTime", new Date(startTime));
+            result.put("endTime", endTime > 0 ? new Date(endTime) : null);
+            result.put("elapsedMs", elapsedMs);
+            result.put("totalUsers", totalUsers);
+            result.put("processedUsers", processed);
+            result.put("generated", generatedCount);
+            result.put("skipped", skipped.get());
+            result.put("failed", failed.get());
+            result.put("progress", totalUsers > 0 ? Math.min(100.0, processed * 1000 / totalUsers / 10.0) : 0.0);
+            result.put("checkpoint", checkpoint);
+            result.put("bytesWritten", bytesWritten.get());
+            result.put("pendingRows", maxPendingRows - pendingRows.availablePermits());
+            // 吞吐：每秒生成的账单数；两个阶段各自的平均耗时，用于判断瓶颈在数据库还是渲染
+            result.put("statementsPerSecond", elapsedMs > 0 ? Math.round(generatedCount * 100000.0 / elapsedMs) / 100.0 : 0.0);
+            result.put("avgQueryMs", generatedCount > 0 ? TimeUnit.NANOSECONDS.toMillis(queryNanos.get() / generatedCount) : 0);
+            result.put("avgRenderMs", generatedCount > 0 ? TimeUnit.NANOSECONDS.toMillis(renderNanos.get() / generatedCount) : 0);
+            synchronized (recentFailures) {
+                result.put("recentFailures", new ArrayList<>(recentFailures));
+            }
+            result.put("error", error);
+            return result;
+        }
+    }
+}
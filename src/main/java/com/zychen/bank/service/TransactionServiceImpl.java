@@ -9,12 +9,15 @@ import com.zychen.bank.mapper.TransactionMapper;
 import com.zychen.bank.model.BankCard;
 import com.zychen.bank.model.Transaction;
 import com.zychen.bank.service.TransactionService;
+import com.zychen.bank.utils.CardLockManager;
 import com.zychen.bank.utils.IDGenerator;
-import com.zychen.bank.utils.PasswordUtil;
+import com.zychen.bank.utils.CardPasswordVerifier;
+import com.zychen.bank.utils.DateRange;
+import com.zychen.bank.utils.TransactionCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -28,7 +31,7 @@ import java.util.stream.Collectors;
 @Service
 public class TransactionServiceImpl implements TransactionService {
     @Autowired
-    private PasswordUtil passwordUtil;
+    private CardPasswordVerifier cardPasswordVerifier;
 
     @Autowired
     private BankCardMapper bankCardMapper;
@@ -42,9 +45,18 @@ public class TransactionServiceImpl implements TransactionService {
     @Autowired
     private UserService userService;  // 需要注入UserService
 
+    @Autowired
+    private CardLockManager cardLockManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
     @Override
-    @Transactional
     public Map<String, Object> deposit(String userId, DepositDTO depositDTO) {
+        // ===== 预授权阶段：不开事务、不持有卡锁，BCrypt校验期间不占用数据库连接 =====
         // 1. 验证银行卡
         BankCard bankCard = bankCardMapper.findByCardId(depositDTO.getCardId());
         if (bankCard == null) {
@@ -62,25 +74,36 @@ public class TransactionServiceImpl implements TransactionService {
             throw new RuntimeException("存款金额必须大于0");
         }
         // 🔥 新增：验证交易密码（与取款保持一致）
-        if (!passwordUtil.matches(depositDTO.getCardPassword(), bankCard.getCardPassword())) {
+        if (!cardPasswordVerifier.matches(bankCard.getCardId(), depositDTO.getCardPassword(), bankCard.getCardPassword())) {
             throw new RuntimeException("交易密码错误");
         }
-        // 3. 计算新余额
-        BigDecimal newBalance = bankCard.getBalance().add(depositDTO.getAmount());
-        BigDecimal newAvailableBalance = bankCard.getAvailableBalance().add(depositDTO.getAmount());
 
-        // 4. 更新银行卡余额
+        // ===== 写入阶段：先拿卡锁再开事务，同卡请求在应用内排队，事务提交后才释放锁 =====
+        String authorizedPassword = bankCard.getCardPassword();
+        return cardLockManager.executeWithLock(depositDTO.getCardId(),
+                () -> transactionTemplate.execute(status -> doDeposit(userId, depositDTO, authorizedPassword)));
+    }
+
+    private Map<String, Object> doDeposit(String userId, DepositDTO depositDTO, String authorizedPassword) {
+        cardPasswordVerifier.ensureUnchanged(depositDTO.getCardId(), authorizedPassword);
+
+        // 3. 按增量原子更新银行卡余额（不再读-改-写，避免并发丢失更新）
         LocalDateTime now = LocalDateTime.now();
-        int updateResult = bankCardMapper.updateBalance(
+        int updateResult = bankCardMapper.updateBalanceByDelta(
                 depositDTO.getCardId(),
-                newBalance,
-                newAvailableBalance,
+                depositDTO.getAmount(),
+                0,
                 now
         );
         if (updateResult <= 0) {
-            throw new RuntimeException("更新余额失败");
+            throw new RuntimeException("银行卡状态异常，无法存款");
         }
 
+        // 4. 读取更新后的余额
+        BankCard updatedCard = bankCardMapper.findBalanceByCardId(depositDTO.getCardId());
+        BigDecimal newBalance = updatedCard.getBalance();
+        BigDecimal balanceBefore = newBalance.subtract(depositDTO.getAmount());
+
         // 5. 记录交易流水
         Transaction transaction = new Transaction();
         transaction.setTransNo(idGenerator.generateTransNo());
@@ -89,7 +112,7 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setTransType("DEPOSIT");
         transaction.setTransSubtype("CURRENT_DEPOSIT");
         transaction.setAmount(depositDTO.getAmount());
-        transaction.setBalanceBefore(bankCard.getBalance());
+        transaction.setBalanceBefore(balanceBefore);
         transaction.setBalanceAfter(newBalance);
         transaction.setFee(BigDecimal.ZERO);
         transaction.setCurrency("CNY");
@@ -104,13 +127,14 @@ public class TransactionServiceImpl implements TransactionService {
         if (insertResult <= 0) {
             throw new RuntimeException("记录交易流水失败");
         }
+        balanceSnapshotService.recordTransaction(transaction);
 
         // 6. 返回结果
         Map<String, Object> result = new HashMap<>();
         result.put("transNo", transaction.getTransNo());
         result.put("cardId", depositDTO.getCardId());
         result.put("amount", depositDTO.getAmount());
-        result.put("balanceBefore", bankCard.getBalance());
+        result.put("balanceBefore", balanceBefore);
         result.put("balanceAfter", newBalance);
         result.put("transactionTime", now);
 
@@ -133,8 +157,8 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     @Override
-    @Transactional
     public Map<String, Object> withdraw(String userId, WithdrawDTO withdrawDTO) {
+        // ===== 预授权阶段：不开事务、不持有卡锁 =====
         // 1. 验证银行卡
         BankCard bankCard = bankCardMapper.findByCardId(withdrawDTO.getCardId());
         if (bankCard == null) {
@@ -148,7 +172,7 @@ public class TransactionServiceImpl implements TransactionService {
         }
 
         // 2. 验证交易密码
-        if (!passwordUtil.matches(withdrawDTO.getCardPassword(), bankCard.getCardPassword())) {
+        if (!cardPasswordVerifier.matches(bankCard.getCardId(), withdrawDTO.getCardPassword(), bankCard.getCardPassword())) {
             throw new RuntimeException("交易密码错误");
         }
 
@@ -164,22 +188,32 @@ public class TransactionServiceImpl implements TransactionService {
 
         // 5. 检查日限额和月限额（简化版，先不实现）
 
-        // 6. 计算新余额
-        BigDecimal newBalance = bankCard.getBalance().subtract(withdrawDTO.getAmount());
-        BigDecimal newAvailableBalance = bankCard.getAvailableBalance().subtract(withdrawDTO.getAmount());
+        // ===== 写入阶段：持有卡锁的短事务 =====
+        String authorizedPassword = bankCard.getCardPassword();
+        return cardLockManager.executeWithLock(withdrawDTO.getCardId(),
+                () -> transactionTemplate.execute(status -> doWithdraw(userId, withdrawDTO, authorizedPassword)));
+    }
+
+    private Map<String, Object> doWithdraw(String userId, WithdrawDTO withdrawDTO, String authorizedPassword) {
+        cardPasswordVerifier.ensureUnchanged(withdrawDTO.getCardId(), authorizedPassword);
 
-        // 7. 更新银行卡余额
+        // 6. 按增量原子扣减余额，可用余额不足时数据库条件不满足，不会扣成负数
         LocalDateTime now = LocalDateTime.now();
-        int updateResult = bankCardMapper.updateBalance(
+        int updateResult = bankCardMapper.updateBalanceByDelta(
                 withdrawDTO.getCardId(),
-                newBalance,
-                newAvailableBalance,
+                withdrawDTO.getAmount().negate(),
+                0,
                 now
         );
         if (updateResult <= 0) {
-            throw new RuntimeException("更新余额失败");
+            throw new RuntimeException("余额不足");
         }
 
+        // 7. 读取更新后的余额
+        BankCard updatedCard = bankCardMapper.findBalanceByCardId(withdrawDTO.getCardId());
+        BigDecimal newBalance = updatedCard.getBalance();
+        BigDecimal balanceBefore = newBalance.add(withdrawDTO.getAmount());
+
         // 8. 记录交易流水
         Transaction transaction = new Transaction();
         transaction.setTransNo(idGenerator.generateTransNo());
@@ -188,7 +222,7 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setTransType("WITHDRAW");
         transaction.setTransSubtype("CURRENT_WITHDRAW");
         transaction.setAmount(withdrawDTO.getAmount());
-        transaction.setBalanceBefore(bankCard.getBalance());
+        transaction.setBalanceBefore(balanceBefore);
         transaction.setBalanceAfter(newBalance);
         transaction.setFee(BigDecimal.ZERO);
         transaction.setCurrency("CNY");
@@ -203,13 +237,14 @@ public class TransactionServiceImpl implements TransactionService {
         if (insertResult <= 0) {
             throw new RuntimeException("记录交易流水失败");
         }
+        balanceSnapshotService.recordTransaction(transaction);
 
         // 9. 返回结果
         Map<String, Object> result = new HashMap<>();
         result.put("transNo", transaction.getTransNo());
         result.put("cardId", withdrawDTO.getCardId());
         result.put("amount", withdrawDTO.getAmount());
-        result.put("balanceBefore", bankCard.getBalance());
+        result.put("balanceBefore", balanceBefore);
         result.put("balanceAfter", newBalance);
         result.put("transactionTime", now);
 
@@ -229,28 +264,45 @@ public class TransactionServiceImpl implements TransactionService {
             queryDTO.setPageSize(20);
         }
 
-        // 2. 计算分页偏移量
-        int offset = (queryDTO.getPage() - 1) * queryDTO.getPageSize();
+        // 2. 游标模式从游标之后取，否则按页码计算偏移量
+        int pageSize = queryDTO.getPageSize();
+        TransactionCursor cursor = TransactionCursor.decode(queryDTO.getCursor());
+        DateRange range = DateRange.of(queryDTO.getStartDate(), queryDTO.getEndDate());
+        int offset = cursor != null ? 0 : (queryDTO.getPage() - 1) * pageSize;
 
-        // 3. 查询数据
+        // 3. 查询数据（多取一条，用于判断是否还有下一页）
         List<Transaction> transactions = transactionMapper.findByConditions(
                 userId,
                 queryDTO.getCardId(),
                 queryDTO.getTransType(),
-                queryDTO.getStartDate(),
-                queryDTO.getEndDate(),
+                range,
+                cursor != null ? cursor.getTransTime() : null,
+                cursor != null ? cursor.getTransId() : null,
                 offset,
-                queryDTO.getPageSize()
+                pageSize + 1
         );
+        boolean hasMore = transactions.size() > pageSize;
+        if (hasMore) {
+            transactions = transactions.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            Transaction last = transactions.get(pageSize - 1);
+            nextCursor = new TransactionCursor(last.getTransTime(), last.getTransId()).encode();
+        }
 
-        // 4. 查询总数
-        int total = transactionMapper.countByConditions(
-                userId,
-                queryDTO.getCardId(),
-                queryDTO.getTransType(),
-                queryDTO.getStartDate(),
-                queryDTO.getEndDate()
-        );
+        // 4. 查询总数（可选；页码模式下已到最后一页时直接推算，不再COUNT）
+        Integer total = null;
+        if (cursor == null && !hasMore && (offset == 0 || !transactions.isEmpty())) {
+            total = offset + transactions.size();
+        } else if (shouldCountTotal(queryDTO.getIncludeTotal(), cursor)) {
+            total = transactionMapper.countByConditions(
+                    userId,
+                    queryDTO.getCardId(),
+                    queryDTO.getTransType(),
+                    range
+            );
+        }
 
         // 5. 处理返回数据
         List<Map<String, Object>> transactionList = transactions.stream()
@@ -271,21 +323,35 @@ public class TransactionServiceImpl implements TransactionService {
                 })
                 .collect(Collectors.toList());
 
-        // 6. 构建分页信息
-        int totalPages = (int) Math.ceil((double) total / queryDTO.getPageSize());
-
         Map<String, Object> result = new HashMap<>();
         result.put("transactions", transactionList);
-        result.put("pagination", Map.of(
-                "page", queryDTO.getPage(),
-                "pageSize", queryDTO.getPageSize(),
-                "total", total,
-                "totalPages", totalPages
-        ));
+        result.put("pagination", buildPagination(queryDTO.getPage(), pageSize, cursor, hasMore, nextCursor, total));
 
         return result;
     }
 
+    // 未指定时：页码模式统计总数（兼容原有分页），游标模式不统计
+    private boolean shouldCountTotal(Boolean includeTotal, TransactionCursor cursor) {
+        return includeTotal != null ? includeTotal : cursor == null;
+    }
+
+    // 分页信息：游标模式下没有page；未统计总数时不返回total/totalPages
+    private Map<String, Object> buildPagination(int page, int pageSize, TransactionCursor cursor,
+                                                boolean hasMore, String nextCursor, Integer total) {
+        Map<String, Object> pagination = new HashMap<>();
+        if (cursor == null) {
+            pagination.put("page", page);
+        }
+        pagination.put("pageSize", pageSize);
+        pagination.put("hasMore", hasMore);
+        pagination.put("nextCursor", nextCursor);
+        if (total != null) {
+            pagination.put("total", total);
+            pagination.put("totalPages", (int) Math.ceil((double) total / pageSize));
+        }
+        return pagination;
+    }
+
     // 银行卡号脱敏
     private String maskCardId(String cardId) {
         if (cardId == null || cardId.length() != 12) {
@@ -327,8 +393,11 @@ public class TransactionServiceImpl implements TransactionService {
             queryDTO.setPageSize(20);
         }
 
-        // 2. 计算分页偏移量
-        int offset = (queryDTO.getPage() - 1) * queryDTO.getPageSize();
+        // 2. 游标模式从游标之后取，否则按页码计算偏移量
+        int pageSize = queryDTO.getPageSize();
+        TransactionCursor cursor = TransactionCursor.decode(queryDTO.getCursor());
+        DateRange range = DateRange.of(queryDTO.getStartDate(), queryDTO.getEndDate());
+        int offset = cursor != null ? 0 : (queryDTO.getPage() - 1) * pageSize;
 
         // 3. 处理参数，防止NPE - 关键修复！
         String userId = queryDTO.getUserId();
@@ -337,7 +406,7 @@ public class TransactionServiceImpl implements TransactionService {
         String transType = queryDTO.getTransType();
         String transNo = queryDTO.getTransNo();
 
-        // 4. 查询数据
+        // 4. 查询数据（多取一条，用于判断是否还有下一页）
         List<Map<String, Object>> transactions = transactionMapper.findAdminTransactions(
                 userId,
                 userName,
@@ -345,23 +414,37 @@ public class TransactionServiceImpl implements TransactionService {
                 transType,
                 transNo,
                 queryDTO.getStatus(),
-                queryDTO.getStartDate(),
-                queryDTO.getEndDate(),
+                range,
+                cursor != null ? cursor.getTransTime() : null,
+                cursor != null ? cursor.getTransId() : null,
                 offset,
-                queryDTO.getPageSize()
+                pageSize + 1
         );
+        boolean hasMore = transactions.size() > pageSize;
+        if (hasMore) {
+            transactions = transactions.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            Map<String, Object> last = transactions.get(pageSize - 1);
+            nextCursor = TransactionCursor.of(last.get("trans_time"), last.get("trans_id")).encode();
+        }
 
-        // 5. 查询总数
-        int total = transactionMapper.countAdminTransactions(
-                userId,
-                userName,
-                cardId,
-                transType,
-                transNo,
-                queryDTO.getStatus(),
-                queryDTO.getStartDate(),
-                queryDTO.getEndDate()
-        );
+        // 5. 查询总数（可选；页码模式下已到最后一页时直接推算，不再COUNT）
+        Integer total = null;
+        if (cursor == null && !hasMore && (offset == 0 || !transactions.isEmpty())) {
+            total = offset + transactions.size();
+        } else if (shouldCountTotal(queryDTO.getIncludeTotal(), cursor)) {
+            total = transactionMapper.countAdminTransactions(
+                    userId,
+                    userName,
+                    cardId,
+                    transType,
+                    transNo,
+                    queryDTO.getStatus(),
+                    range
+            );
+        }
 
         // 6. 处理返回数据（添加中文转换）
         List<Map<String, Object>> transactionList = transactions.stream()
@@ -372,31 +455,24 @@ public class TransactionServiceImpl implements TransactionService {
                 })
                 .collect(Collectors.toList());
 
-        // 7. 构建分页信息
-        int totalPages = (int) Math.ceil((double) total / queryDTO.getPageSize());
-
-        // 8. 统计信息
+        // 7. 统计信息（当前页）
         Map<String, Object> summary = calculateAdminSummary(transactionList);
 
         Map<String, Object> result = new HashMap<>();
         result.put("transactions", transactionList);
         result.put("summary", summary);
-        result.put("pagination", Map.of(
-                "page", queryDTO.getPage(),
-                "pageSize", queryDTO.getPageSize(),
-                "total", total,
-                "totalPages", totalPages
-        ));
-
-        log.info("查询交易记录成功: page={}, pageSize={}, total={}, totalPages={}",
-                queryDTO.getPage(), queryDTO.getPageSize(), total, totalPages);
+        result.put("pagination", buildPagination(queryDTO.getPage(), pageSize, cursor, hasMore, nextCursor, total));
+
+        log.info("查询交易记录成功: page={}, pageSize={}, cursor={}, hasMore={}, total={}",
+                queryDTO.getPage(), pageSize, cursor != null, hasMore, total);
         return result;
     }
 
     /**
      * 计算管理员查询的汇总信息（修复BigDecimal处理）
+     * 包内可见，基准测试通过同包入口直接调用
      */
-    private Map<String, Object> calculateAdminSummary(List<Map<String, Object>> transactions) {
+    Map<String, Object> calculateAdminSummary(List<Map<String, Object>> transactions) {
         Map<String, Object> summary = new HashMap<>();
 
         BigDecimal totalDeposit = BigDecimal.ZERO;
@@ -510,13 +586,13 @@ public class TransactionServiceImpl implements TransactionService {
         }
 
         try {
+            DateRange range = DateRange.of(actualStartDate, actualEndDate);
+
             // 获取每日统计
-            List<Map<String, Object>> dailyStats = transactionMapper.getDailyTransactionStats(
-                    actualStartDate, actualEndDate);
+            List<Map<String, Object>> dailyStats = transactionMapper.getDailyTransactionStats(range);
 
             // 获取交易类型统计
-            List<Map<String, Object>> typeStats = transactionMapper.getTransactionTypeStats(
-                    actualStartDate, actualEndDate);
+            List<Map<String, Object>> typeStats = transactionMapper.getTransactionTypeStats(range);
 
             // 总体统计
             Map<String, Object> totalStats = new HashMap<>();
@@ -564,8 +640,7 @@ public class TransactionServiceImpl implements TransactionService {
                     })
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
 // 查询转账转出金额
-            BigDecimal transferOutAmount = transactionMapper.sumTransferOutAmount(
-                    actualStartDate, actualEndDate);
+            BigDecimal transferOutAmount = transactionMapper.sumTransferOutAmount(range);
             transferOutAmount = transferOutAmount != null ? transferOutAmount : BigDecimal.ZERO;
 
 // 总支出 = 取款金额 + 转账转出金额
@@ -3,9 +3,11 @@ package com.zychen.bank.service;
 import com.zychen.bank.dto.*;
 import com.zychen.bank.mapper.*;
 import com.zychen.bank.model.*;
+import com.zychen.bank.utils.DateRange;
 import com.zychen.bank.utils.IDGenerator;
 import com.zychen.bank.utils.JwtUtil;
 import com.zychen.bank.utils.PasswordUtil;
+import com.zychen.bank.utils.UserDisplayNameCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -36,6 +38,9 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private PasswordUtil passwordUtil;
 
+    @Autowired
+    private UserDisplayNameCache userDisplayNameCache;
+
     @Autowired
     private IDGenerator idGenerator;
 
@@ -137,7 +142,8 @@ public class UserServiceImpl implements UserService {
         int currentYear = now.getYear();
         int currentMonth = now.getMonthValue();
 
-        List<Transaction> transactions = transactionMapper.findByUserIdAndMonth(userId, currentYear, currentMonth);
+        List<Transaction> transactions = transactionMapper.findByUserIdAndPeriod(
+                userId, DateRange.ofMonth(currentYear, currentMonth));
 
         int depositCount = 0;
         BigDecimal depositAmount = BigDecimal.ZERO;
@@ -567,6 +573,11 @@ public class UserServiceImpl implements UserService {
             }
         }
 
+        // 姓名可能变化，清除展示名缓存
+        if (userInfoUpdated) {
+            userDisplayNameCache.invalidate(userId);
+        }
+
         // 5. 返回更新结果
         Map<String, Object> result = new HashMap<>();
         result.put("userId", userId);
@@ -792,7 +803,8 @@ public class UserServiceImpl implements UserService {
             stats.put("totalUsers", userMapper.countTotalUsers());
             stats.put("activeUsers", userMapper.countActiveUsers());
             stats.put("frozenUsers", userMapper.countFrozenUsers());
-            stats.put("newUsersToday", userMapper.countNewUsersToday());
+            DateRange today = DateRange.today();
+            stats.put("newUsersToday", userMapper.countNewUsersToday(today));
 
             // 2. 银行卡统计
             stats.put("totalCards", bankCardMapper.countTotalCards());
@@ -802,13 +814,13 @@ public class UserServiceImpl implements UserService {
 
             // 3. 交易统计
             stats.put("totalTransactions", transactionMapper.countTotalTransactions());
-            stats.put("todayTransactions", transactionMapper.countTodayTransactions());
+            stats.put("todayTransactions", transactionMapper.countTodayTransactions(today));
             stats.put("pendingTransactions", transactionMapper.countPendingTransactions());
 
             // 4. 资金统计
             stats.put("totalBalance", bankCardMapper.getTotalBalance());
-            stats.put("todayIncome", transactionMapper.getTodayIncome());
-            stats.put("todayOutcome", transactionMapper.getTodayOutcome());
+            stats.put("todayIncome", transactionMapper.getTodayIncome(today));
+            stats.put("todayOutcome", transactionMapper.getTodayOutcome(today));
             stats.put("fixedDepositTotal", fixedDepositMapper.getTotalFixedDepositAmount());
 
             // 5. 定期存款统计
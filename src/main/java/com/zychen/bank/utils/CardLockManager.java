@@ -0,0 +1,179 @@
+package com.zychen.bank.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 银行卡分段锁
+ * 同一张卡的资金/状态变更在本进程内串行执行，锁持有范围包住整个数据库事务，
+ * 这样同卡并发请求在应用内排队，而不是在MySQL行锁上长时间等待。
+ */
+@Slf4j
+@Component
+public class CardLockManager {
+
+    @Value("${app.card-lock.stripes:256}")
+    private int stripeCount;
+
+    @Value("${app.card-lock.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private Stripe[] stripes;
+    private int mask;
+
+    @PostConstruct
+    public void init() {
+        // 分段数取2的幂，便于用位运算定位
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        mask = size - 1;
+        log.info("银行卡分段锁初始化完成: stripes={}, timeoutMs={}", size, timeoutMs);
+    }
+
+    /**
+     * 持有指定银行卡的锁执行操作
+     */
+    public <T> T executeWithLock(String cardId, Supplier<T> action) {
+        Stripe stripe = stripes[indexOf(cardId)];
+        acquire(stripe);
+        try {
+            return action.get();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * 同时持有多张银行卡的锁执行操作（按分段序号升序加锁，避免死锁）
+     */
+    public <T> T executeWithLocks(Collection<String> cardIds, Supplier<T> action) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String cardId : cardIds) {
+            indexes.add(indexOf(cardId));
+        }
+
+        List<Stripe> locked = new ArrayList<>(indexes.size());
+        try {
+            for (Integer index : indexes) {
+                acquire(stripes[index]);
+                locked.add(stripes[index]);
+            }
+            return action.get();
+        } finally {
+            for (int i = locked.size() - 1; i >= 0; i--) {
+                locked.get(i).lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 锁统计信息：总体汇总 + 竞争最多的前10个分段
+     */
+    public Map<String, Object> getStatistics() {
+        long acquired = 0;
+        long contended = 0;
+        long timeouts = 0;
+        long waitNanos = 0;
+        long maxWaitNanos = 0;
+        List<Map<String, Object>> stripeStats = new ArrayList<>();
+
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[i];
+            long stripeAcquired = stripe.acquired.sum();
+            long stripeContended = stripe.contended.sum();
+            long stripeWait = stripe.waitNanos.sum();
+
+            acquired += stripeAcquired;
+            contended += stripeContended;
+            timeouts += stripe.timeouts.sum();
+            waitNanos += stripeWait;
+            maxWaitNanos = Math.max(maxWaitNanos, stripe.maxWaitNanos.get());
+
+            if (stripeContended > 0) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("stripe", i);
+                item.put("acquired", stripeAcquired);
+                item.put("contended", stripeContended);
+                item.put("avgWaitMicros", stripeWait / stripeContended / 1000);
+                item.put("maxWaitMicros", stripe.maxWaitNanos.get() / 1000);
+                item.put("queueLength", stripe.lock.getQueueLength());
+                stripeStats.add(item);
+            }
+        }
+
+        stripeStats.sort(Comparator.comparing((Map<String, Object> m) -> (Long) m.get("contended")).reversed());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("stripes", stripes.length);
+        result.put("acquired", acquired);
+        result.put("contended", contended);
+        result.put("timeouts", timeouts);
+        result.put("contentionRate", acquired == 0 ? 0.0 : (double) contended / acquired);
+        result.put("avgWaitMicros", contended == 0 ? 0 : waitNanos / contended / 1000);
+        result.put("maxWaitMicros", maxWaitNanos / 1000);
+        result.put("hotStripes", stripeStats.size() > 10 ? stripeStats.subList(0, 10) : stripeStats);
+        return result;
+    }
+
+    private int indexOf(String cardId) {
+        int h = cardId == null ? 0 : cardId.hashCode();
+        // 扰动一下高位，卡号前缀相同时分布更均匀
+        h ^= (h >>> 16);
+        return h & mask;
+    }
+
+    private void acquire(Stripe stripe) {
+        // 无竞争时直接拿到锁，不计等待时间
+        if (stripe.lock.tryLock()) {
+            stripe.acquired.increment();
+            return;
+        }
+
+        stripe.contended.increment();
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = stripe.lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("操作被中断，请稍后重试");
+        }
+        long waited = System.nanoTime() - start;
+        stripe.waitNanos.add(waited);
+        stripe.maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        if (!locked) {
+            stripe.timeouts.increment();
+            log.warn("获取银行卡锁超时: waitMs={}", waited / 1_000_000);
+            throw new RuntimeException("系统繁忙，请稍后重试");
+        }
+        stripe.acquired.increment();
+    }
+
+    private static class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder contended = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+    }
+}
@@ -0,0 +1,143 @@
+package com.zychen.bank.utils;
+
+import com.zychen.bank.mapper.BankCardMapper;
+import com.zychen.bank.model.BankCard;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 银行卡交易密码校验（带校验结果缓存）
+ * 只缓存校验成功的结果，缓存值是 HMAC(卡号 + 输入密码 + 库中密文)，密钥在进程启动时随机生成，
+ * 不保存明文。库中密文变化（改密码）时HMAC自然对不上；卡状态变化时由调用方显式失效。
+ * 条目数超过上限时淘汰最久未使用的卡。
+ */
+@Slf4j
+@Component
+public class CardPasswordVerifier {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    @Autowired
+    private PasswordUtil passwordUtil;
+
+    @Autowired
+    private BankCardMapper bankCardMapper;
+
+    @Value("${app.card-password-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.card-password-cache.max-size:10000}")
+    private int maxSize;
+
+    // 卡号 -> 校验成功时的HMAC
+    private ExpiringLruCache<String, byte[]> cache;
+    private final SecretKeySpec hmacKey;
+    private final ThreadLocal<Mac> macHolder;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CardPasswordVerifier() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.hmacKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+        this.macHolder = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(hmacKey);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("初始化HMAC失败", e);
+            }
+        });
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = new ExpiringLruCache<>(maxSize);
+    }
+
+    /**
+     * 校验交易密码，命中缓存时跳过BCrypt
+     */
+    public boolean matches(String cardId, String rawPassword, String encodedPassword) {
+        if (cardId == null || rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+
+        byte[] token = token(cardId, rawPassword, encodedPassword);
+        long now = System.currentTimeMillis();
+
+        byte[] cached = cache.get(cardId, now);
+        if (cached != null && MessageDigest.isEqual(cached, token)) {
+            hits.increment();
+            return true;
+        }
+
+        misses.increment();
+        if (!passwordUtil.matches(rawPassword, encodedPassword)) {
+            return false;
+        }
+
+        cache.put(cardId, token, now + ttlSeconds * 1000);
+        return true;
+    }
+
+    /**
+     * 预授权通过后，在持卡锁的事务内确认交易密码未被修改（只比较密文，不再做BCrypt）
+     */
+    public void ensureUnchanged(String cardId, String authorizedPassword) {
+        BankCard current = bankCardMapper.findByCardId(cardId);
+        if (current == null || !authorizedPassword.equals(current.getCardPassword())) {
+            throw new RuntimeException("交易密码已变更，请重新操作");
+        }
+    }
+
+    /**
+     * 卡密码或卡状态变更时调用，清除该卡的校验缓存
+     */
+    public void invalidate(String cardId) {
+        if (cardId != null && cache.remove(cardId)) {
+            invalidations.increment();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("size", cache.size());
+        result.put("maxSize", maxSize);
+        result.put("ttlSeconds", ttlSeconds);
+        result.put("hits", hitCount);
+        result.put("misses", missCount);
+        result.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        result.put("invalidations", invalidations.sum());
+        result.put("evictions", cache.getEvictions());
+        return result;
+    }
+
+    private byte[] token(String cardId, String rawPassword, String encodedPassword) {
+        Mac mac = macHolder.get();
+        mac.update(cardId.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        mac.update(rawPassword.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return mac.doFinal(encodedPassword.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,49 @@
+package com.zychen.bank.utils;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * 当前请求的登录身份
+ * JwtInterceptor验证token后把JwtPrincipal放到request中，这里统一读取，
+ * 用户ID和角色直接取自token，不再查询用户表。
+ */
+public final class CurrentUser {
+
+    public static final String PRINCIPAL_ATTRIBUTE = "principal";
+
+    private CurrentUser() {
+    }
+
+    /**
+     * 当前登录身份，不在请求线程中或未登录时返回null
+     */
+    public static JwtPrincipal get() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return (JwtPrincipal) attributes.getAttribute(PRINCIPAL_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    public static String getUserId() {
+        JwtPrincipal principal = get();
+        return principal != null ? principal.getUserId() : null;
+    }
+
+    public static Integer getRole() {
+        JwtPrincipal principal = get();
+        return principal != null ? principal.getRole() : null;
+    }
+
+    /**
+     * 获取指定用户的角色，仅当该用户就是当前登录用户时返回，否则返回null
+     */
+    public static Integer getRole(String userId) {
+        JwtPrincipal principal = get();
+        if (principal == null || userId == null || !userId.equals(principal.getUserId())) {
+            return null;
+        }
+        return principal.getRole();
+    }
+}
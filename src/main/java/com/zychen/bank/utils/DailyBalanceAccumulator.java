@@ -0,0 +1,93 @@
+package com.zychen.bank.utils;
+
+import com.zychen.bank.model.CardDailyBalance;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 日均余额的增量计算：先用 seed 放入每张卡在区间开始前的余额，再按日期顺序喂入区间内的日终余额快照，
+ * 只保留每张卡的当前余额，内存占用与卡数有关、与交易笔数无关。
+ * 日均余额 = 各天所有卡日终余额之和 / 天数；某张卡某天没有快照时沿用它前一天的余额，
+ * 所以区间内没有交易的卡按期初余额计入每一天。
+ */
+public class DailyBalanceAccumulator {
+
+    private final LocalDate firstDay;
+    private final int days;
+
+    private final Map<String, BigDecimal> cardBalances = new HashMap<>();
+    // 当前各卡余额合计
+    private BigDecimal currentTotal = BigDecimal.ZERO;
+    // 已结束各天的日终余额之和
+    private BigDecimal closedSum = BigDecimal.ZERO;
+    private int closedDays;
+    private long count;
+
+    /**
+     * @param firstDay 第一天（含）
+     * @param lastDay  最后一天（含）
+     */
+    public DailyBalanceAccumulator(LocalDate firstDay, LocalDate lastDay) {
+        if (lastDay.isBefore(firstDay)) {
+            throw new IllegalArgumentException("结束日期不能早于开始日期");
+        }
+        this.firstDay = firstDay;
+        this.days = (int) ChronoUnit.DAYS.between(firstDay, lastDay) + 1;
+    }
+
+    /**
+     * 放入一张卡在第一天之前的余额，须在 add 之前调用
+     */
+    public void seed(String cardId, BigDecimal openingBalance) {
+        if (count > 0) {
+            throw new IllegalStateException("期初余额须在喂入快照之前设置");
+        }
+        BigDecimal previous = cardBalances.put(cardId, openingBalance);
+        currentTotal = currentTotal.subtract(previous != null ? previous : BigDecimal.ZERO).add(openingBalance);
+    }
+
+    /**
+     * 喂入一条日终余额快照，要求按日期升序；不在区间内的忽略
+     */
+    public void add(CardDailyBalance snapshot) {
+        if (snapshot.getClosingBalance() == null || snapshot.getBalanceDate() == null) {
+            return;
+        }
+        int day = (int) ChronoUnit.DAYS.between(firstDay, snapshot.getBalanceDate());
+        if (day < 0 || day >= days) {
+            return;
+        }
+
+        // 快照日之前的各天已经结束，日终余额就是当前合计
+        if (day > closedDays) {
+            closedSum = closedSum.add(currentTotal.multiply(BigDecimal.valueOf(day - closedDays)));
+            closedDays = day;
+        }
+
+        // 没有期初余额的卡（区间开始前没有交易）之前各天余额为0
+        BigDecimal previous = cardBalances.getOrDefault(snapshot.getCardId(), BigDecimal.ZERO);
+        currentTotal = currentTotal.subtract(previous).add(snapshot.getClosingBalance());
+        cardBalances.put(snapshot.getCardId(), snapshot.getClosingBalance());
+        count++;
+    }
+
+    /**
+     * 喂入的区间内快照条数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 日均余额（保留两位小数）
+     */
+    public BigDecimal getAverage() {
+        BigDecimal sum = closedSum.add(currentTotal.multiply(BigDecimal.valueOf(days - closedDays)));
+        return sum.divide(BigDecimal.valueOf(days), 2, RoundingMode.HALF_UP);
+    }
+}
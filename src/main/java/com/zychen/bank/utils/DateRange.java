@@ -0,0 +1,77 @@
+package com.zychen.bank.utils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 半开时间区间 [start, end)
+ * Mapper中的日期过滤统一写成 col &gt;= #{range.start} AND col &lt; #{range.end}，
+ * 不在列上套 DATE()/YEAR()/MONTH()，这样时间列上的索引可以做范围扫描。
+ * start、end 任一为null表示该侧不限。
+ */
+public final class DateRange {
+
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+
+    private DateRange(LocalDateTime start, LocalDateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * 按天的闭区间 [startDate, endDate] 转成 [startDate 00:00, endDate次日 00:00)
+     */
+    public static DateRange of(LocalDate startDate, LocalDate endDate) {
+        return new DateRange(
+                startDate != null ? startDate.atStartOfDay() : null,
+                endDate != null ? endDate.plusDays(1).atStartOfDay() : null);
+    }
+
+    /**
+     * 解析 yyyy-MM-dd 格式的日期字符串（空串视为不限）
+     */
+    public static DateRange parse(String startDate, String endDate) {
+        try {
+            return of(startDate == null || startDate.isBlank() ? null : LocalDate.parse(startDate.trim()),
+                    endDate == null || endDate.isBlank() ? null : LocalDate.parse(endDate.trim()));
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("日期格式错误，应为yyyy-MM-dd");
+        }
+    }
+
+    public static DateRange ofDay(LocalDate day) {
+        return of(day, day);
+    }
+
+    public static DateRange today() {
+        return ofDay(LocalDate.now());
+    }
+
+    public static DateRange ofMonth(int year, int month) {
+        YearMonth yearMonth = YearMonth.of(year, month);
+        return new DateRange(yearMonth.atDay(1).atStartOfDay(), yearMonth.plusMonths(1).atDay(1).atStartOfDay());
+    }
+
+    /**
+     * 某一天（含）之前的所有时间：(-∞, day次日 00:00)
+     */
+    public static DateRange upTo(LocalDate day) {
+        return of(null, day);
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + end + ")";
+    }
+}
@@ -1,54 +1,103 @@
 package com.zychen.bank.utils;
 
 import com.zychen.bank.mapper.UserMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.concurrent.atomic.AtomicInteger;
 
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+
+@Slf4j
 @Component
 public class IDGenerator {
 
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyMMdd");
-    private static final AtomicInteger userCounter = new AtomicInteger(1);
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private IdBlockAllocator idBlockAllocator;
+
+    @Value("${app.id-generator.user-block-size:100}")
+    private int userBlockSize;
+
+    @Value("${app.id-generator.admin-block-size:1}")
+    private int adminBlockSize;
+
+    // 节点号，多实例部署时每个实例必须配置不同的值（0-1023），未配置时按主机名+进程号推算
+    @Value("${app.id-generator.node-id:-1}")
+    private long nodeId;
+
+    private SnowflakeIdGenerator snowflake;
+
+    @PostConstruct
+    public void init() {
+        long actualNodeId = nodeId >= 0 ? nodeId : deriveNodeId();
+        snowflake = new SnowflakeIdGenerator(actualNodeId);
+        log.info("流水号生成器初始化完成: nodeId={}{}", actualNodeId, nodeId >= 0 ? "" : "（自动推算）");
+    }
+
     // 生成普通用户ID：U + 7位数字
     public String generateUserId() {
-        String maxUserId = userMapper.findMaxUserId("U%");  // 只查U开头的
-        if (maxUserId == null) {
-            return "U0000001";
-        }
-
-        try {
-            int seq = Integer.parseInt(maxUserId.substring(1)) + 1;
-            return String.format("U%07d", seq);
-        } catch (NumberFormatException e) {
-            return "U" + System.currentTimeMillis() % 10000000;
-        }
+        long seq = idBlockAllocator.next("user_id", userBlockSize, () -> currentMaxSeq("U", 1) + 1);
+        return String.format("U%07d", seq);
     }
 
     // 生成管理员ID：ADMIN + 3位数字
     public String generateAdminId() {
-        String maxAdminId = userMapper.findMaxUserId("ADMIN%");  // 只查ADMIN开头的
-        if (maxAdminId == null) {
-            return "ADMIN001";
-        }
+        long seq = idBlockAllocator.next("admin_id", adminBlockSize, () -> currentMaxSeq("ADMIN", 5) + 1);
+        return String.format("ADMIN%03d", seq);
+    }
 
+    // 生成交易流水号: T + 19位雪花ID
+    public String generateTransNo() {
+        return snowflake.nextNo("T");
+    }
+
+    // 生成定期存款编号: FD + 19位雪花ID
+    public String generateFdNo() {
+        return snowflake.nextNo("FD");
+    }
+
+    // 生成冻结编号: FZ + 19位雪花ID
+    public String generateFreezeNo() {
+        return snowflake.nextNo("FZ");
+    }
+
+    // 生成挂失编号: LS + 19位雪花ID
+    public String generateLostReportNo() {
+        return snowflake.nextNo("LS");
+    }
+
+    // 生成报告编号: 前缀（含报告期和类型） + 19位雪花ID
+    public String generateReportNo(String prefix) {
+        return snowflake.nextNo(prefix);
+    }
+
+    // 序列首次启用时，从已有数据中取当前最大序号作为起点
+    private long currentMaxSeq(String prefix, int prefixLength) {
+        String maxId = userMapper.findMaxUserId(prefix + "%");
+        if (maxId == null) {
+            return 0;
+        }
         try {
-            int seq = Integer.parseInt(maxAdminId.substring(5)) + 1;  // 去掉"ADMIN"
-            return String.format("ADMIN%03d", seq);
+            return Long.parseLong(maxId.substring(prefixLength));
         } catch (NumberFormatException e) {
-            return "ADMIN" + (System.currentTimeMillis() % 1000);
+            log.warn("无法解析已有最大ID: {}", maxId);
+            return 0;
         }
     }
 
-    // 生成交易流水号: T + 年月日时分秒(14位) + 4位随机数
-    public String generateTransNo() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        int random = (int) (Math.random() * 10000);
-        return String.format("T%s%04d", timestamp, random);
+    private long deriveNodeId() {
+        String seed;
+        try {
+            seed = InetAddress.getLocalHost().getHostName() + "/" + ManagementFactory.getRuntimeMXBean().getName();
+        } catch (Exception e) {
+            seed = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        log.warn("未配置app.id-generator.node-id，多实例部署时可能产生重复流水号");
+        return (seed.hashCode() & 0x7fffffff) % (SnowflakeIdGenerator.MAX_NODE_ID + 1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+package com.zychen.bank.utils;
+
+import com.zychen.bank.mapper.IdSequenceMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 号段式（hi/lo）ID分配器
+ * 每个节点一次从 id_sequence 表预留一段连续的值，之后在内存里用AtomicLong逐个发放；
+ * 当前号段用掉80%时在后台预取下一段，号段用完时直接切换，注册高峰期不再访问数据库。
+ * 节点重启时未用完的号段会被跳过，ID连续但可能有空洞。
+ */
+@Slf4j
+@Component
+public class IdBlockAllocator {
+
+    // 号段小于该值时不预取（如管理员ID，避免重启时浪费号段）
+    private static final int MIN_PREFETCH_BLOCK_SIZE = 10;
+
+    @Autowired
+    private IdSequenceMapper idSequenceMapper;
+
+    private final TransactionTemplate requiresNewTemplate;
+    private final Map<String, Sequence> sequences = new ConcurrentHashMap<>();
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "id-block-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public IdBlockAllocator(PlatformTransactionManager transactionManager) {
+        // 号段分配独立提交，不随业务事务回滚，也不让业务事务持有号段行锁
+        this.requiresNewTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 获取序列的下一个值
+     * @param seqName 序列名
+     * @param blockSize 每次预留的号段大小
+     * @param initialValue 序列首次使用时的起始值（只在 id_sequence 中没有该序列时调用）
+     */
+    public long next(String seqName, int blockSize, LongSupplier initialValue) {
+        Sequence sequence = sequences.computeIfAbsent(seqName, name -> new Sequence(name, blockSize, initialValue));
+        while (true) {
+            Block block = sequence.current;
+            long value = block.cursor.getAndIncrement();
+            if (value < block.end) {
+                if (value == block.prefetchAt) {
+                    sequence.prefetch();
+                }
+                return value;
+            }
+            synchronized (sequence) {
+                if (sequence.current == block) {
+                    sequence.current = sequence.takeNextBlock();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    private Block fetchBlock(String seqName, int blockSize, LongSupplier initialValue) {
+        Long next = requiresNewTemplate.execute(status -> {
+            if (idSequenceMapper.advance(seqName, blockSize) == 0) {
+                idSequenceMapper.insertIfAbsent(seqName, initialValue.getAsLong());
+                idSequenceMapper.advance(seqName, blockSize);
+            }
+            return idSequenceMapper.findNextValue(seqName);
+        });
+        if (next == null) {
+            throw new RuntimeException("ID号段分配失败: " + seqName);
+        }
+        log.debug("分配ID号段: seq={}, range=[{}, {})", seqName, next - blockSize, next);
+        return new Block(next - blockSize, next,
+                blockSize >= MIN_PREFETCH_BLOCK_SIZE ? next - blockSize + blockSize * 4L / 5 : -1);
+    }
+
+    private class Sequence {
+        private final String name;
+        private final int blockSize;
+        private final LongSupplier initialValue;
+        private volatile Block current = new Block(0, 0, -1);
+        private CompletableFuture<Block> nextBlock;
+
+        private Sequence(String name, int blockSize, LongSupplier initialValue) {
+            this.name = name;
+            this.blockSize = blockSize;
+            this.initialValue = initialValue;
+        }
+
+        private synchronized void prefetch() {
+            if (nextBlock == null) {
+                nextBlock = CompletableFuture.supplyAsync(
+                        () -> fetchBlock(name, blockSize, initialValue), prefetchExecutor);
+            }
+        }
+
+        // 调用方已持有本对象的锁
+        private Block takeNextBlock() {
+            CompletableFuture<Block> pending = nextBlock;
+            nextBlock = null;
+            if (pending != null) {
+                try {
+                    return pending.join();
+                } catch (Exception e) {
+                    log.warn("预取ID号段失败，改为同步分配: seq={}, error={}", name, e.getMessage());
+                }
+            }
+            return fetchBlock(name, blockSize, initialValue);
+        }
+    }
+
+    private static class Block {
+        private final long end;
+        private final long prefetchAt;
+        private final AtomicLong cursor;
+
+        private Block(long start, long end, long prefetchAt) {
+            this.end = end;
+            this.prefetchAt = prefetchAt;
+            this.cursor = new AtomicLong(start);
+        }
+    }
+}
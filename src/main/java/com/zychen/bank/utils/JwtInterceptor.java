@@ -51,21 +51,18 @@ public class JwtInterceptor implements HandlerInterceptor {
 
         String token = authHeader.substring(7); // 去掉"Bearer "
 
-        // 验证token
-        if (!jwtUtil.validateToken(token)) {
+        // 验证token（只解析一次）
+        JwtPrincipal principal = jwtUtil.resolvePrincipal(token);
+        if (principal == null) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("{\"code\":401,\"message\":\"token无效或已过期\"}");
             return false;
         }
 
-        // 将用户信息放到request中，方便后续使用
-        String userId = jwtUtil.getUserIdFromToken(token);
-        Integer role = jwtUtil.getRoleFromToken(token);
+        // 登录身份放到request中，后续统一通过CurrentUser读取
+        request.setAttribute(CurrentUser.PRINCIPAL_ATTRIBUTE, principal);
 
-        request.setAttribute("userId", userId);
-        request.setAttribute("role", role);
-
-        log.debug("JWT验证通过: userId={}, role={}", userId, role);
+        log.debug("JWT验证通过: userId={}, role={}", principal.getUserId(), principal.getRole());
         return true;
     }
 }
\ No newline at end of file
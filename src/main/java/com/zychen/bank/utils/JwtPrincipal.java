@@ -0,0 +1,30 @@
+package com.zychen.bank.utils;
+
+/**
+ * 已验证token中解析出的登录身份（不可变）
+ */
+public final class JwtPrincipal {
+
+    private final String userId;
+    private final Integer role;
+    // token过期时间（毫秒时间戳）
+    private final long expiresAt;
+
+    public JwtPrincipal(String userId, Integer role, long expiresAt) {
+        this.userId = userId;
+        this.role = role;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Integer getRole() {
+        return role;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
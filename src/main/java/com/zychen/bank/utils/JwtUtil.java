@@ -2,9 +2,11 @@ package com.zychen.bank.utils;
 
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -13,6 +15,7 @@ import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 @Component
@@ -24,8 +27,25 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
-    private SecretKey getSecretKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @Value("${app.jwt-cache.max-size:10000}")
+    private int cacheMaxSize;
+
+    // 密钥和解析器只构建一次（JwtParser线程安全）
+    private SecretKey secretKey;
+    private JwtParser parser;
+
+    // 已验证token -> 登录身份，命中时跳过签名校验；条目在token过期后失效，超出容量时淘汰最久未使用的
+    private ExpiringLruCache<String, JwtPrincipal> principalCache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        secretKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build();
+        principalCache = new ExpiringLruCache<>(cacheMaxSize);
     }
 
     /**
@@ -41,7 +61,7 @@ public class JwtUtil {
                 .setSubject(userId)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSecretKey(), SignatureAlgorithm.HS256)
+                .signWith(secretKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -50,39 +70,62 @@ public class JwtUtil {
      */
     public Claims parseToken(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSecretKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (Exception e) {
             log.warn("JWT解析失败: {}", e.getMessage());
             return null;
         }
     }
 
+    /**
+     * 验证token并返回登录身份，token无效或已过期时返回null
+     * 同一token只做一次签名校验，之后从缓存返回
+     */
+    public JwtPrincipal resolvePrincipal(String token) {
+        if (token == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        JwtPrincipal principal = principalCache.get(token, now);
+        if (principal != null) {
+            hits.increment();
+            return principal;
+        }
+
+        misses.increment();
+        Claims claims = parseToken(token);
+        if (claims == null || claims.getExpiration() == null || claims.getExpiration().getTime() <= now) {
+            return null;
+        }
+
+        principal = new JwtPrincipal(claims.getSubject(), (Integer) claims.get("role"),
+                claims.getExpiration().getTime());
+        principalCache.put(token, principal, principal.getExpiresAt());
+        return principal;
+    }
+
     /**
      * 从token中获取用户ID
      */
     public String getUserIdFromToken(String token) {
-        Claims claims = parseToken(token);
-        return claims != null ? claims.getSubject() : null;
+        JwtPrincipal principal = resolvePrincipal(token);
+        return principal != null ? principal.getUserId() : null;
     }
 
     /**
      * 从token中获取用户角色
      */
     public Integer getRoleFromToken(String token) {
-        Claims claims = parseToken(token);
-        return claims != null ? (Integer) claims.get("role") : null;
+        JwtPrincipal principal = resolvePrincipal(token);
+        return principal != null ? principal.getRole() : null;
     }
 
     /**
      * 验证token是否过期
      */
     public boolean isTokenExpired(String token) {
-        Claims claims = parseToken(token);
-        return claims == null || claims.getExpiration().before(new Date());
+        return resolvePrincipal(token) == null;
     }
 
     /**
@@ -91,4 +134,18 @@ public class JwtUtil {
     public boolean validateToken(String token) {
         return !isTokenExpired(token);
     }
-}
\ No newline at end of file
+
+    public Map<String, Object> getCacheStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("size", principalCache.size());
+        result.put("maxSize", cacheMaxSize);
+        result.put("hits", hitCount);
+        result.put("misses", missCount);
+        result.put("evictions", principalCache.getEvictions());
+        result.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return result;
+    }
+}
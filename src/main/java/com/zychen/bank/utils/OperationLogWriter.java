@@ -0,0 +1,288 @@
+package com.zychen.bank.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zychen.bank.mapper.OperationLogMapper;
+import com.zychen.bank.model.OperationLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 操作日志异步批量写入
+ * 请求线程只把日志放入有界队列，后台单线程合并成多行INSERT写库：第一条日志到达后继续等待，
+ * 凑满batch-size条或距第一条到达满flush-interval-ms时写一批。
+ * 队列满时按溢出策略处理：SPILL写入本地文件（默认）、CALLER_RUNS由请求线程同步写库、DROP丢弃；
+ * 写库失败和停机时未写完的日志也会落到本地文件，下次启动时自动补写。
+ */
+@Slf4j
+@Component
+public class OperationLogWriter {
+
+    public enum OverflowPolicy {
+        SPILL, CALLER_RUNS, DROP
+    }
+
+    @Autowired
+    private OperationLogMapper operationLogMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.operation-log.async:true}")
+    private boolean async;
+
+    @Value("${app.operation-log.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.operation-log.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.operation-log.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${app.operation-log.overflow-policy:SPILL}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${app.operation-log.spill-file:logs/operation-log-spill.jsonl}")
+    private String spillFile;
+
+    private BlockingQueue<OperationLog> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+    private Path spillPath;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        spillPath = Paths.get(spillFile);
+        if (!async) {
+            log.info("操作日志写入模式: 同步");
+            return;
+        }
+
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::runWriter, "operation-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("操作日志写入模式: 异步批量, queueCapacity={}, batchSize={}, flushIntervalMs={}, overflowPolicy={}",
+                queueCapacity, batchSize, flushIntervalMs, overflowPolicy);
+    }
+
+    /**
+     * 提交一条操作日志
+     */
+    public void submit(OperationLog operationLog) {
+        if (!async) {
+            operationLogMapper.insert(operationLog);
+            written.increment();
+            return;
+        }
+
+        if (queue.offer(operationLog)) {
+            enqueued.increment();
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case CALLER_RUNS:
+                callerRuns.increment();
+                operationLogMapper.insert(operationLog);
+                written.increment();
+                break;
+            case DROP:
+                dropped.increment();
+                break;
+            default:
+                spill(Collections.singletonList(operationLog));
+                break;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!async) {
+            return;
+        }
+        // 不中断写线程，避免打断正在执行的数据库写入；最多等待一个刷新周期加正在写的批次
+        running = false;
+        try {
+            writerThread.join(flushIntervalMs + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // 写线程退出后队列中剩余的日志直接落盘，不在停机过程中访问数据库
+        List<OperationLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            spill(remaining);
+            log.info("停机时操作日志落盘: {}条", remaining.size());
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("async", async);
+        result.put("queueDepth", queue != null ? queue.size() : 0);
+        result.put("queueCapacity", queueCapacity);
+        result.put("overflowPolicy", overflowPolicy.name());
+        result.put("enqueued", enqueued.sum());
+        result.put("written", written.sum());
+        result.put("batches", batches.sum());
+        result.put("dropped", dropped.sum());
+        result.put("spilled", spilled.sum());
+        result.put("callerRuns", callerRuns.sum());
+        result.put("replayed", replayed.sum());
+        result.put("writeFailures", writeFailures.sum());
+        return result;
+    }
+
+    private void runWriter() {
+        replaySpillFile();
+
+        List<OperationLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                OperationLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch, System.currentTimeMillis() + flushIntervalMs);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // 收集中被中断，已取出的日志落盘
+                if (!batch.isEmpty()) {
+                    spill(batch);
+                }
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // 第一条到达后继续收集，直到凑满一批或距第一条到达满一个刷新间隔；停机时不再等待
+    private void fillBatch(List<OperationLog> batch, long deadline) throws InterruptedException {
+        while (true) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.currentTimeMillis();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            OperationLog next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void writeBatch(List<OperationLog> batch) {
+        try {
+            operationLogMapper.insertBatch(batch);
+            written.add(batch.size());
+            batches.increment();
+        } catch (Exception e) {
+            writeFailures.increment();
+            log.error("批量写入操作日志失败，转存本地文件: size={}, error={}", batch.size(), e.getMessage());
+            spill(batch);
+        }
+    }
+
+    // 追加写入本地文件（每行一条JSON），写完强制刷盘
+    private synchronized void spill(List<OperationLog> logs) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (OperationLog operationLog : logs) {
+                sb.append(objectMapper.writeValueAsString(operationLog)).append('\n');
+            }
+            if (spillPath.getParent() != null) {
+                Files.createDirectories(spillPath.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(spillPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8)));
+                channel.force(false);
+            }
+            spilled.add(logs.size());
+        } catch (IOException e) {
+            dropped.add(logs.size());
+            log.error("操作日志落盘失败，丢弃{}条: {}", logs.size(), e.getMessage());
+        }
+    }
+
+    // 启动时补写上次落盘的日志：先改名再读取，补写期间新的溢出日志写入新文件
+    private void replaySpillFile() {
+        Path replayPath = spillPath.resolveSibling(spillPath.getFileName() + ".replaying");
+        try {
+            if (!Files.exists(replayPath)) {
+                if (!Files.exists(spillPath)) {
+                    return;
+                }
+                synchronized (this) {
+                    Files.move(spillPath, replayPath, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+
+            List<OperationLog> batch = new ArrayList<>(batchSize);
+            long count = 0;
+            try (BufferedReader reader = Files.newBufferedReader(replayPath, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    batch.add(objectMapper.readValue(line, OperationLog.class));
+                    if (batch.size() >= batchSize) {
+                        operationLogMapper.insertBatch(batch);
+                        count += batch.size();
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                operationLogMapper.insertBatch(batch);
+                count += batch.size();
+            }
+            Files.delete(replayPath);
+            replayed.add(count);
+            log.info("补写落盘的操作日志: {}条", count);
+        } catch (Exception e) {
+            // 保留文件，下次启动再补写（部分已写入的日志会重复）
+            log.error("补写落盘的操作日志失败: {}", e.getMessage());
+        }
+    }
+}
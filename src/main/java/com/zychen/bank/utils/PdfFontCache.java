@@ -0,0 +1,105 @@
+package com.zychen.bank.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeCollection;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PDF导出用的中文字体缓存
+ * 字体文件（TTC常有十几MB）在进程内只查找、解析一次，各文档共享同一个只读的TrueTypeFont，
+ * 每个文档只嵌入实际用到的字形子集。PDFBox对字体表、字形的读取做了同步，可以多线程并发使用。
+ * 字体从内存解析：PDFBox子集嵌入完成后会close字体，基于文件的字体会被关掉，内存中的不受影响。
+ */
+@Slf4j
+@Component
+public class PdfFontCache {
+
+    private static final String[] DEFAULT_FONT_PATHS = {
+            "C:/Windows/Fonts/simhei.ttf",           // Windows 黑体
+            "C:/Windows/Fonts/simsun.ttc",           // Windows 宋体
+            "C:/Windows/Fonts/msyh.ttc",             // Windows 微软雅黑
+            "/System/Library/Fonts/PingFang.ttc",    // Mac 苹方
+            "/System/Library/Fonts/STHeiti Light.ttc", // Mac 黑体
+            "/usr/share/fonts/truetype/wqy/wqy-microhei.ttc" // Linux 文泉驿
+    };
+
+    // 优先使用的字体文件，为空时按DEFAULT_FONT_PATHS查找系统字体
+    @Value("${app.pdf.font-path:}")
+    private String fontPath;
+
+    private volatile boolean loaded;
+    private TrueTypeFont font;
+
+    /**
+     * 为文档创建中文字体（子集嵌入），未找到可用字体时返回null
+     */
+    public PDFont loadFont(PDDocument document) throws IOException {
+        TrueTypeFont ttf = getFont();
+        return ttf != null ? PDType0Font.load(document, ttf, true) : null;
+    }
+
+    private TrueTypeFont getFont() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    font = parseFont();
+                    loaded = true;
+                }
+            }
+        }
+        return font;
+    }
+
+    private TrueTypeFont parseFont() {
+        List<String> candidates = new ArrayList<>();
+        if (fontPath != null && !fontPath.isBlank()) {
+            candidates.add(fontPath.trim());
+        }
+        candidates.addAll(List.of(DEFAULT_FONT_PATHS));
+
+        for (String path : candidates) {
+            File file = new File(path);
+            if (!file.exists()) {
+                continue;
+            }
+            try {
+                byte[] data = Files.readAllBytes(file.toPath());
+                TrueTypeFont ttf;
+                if (path.toLowerCase().endsWith(".ttc")) {
+                    TrueTypeCollection collection = new TrueTypeCollection(new ByteArrayInputStream(data));
+                    TrueTypeFont[] first = new TrueTypeFont[1];
+                    collection.processAllFonts(f -> {
+                        if (first[0] == null) {
+                            first[0] = f;
+                        }
+                    });
+                    if (first[0] == null) {
+                        continue;
+                    }
+                    ttf = first[0];
+                } else {
+                    ttf = new TTFParser().parse(new ByteArrayInputStream(data));
+                }
+                log.info("PDF字体加载完成: {} ({}, {}KB)", path, ttf.getName(), data.length / 1024);
+                return ttf;
+            } catch (IOException e) {
+                log.error("PDF字体加载失败: {}", path, e);
+            }
+        }
+        log.warn("未找到系统字体，使用默认英文字体（中文将显示为方块）");
+        return null;
+    }
+}
@@ -0,0 +1,251 @@
+package com.zychen.bank.utils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.zychen.bank.dto.ReportResponseDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 已生成报告的缓存，供下载时按报告ID取回
+ * 内存层：按条数限制的LRU，超过有效期的条目在访问和定时清理时移除。
+ * 磁盘层（可选，配置app.report-cache.spill-dir后启用）：报告生成时同时写成JSON文件，
+ * 内存中被淘汰或服务重启后，下载时从磁盘读回，不必重新生成；过期文件由定时清理删除。
+ */
+@Slf4j
+@Component
+public class ReportCache {
+
+    // 报告ID只含字母数字，防止拼接文件路径时越出缓存目录
+    private static final Pattern REPORT_ID = Pattern.compile("[A-Za-z0-9]{1,64}");
+    private static final String FILE_SUFFIX = ".json";
+
+    @Value("${app.report-cache.max-size:200}")
+    private int maxSize;
+
+    @Value("${app.report-cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    // 为空时不落盘
+    @Value("${app.report-cache.spill-dir:}")
+    private String spillDir;
+
+    @Value("${app.report-cache.cleanup-interval-minutes:5}")
+    private long cleanupIntervalMinutes;
+
+    // 只用于落盘，不受接口层日期格式配置影响
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    // accessOrder=true，超出容量时淘汰最久未访问的
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private Path spillPath;
+    private ScheduledExecutorService cleaner;
+
+    @PostConstruct
+    public void init() {
+        if (spillDir != null && !spillDir.isBlank()) {
+            spillPath = Paths.get(spillDir);
+            try {
+                Files.createDirectories(spillPath);
+            } catch (IOException e) {
+                log.error("报告缓存目录创建失败，不启用磁盘缓存: {}", spillPath, e);
+                spillPath = null;
+            }
+        }
+        cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "report-cache-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::removeExpired, 0, cleanupIntervalMinutes, TimeUnit.MINUTES);
+        log.info("报告缓存初始化完成: maxSize={}, ttl={}分钟, 磁盘目录={}", maxSize, ttlMinutes,
+                spillPath != null ? spillPath.toAbsolutePath() : "未启用");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+    }
+
+    public void put(ReportResponseDTO report) {
+        long expiresAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+        synchronized (cache) {
+            cache.put(report.getReportId(), new Entry(report, expiresAt));
+        }
+        writeToDisk(report);
+    }
+
+    /**
+     * 取报告，不存在或已过期返回null
+     */
+    public ReportResponseDTO get(String reportId) {
+        if (reportId == null || !REPORT_ID.matcher(reportId).matches()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            Entry entry = cache.get(reportId);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    memoryHits.incrementAndGet();
+                    return entry.report;
+                }
+                cache.remove(reportId);
+            }
+        }
+
+        Entry entry = readFromDisk(reportId, now);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        synchronized (cache) {
+            cache.put(reportId, entry);
+        }
+        return entry.report;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new HashMap<>();
+        synchronized (cache) {
+            result.put("size", cache.size());
+        }
+        result.put("maxSize", maxSize);
+        result.put("memoryHits", memoryHits.get());
+        result.put("diskHits", diskHits.get());
+        result.put("misses", misses.get());
+        result.put("evictions", evictions.get());
+        result.put("diskEnabled", spillPath != null);
+        return result;
+    }
+
+    /**
+     * 清理内存和磁盘中的过期报告
+     */
+    public void removeExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            Iterator<Entry> it = cache.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().expiresAt <= now) {
+                    it.remove();
+                }
+            }
+        }
+        if (spillPath == null) {
+            return;
+        }
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spillPath, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    if (expiresAt(file) <= now && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    // 文件可能已被读取方删除，跳过
+                }
+            }
+        } catch (IOException e) {
+            log.warn("清理过期报告文件失败: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("清理过期报告文件: {} 个", deleted);
+        }
+    }
+
+    private void writeToDisk(ReportResponseDTO report) {
+        if (spillPath == null) {
+            return;
+        }
+        Path target = spillPath.resolve(report.getReportId() + FILE_SUFFIX);
+        Path temp = spillPath.resolve(report.getReportId() + FILE_SUFFIX + ".tmp");
+        try {
+            // 先写临时文件再改名，读取方不会看到写了一半的文件
+            objectMapper.writeValue(temp.toFile(), report);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("报告写入磁盘缓存失败，仅保留在内存中: reportId={}, {}", report.getReportId(), e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件不会被读取，删除失败可忽略
+            }
+        }
+    }
+
+    private Entry readFromDisk(String reportId, long now) {
+        if (spillPath == null) {
+            return null;
+        }
+        Path file = spillPath.resolve(reportId + FILE_SUFFIX);
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            // 有效期按文件写入时间计算，与内存层一致
+            long expiresAt = expiresAt(file);
+            if (expiresAt <= now) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            return new Entry(objectMapper.readValue(file.toFile(), ReportResponseDTO.class), expiresAt);
+        } catch (IOException e) {
+            log.warn("读取磁盘缓存报告失败: reportId={}, {}", reportId, e.getMessage());
+            return null;
+        }
+    }
+
+    private long expiresAt(Path file) throws IOException {
+        return Files.getLastModifiedTime(file).toMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    private static class Entry {
+        private final ReportResponseDTO report;
+        private final long expiresAt;
+
+        private Entry(ReportResponseDTO report, long expiresAt) {
+            this.report = report;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
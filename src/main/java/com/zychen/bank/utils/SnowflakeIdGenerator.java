@@ -0,0 +1,78 @@
+package com.zychen.bank.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法ID生成器（无锁、不访问数据库）
+ * 64位ID = 41位毫秒时间戳（自定义纪元起） + 10位节点号 + 12位毫秒内序号。
+ * 状态只有一个AtomicLong（时间戳和序号拼在一起），用CAS推进：
+ * 同一毫秒内序号+1，序号用完或时钟回拨时借用下一毫秒，保证单调递增。
+ */
+public class SnowflakeIdGenerator {
+
+    // 2024-01-01 00:00:00 UTC
+    public static final long EPOCH = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // ID转成十进制最多19位
+    private static final int ID_DIGITS = 19;
+
+    private final long nodeId;
+    // 高位为(毫秒时间戳 - EPOCH)，低12位为序号
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点号必须在0到" + MAX_NODE_ID + "之间: " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 生成下一个ID
+     */
+    public long nextId() {
+        long current;
+        long next;
+        do {
+            current = state.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+            // 进入新的毫秒则序号归零，否则在当前值上+1（序号溢出时自然进位到下一毫秒）
+            next = Math.max(now, current + 1);
+        } while (!state.compareAndSet(current, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * 生成带前缀的编号：前缀 + 19位定长数字
+     */
+    public String nextNo(String prefix) {
+        long id = nextId();
+        int prefixLength = prefix.length();
+        char[] chars = new char[prefixLength + ID_DIGITS];
+        prefix.getChars(0, prefixLength, chars, 0);
+        for (int i = chars.length - 1; i >= prefixLength; i--) {
+            chars[i] = (char) ('0' + (id % 10));
+            id /= 10;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 从ID中解析出生成时间（毫秒时间戳）
+     */
+    public static long extractTimestamp(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+}
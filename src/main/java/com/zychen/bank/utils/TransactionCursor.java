@@ -0,0 +1,62 @@
+package com.zychen.bank.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 交易记录游标分页的位置（trans_time, trans_id）
+ * 列表按 trans_time DESC, trans_id DESC 排序，下一页从游标之后继续取，
+ * 不再使用 LIMIT offset，翻页深度不影响查询代价。对外是不透明的Base64字符串。
+ */
+public final class TransactionCursor {
+
+    private final LocalDateTime transTime;
+    private final long transId;
+
+    public TransactionCursor(LocalDateTime transTime, long transId) {
+        this.transTime = transTime;
+        this.transId = transId;
+    }
+
+    public LocalDateTime getTransTime() {
+        return transTime;
+    }
+
+    public long getTransId() {
+        return transId;
+    }
+
+    public String encode() {
+        String raw = transTime + "|" + transId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，为空返回null，格式不对抛出异常
+     */
+    public static TransactionCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new TransactionCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("分页游标无效");
+        }
+    }
+
+    /**
+     * 由查询结果行（Map）构造游标，兼容驱动返回的Timestamp/LocalDateTime
+     */
+    public static TransactionCursor of(Object transTime, Object transId) {
+        LocalDateTime time = transTime instanceof Timestamp
+                ? ((Timestamp) transTime).toLocalDateTime()
+                : (LocalDateTime) transTime;
+        return new TransactionCursor(time, ((Number) transId).longValue());
+    }
+}
@@ -0,0 +1,123 @@
+package com.zychen.bank.utils;
+
+import com.zychen.bank.mapper.OperationLogMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户展示名（用户名 + 真实姓名）LRU缓存
+ * 日志列表等页面按页批量取名字：先查缓存，未命中的用户ID合并成一次IN查询。
+ * 不存在的用户也会缓存，避免重复查询；用户修改姓名时调用invalidate。
+ */
+@Component
+public class UserDisplayNameCache {
+
+    @Autowired
+    private OperationLogMapper operationLogMapper;
+
+    @Value("${app.user-display-name-cache.max-size:1000}")
+    private int maxSize;
+
+    @Value("${app.user-display-name-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private ExpiringLruCache<String, DisplayName> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        cache = new ExpiringLruCache<>(maxSize);
+    }
+
+    /**
+     * 批量获取用户展示名，返回 userId -> DisplayName（不存在的用户字段为null）
+     */
+    public Map<String, DisplayName> getAll(Collection<String> userIds) {
+        Map<String, DisplayName> result = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+
+        for (String userId : userIds) {
+            if (userId == null || result.containsKey(userId) || missing.contains(userId)) {
+                continue;
+            }
+            DisplayName name = cache.get(userId, now);
+            if (name != null) {
+                hits.increment();
+                result.put(userId, name);
+            } else {
+                misses.increment();
+                missing.add(userId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<Map<String, Object>> rows = operationLogMapper.findUserDisplayNames(missing);
+            Map<String, DisplayName> loaded = new HashMap<>();
+            for (Map<String, Object> row : rows) {
+                String userId = (String) row.get("userId");
+                loaded.put(userId, new DisplayName((String) row.get("username"), (String) row.get("realName")));
+            }
+            for (String userId : missing) {
+                loaded.putIfAbsent(userId, new DisplayName(null, null));
+            }
+            long expiresAt = now + ttlSeconds * 1000;
+            loaded.forEach((userId, name) -> cache.put(userId, name, expiresAt));
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    public void invalidate(String userId) {
+        if (userId != null && cache.remove(userId)) {
+            invalidations.increment();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("size", cache.size());
+        result.put("maxSize", maxSize);
+        result.put("ttlSeconds", ttlSeconds);
+        result.put("hits", hitCount);
+        result.put("misses", missCount);
+        result.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        result.put("invalidations", invalidations.sum());
+        result.put("evictions", cache.getEvictions());
+        return result;
+    }
+
+    public static class DisplayName {
+        private final String username;
+        private final String realName;
+
+        private DisplayName(String username, String realName) {
+            this.username = username;
+            this.realName = realName;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getRealName() {
+            return realName;
+        }
+    }
+}
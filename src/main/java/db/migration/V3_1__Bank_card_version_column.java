@@ -0,0 +1,36 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * bank_card 增加余额版本号列（BankCardMapper.updateBalanceByDelta 每次余额变动+1）
+ * 已有库可能已经手工加过该列，先查列是否存在（JDBC元数据，MySQL上即 information_schema.columns），存在则跳过。
+ */
+public class V3_1__Bank_card_version_column extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        if (columnExists(connection, "bank_card", "version")) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE bank_card ADD COLUMN version BIGINT NOT NULL DEFAULT 0 "
+                    + "COMMENT '余额版本号，每次余额变动+1'");
+        }
+    }
+
+    static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getColumns(connection.getCatalog(), connection.getSchema(), table, column)) {
+            return rs.next();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+-- 用户、交易流水、操作日志表（只含主键和唯一约束，查询索引见后续版本）
+
+CREATE TABLE IF NOT EXISTS `user` (
+    user_id         VARCHAR(20)  NOT NULL COMMENT '用户ID',
+    username        VARCHAR(50)  NOT NULL COMMENT '用户名',
+    phone           VARCHAR(20)  NOT NULL COMMENT '手机号',
+    password        VARCHAR(100) NOT NULL COMMENT '登录密码（BCrypt）',
+    role            TINYINT      NOT NULL DEFAULT 0 COMMENT '0=用户，1=管理员',
+    account_status  TINYINT      NOT NULL DEFAULT 0 COMMENT '0=正常，1=冻结',
+    created_time    DATETIME     NOT NULL,
+    last_login_time DATETIME     NULL,
+    PRIMARY KEY (user_id),
+    UNIQUE KEY uk_user_username (username),
+    UNIQUE KEY uk_user_phone (phone)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '用户';
+
+CREATE TABLE IF NOT EXISTS user_info (
+    id           BIGINT       NOT NULL AUTO_INCREMENT,
+    user_id      VARCHAR(20)  NOT NULL,
+    name         VARCHAR(50)  NULL COMMENT '真实姓名',
+    id_number    VARCHAR(18)  NULL COMMENT '身份证号',
+    gender       TINYINT      NULL COMMENT '0=女，1=男',
+    birth_date   DATE         NULL,
+    email        VARCHAR(100) NULL,
+    address      VARCHAR(255) NULL,
+    updated_time DATETIME     NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_user_info_user_id (user_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '用户详细信息';
+
+CREATE TABLE IF NOT EXISTS `transaction` (
+    trans_id       BIGINT        NOT NULL AUTO_INCREMENT,
+    trans_no       VARCHAR(32)   NOT NULL COMMENT '交易流水号',
+    card_id        VARCHAR(20)   NOT NULL,
+    user_id        VARCHAR(20)   NOT NULL,
+    trans_type     VARCHAR(20)   NOT NULL COMMENT 'DEPOSIT/WITHDRAW/TRANSFER/INTEREST',
+    trans_subtype  VARCHAR(30)   NULL,
+    amount         DECIMAL(15,2) NOT NULL,
+    balance_before DECIMAL(15,2) NULL,
+    balance_after  DECIMAL(15,2) NULL,
+    fee            DECIMAL(15,2) NULL DEFAULT 0.00,
+    currency       VARCHAR(10)   NULL DEFAULT 'CNY',
+    status         TINYINT       NULL DEFAULT 1 COMMENT '1=成功，0=失败，2=处理中',
+    remark         VARCHAR(255)  NULL,
+    operator_id    VARCHAR(20)   NULL,
+    operator_type  VARCHAR(10)   NULL COMMENT 'USER/ADMIN',
+    trans_time     DATETIME      NOT NULL,
+    completed_time DATETIME      NULL,
+    ip_address     VARCHAR(50)   NULL,
+    device_info    VARCHAR(255)  NULL,
+    PRIMARY KEY (trans_id),
+    UNIQUE KEY uk_transaction_trans_no (trans_no)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '交易流水';
+
+CREATE TABLE IF NOT EXISTS operation_log (
+    log_id           BIGINT       NOT NULL AUTO_INCREMENT,
+    user_id          VARCHAR(20)  NULL,
+    user_role        TINYINT      NULL,
+    module           VARCHAR(20)  NULL COMMENT 'AUTH/CARD/TRANSACTION/SECURITY...',
+    operation_type   VARCHAR(50)  NULL,
+    operation_detail VARCHAR(500) NULL,
+    target_type      VARCHAR(20)  NULL,
+    target_id        VARCHAR(50)  NULL,
+    ip_address       VARCHAR(50)  NULL,
+    user_agent       VARCHAR(500) NULL,
+    status           TINYINT      NULL COMMENT '1=成功，0=失败',
+    error_message    VARCHAR(500) NULL,
+    execution_time   INT          NULL COMMENT '毫秒',
+    created_time     DATETIME     NOT NULL,
+    PRIMARY KEY (log_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '操作日志';
@@ -0,0 +1,17 @@
+-- 时间范围查询统一写成 col >= start AND col < end（见 DateRange），
+-- 组合索引按"等值列在前、时间列在后"建立，范围条件可以直接做索引范围扫描。
+
+-- 用户交易列表/报表：user_id = ? AND trans_time 范围，按 trans_time, trans_id 倒序（游标分页）
+CREATE INDEX idx_transaction_user_time ON `transaction` (user_id, trans_time, trans_id);
+-- 今日成功交易数/收入：status = 1 AND trans_time 范围
+CREATE INDEX idx_transaction_status_time ON `transaction` (status, trans_time);
+-- 管理员按日期区间查询、每日统计
+CREATE INDEX idx_transaction_time ON `transaction` (trans_time);
+
+-- 今日新增用户
+CREATE INDEX idx_user_created_time ON `user` (created_time);
+
+-- 操作日志按时间区间筛选、倒序分页
+CREATE INDEX idx_operation_log_created_time ON operation_log (created_time);
+-- 按操作人筛选
+CREATE INDEX idx_operation_log_user_time ON operation_log (user_id, created_time);
@@ -0,0 +1,74 @@
+-- 银行卡、定期存款、冻结记录、利率配置、ID号段表（只含主键和唯一约束，查询索引见 V4）
+
+CREATE TABLE IF NOT EXISTS bank_card (
+    card_id               VARCHAR(20)   NOT NULL COMMENT '银行卡号',
+    user_id               VARCHAR(20)   NOT NULL,
+    card_password         VARCHAR(100)  NOT NULL COMMENT '交易密码（BCrypt）',
+    balance               DECIMAL(15,2) NOT NULL DEFAULT 0.00,
+    available_balance     DECIMAL(15,2) NOT NULL DEFAULT 0.00,
+    frozen_amount         DECIMAL(15,2) NOT NULL DEFAULT 0.00,
+    card_type             TINYINT       NULL DEFAULT 0 COMMENT '0=储蓄卡，1=信用卡',
+    status                TINYINT       NOT NULL DEFAULT 0 COMMENT '0=正常，1=挂失，2=冻结，3=已注销',
+    bind_time             DATETIME      NULL,
+    last_transaction_time DATETIME      NULL,
+    daily_limit           DECIMAL(15,2) NULL,
+    monthly_limit         DECIMAL(15,2) NULL,
+    PRIMARY KEY (card_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '银行卡';
+
+CREATE TABLE IF NOT EXISTS fixed_deposit (
+    fd_id        INT           NOT NULL AUTO_INCREMENT,
+    fd_no        VARCHAR(32)   NULL COMMENT '定期存单号',
+    card_id      VARCHAR(20)   NOT NULL,
+    user_id      VARCHAR(20)   NOT NULL,
+    principal    DECIMAL(15,2) NOT NULL,
+    annual_rate  DECIMAL(8,6)  NOT NULL COMMENT '年利率，如0.0150',
+    term_months  INT           NOT NULL,
+    start_date   DATE          NOT NULL,
+    end_date     DATE          NOT NULL,
+    auto_renew   TINYINT(1)    NULL DEFAULT 0,
+    status       TINYINT       NOT NULL DEFAULT 0 COMMENT '0=存续中，1=已到期，2=已支取',
+    created_time DATETIME      NOT NULL,
+    PRIMARY KEY (fd_id),
+    UNIQUE KEY uk_fixed_deposit_fd_no (fd_no)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '定期存款';
+
+CREATE TABLE IF NOT EXISTS freeze_record (
+    record_id             BIGINT       NOT NULL AUTO_INCREMENT,
+    freeze_no             VARCHAR(32)  NOT NULL COMMENT '冻结编号',
+    freeze_type           TINYINT      NOT NULL COMMENT '1=银行卡冻结，2=账户冻结',
+    freeze_level          TINYINT      NOT NULL COMMENT '1=用户申请，2=管理员操作，3=系统风控',
+    target_id             VARCHAR(20)  NULL COMMENT 'user_id或card_id',
+    user_id               VARCHAR(20)  NULL,
+    card_id               VARCHAR(20)  NULL,
+    reason_type           VARCHAR(30)  NULL,
+    reason_detail         VARCHAR(500) NULL,
+    freeze_time           DATETIME     NOT NULL,
+    unfreeze_time         DATETIME     NULL,
+    planned_unfreeze_time DATETIME     NULL,
+    operator_id           VARCHAR(20)  NULL,
+    operator_role         TINYINT      NULL,
+    status                TINYINT      NOT NULL DEFAULT 1 COMMENT '1=冻结中，0=已解冻，2=已过期',
+    PRIMARY KEY (record_id),
+    UNIQUE KEY uk_freeze_record_freeze_no (freeze_no)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '冻结/挂失记录';
+
+CREATE TABLE IF NOT EXISTS interest_rate_config (
+    rate_id        BIGINT        NOT NULL AUTO_INCREMENT,
+    account_type   VARCHAR(20)   NOT NULL COMMENT 'CURRENT=活期，FIXED_3M=定期3月...',
+    term_months    INT           NOT NULL DEFAULT 0 COMMENT '期限（月），活期为0',
+    annual_rate    DECIMAL(8,6)  NOT NULL COMMENT '年利率，如0.0035',
+    daily_rate     DECIMAL(12,10) GENERATED ALWAYS AS (annual_rate / 360) COMMENT '日利率',
+    effective_date DATE          NOT NULL,
+    is_active      TINYINT(1)    NOT NULL DEFAULT 1,
+    created_by     VARCHAR(20)   NULL,
+    created_time   DATETIME      NULL,
+    PRIMARY KEY (rate_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '利率配置';
+
+CREATE TABLE IF NOT EXISTS id_sequence (
+    seq_name     VARCHAR(50) NOT NULL COMMENT '序列名，如user_id、admin_id',
+    next_value   BIGINT      NOT NULL COMMENT '下一个未分配的号段起点',
+    updated_time DATETIME    NULL,
+    PRIMARY KEY (seq_name)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = 'ID号段分配';
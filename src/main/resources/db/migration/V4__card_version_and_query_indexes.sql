@@ -0,0 +1,33 @@
+-- 以下索引按各Mapper的实际查询条件建立
+-- （bank_card.version 列由 V3_1__Bank_card_version_column 按列是否存在决定是否添加）
+
+-- BankCardMapper.findByUserId：user_id = ? AND status != 3 ORDER BY bind_time DESC
+CREATE INDEX idx_bank_card_user_bind_time ON bank_card (user_id, bind_time);
+-- countCardsByStatus / getTotalBalance / 管理员按状态筛选
+CREATE INDEX idx_bank_card_status ON bank_card (status);
+
+-- FixedDepositMapper.findByUserId / findByCardId：按创建时间倒序
+CREATE INDEX idx_fixed_deposit_user_created ON fixed_deposit (user_id, created_time);
+CREATE INDEX idx_fixed_deposit_card_created ON fixed_deposit (card_id, created_time);
+-- countByStatus / getTotalFixedDepositAmount
+CREATE INDEX idx_fixed_deposit_status ON fixed_deposit (status);
+
+-- FreezeRecordMapper.findActiveFreezeByCardId / findActiveByCardId：card_id = ? AND status = 1
+CREATE INDEX idx_freeze_record_card_status ON freeze_record (card_id, status);
+-- findByUserId 按冻结时间倒序；findActiveByUserId 用 user_id 前缀
+CREATE INDEX idx_freeze_record_user_time ON freeze_record (user_id, freeze_time);
+
+-- InterestRateMapper.findCurrentRateByType：account_type = ? AND is_active = 1 ORDER BY effective_date DESC
+CREATE INDEX idx_interest_rate_type_active ON interest_rate_config (account_type, is_active, effective_date);
+-- findFixedRateByTerm：term_months = ? AND is_active = 1
+CREATE INDEX idx_interest_rate_term_active ON interest_rate_config (term_months, is_active, effective_date);
+
+-- UserInfoMapper.findByIdNumber（身份证号可能为空串，不能建唯一索引）
+CREATE INDEX idx_user_info_id_number ON user_info (id_number);
+
+-- TransactionMapper：指定卡号的交易列表、报表期初余额都是 user_id = ? AND card_id = ? AND trans_time 范围，
+-- 没有只按卡号查交易的语句，所以不单独建 (card_id, trans_time)
+CREATE INDEX idx_transaction_user_card_time ON `transaction` (user_id, card_id, trans_time);
+
+-- OperationLogMapper.findLogs：按目标对象筛选
+CREATE INDEX idx_operation_log_target ON operation_log (target_type, target_id, created_time);
@@ -0,0 +1,94 @@
+package com.zychen.bank.aspect;
+
+import com.zychen.bank.service.OperationLogService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class OperationLogAspectTests {
+
+    private OperationLogService operationLogService;
+    private OperationLogAspect aspect;
+    private SampleController controller;
+
+    @BeforeEach
+    void setUp() {
+        operationLogService = mock(OperationLogService.class);
+        aspect = new OperationLogAspect();
+        ReflectionTestUtils.setField(aspect, "operationLogService", operationLogService);
+        aspect.setDisabledModules(new String[0]);
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new SampleController());
+        factory.addAspect(aspect);
+        controller = factory.getProxy();
+    }
+
+    @Test
+    void successfulResponseIsLoggedWithEvaluatedDetail() {
+        controller.deposit("622848001234", 200);
+
+        verify(operationLogService).logOperation(isNull(), isNull(), eq("TRANSACTION"), eq("DEPOSIT"),
+                eq("存款成功，卡号：622848001234"), eq("CARD"), eq("622848001234"),
+                isNull(), isNull(), eq(1), isNull(), anyInt());
+    }
+
+    @Test
+    void errorResponseIsLoggedAsFailureWithMessage() {
+        controller.deposit("622848001234", 400);
+
+        verify(operationLogService).logOperation(isNull(), isNull(), eq("TRANSACTION"), eq("DEPOSIT"),
+                eq("存款失败：余额不足，卡号：622848001234"), eq("CARD"), eq("622848001234"),
+                isNull(), isNull(), eq(0), eq("余额不足"), anyInt());
+    }
+
+    @Test
+    void disabledModuleSkipsLogging() {
+        aspect.setDisabledModules(new String[]{"TRANSACTION"});
+
+        controller.deposit("622848001234", 200);
+
+        verifyNoInteractions(operationLogService);
+    }
+
+    @Test
+    void templatedTypeIsEvaluated() {
+        controller.freeze("unfreeze");
+
+        verify(operationLogService).logOperation(any(), any(), eq("SECURITY"), eq("ADMIN_UNFREEZE"),
+                eq("管理员解冻成功"), isNull(), isNull(), any(), any(), eq(1), isNull(), anyInt());
+        verify(operationLogService, never()).logOperation(any(), any(), any(), eq("ADMIN_FREEZE"),
+                any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    static class SampleController {
+
+        @LogOperation(module = "TRANSACTION", type = "DEPOSIT", action = "存款",
+                detail = "卡号：#{#cardId}", targetType = "CARD", targetId = "#cardId")
+        public ResponseEntity<Map<String, Object>> deposit(String cardId, int code) {
+            if (code == 200) {
+                return ResponseEntity.ok(Map.of("code", 200, "message", "存款成功"));
+            }
+            return ResponseEntity.badRequest().body(Map.of("code", 400, "message", "余额不足"));
+        }
+
+        @LogOperation(module = "SECURITY",
+                type = "#{#operation == 'freeze' ? 'ADMIN_FREEZE' : 'ADMIN_UNFREEZE'}",
+                action = "管理员#{#operation == 'freeze' ? '冻结' : '解冻'}")
+        public ResponseEntity<Map<String, Object>> freeze(String operation) {
+            return ResponseEntity.ok(Map.of("code", 200));
+        }
+    }
+}
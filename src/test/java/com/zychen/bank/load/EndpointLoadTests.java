@@ -0,0 +1,150 @@
+package com.zychen.bank.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zychen.bank.support.TestDataSeeder;
+import com.zychen.bank.utils.JwtUtil;
+import com.zychen.bank.utils.PasswordUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 接口压测：在内嵌H2上生成测试数据，启动真实的Web服务，按配置的并发数压测核心接口
+ * 默认不执行，运行方式：
+ * mvn test -Dtest=EndpointLoadTests -Dload.enabled=true -Dload.concurrency=32 -Dload.requests=5000
+ * 可选参数：load.users（用户数）、load.cards-per-user、load.transactions-per-card
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+class EndpointLoadTests {
+
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 16);
+    private static final int REQUESTS = Integer.getInteger("load.requests", 2000);
+    private static final int USERS = Integer.getInteger("load.users", 200);
+    private static final int CARDS_PER_USER = Integer.getInteger("load.cards-per-user", 2);
+    private static final int TRANSACTIONS_PER_CARD = Integer.getInteger("load.transactions-per-card", 100);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordUtil passwordUtil;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, String> userTokens = new HashMap<>();
+    private TestDataSeeder.SeedData data;
+    private LoadTestHarness harness;
+    private String adminToken;
+
+    @BeforeAll
+    void seed() {
+        long start = System.currentTimeMillis();
+        data = new TestDataSeeder(jdbcTemplate, passwordUtil).seed(USERS, CARDS_PER_USER, TRANSACTIONS_PER_CARD);
+        log.info("测试数据生成完成: users={}, cards={}, transactions={}, 耗时{}ms",
+                data.getUserIds().size(), data.getCardIds().size(), data.getTransactionCount(),
+                System.currentTimeMillis() - start);
+
+        for (String userId : data.getUserIds()) {
+            userTokens.put(userId, jwtUtil.generateToken(userId, 0));
+        }
+        adminToken = jwtUtil.generateToken(TestDataSeeder.ADMIN_ID, 1);
+        harness = new LoadTestHarness(dataSource);
+    }
+
+    @Test
+    void deposit() throws Exception {
+        report(harness.run("POST /transactions/deposit", CONCURRENCY, REQUESTS, i -> {
+            String cardId = card(i);
+            return post("/transactions/deposit", tokenOf(cardId),
+                    Map.of("cardId", cardId, "amount", "10.00", "cardPassword", TestDataSeeder.CARD_PASSWORD));
+        }));
+    }
+
+    @Test
+    void withdraw() throws Exception {
+        report(harness.run("POST /transactions/withdraw", CONCURRENCY, REQUESTS, i -> {
+            String cardId = card(i);
+            return post("/transactions/withdraw", tokenOf(cardId),
+                    Map.of("cardId", cardId, "amount", "1.00", "cardPassword", TestDataSeeder.CARD_PASSWORD));
+        }));
+    }
+
+    @Test
+    void generateReport() throws Exception {
+        LocalDate lastMonth = LocalDate.now().minusMonths(1);
+        report(harness.run("POST /reports/generate", CONCURRENCY, REQUESTS, i -> {
+            String userId = data.getUserIds().get(i % data.getUserIds().size());
+            return post("/reports/generate", userTokens.get(userId), Map.of("userId", userId,
+                    "reportType", "monthly", "year", lastMonth.getYear(), "month", lastMonth.getMonthValue()));
+        }));
+    }
+
+    @Test
+    void adminTransactions() throws Exception {
+        String from = LocalDate.now().minusDays(30).toString();
+        report(harness.run("GET /admin/transactions", CONCURRENCY, REQUESTS, i ->
+                HttpRequest.newBuilder(uri("/admin/transactions?page=" + (i % 10 + 1) + "&pageSize=20&startDate=" + from))
+                        .header("Authorization", "Bearer " + adminToken)
+                        .GET()
+                        .build()));
+    }
+
+    private void report(LoadTestHarness.LoadReport result) {
+        log.info("压测结果: {}", result);
+        assertEquals(0, result.getErrors(), result.toString());
+    }
+
+    private String card(int i) {
+        List<String> cardIds = data.getCardIds();
+        return cardIds.get(i % cardIds.size());
+    }
+
+    private String tokenOf(String cardId) {
+        return userTokens.get(data.getOwner(cardId));
+    }
+
+    private HttpRequest post(String path, String token, Map<String, Object> body) {
+        try {
+            return HttpRequest.newBuilder(uri(path))
+                    .header("Authorization", "Bearer " + token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + "/api" + path);
+    }
+}
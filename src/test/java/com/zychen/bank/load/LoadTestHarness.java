@@ -0,0 +1,159 @@
+package com.zychen.bank.load;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * HTTP压测工具：固定并发数的工作线程循环发请求，直到发满总请求数
+ * 记录每个请求的耗时，输出吞吐量和p50/p99延迟；同时每10ms采样一次Hikari连接池，
+ * 记录活跃连接数和等待连接的线程数峰值，用来判断瓶颈是否在连接池。
+ */
+public class LoadTestHarness {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final HikariDataSource dataSource;
+
+    public LoadTestHarness(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @param requestFactory 根据请求序号构造请求（0 ~ requests-1）
+     */
+    public LoadReport run(String name, int concurrency, int requests, IntFunction<HttpRequest> requestFactory)
+            throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        LongAdder errors = new LongAdder();
+        PoolSampler sampler = new PoolSampler(dataSource != null ? dataSource.getHikariPoolMXBean() : null);
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        sampler.start();
+        long start = System.nanoTime();
+        for (int w = 0; w < concurrency; w++) {
+            workers.execute(() -> {
+                try {
+                    int i;
+                    while ((i = next.getAndIncrement()) < requests) {
+                        HttpRequest request = requestFactory.apply(i);
+                        long begin = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                            if (response.statusCode() / 100 != 2) {
+                                errors.increment();
+                            }
+                        } catch (Exception e) {
+                            errors.increment();
+                        }
+                        latencies[i] = System.nanoTime() - begin;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        sampler.stop();
+        workers.shutdown();
+
+        Arrays.sort(latencies);
+        return new LoadReport(name, concurrency, requests, errors.intValue(), elapsed,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[requests - 1],
+                sampler.maxActive, sampler.maxPending);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    public static class LoadReport {
+        private final String name;
+        private final int concurrency;
+        private final int requests;
+        private final int errors;
+        private final long elapsedNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+        private final int poolActiveMax;
+        private final int poolPendingMax;
+
+        LoadReport(String name, int concurrency, int requests, int errors, long elapsedNanos,
+                   long p50Nanos, long p99Nanos, long maxNanos, int poolActiveMax, int poolPendingMax) {
+            this.name = name;
+            this.concurrency = concurrency;
+            this.requests = requests;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+            this.poolActiveMax = poolActiveMax;
+            this.poolPendingMax = poolPendingMax;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public double getThroughput() {
+            return requests / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s concurrency=%d requests=%d errors=%d throughput=%.1f req/s " +
+                            "p50=%.2fms p99=%.2fms max=%.2fms poolActiveMax=%d poolPendingMax=%d",
+                    name, concurrency, requests, errors, getThroughput(),
+                    p50Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6, poolActiveMax, poolPendingMax);
+        }
+    }
+
+    private static class PoolSampler {
+        private final HikariPoolMXBean pool;
+        private ScheduledExecutorService scheduler;
+        private volatile int maxActive;
+        private volatile int maxPending;
+
+        PoolSampler(HikariPoolMXBean pool) {
+            this.pool = pool;
+        }
+
+        void start() {
+            if (pool == null) {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor();
+            scheduler.scheduleAtFixedRate(() -> {
+                maxActive = Math.max(maxActive, pool.getActiveConnections());
+                maxPending = Math.max(maxPending, pool.getThreadsAwaitingConnection());
+            }, 0, 10, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+    }
+}
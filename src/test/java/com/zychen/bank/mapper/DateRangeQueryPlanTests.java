@@ -0,0 +1,127 @@
+package com.zychen.bank.mapper;
+
+import com.zychen.bank.dto.OperationLogQueryDTO;
+import com.zychen.bank.utils.DateRange;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 日期范围查询的执行计划回归测试
+ * 在H2（MySQL模式）上执行 db/migration 脚本，用MyBatis渲染真实的Mapper SQL后做EXPLAIN，
+ * 确认时间列条件落在索引上。有人把条件改回 DATE(col) 之类的写法时，索引条件里就没有时间列，测试失败。
+ */
+class DateRangeQueryPlanTests {
+
+    private static final String URL = "jdbc:h2:mem:plan;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    private static Configuration configuration;
+
+    @BeforeAll
+    static void setUp() {
+        Flyway.configure().dataSource(URL, "sa", "").locations("classpath:db/migration").load().migrate();
+
+        configuration = new Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addMapper(TransactionMapper.class);
+        configuration.addMapper(UserMapper.class);
+        configuration.addMapper(OperationLogMapper.class);
+    }
+
+    @Test
+    void userTransactionListUsesUserTimeIndex() throws Exception {
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", "U0000001");
+        params.put("cardId", null);
+        params.put("transType", "ALL");
+        params.put("range", DateRange.of(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)));
+        params.put("cursorTime", null);
+        params.put("cursorId", null);
+        params.put("offset", 0);
+        params.put("pageSize", 20);
+
+        assertIndexRange(explain(TransactionMapper.class, "findByConditions", params), "trans_time >=");
+    }
+
+    @Test
+    void monthlyStatisticsUsesUserTimeIndex() throws Exception {
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", "U0000001");
+        params.put("range", DateRange.ofMonth(2025, 2));
+
+        assertIndexRange(explain(TransactionMapper.class, "findByUserIdAndPeriod", params), "trans_time >=");
+    }
+
+    @Test
+    void adminDateFilterUsesTimeIndex() throws Exception {
+        Map<String, Object> params = new HashMap<>();
+        for (String key : new String[]{"userId", "userName", "cardId", "transType", "transNo", "status",
+                "cursorTime", "cursorId"}) {
+            params.put(key, null);
+        }
+        params.put("range", DateRange.of(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 7)));
+        params.put("offset", 0);
+        params.put("pageSize", 20);
+
+        assertIndexRange(explain(TransactionMapper.class, "findAdminTransactions", params), "trans_time >=");
+    }
+
+    @Test
+    void todayCountersUseStatusTimeIndex() throws Exception {
+        Map<String, Object> params = new HashMap<>();
+        params.put("today", DateRange.today());
+
+        assertIndexRange(explain(TransactionMapper.class, "countTodayTransactions", params), "trans_time >=");
+        assertIndexRange(explain(UserMapper.class, "countNewUsersToday", params), "created_time >=");
+    }
+
+    @Test
+    void operationLogDateFilterUsesCreatedTimeIndex() throws Exception {
+        Map<String, Object> params = new HashMap<>();
+        params.put("query", new OperationLogQueryDTO());
+        params.put("range", DateRange.parse("2025-01-01", "2025-01-31"));
+        params.put("offset", 0);
+        params.put("pageSize", 10);
+
+        assertIndexRange(explain(OperationLogMapper.class, "findLogs", params), "created_time >=");
+    }
+
+    private static String explain(Class<?> mapper, String method, Map<String, Object> params) throws Exception {
+        MappedStatement statement = configuration.getMappedStatement(mapper.getName() + "." + method);
+        BoundSql boundSql = statement.getBoundSql(params);
+
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             PreparedStatement ps = connection.prepareStatement("EXPLAIN " + boundSql.getSql())) {
+            ParameterHandler handler = new DefaultParameterHandler(statement, params, boundSql);
+            handler.setParameters(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    // H2的计划里用 /* 索引名: 索引条件 */ 标出实际使用的索引及其扫描条件（全表扫描时是 tableScan）
+    private static void assertIndexRange(String plan, String condition) {
+        String normalized = plan.toLowerCase().replace("\"", "").replaceAll("\\s+", " ");
+        int start = normalized.indexOf("/* public.idx_");
+        assertTrue(start >= 0, "未使用索引，执行计划：\n" + plan);
+        String indexCondition = normalized.substring(start, normalized.indexOf("*/", start));
+        assertTrue(indexCondition.contains(condition), "时间条件未走索引范围扫描，执行计划：\n" + plan);
+    }
+}
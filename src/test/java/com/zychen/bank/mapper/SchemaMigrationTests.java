@@ -0,0 +1,220 @@
+package com.zychen.bank.mapper;
+
+import com.zychen.bank.dto.OperationLogQueryDTO;
+import com.zychen.bank.model.BankCard;
+import com.zychen.bank.model.FixedDeposit;
+import com.zychen.bank.model.FreezeRecord;
+import com.zychen.bank.model.InterestRate;
+import com.zychen.bank.model.OperationLog;
+import com.zychen.bank.model.Transaction;
+import com.zychen.bank.model.User;
+import com.zychen.bank.utils.DateRange;
+import db.migration.V3_1__Bank_card_version_column;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 启动时在内嵌H2上执行全部迁移脚本，再用各Mapper的真实SQL读写一遍，确认表结构和Mapper一致
+ */
+@MybatisTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SchemaMigrationTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private BankCardMapper bankCardMapper;
+
+    @Autowired
+    private TransactionMapper transactionMapper;
+
+    @Autowired
+    private FixedDepositMapper fixedDepositMapper;
+
+    @Autowired
+    private FreezeRecordMapper freezeRecordMapper;
+
+    @Autowired
+    private InterestRateMapper interestRateMapper;
+
+    @Autowired
+    private IdSequenceMapper idSequenceMapper;
+
+    @Autowired
+    private OperationLogMapper operationLogMapper;
+
+    @Autowired
+    private BalanceSnapshotMapper balanceSnapshotMapper;
+
+    @Test
+    void allMigrationsApplied() {
+        Integer failed = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM flyway_schema_history WHERE success = FALSE", Integer.class);
+        String version = jdbcTemplate.queryForObject(
+                "SELECT version FROM flyway_schema_history ORDER BY installed_rank DESC LIMIT 1", String.class);
+
+        assertEquals(0, failed);
+        assertEquals("5", version);
+    }
+
+    @Test
+    void versionColumnMigrationSkipsExistingColumn() throws Exception {
+        // 模拟已手工加过 version 列的库：再次执行迁移不报错，也不重复加列
+        Context context = mock(Context.class);
+        when(context.getConnection()).thenReturn(DataSourceUtils.getConnection(jdbcTemplate.getDataSource()));
+        new V3_1__Bank_card_version_column().migrate(context);
+
+        Integer columns = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE table_name = 'bank_card' AND column_name = 'version'", Integer.class);
+        assertEquals(1, columns);
+    }
+
+    @Test
+    void mappersRoundTripAgainstSchema() {
+        LocalDateTime now = LocalDateTime.now();
+
+        User user = new User();
+        user.setUserId("U9000001");
+        user.setUsername("schema_test");
+        user.setPhone("13900000001");
+        user.setPassword("x");
+        user.setRole(0);
+        user.setAccountStatus(0);
+        user.setCreatedTime(now);
+        userMapper.insert(user);
+        assertEquals(1L, userMapper.countNewUsersToday(DateRange.today()));
+
+        BankCard card = new BankCard();
+        card.setCardId("622200000001");
+        card.setUserId(user.getUserId());
+        card.setCardPassword("x");
+        card.setBalance(BigDecimal.ZERO);
+        card.setAvailableBalance(BigDecimal.ZERO);
+        card.setFrozenAmount(BigDecimal.ZERO);
+        card.setCardType(0);
+        card.setStatus(0);
+        card.setBindTime(now);
+        bankCardMapper.insert(card);
+        assertEquals(1, bankCardMapper.updateBalanceByDelta(card.getCardId(), new BigDecimal("100.00"), 0, now));
+        BankCard balance = bankCardMapper.findBalanceByCardId(card.getCardId());
+        assertEquals(0, new BigDecimal("100.00").compareTo(balance.getAvailableBalance()));
+        assertEquals(1L, balance.getVersion());
+
+        Transaction transaction = new Transaction();
+        transaction.setTransNo("T0000000000000000001");
+        transaction.setCardId(card.getCardId());
+        transaction.setUserId(user.getUserId());
+        transaction.setTransType("DEPOSIT");
+        transaction.setAmount(new BigDecimal("100.00"));
+        transaction.setBalanceBefore(BigDecimal.ZERO);
+        transaction.setBalanceAfter(new BigDecimal("100.00"));
+        transaction.setStatus(1);
+        transaction.setTransTime(now);
+        transactionMapper.insert(transaction);
+        List<Transaction> transactions = transactionMapper.findByConditions(user.getUserId(), card.getCardId(),
+                "ALL", DateRange.today(), null, null, 0, 20);
+        assertEquals(1, transactions.size());
+        assertNotNull(transactions.get(0).getTransId());
+
+        // 有成功交易、还没有快照的卡需要回填
+        assertEquals(1, balanceSnapshotMapper.findCardsMissingSnapshotsAfter(null, 10).size());
+
+        // 同一天更早的交易不覆盖日终余额
+        balanceSnapshotMapper.upsert(card.getCardId(), now.toLocalDate(), user.getUserId(), new BigDecimal("100.00"), now);
+        balanceSnapshotMapper.upsert(card.getCardId(), now.toLocalDate(), user.getUserId(), BigDecimal.ZERO, now.minusSeconds(1));
+        assertEquals(0, new BigDecimal("100.00").compareTo(
+                balanceSnapshotMapper.findClosingBalance(card.getCardId(), now.toLocalDate().plusDays(3))));
+        assertEquals(0, new BigDecimal("100.00").compareTo(
+                balanceSnapshotMapper.sumUserClosingBalance(user.getUserId(), now.toLocalDate())));
+        assertEquals(1, balanceSnapshotMapper.findCardsAfter(null, 10).size());
+        balanceSnapshotMapper.rebuildCard(user.getUserId(), card.getCardId());
+        assertEquals(0, new BigDecimal("100.00").compareTo(
+                balanceSnapshotMapper.findClosingBalance(card.getCardId(), now.toLocalDate())));
+        assertEquals(0, balanceSnapshotMapper.findCardsMissingSnapshotsAfter(null, 10).size());
+
+        // 早于最早快照的交易没有回填过（例如上次回填中途失败），该卡仍需回填
+        Transaction earlier = new Transaction();
+        earlier.setTransNo("T0000000000000000002");
+        earlier.setCardId(card.getCardId());
+        earlier.setUserId(user.getUserId());
+        earlier.setTransType("DEPOSIT");
+        earlier.setAmount(new BigDecimal("30.00"));
+        earlier.setBalanceBefore(BigDecimal.ZERO);
+        earlier.setBalanceAfter(new BigDecimal("30.00"));
+        earlier.setStatus(1);
+        earlier.setTransTime(now.minusDays(2));
+        transactionMapper.insert(earlier);
+        assertEquals(1, balanceSnapshotMapper.findCardsMissingSnapshotsAfter(null, 10).size());
+        assertEquals(0, balanceSnapshotMapper.findCardsMissingSnapshotsAfter(card.getCardId(), 10).size());
+        balanceSnapshotMapper.rebuildCard(user.getUserId(), card.getCardId());
+        assertEquals(0, balanceSnapshotMapper.findCardsMissingSnapshotsAfter(null, 10).size());
+
+        FixedDeposit deposit = new FixedDeposit();
+        deposit.setFdNo("FD0000000000000000001");
+        deposit.setCardId(card.getCardId());
+        deposit.setUserId(user.getUserId());
+        deposit.setPrincipal(new BigDecimal("50.00"));
+        deposit.setRate(new BigDecimal("0.0150"));
+        deposit.setTerm(3);
+        deposit.setStartTime(new Date());
+        deposit.setEndTime(new Date());
+        deposit.setAutoRenew(false);
+        deposit.setStatus(0);
+        fixedDepositMapper.insert(deposit);
+        assertEquals(1, fixedDepositMapper.findByUserId(user.getUserId()).size());
+
+        FreezeRecord freeze = new FreezeRecord();
+        freeze.setFreezeNo("FZ0000000000000000001");
+        freeze.setFreezeType(1);
+        freeze.setFreezeLevel(1);
+        freeze.setTargetId(card.getCardId());
+        freeze.setUserId(user.getUserId());
+        freeze.setCardId(card.getCardId());
+        freeze.setFreezeTime(now);
+        freeze.setStatus(1);
+        freezeRecordMapper.insert(freeze);
+        assertNotNull(freezeRecordMapper.findActiveFreezeByCardId(card.getCardId()));
+
+        jdbcTemplate.update("INSERT INTO interest_rate_config (account_type, term_months, annual_rate, effective_date) " +
+                "VALUES ('CURRENT', 0, 0.0036, ?)", LocalDate.now());
+        InterestRate rate = interestRateMapper.findCurrentDepositRate();
+        assertEquals(0, new BigDecimal("0.00001").compareTo(rate.getDailyRate()));
+
+        idSequenceMapper.insertIfAbsent("schema_test", 1);
+        idSequenceMapper.insertIfAbsent("schema_test", 99);
+        idSequenceMapper.advance("schema_test", 10);
+        assertEquals(11L, idSequenceMapper.findNextValue("schema_test"));
+
+        OperationLog log = new OperationLog();
+        log.setUserId(user.getUserId());
+        log.setModule("TRANSACTION");
+        log.setOperationType("DEPOSIT");
+        log.setStatus(1);
+        log.setCreatedTime(now);
+        operationLogMapper.insertBatch(List.of(log));
+        assertEquals(1, operationLogMapper.countLogs(new OperationLogQueryDTO(), DateRange.today()));
+        assertEquals(1, operationLogMapper.findUserDisplayNames(List.of(user.getUserId())).size());
+    }
+}
@@ -0,0 +1,75 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.mapper.BalanceSnapshotMapper;
+import com.zychen.bank.model.BankCard;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 启动回填：V5迁移只建表，启动后在后台为缺快照的卡回填；逐张卡提交，一张卡失败不影响其他卡；关闭开关时不回填
+ */
+class BalanceSnapshotServiceTests {
+
+    private final BalanceSnapshotMapper balanceSnapshotMapper = mock(BalanceSnapshotMapper.class);
+
+    @Test
+    void cardsMissingSnapshotsAreBackfilledInBackground() {
+        BalanceSnapshotServiceImpl service = newService(true);
+        when(balanceSnapshotMapper.findCardsMissingSnapshotsAfter(any(), anyInt())).thenReturn(List.of());
+
+        service.backfillMissing();
+
+        verify(balanceSnapshotMapper, timeout(5000)).findCardsMissingSnapshotsAfter(null, 200);
+        verify(balanceSnapshotMapper, never()).findCardsAfter(any(), anyInt());
+    }
+
+    @Test
+    void backfillDisabled() {
+        newService(false).backfillMissing();
+
+        verify(balanceSnapshotMapper, never()).findCardsMissingSnapshotsAfter(any(), anyInt());
+    }
+
+    @Test
+    void failedCardDoesNotStopRebuild() {
+        BalanceSnapshotServiceImpl service = newService(true);
+        when(balanceSnapshotMapper.findCardsAfter(null, 200))
+                .thenReturn(List.of(card("622200000001"), card("622200000002")));
+        when(balanceSnapshotMapper.findCardsAfter("622200000002", 200)).thenReturn(List.of());
+        when(balanceSnapshotMapper.rebuildCard("U0000001", "622200000001")).thenThrow(new RuntimeException("lock wait timeout"));
+        when(balanceSnapshotMapper.rebuildCard("U0000001", "622200000002")).thenReturn(3);
+
+        Map<String, Object> result = service.rebuild();
+
+        assertEquals(1, result.get("cards"));
+        assertEquals(1, result.get("failedCards"));
+        assertEquals(3L, result.get("affectedRows"));
+    }
+
+    private static BankCard card(String cardId) {
+        BankCard card = new BankCard();
+        card.setCardId(cardId);
+        card.setUserId("U0000001");
+        return card;
+    }
+
+    private BalanceSnapshotServiceImpl newService(boolean backfillOnStartup) {
+        BalanceSnapshotServiceImpl service = new BalanceSnapshotServiceImpl();
+        ReflectionTestUtils.setField(service, "balanceSnapshotMapper", balanceSnapshotMapper);
+        ReflectionTestUtils.setField(service, "rebuildBatchSize", 200);
+        ReflectionTestUtils.setField(service, "backfillOnStartup", backfillOnStartup);
+        return service;
+    }
+}
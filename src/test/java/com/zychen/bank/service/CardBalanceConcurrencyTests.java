@@ -0,0 +1,238 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.dto.WithdrawDTO;
+import com.zychen.bank.mapper.BankCardMapper;
+import com.zychen.bank.model.BankCard;
+import com.zychen.bank.utils.CardLockManager;
+import com.zychen.bank.utils.CardPasswordVerifier;
+import com.zychen.bank.utils.IDGenerator;
+import com.zychen.bank.utils.IdBlockAllocator;
+import com.zychen.bank.utils.PasswordUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * 并发取款按增量扣减：成功笔数与余额、version一致，余额不会扣成负数；
+ * 同一笔定期存款并发到期支取/提前支取只会入账一次
+ * 各线程各自提交事务，使用独立的内存库且不开启测试事务
+ */
+@MybatisTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:card-balance;"
+        + "MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1")
+@Import({TransactionServiceImpl.class, FixedDepositServiceImpl.class, BalanceSnapshotServiceImpl.class,
+        CardPasswordVerifier.class, PasswordUtil.class, CardLockManager.class,
+        IDGenerator.class, IdBlockAllocator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardBalanceConcurrencyTests {
+
+    private static final String USER_ID = "U9400001";
+    private static final String CARD_PASSWORD = "123456";
+    private static final int THREADS = 20;
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private FixedDepositServiceImpl fixedDepositService;
+
+    @Autowired
+    private BankCardMapper bankCardMapper;
+
+    @Autowired
+    private PasswordUtil passwordUtil;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private InterestRateService interestRateService;
+
+    private String encodedPassword;
+
+    @BeforeEach
+    void setUp() {
+        when(interestRateService.getCurrentRate()).thenReturn(new BigDecimal("0.0035"));
+        if (encodedPassword == null) {
+            encodedPassword = passwordUtil.encode(CARD_PASSWORD);
+        }
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user WHERE user_id = ?", Integer.class, USER_ID) == 0) {
+            jdbcTemplate.update("INSERT INTO user (user_id, username, phone, password, role, account_status, created_time) "
+                    + "VALUES (?, 'card_concurrency', '13794000001', 'x', 0, 0, ?)", USER_ID, Timestamp.valueOf(LocalDateTime.now()));
+        }
+    }
+
+    @Test
+    void concurrentDeltaUpdatesNeverOverdraw() throws Exception {
+        String cardId = "622294000001";
+        insertCard(cardId, "1000.00");
+        BigDecimal amount = new BigDecimal("70.00");
+
+        // 不经过卡锁，直接验证数据库条件：可用余额不足时更新0行
+        List<Boolean> results = runConcurrently(() ->
+                bankCardMapper.updateBalanceByDelta(cardId, amount.negate(), 0, LocalDateTime.now()) == 1);
+
+        assertAccepted(cardId, "1000.00", amount, results);
+    }
+
+    @Test
+    void concurrentWithdrawalsMatchAcceptedCount() throws Exception {
+        String cardId = "622294000002";
+        insertCard(cardId, "1000.00");
+        BigDecimal amount = new BigDecimal("70.00");
+
+        List<Boolean> results = runConcurrently(() -> {
+            WithdrawDTO dto = new WithdrawDTO();
+            dto.setCardId(cardId);
+            dto.setCardPassword(CARD_PASSWORD);
+            dto.setAmount(amount);
+            try {
+                transactionService.withdraw(USER_ID, dto);
+                return true;
+            } catch (RuntimeException e) {
+                assertEquals("余额不足", e.getMessage());
+                return false;
+            }
+        });
+
+        long accepted = assertAccepted(cardId, "1000.00", amount, results);
+        // 每笔成功的取款都有流水，且流水记录的余额都不为负
+        assertEquals(accepted, count("SELECT COUNT(*) FROM transaction WHERE card_id = ? AND trans_type = 'WITHDRAW'", cardId));
+        assertEquals(0L, count("SELECT COUNT(*) FROM transaction WHERE card_id = ? AND balance_after < 0", cardId));
+    }
+
+    @Test
+    void concurrentMatureAndEarlyWithdrawalPaysOutOnce() throws Exception {
+        String cardId = "622294000003";
+        insertCard(cardId, "0.00");
+        // 已到期的一年期定期，到期支取和提前支取都能通过预检查
+        jdbcTemplate.update("INSERT INTO fixed_deposit (fd_no, card_id, user_id, principal, annual_rate, term_months, "
+                        + "start_date, end_date, auto_renew, status, created_time) "
+                        + "VALUES ('FD9400001', ?, ?, 10000.00, 0.0150, 12, ?, ?, 0, 0, ?)",
+                cardId, USER_ID, Date.valueOf(LocalDate.now().minusYears(1).minusDays(1)),
+                Date.valueOf(LocalDate.now().minusDays(1)), Timestamp.valueOf(LocalDateTime.now().minusYears(1)));
+        Integer fdId = jdbcTemplate.queryForObject("SELECT fd_id FROM fixed_deposit WHERE fd_no = 'FD9400001'", Integer.class);
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            boolean mature = i % 2 == 0;
+            tasks.add(() -> {
+                try {
+                    if (mature) {
+                        fixedDepositService.matureWithdraw(fdId, USER_ID, CARD_PASSWORD);
+                    } else {
+                        fixedDepositService.earlyWithdraw(fdId, USER_ID, CARD_PASSWORD);
+                    }
+                    return true;
+                } catch (RuntimeException e) {
+                    assertTrue(e.getMessage().contains("状态异常"), e.getMessage());
+                    return false;
+                }
+            });
+        }
+        List<Boolean> results = runConcurrently(tasks);
+
+        assertEquals(1L, results.stream().filter(Boolean::booleanValue).count());
+        assertEquals(1L, count("SELECT COUNT(*) FROM transaction WHERE card_id = ? "
+                + "AND trans_subtype IN ('FIXED_DEPOSIT_MATURE', 'FIXED_DEPOSIT_EARLY')", cardId));
+        BigDecimal credited = jdbcTemplate.queryForObject(
+                "SELECT amount FROM transaction WHERE card_id = ?", BigDecimal.class, cardId);
+        BankCard card = bankCardMapper.findBalanceByCardId(cardId);
+        assertEquals(0, credited.compareTo(card.getBalance()));
+        assertEquals(1L, card.getVersion());
+        Integer status = jdbcTemplate.queryForObject("SELECT status FROM fixed_deposit WHERE fd_id = ?", Integer.class, fdId);
+        assertTrue(status == 2 || status == 3, "status=" + status);
+    }
+
+    private long assertAccepted(String cardId, String start, BigDecimal amount, List<Boolean> results) {
+        long accepted = results.stream().filter(Boolean::booleanValue).count();
+        BigDecimal startBalance = new BigDecimal(start);
+        // 余额足够的笔数全部成功，其余全部拒绝
+        assertEquals(startBalance.divideToIntegralValue(amount).longValue(), accepted);
+
+        BankCard card = bankCardMapper.findBalanceByCardId(cardId);
+        BigDecimal expected = startBalance.subtract(amount.multiply(BigDecimal.valueOf(accepted)));
+        assertEquals(0, expected.compareTo(card.getBalance()), "balance=" + card.getBalance());
+        assertEquals(0, expected.compareTo(card.getAvailableBalance()));
+        assertTrue(card.getBalance().signum() >= 0);
+        assertEquals(accepted, card.getVersion());
+        return accepted;
+    }
+
+    private List<Boolean> runConcurrently(Callable<Boolean> task) throws Exception {
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(task);
+        }
+        return runConcurrently(tasks);
+    }
+
+    // 所有线程就绪后同时开始，尽量让请求互相重叠
+    private List<Boolean> runConcurrently(List<Callable<Boolean>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch ready = new CountDownLatch(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (Callable<Boolean> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    return task.call();
+                }));
+            }
+            ready.await(10, TimeUnit.SECONDS);
+            start.countDown();
+            List<Boolean> results = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void insertCard(String cardId, String balance) {
+        jdbcTemplate.update("INSERT INTO bank_card (card_id, user_id, card_password, balance, available_balance, "
+                        + "frozen_amount, card_type, status, bind_time) VALUES (?, ?, ?, ?, ?, 0, 0, 0, ?)",
+                cardId, USER_ID, encodedPassword, new BigDecimal(balance), new BigDecimal(balance),
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+}
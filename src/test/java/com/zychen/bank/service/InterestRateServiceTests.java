@@ -0,0 +1,114 @@
+package com.zychen.bank.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zychen.bank.dto.PrecomputedResponse;
+import com.zychen.bank.mapper.InterestRateMapper;
+import com.zychen.bank.model.InterestRate;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 利率表只在加载/刷新时查库；数据不变时刷新不替换利率表，ETag保持不变
+ */
+class InterestRateServiceTests {
+
+    private final InterestRateMapper mapper = mock(InterestRateMapper.class);
+
+    @Test
+    void ratesAreServedFromLoadedTable() {
+        when(mapper.findAllActiveRates()).thenReturn(List.of(
+                rate("CURRENT", 0, "0.0035", 1000L),
+                rate("CURRENT", 0, "0.0030", 2000L),
+                rate("FIXED_12M", 12, "0.0150", 1000L),
+                rate("FIXED_12M", 12, "0.0175", 3000L),
+                rate("FIXED_3M", 3, "0.0110", 1000L)));
+        InterestRateServiceImpl service = newService();
+
+        // 同一类型取最新生效的一条
+        assertAmount("0.0030", service.getCurrentRate());
+        assertAmount("0.0175", service.getRateByTerm(12));
+        assertAmount("0.0110", service.getRateByTerm(3));
+        assertAmount("0.0150", service.getRateByTerm(60));
+        List<?> fixedRates = (List<?>) service.getFormattedInterestRates().get("fixed_rates");
+        assertEquals(3, fixedRates.size());
+        String body = new String(service.getInterestRatesResponse().getBody());
+        assertTrue(body.contains("\"fixed_rates\""));
+
+        verify(mapper, times(1)).findAllActiveRates();
+    }
+
+    @Test
+    void refreshKeepsETagUntilRatesChange() {
+        List<InterestRate> rates = new ArrayList<>(List.of(
+                rate("CURRENT", 0, "0.0035", 1000L),
+                rate("FIXED_12M", 12, "0.0150", 1000L)));
+        when(mapper.findAllActiveRates()).thenAnswer(invocation -> new ArrayList<>(rates));
+        InterestRateServiceImpl service = newService();
+
+        PrecomputedResponse first = service.getInterestRatesResponse();
+        assertEquals(false, service.refreshRates().get("changed"));
+        assertSame(first, service.getInterestRatesResponse());
+
+        rates.set(1, rate("FIXED_12M", 12, "0.0160", 5000L));
+        assertEquals(true, service.refreshRates().get("changed"));
+        assertNotEquals(first.getEtag(), service.getInterestRatesResponse().getEtag());
+        assertAmount("0.0160", service.getRateByTerm(12));
+    }
+
+    @Test
+    void databaseFailureFallsBackToDefaultsAndKeepsLoadedTable() {
+        when(mapper.findAllActiveRates()).thenThrow(new RuntimeException("connection refused"));
+        InterestRateServiceImpl service = newService();
+
+        // 从未加载成功：按期限使用默认利率
+        assertAmount("0.0200", service.getRateByTerm(24));
+        assertAmount("0.0035", service.getCurrentRate());
+        assertEquals(true, service.refreshRates().get("fallback"));
+
+        InterestRateMapper recovered = mock(InterestRateMapper.class);
+        when(recovered.findAllActiveRates()).thenReturn(List.of(rate("FIXED_24M", 24, "0.0210", 1000L)));
+        ReflectionTestUtils.setField(service, "interestRateMapper", recovered);
+        service.refreshRates();
+        assertAmount("0.0210", service.getRateByTerm(24));
+
+        // 已加载成功后刷新失败，继续使用已加载的利率
+        when(recovered.findAllActiveRates()).thenThrow(new RuntimeException("connection refused"));
+        assertEquals("connection refused", service.refreshRates().get("error"));
+        assertAmount("0.0210", service.getRateByTerm(24));
+    }
+
+    private InterestRateServiceImpl newService() {
+        InterestRateServiceImpl service = new InterestRateServiceImpl();
+        ReflectionTestUtils.setField(service, "interestRateMapper", mapper);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        return service;
+    }
+
+    private static InterestRate rate(String accountType, int termMonths, String annualRate, long effectiveDate) {
+        InterestRate rate = new InterestRate();
+        rate.setAccountType(accountType);
+        rate.setTermMonths(termMonths);
+        rate.setAnnualRate(new BigDecimal(annualRate));
+        rate.setEffectiveDate(new Date(effectiveDate));
+        rate.setIsActive(true);
+        return rate;
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> "expected " + expected + " but was " + actual);
+    }
+}
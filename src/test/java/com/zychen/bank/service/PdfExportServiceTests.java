@@ -0,0 +1,81 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.dto.ReportResponseDTO;
+import com.zychen.bank.utils.PdfFontCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 多个导出共享同一个字体缓存并发执行，各自生成完整的PDF
+ */
+class PdfExportServiceTests {
+
+    // 沙箱/CI上通常没有中文字体，有DejaVu时用它走TrueType子集嵌入，否则走默认英文字体
+    private static final String TEST_FONT = "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf";
+
+    private final PdfFontCache fontCache = new PdfFontCache();
+    private final PdfExportService pdfExportService = new PdfExportService();
+
+    @Test
+    void concurrentExportsShareParsedFont() throws Exception {
+        ReflectionTestUtils.setField(fontCache, "fontPath", new File(TEST_FONT).exists() ? TEST_FONT : "");
+        ReflectionTestUtils.setField(pdfExportService, "pdfFontCache", fontCache);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                ReportResponseDTO report = newReport("RPT202401M" + i, 60);
+                results.add(executor.submit(() -> pdfExportService.exportReportToPdf(report)));
+            }
+            for (Future<byte[]> result : results) {
+                try (PDDocument document = PDDocument.load(result.get())) {
+                    assertEquals(3, document.getNumberOfPages());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ReportResponseDTO newReport(String reportId, int transactionCount) {
+        ReportResponseDTO report = new ReportResponseDTO();
+        report.setReportId(reportId);
+        report.setUserId("U0000001");
+        report.setReportType("monthly");
+        report.setPeriod("2024-01");
+        report.setGeneratedTime(new Date());
+
+        ReportResponseDTO.ReportSummary summary = new ReportResponseDTO.ReportSummary();
+        summary.setStartBalance(BigDecimal.ZERO);
+        summary.setEndBalance(new BigDecimal("6000.00"));
+        summary.setTransactionCount(transactionCount);
+        report.setSummary(summary);
+
+        List<ReportResponseDTO.TransactionSummary> transactions = new ArrayList<>();
+        for (int i = 0; i < transactionCount; i++) {
+            ReportResponseDTO.TransactionSummary transaction = new ReportResponseDTO.TransactionSummary();
+            transaction.setTransTime(LocalDateTime.of(2024, 1, 1, 9, 0).plusHours(i));
+            transaction.setTransType("DEPOSIT");
+            transaction.setAmount(new BigDecimal("100.00"));
+            transaction.setBalanceAfter(new BigDecimal(100 * (i + 1)));
+            transaction.setRemark("deposit " + i);
+            transactions.add(transaction);
+        }
+        report.setTransactions(transactions);
+        return report;
+    }
+}
@@ -0,0 +1,223 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.dto.GenerateReportDTO;
+import com.zychen.bank.dto.ReportResponseDTO;
+import com.zychen.bank.mapper.TransactionMapper;
+import com.zychen.bank.model.Transaction;
+import com.zychen.bank.utils.DateRange;
+import com.zychen.bank.utils.IDGenerator;
+import com.zychen.bank.utils.IdBlockAllocator;
+import com.zychen.bank.utils.PdfFontCache;
+import com.zychen.bank.utils.ReportCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 报表统计改为分组汇总查询后，金额归类口径与原先逐条累加一致；期初/期末余额、日均余额取自日终余额快照
+ */
+@MybatisTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReportServiceImpl.class, PdfExportService.class, PdfFontCache.class, BalanceSnapshotServiceImpl.class,
+        ReportCache.class, IDGenerator.class, IdBlockAllocator.class})
+class ReportAggregationTests {
+
+    private static final String USER_ID = "U9100001";
+    private static final String CARD_ID = "622291000001";
+    private static final String SECOND_CARD_ID = "622291000002";
+
+    @Autowired
+    private ReportServiceImpl reportService;
+
+    @Autowired
+    private TransactionMapper transactionMapper;
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    private final Map<String, BigDecimal> balances = new HashMap<>();
+    private long seq;
+
+    @BeforeEach
+    void insertTransactions() {
+        insert("2023-12-31T10:00", "DEPOSIT", "CURRENT_DEPOSIT", "100", null);
+        insert("2024-01-05T09:00", "DEPOSIT", "CURRENT_DEPOSIT", "1000", null);
+        insert("2024-01-10T09:00", "WITHDRAW", "CURRENT_WITHDRAW", "-200", "2");
+        insert("2024-01-15T09:00", "TRANSFER", null, "-300", null);
+        insert("2024-02-01T09:00", "TRANSFER", null, "150", null);
+        insert("2024-02-02T09:00", "INTEREST", null, "5", null);
+        insert("2024-02-03T09:00", "WITHDRAW", "FIXED_DEPOSIT_MATURE", "2000", null);
+        insert("2024-12-31T23:59:59", "DEPOSIT", "CURRENT_DEPOSIT", "45", null);
+        insert("2025-01-01T00:00", "DEPOSIT", "CURRENT_DEPOSIT", "999", null);
+    }
+
+    @Test
+    void yearlyReportUsesGroupedTotals() {
+        ReportResponseDTO report = reportService.generateYearlyReport(USER_ID, CARD_ID, 2024);
+
+        ReportResponseDTO.ReportSummary summary = report.getSummary();
+        assertAmount("100", summary.getStartBalance());
+        assertAmount("2800", summary.getEndBalance());
+        assertAmount("3045", summary.getTotalDeposit());
+        assertAmount("200", summary.getTotalWithdraw());
+        assertAmount("5", summary.getInterestEarned());
+        assertEquals(7, summary.getTransactionCount());
+
+        ReportResponseDTO.CategoryStatistics stats = report.getCategoryStatistics();
+        assertAmount("450", stats.getTransferAmount());
+        assertAmount("2", stats.getFeeAmount());
+
+        assertEquals(7, report.getTransactions().size());
+    }
+
+    @Test
+    void monthlyReportCountsTransfersAsIncomeAndOutcome() {
+        ReportResponseDTO january = reportService.generateMonthlyReport(USER_ID, CARD_ID, 2024, 1);
+        assertAmount("1000", january.getSummary().getTotalDeposit());
+        assertAmount("500", january.getSummary().getTotalWithdraw());
+        assertEquals(3, january.getTransactions().size());
+
+        ReportResponseDTO february = reportService.generateMonthlyReport(USER_ID, CARD_ID, 2024, 2);
+        assertAmount("2150", february.getSummary().getTotalDeposit());
+        assertAmount("0", february.getSummary().getTotalWithdraw());
+        assertAmount("5", february.getSummary().getInterestEarned());
+    }
+
+    @Test
+    void userLevelBalancesSumEveryCard() {
+        // 第二张卡只在年中有一笔交易，年末余额仍计入
+        insert(SECOND_CARD_ID, "2024-06-01T09:00", "DEPOSIT", "CURRENT_DEPOSIT", "700", null);
+
+        ReportResponseDTO report = reportService.generateYearlyReport(USER_ID, null, 2024);
+        assertAmount("100", report.getSummary().getStartBalance());
+        assertAmount("3500", report.getSummary().getEndBalance());
+
+        ReportResponseDTO cardReport = reportService.generateYearlyReport(USER_ID, SECOND_CARD_ID, 2024);
+        assertAmount("0", cardReport.getSummary().getStartBalance());
+        assertAmount("700", cardReport.getSummary().getEndBalance());
+    }
+
+    @Test
+    void avgDailyBalanceIncludesIdleCards() {
+        // 第二张卡只在上年有交易，1月份没有任何交易，余额700每天都应计入
+        insert(SECOND_CARD_ID, "2023-12-20T09:00", "DEPOSIT", "CURRENT_DEPOSIT", "700", null);
+
+        // 第一张卡1月日终余额：1~4日100，5~9日1100，10~14日900，15~31日600，合计20600
+        ReportResponseDTO cardReport = reportService.generateMonthlyReport(USER_ID, CARD_ID, 2024, 1);
+        assertAmount("664.52", cardReport.getSummary().getAvgDailyBalance());
+
+        // 两张卡合计：(20600 + 700 × 31) / 31
+        ReportResponseDTO userReport = reportService.generateMonthlyReport(USER_ID, null, 2024, 1);
+        assertAmount("1364.52", userReport.getSummary().getAvgDailyBalance());
+
+        ReportResponseDTO idleReport = reportService.generateMonthlyReport(USER_ID, SECOND_CARD_ID, 2024, 1);
+        assertAmount("700", idleReport.getSummary().getAvgDailyBalance());
+    }
+
+    @Test
+    void largestTransactionsOrderedByAbsoluteAmount() {
+        List<Transaction> large = transactionMapper.findLargestTransactions(USER_ID, CARD_ID,
+                DateRange.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)), new BigDecimal("100"), 2);
+
+        assertEquals(2, large.size());
+        assertAmount("2000", large.get(0).getAmount());
+        assertAmount("1000", large.get(1).getAmount());
+    }
+
+    @Test
+    void downloadIncludesEveryTransactionBeyondPreviewLimit() throws Exception {
+        for (int day = 1; day <= 25; day++) {
+            insert(String.format("2024-03-%02dT09:00", day), "DEPOSIT", "CURRENT_DEPOSIT", "10", null);
+        }
+        GenerateReportDTO request = new GenerateReportDTO();
+        request.setUserId(USER_ID);
+        request.setCardId(CARD_ID);
+        request.setReportType("monthly");
+        request.setYear(2024);
+        request.setMonth(3);
+        ReportResponseDTO report = reportService.generateReport(request);
+
+        // 接口返回的预览超过20条不附带明细，下载的文件包含全部25条
+        assertNull(report.getTransactions());
+
+        // 下载接口先取出报告并校验权限，写出时直接使用这份报告
+        ReportResponseDTO cached = reportService.getReportData(report.getReportId());
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        reportService.writeReportAsCsv(cached, csv);
+        long rows = csv.toString(StandardCharsets.UTF_8).lines().filter(line -> line.startsWith("2024-03-")).count();
+        assertEquals(25, rows);
+
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        reportService.writeReportAsPdf(cached, pdf);
+        try (PDDocument document = PDDocument.load(pdf.toByteArray())) {
+            assertEquals(2, document.getNumberOfPages());
+        }
+    }
+
+    @Test
+    void exportPermitsAreLimitedUntilReleased() {
+        ReportServiceImpl limited = new ReportServiceImpl();
+        ReflectionTestUtils.setField(limited, "exportMaxConcurrent", 1);
+        ReflectionTestUtils.setField(limited, "exportAcquireTimeoutSeconds", 0L);
+        limited.init();
+
+        assertTrue(limited.tryAcquireExportPermit());
+        // 名额用完时不等待，直接失败（下载接口返回503）
+        assertFalse(limited.tryAcquireExportPermit());
+        limited.releaseExportPermit();
+        assertTrue(limited.tryAcquireExportPermit());
+    }
+
+    private void insert(String time, String type, String subtype, String amount, String fee) {
+        insert(CARD_ID, time, type, subtype, amount, fee);
+    }
+
+    private void insert(String cardId, String time, String type, String subtype, String amount, String fee) {
+        BigDecimal value = new BigDecimal(amount);
+        BigDecimal balance = balances.getOrDefault(cardId, BigDecimal.ZERO);
+        Transaction tx = new Transaction();
+        tx.setTransNo("TAGG" + (++seq));
+        tx.setCardId(cardId);
+        tx.setUserId(USER_ID);
+        tx.setTransType(type);
+        tx.setTransSubtype(subtype);
+        tx.setAmount(value);
+        tx.setBalanceBefore(balance);
+        tx.setBalanceAfter(balance.add(value));
+        balances.put(cardId, tx.getBalanceAfter());
+        tx.setFee(fee != null ? new BigDecimal(fee) : BigDecimal.ZERO);
+        tx.setCurrency("CNY");
+        tx.setStatus(1);
+        tx.setOperatorId(USER_ID);
+        tx.setOperatorType("USER");
+        tx.setTransTime(LocalDateTime.parse(time));
+        tx.setCompletedTime(tx.getTransTime());
+        transactionMapper.insert(tx);
+        balanceSnapshotService.recordTransaction(tx);
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,120 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.dto.GenerateReportDTO;
+import com.zychen.bank.dto.ReportJobDTO;
+import com.zychen.bank.dto.ReportResponseDTO;
+import com.zychen.bank.utils.IDGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReportJobServiceTests {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ReportService reportService = mock(ReportService.class);
+    private ReportJobServiceImpl reportJobService;
+
+    @BeforeEach
+    void setUp() {
+        // 报告生成阻塞到测试放行，用来观察排队和并发限制
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            GenerateReportDTO request = invocation.getArgument(0);
+            return newReport("RPT" + request.getUserId());
+        }).when(reportService).generateReport(any());
+        when(reportService.getReportData(anyString()))
+                .thenAnswer(invocation -> newReport(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        reportJobService.shutdown();
+    }
+
+    @Test
+    void perUserLimitDoesNotBlockOtherUsers() throws Exception {
+        reportJobService = newService(4, 10, 2);
+
+        ReportJobDTO first = reportJobService.submit(newRequest("U0000001"), "U0000001");
+        assertFalse(first.isFinished());
+        reportJobService.submit(newRequest("U0000001"), "U0000001");
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> reportJobService.submit(newRequest("U0000001"), "U0000001"));
+        assertTrue(e.getMessage().contains("正在生成"));
+        reportJobService.submit(newRequest("U0000002"), "U0000002");
+
+        release.countDown();
+        ReportJobDTO finished = reportJobService.whenFinished(first.getJobId()).get(10, TimeUnit.SECONDS);
+        assertEquals(ReportJobDTO.SUCCESS, finished.getStatus());
+        assertTrue(finished.isFinished());
+        assertEquals("RPTU0000001", finished.getReportId());
+        assertNotNull(finished.getReport());
+
+        // 完成后名额释放，可以再次提交
+        reportJobService.whenFinished(reportJobService.submit(newRequest("U0000001"), "U0000001").getJobId())
+                .get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void fullQueueRejectsSubmission() {
+        reportJobService = newService(1, 1, 10);
+
+        reportJobService.submit(newRequest("U0000001"), "U0000001");
+        reportJobService.submit(newRequest("U0000002"), "U0000002");
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> reportJobService.submit(newRequest("U0000003"), "U0000003"));
+        assertTrue(e.getMessage().contains("较多"));
+        assertEquals(1L, reportJobService.getStatistics().get("rejected"));
+        // 被拒绝的提交不占用名额
+        assertEquals(2, reportJobService.getStatistics().get("activeUsers"));
+    }
+
+    private ReportJobServiceImpl newService(int threads, int queueCapacity, int maxPerUser) {
+        AtomicInteger seq = new AtomicInteger();
+        IDGenerator idGenerator = mock(IDGenerator.class);
+        when(idGenerator.generateReportNo(anyString()))
+                .thenAnswer(invocation -> invocation.getArgument(0) + String.valueOf(seq.incrementAndGet()));
+
+        ReportJobServiceImpl service = new ReportJobServiceImpl();
+        ReflectionTestUtils.setField(service, "reportService", reportService);
+        ReflectionTestUtils.setField(service, "idGenerator", idGenerator);
+        ReflectionTestUtils.setField(service, "threads", threads);
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(service, "maxPerUser", maxPerUser);
+        ReflectionTestUtils.setField(service, "retentionMinutes", 30L);
+        service.init();
+        return service;
+    }
+
+    private static GenerateReportDTO newRequest(String userId) {
+        GenerateReportDTO request = new GenerateReportDTO();
+        request.setUserId(userId);
+        request.setReportType("monthly");
+        request.setYear(2024);
+        request.setMonth(1);
+        return request;
+    }
+
+    private static ReportResponseDTO newReport(String reportId) {
+        ReportResponseDTO report = new ReportResponseDTO();
+        report.setReportId(reportId);
+        return report;
+    }
+}
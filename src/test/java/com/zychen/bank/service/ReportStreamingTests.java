@@ -0,0 +1,146 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.dto.ReportResponseDTO;
+import com.zychen.bank.mapper.BalanceSnapshotMapper;
+import com.zychen.bank.mapper.TransactionMapper;
+import com.zychen.bank.utils.DateRange;
+import com.zychen.bank.utils.IDGenerator;
+import com.zychen.bank.utils.IdBlockAllocator;
+import com.zychen.bank.utils.PdfFontCache;
+import com.zychen.bank.utils.ReportCache;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 报表流式读取：100万笔交易逐行读取，堆内存不随行数增长；统计结果不被截断，日均余额按快照计算
+ * 使用文件模式H2并开启惰性执行，数据库本身不占测试堆、也不在内存中缓冲整个结果集
+ * 造数据耗时较长，与接口压测一样默认不执行，运行方式：
+ * mvn test -Dtest=ReportStreamingTests -Dload.enabled=true [-Dreport.streaming.rows=1000000]
+ */
+@MybatisTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:file:./target/h2/report-streaming;"
+        + "MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;LAZY_QUERY_EXECUTION=1")
+@Import({ReportServiceImpl.class, PdfExportService.class, PdfFontCache.class, BalanceSnapshotServiceImpl.class,
+        ReportCache.class, IDGenerator.class, IdBlockAllocator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+class ReportStreamingTests {
+
+    private static final String USER_ID = "U9200001";
+    private static final String CARD_ID = "622292000001";
+    private static final int ROWS = Integer.getInteger("report.streaming.rows", 1_000_000);
+    // 每笔交易间隔30秒，100万笔落在2024年内
+    private static final int SECONDS_BETWEEN = 30;
+    private static final long HEAP_GROWTH_LIMIT = 64L * 1024 * 1024;
+
+    @Autowired
+    private ReportServiceImpl reportService;
+
+    @Autowired
+    private TransactionMapper transactionMapper;
+
+    @Autowired
+    private BalanceSnapshotMapper balanceSnapshotMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void insertTransactions() {
+        // 上次运行中断时可能留有数据
+        jdbcTemplate.update("DELETE FROM transaction WHERE user_id = ?", USER_ID);
+        // 第x笔：存入1元，余额从x-1变为x
+        jdbcTemplate.update("INSERT INTO transaction (trans_no, card_id, user_id, trans_type, trans_subtype, " +
+                "amount, balance_before, balance_after, fee, currency, status, operator_id, operator_type, " +
+                "trans_time, completed_time) " +
+                "SELECT CONCAT('TSTREAM', r.\"X\"), ?, ?, 'DEPOSIT', 'CURRENT_DEPOSIT', 1, r.\"X\" - 1, r.\"X\", 0, " +
+                "'CNY', 1, ?, 'USER', " +
+                "DATEADD(SECOND, r.\"X\" * " + SECONDS_BETWEEN + ", TIMESTAMP '2024-01-01 00:00:00'), " +
+                "DATEADD(SECOND, r.\"X\" * " + SECONDS_BETWEEN + ", TIMESTAMP '2024-01-01 00:00:00') " +
+                "FROM SYSTEM_RANGE(1, ?) r", CARD_ID, USER_ID, USER_ID, ROWS);
+        balanceSnapshotMapper.rebuildCard(USER_ID, CARD_ID);
+    }
+
+    @AfterAll
+    void dropDatabase() {
+        // 逐行删除100万条很慢，直接删掉测试库文件
+        jdbcTemplate.execute("DROP ALL OBJECTS DELETE FILES");
+    }
+
+    @Test
+    void streamingReadKeepsHeapFlat() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = usedHeapAfterGc(memory);
+        AtomicLong peak = new AtomicLong(baseline);
+
+        AtomicLong count = new AtomicLong();
+        AtomicReference<BigDecimal> lastBalance = new AtomicReference<>();
+        transactionMapper.streamTransactions(USER_ID, CARD_ID, DateRange.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)), context -> {
+            count.incrementAndGet();
+            lastBalance.set(context.getResultObject().getBalanceAfter());
+            if (context.getResultCount() % (ROWS / 5) == 0) {
+                peak.accumulateAndGet(usedHeapAfterGc(memory), Math::max);
+            }
+        });
+
+        assertEquals(ROWS, count.get());
+        assertEquals(0, BigDecimal.valueOf(ROWS).compareTo(lastBalance.get()));
+        long growth = peak.get() - baseline;
+        assertTrue(growth < HEAP_GROWTH_LIMIT,
+                "流式读取期间堆内存增长 " + growth / 1024 / 1024 + "MB，超过限制");
+    }
+
+    @Test
+    void yearlyReportCountsEveryTransaction() {
+        ReportResponseDTO report = reportService.generateYearlyReport(USER_ID, CARD_ID, 2024);
+
+        ReportResponseDTO.ReportSummary summary = report.getSummary();
+        assertEquals(ROWS, summary.getTransactionCount());
+        assertEquals(0, BigDecimal.valueOf(ROWS).compareTo(summary.getTotalDeposit()));
+        assertEquals(0, BigDecimal.valueOf(ROWS).compareTo(summary.getEndBalance()));
+        assertEquals(0, expectedAverage().compareTo(summary.getAvgDailyBalance()));
+    }
+
+    // 第d天（从0起）日终余额 = 当天结束前的交易笔数
+    private static BigDecimal expectedAverage() {
+        int days = LocalDate.of(2024, 1, 1).lengthOfYear();
+        long secondsPerDay = 24 * 60 * 60;
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int day = 0; day < days; day++) {
+            long count = Math.min(ROWS, ((day + 1) * secondsPerDay - 1) / SECONDS_BETWEEN);
+            sum = sum.add(BigDecimal.valueOf(count));
+        }
+        return sum.divide(BigDecimal.valueOf(days), 2, RoundingMode.HALF_UP);
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
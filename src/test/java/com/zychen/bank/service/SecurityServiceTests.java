@@ -0,0 +1,111 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.dto.FreezeCardDTO;
+import com.zychen.bank.mapper.BankCardMapper;
+import com.zychen.bank.mapper.FreezeRecordMapper;
+import com.zychen.bank.model.BankCard;
+import com.zychen.bank.utils.CardLockManager;
+import com.zychen.bank.utils.CardPasswordVerifier;
+import com.zychen.bank.utils.IDGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 冻结银行卡：交易密码（BCrypt）在加卡锁、开事务之前校验，持锁后只确认密码未变
+ */
+class SecurityServiceTests {
+
+    private static final String CARD_ID = "622200000001";
+    private static final String USER_ID = "U0000001";
+    private static final String ENCODED = "$2a$10$encoded";
+
+    private final BankCardMapper bankCardMapper = mock(BankCardMapper.class);
+    private final FreezeRecordMapper freezeRecordMapper = mock(FreezeRecordMapper.class);
+    private final CardPasswordVerifier cardPasswordVerifier = mock(CardPasswordVerifier.class);
+    private final CardLockManager cardLockManager = mock(CardLockManager.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final SecurityServiceImpl securityService = new SecurityServiceImpl();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReflectionTestUtils.setField(securityService, "bankCardMapper", bankCardMapper);
+        ReflectionTestUtils.setField(securityService, "freezeRecordMapper", freezeRecordMapper);
+        ReflectionTestUtils.setField(securityService, "cardPasswordVerifier", cardPasswordVerifier);
+        ReflectionTestUtils.setField(securityService, "cardLockManager", cardLockManager);
+        ReflectionTestUtils.setField(securityService, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(securityService, "idGenerator", mock(IDGenerator.class));
+
+        when(cardLockManager.executeWithLock(anyString(), any()))
+                .thenAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(1)).get());
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+
+        BankCard card = new BankCard();
+        card.setCardId(CARD_ID);
+        card.setUserId(USER_ID);
+        card.setCardPassword(ENCODED);
+        card.setStatus(0);
+        when(bankCardMapper.findByCardId(CARD_ID)).thenReturn(card);
+        when(cardPasswordVerifier.matches(CARD_ID, "123456", ENCODED)).thenReturn(true);
+    }
+
+    @Test
+    void passwordIsCheckedBeforeTakingTheLock() {
+        securityService.freezeCard(freezeRequest("123456"), USER_ID);
+
+        InOrder order = inOrder(cardPasswordVerifier, cardLockManager, transactionTemplate, bankCardMapper);
+        order.verify(cardPasswordVerifier).matches(CARD_ID, "123456", ENCODED);
+        order.verify(cardLockManager).executeWithLock(eq(CARD_ID), any());
+        order.verify(transactionTemplate).execute(any());
+        order.verify(cardPasswordVerifier).ensureUnchanged(CARD_ID, ENCODED);
+        order.verify(bankCardMapper).updateStatus(CARD_ID, 2);
+        order.verify(cardPasswordVerifier).invalidate(CARD_ID);
+    }
+
+    @Test
+    void wrongPasswordNeverTakesTheLock() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> securityService.freezeCard(freezeRequest("000000"), USER_ID));
+        assertEquals("交易密码错误", e.getMessage());
+        verify(cardLockManager, never()).executeWithLock(anyString(), any());
+    }
+
+    @Test
+    void passwordChangedAfterAuthorizationAborts() {
+        doThrow(new RuntimeException("交易密码已变更，请重新操作"))
+                .when(cardPasswordVerifier).ensureUnchanged(CARD_ID, ENCODED);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> securityService.freezeCard(freezeRequest("123456"), USER_ID));
+        assertEquals("交易密码已变更，请重新操作", e.getMessage());
+        verify(bankCardMapper, never()).updateStatus(anyString(), anyInt());
+    }
+
+    private static FreezeCardDTO freezeRequest(String password) {
+        FreezeCardDTO dto = new FreezeCardDTO();
+        dto.setCardId(CARD_ID);
+        dto.setCardPassword(password);
+        dto.setReason("卡片遗失");
+        return dto;
+    }
+}
@@ -0,0 +1,159 @@
+package com.zychen.bank.service;
+
+import com.zychen.bank.mapper.TransactionMapper;
+import com.zychen.bank.model.Transaction;
+import com.zychen.bank.utils.IDGenerator;
+import com.zychen.bank.utils.IdBlockAllocator;
+import com.zychen.bank.utils.PdfFontCache;
+import com.zychen.bank.utils.ReportCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量账单：每个用户生成一份包含全部明细的PDF，跳过管理员；明细经临时文件交给渲染阶段，待渲染行数受额度限制；
+ * 中断后从检查点继续，已生成的文件不重复生成
+ * 任务在后台线程中查询数据库，测试数据需提交后才可见，使用独立的内存库且不开启测试事务
+ */
+@MybatisTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:statement-job;"
+        + "MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1")
+@Import({StatementJobServiceImpl.class, ReportServiceImpl.class, PdfExportService.class, PdfFontCache.class,
+        BalanceSnapshotServiceImpl.class, ReportCache.class, IDGenerator.class, IdBlockAllocator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StatementJobServiceTests {
+
+    private static final String[] USER_IDS = {"U9300001", "U9300002", "U9300003"};
+
+    @Autowired
+    private StatementJobServiceImpl statementJobService;
+
+    @Autowired
+    private TransactionMapper transactionMapper;
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path outputDir;
+
+    private long seq;
+
+    @Test
+    void generatesStatementPerCustomerAndResumesFromCheckpoint() throws Exception {
+        ReflectionTestUtils.setField(statementJobService, "outputDir", outputDir.toString());
+        ReflectionTestUtils.setField(statementJobService, "batchSize", 2);
+        // 额度小于第一个用户的明细数：该账单独占全部额度，其余账单等它渲染完
+        ReflectionTestUtils.setField(statementJobService, "maxPendingRows", 5);
+        insertUser("ADMIN930", 1);
+        for (String userId : USER_IDS) {
+            insertUser(userId, 0);
+        }
+        // 第一个用户的明细超过一页
+        for (int day = 1; day <= 30; day++) {
+            insertTransaction(USER_IDS[0], "622293000001", String.format("2024-03-%02dT09:00", day));
+        }
+        insertTransaction(USER_IDS[1], "622293000002", "2024-03-15T09:00");
+
+        Map<String, Object> status = runJob();
+        assertEquals("COMPLETED", status.get("status"));
+        assertEquals(3L, status.get("generated"));
+        assertEquals(0L, status.get("failed"));
+        assertEquals("U9300003", status.get("checkpoint"));
+
+        Path monthDir = outputDir.resolve("2024-03");
+        assertFalse(Files.exists(monthDir.resolve("ADMIN930.pdf")));
+        try (PDDocument document = PDDocument.load(monthDir.resolve("U9300001.pdf").toFile())) {
+            assertEquals(2, document.getNumberOfPages());
+        }
+        assertTrue(Files.exists(monthDir.resolve("U9300003.pdf")));
+        // 明细临时文件在渲染后删除，额度全部归还
+        assertEquals(0, status.get("pendingRows"));
+        try (Stream<Path> files = Files.list(monthDir)) {
+            assertFalse(files.anyMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+
+        // 模拟在第一批之后中断：检查点回到第一批末尾，第三个用户的文件还没写出
+        Files.writeString(monthDir.resolve("checkpoint.properties"), "lastUserId=U9300002\n");
+        Files.delete(monthDir.resolve("U9300003.pdf"));
+        // 进程被强杀时留下的临时文件（该用户账单已生成、本次会跳过），重新启动时清理
+        Files.writeString(monthDir.resolve("U9300001.rows.tmp"), "partial");
+        Files.writeString(monthDir.resolve("U9300001.pdf.tmp"), "partial");
+
+        status = runJob();
+        assertEquals("COMPLETED", status.get("status"));
+        assertEquals(1L, status.get("generated"));
+        assertEquals(0L, status.get("skipped"));
+        assertTrue(Files.exists(monthDir.resolve("U9300003.pdf")));
+        try (Stream<Path> files = Files.list(monthDir)) {
+            assertFalse(files.anyMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    private Map<String, Object> runJob() throws InterruptedException {
+        statementJobService.start(2024, 3);
+        long deadline = System.currentTimeMillis() + 30_000;
+        Map<String, Object> status = statementJobService.getStatus();
+        while ("RUNNING".equals(status.get("status")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = statementJobService.getStatus();
+        }
+        return status;
+    }
+
+    private void insertUser(String userId, int role) {
+        jdbcTemplate.update("INSERT INTO user (user_id, username, phone, password, role, account_status, created_time) "
+                        + "VALUES (?, ?, ?, 'x', ?, 0, ?)",
+                userId, "stmt_" + userId, "137" + userId.substring(1), role,
+                Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0)));
+    }
+
+    private void insertTransaction(String userId, String cardId, String time) {
+        BigDecimal amount = new BigDecimal("10");
+        Transaction tx = new Transaction();
+        tx.setTransNo("TSTMT" + (++seq));
+        tx.setCardId(cardId);
+        tx.setUserId(userId);
+        tx.setTransType("DEPOSIT");
+        tx.setTransSubtype("CURRENT_DEPOSIT");
+        tx.setAmount(amount);
+        tx.setBalanceBefore(amount.multiply(BigDecimal.valueOf(seq - 1)));
+        tx.setBalanceAfter(amount.multiply(BigDecimal.valueOf(seq)));
+        tx.setFee(BigDecimal.ZERO);
+        tx.setCurrency("CNY");
+        tx.setStatus(1);
+        tx.setOperatorId(userId);
+        tx.setOperatorType("USER");
+        tx.setTransTime(LocalDateTime.parse(time));
+        tx.setCompletedTime(tx.getTransTime());
+        transactionMapper.insert(tx);
+        balanceSnapshotService.recordTransaction(tx);
+    }
+}
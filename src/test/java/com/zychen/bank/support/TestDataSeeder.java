@@ -0,0 +1,137 @@
+package com.zychen.bank.support;
+
+import com.zychen.bank.utils.PasswordUtil;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 测试数据生成：N个用户，每人若干张银行卡，每张卡若干条交易
+ * 直接用JdbcTemplate批量写入，交易按时间顺序生成，余额前后连续，卡上余额等于最后一笔交易后的余额。
+ * 随机种子固定，同样的参数生成同样的数据。
+ */
+public class TestDataSeeder {
+
+    public static final String LOGIN_PASSWORD = "Passw0rd";
+    public static final String CARD_PASSWORD = "123456";
+    public static final String ADMIN_ID = "ADMIN900";
+
+    private static final int BATCH_SIZE = 1000;
+    // 交易分布在最近多少天内
+    private static final int HISTORY_DAYS = 180;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordUtil passwordUtil;
+
+    public TestDataSeeder(JdbcTemplate jdbcTemplate, PasswordUtil passwordUtil) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordUtil = passwordUtil;
+    }
+
+    public SeedData seed(int users, int cardsPerUser, int transactionsPerCard) {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        // BCrypt很慢，所有用户/卡共用同一个密文
+        String loginHash = passwordUtil.encode(LOGIN_PASSWORD);
+        String cardHash = passwordUtil.encode(CARD_PASSWORD);
+
+        SeedData data = new SeedData();
+        List<Object[]> userRows = new ArrayList<>();
+        List<Object[]> infoRows = new ArrayList<>();
+        List<Object[]> cardRows = new ArrayList<>();
+        List<Object[]> transRows = new ArrayList<>();
+        long transSeq = 0;
+
+        userRows.add(new Object[]{ADMIN_ID, "seed_admin", "13800000000", loginHash, 1, 0, Timestamp.valueOf(now)});
+
+        for (int u = 1; u <= users; u++) {
+            String userId = String.format("U%07d", u);
+            data.userIds.add(userId);
+            userRows.add(new Object[]{userId, "seed_user_" + u, String.format("139%08d", u), loginHash, 0, 0,
+                    Timestamp.valueOf(now.minusDays(HISTORY_DAYS + 1))});
+            infoRows.add(new Object[]{userId, "测试用户" + u, String.format("11010119900101%04d", u % 10000),
+                    Timestamp.valueOf(now)});
+
+            for (int c = 0; c < cardsPerUser; c++) {
+                String cardId = String.format("6222%08d", (u - 1) * cardsPerUser + c);
+                data.cardIds.add(cardId);
+                data.cardOwners.put(cardId, userId);
+
+                BigDecimal balance = BigDecimal.ZERO;
+                long stepSeconds = Math.max(1, HISTORY_DAYS * 86400L / Math.max(1, transactionsPerCard));
+                LocalDateTime time = now.minusDays(HISTORY_DAYS);
+                for (int t = 0; t < transactionsPerCard; t++) {
+                    // 第一笔存入足够的余额，之后存取随机
+                    boolean deposit = t == 0 || random.nextInt(3) > 0;
+                    BigDecimal amount = t == 0
+                            ? new BigDecimal("100000.00")
+                            : BigDecimal.valueOf(100 + random.nextInt(50000), 2);
+                    if (!deposit && amount.compareTo(balance) > 0) {
+                        deposit = true;
+                    }
+                    BigDecimal before = balance;
+                    balance = deposit ? balance.add(amount) : balance.subtract(amount);
+                    time = time.plusSeconds(stepSeconds);
+                    transRows.add(new Object[]{String.format("S%019d", ++transSeq), cardId, userId,
+                            deposit ? "DEPOSIT" : "WITHDRAW", amount, before, balance, 1, "USER",
+                            Timestamp.valueOf(time)});
+                    if (transRows.size() >= BATCH_SIZE) {
+                        insertTransactions(transRows);
+                    }
+                }
+                cardRows.add(new Object[]{cardId, userId, cardHash, balance, balance, Timestamp.valueOf(now)});
+            }
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO `user` (user_id, username, phone, password, role, account_status, " +
+                "created_time) VALUES (?, ?, ?, ?, ?, ?, ?)", userRows);
+        jdbcTemplate.batchUpdate("INSERT INTO user_info (user_id, name, id_number, updated_time) " +
+                "VALUES (?, ?, ?, ?)", infoRows);
+        jdbcTemplate.batchUpdate("INSERT INTO bank_card (card_id, user_id, card_password, balance, available_balance, " +
+                "frozen_amount, card_type, status, bind_time) VALUES (?, ?, ?, ?, ?, 0, 0, 0, ?)", cardRows);
+        insertTransactions(transRows);
+
+        data.transactionCount = transSeq;
+        return data;
+    }
+
+    private void insertTransactions(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `transaction` (trans_no, card_id, user_id, trans_type, amount, " +
+                "balance_before, balance_after, status, operator_type, trans_time) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        rows.clear();
+    }
+
+    public static class SeedData {
+        private final List<String> userIds = new ArrayList<>();
+        private final List<String> cardIds = new ArrayList<>();
+        private final Map<String, String> cardOwners = new HashMap<>();
+        private long transactionCount;
+
+        public List<String> getUserIds() {
+            return userIds;
+        }
+
+        public List<String> getCardIds() {
+            return cardIds;
+        }
+
+        public String getOwner(String cardId) {
+            return cardOwners.get(cardId);
+        }
+
+        public long getTransactionCount() {
+            return transactionCount;
+        }
+    }
+}
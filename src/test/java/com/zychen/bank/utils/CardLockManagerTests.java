@@ -0,0 +1,158 @@
+package com.zychen.bank.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分段锁：多卡按分段序号升序加锁不会死锁；等待超时抛出"系统繁忙"；按分段统计竞争情况
+ */
+class CardLockManagerTests {
+
+    private static final String CARD_A = "622200000001";
+    private static final String CARD_B = "622200000002";
+
+    @Test
+    void stripeCountRoundsUpToPowerOfTwo() {
+        assertEquals(128, newManager(100, 1000).getStatistics().get("stripes"));
+        assertEquals(256, newManager(256, 1000).getStatistics().get("stripes"));
+    }
+
+    @Test
+    void oppositeOrderMultiLocksDoNotDeadlock() throws Exception {
+        CardLockManager manager = newManager(256, 2000);
+        int rounds = 500;
+        int[] counter = {0};
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // 两个线程以相反顺序传入同一对卡号，同时持有两把锁时对计数器做非原子的读改写
+            Future<?> forward = executor.submit(() -> lockRepeatedly(manager, List.of(CARD_A, CARD_B), rounds, counter));
+            Future<?> backward = executor.submit(() -> lockRepeatedly(manager, List.of(CARD_B, CARD_A), rounds, counter));
+            forward.get(30, TimeUnit.SECONDS);
+            backward.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2 * rounds, counter[0]);
+        Map<String, Object> stats = manager.getStatistics();
+        assertEquals(0L, stats.get("timeouts"));
+        // 两张卡各一个分段
+        assertEquals(4L * rounds, stats.get("acquired"));
+        // 重复的卡号只加一次锁
+        assertEquals("ok", manager.executeWithLocks(List.of(CARD_A, CARD_A), () -> "ok"));
+    }
+
+    @Test
+    void waitingLongerThanTimeoutFails() throws Exception {
+        CardLockManager manager = newManager(256, 100);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = holdLock(manager, CARD_A, held, release);
+        held.await(5, TimeUnit.SECONDS);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> manager.executeWithLock(CARD_A, () -> "never"));
+        assertEquals("系统繁忙，请稍后重试", e.getMessage());
+        release.countDown();
+        holder.join(5000);
+
+        Map<String, Object> stats = manager.getStatistics();
+        assertEquals(1L, stats.get("timeouts"));
+        assertEquals(1L, stats.get("contended"));
+        assertEquals(1L, stats.get("acquired"));
+        assertTrue((Long) stats.get("maxWaitMicros") >= 90_000, "maxWaitMicros=" + stats.get("maxWaitMicros"));
+        // 超时后锁已释放，同一张卡可以再次获取
+        assertEquals("ok", manager.executeWithLock(CARD_A, () -> "ok"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void contentionIsReportedPerStripe() throws Exception {
+        CardLockManager manager = newManager(256, 5000);
+        manager.executeWithLock(CARD_B, () -> null);
+
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = holdLock(manager, CARD_A, held, release);
+        held.await(5, TimeUnit.SECONDS);
+        Thread waiter = new Thread(() -> manager.executeWithLock(CARD_A, () -> null));
+        waiter.start();
+
+        // 等待线程排上队后，热点分段里能看到排队长度
+        Map<String, Object> hot = null;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            List<Map<String, Object>> hotStripes = (List<Map<String, Object>>) manager.getStatistics().get("hotStripes");
+            if (!hotStripes.isEmpty() && (Integer) hotStripes.get(0).get("queueLength") == 1) {
+                hot = hotStripes.get(0);
+                break;
+            }
+            Thread.sleep(10);
+        }
+        assertTrue(hot != null, "waiter never queued");
+        assertEquals(1L, hot.get("contended"));
+
+        Thread.sleep(20);
+        release.countDown();
+        holder.join(5000);
+        waiter.join(5000);
+
+        Map<String, Object> stats = manager.getStatistics();
+        assertEquals(3L, stats.get("acquired"));
+        assertEquals(1L, stats.get("contended"));
+        assertEquals(0L, stats.get("timeouts"));
+        assertEquals(1.0 / 3, (Double) stats.get("contentionRate"), 1e-9);
+        // 只有发生过竞争的分段出现在热点列表里
+        List<Map<String, Object>> hotStripes = (List<Map<String, Object>>) stats.get("hotStripes");
+        assertEquals(1, hotStripes.size());
+        assertEquals(hot.get("stripe"), hotStripes.get(0).get("stripe"));
+        assertEquals(2L, hotStripes.get(0).get("acquired"));
+        assertEquals(0, hotStripes.get(0).get("queueLength"));
+        assertTrue((Long) hotStripes.get(0).get("maxWaitMicros") >= 10_000);
+    }
+
+    private static void lockRepeatedly(CardLockManager manager, List<String> cardIds, int rounds, int[] counter) {
+        for (int i = 0; i < rounds; i++) {
+            manager.executeWithLocks(cardIds, () -> {
+                int value = counter[0];
+                Thread.yield();
+                counter[0] = value + 1;
+                return null;
+            });
+        }
+    }
+
+    private static Thread holdLock(CardLockManager manager, String cardId, CountDownLatch held, CountDownLatch release) {
+        Thread holder = new Thread(() -> manager.executeWithLock(cardId, () -> {
+            held.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        return holder;
+    }
+
+    private static CardLockManager newManager(int stripes, long timeoutMs) {
+        CardLockManager manager = new CardLockManager();
+        ReflectionTestUtils.setField(manager, "stripeCount", stripes);
+        ReflectionTestUtils.setField(manager, "timeoutMs", timeoutMs);
+        manager.init();
+        return manager;
+    }
+}
@@ -0,0 +1,139 @@
+package com.zychen.bank.utils;
+
+import com.zychen.bank.mapper.BankCardMapper;
+import com.zychen.bank.model.BankCard;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 交易密码校验缓存：命中时不做BCrypt；过期、失效、库中密文变化后重新校验；条目数不超过上限，淘汰最久未使用的
+ */
+class CardPasswordVerifierTests {
+
+    private static final String CARD_ID = "622200000001";
+    private static final String PASSWORD = "123456";
+
+    private final PasswordUtil passwordUtil = spy(new PasswordUtil());
+    private final BankCardMapper bankCardMapper = mock(BankCardMapper.class);
+    private final String encoded = new PasswordUtil().encode(PASSWORD);
+
+    @Test
+    void cachedSuccessSkipsBCrypt() {
+        CardPasswordVerifier verifier = newVerifier(300, 100);
+
+        assertTrue(verifier.matches(CARD_ID, PASSWORD, encoded));
+        assertTrue(verifier.matches(CARD_ID, PASSWORD, encoded));
+        verify(passwordUtil, times(1)).matches(PASSWORD, encoded);
+
+        // 错误密码不命中缓存，也不会被缓存
+        assertFalse(verifier.matches(CARD_ID, "654321", encoded));
+        assertFalse(verifier.matches(CARD_ID, "654321", encoded));
+        verify(passwordUtil, times(2)).matches("654321", encoded);
+
+        Map<String, Object> stats = verifier.getStatistics();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(3L, stats.get("misses"));
+        assertEquals(1, stats.get("size"));
+    }
+
+    @Test
+    void expiredEntryIsVerifiedAgain() throws InterruptedException {
+        CardPasswordVerifier verifier = newVerifier(1, 100);
+
+        assertTrue(verifier.matches(CARD_ID, PASSWORD, encoded));
+        Thread.sleep(1100);
+        assertTrue(verifier.matches(CARD_ID, PASSWORD, encoded));
+        verify(passwordUtil, times(2)).matches(PASSWORD, encoded);
+        assertEquals(0L, verifier.getStatistics().get("hits"));
+    }
+
+    @Test
+    void invalidateDropsEntry() {
+        CardPasswordVerifier verifier = newVerifier(300, 100);
+
+        assertTrue(verifier.matches(CARD_ID, PASSWORD, encoded));
+        verifier.invalidate(CARD_ID);
+        verifier.invalidate(CARD_ID);
+        assertEquals(1L, verifier.getStatistics().get("invalidations"));
+        assertEquals(0, verifier.getStatistics().get("size"));
+
+        assertTrue(verifier.matches(CARD_ID, PASSWORD, encoded));
+        verify(passwordUtil, times(2)).matches(PASSWORD, encoded);
+    }
+
+    @Test
+    void changedStoredHashIsNotServedFromCache() {
+        CardPasswordVerifier verifier = newVerifier(300, 100);
+        assertTrue(verifier.matches(CARD_ID, PASSWORD, encoded));
+
+        // 改密码后库中是新密文：旧密码对新密文不能命中缓存，必须走BCrypt并失败
+        String changed = new PasswordUtil().encode("888888");
+        assertFalse(verifier.matches(CARD_ID, PASSWORD, changed));
+        verify(passwordUtil).matches(PASSWORD, changed);
+        assertTrue(verifier.matches(CARD_ID, "888888", changed));
+        assertTrue(verifier.matches(CARD_ID, "888888", changed));
+        verify(passwordUtil, times(1)).matches("888888", changed);
+
+        // 事务内确认密文未变：按预授权时的密文比较
+        BankCard card = new BankCard();
+        card.setCardId(CARD_ID);
+        card.setCardPassword(changed);
+        when(bankCardMapper.findByCardId(CARD_ID)).thenReturn(card);
+        verifier.ensureUnchanged(CARD_ID, changed);
+        RuntimeException e = assertThrows(RuntimeException.class, () -> verifier.ensureUnchanged(CARD_ID, encoded));
+        assertEquals("交易密码已变更，请重新操作", e.getMessage());
+    }
+
+    @Test
+    void sizeIsBoundedAndLeastRecentlyUsedIsEvicted() {
+        CardPasswordVerifier verifier = newVerifier(300, 4);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(verifier.matches(cardId(i), PASSWORD, encoded));
+            // 第一张卡一直在用，不应被淘汰
+            assertTrue(verifier.matches(cardId(0), PASSWORD, encoded));
+        }
+
+        Map<String, Object> stats = verifier.getStatistics();
+        assertEquals(4, stats.get("size"));
+        assertEquals(6L, stats.get("evictions"));
+
+        clearInvocations(passwordUtil);
+        // 最近用过的几张卡仍在缓存中，最早的被淘汰
+        assertTrue(verifier.matches(cardId(0), PASSWORD, encoded));
+        assertTrue(verifier.matches(cardId(9), PASSWORD, encoded));
+        assertTrue(verifier.matches(cardId(8), PASSWORD, encoded));
+        verify(passwordUtil, never()).matches(anyString(), anyString());
+        assertTrue(verifier.matches(cardId(1), PASSWORD, encoded));
+        verify(passwordUtil).matches(PASSWORD, encoded);
+    }
+
+    private CardPasswordVerifier newVerifier(long ttlSeconds, int maxSize) {
+        CardPasswordVerifier verifier = new CardPasswordVerifier();
+        ReflectionTestUtils.setField(verifier, "passwordUtil", passwordUtil);
+        ReflectionTestUtils.setField(verifier, "bankCardMapper", bankCardMapper);
+        ReflectionTestUtils.setField(verifier, "ttlSeconds", ttlSeconds);
+        ReflectionTestUtils.setField(verifier, "maxSize", maxSize);
+        verifier.init();
+        return verifier;
+    }
+
+    private static String cardId(int i) {
+        return String.format("6222000000%02d", i);
+    }
+}
@@ -0,0 +1,70 @@
+package com.zychen.bank.utils;
+
+import com.zychen.bank.model.CardDailyBalance;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DailyBalanceAccumulatorTests {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 3, 1);
+
+    @Test
+    void averagesEndOfDayBalances() {
+        DailyBalanceAccumulator accumulator = new DailyBalanceAccumulator(FIRST_DAY, FIRST_DAY.plusDays(3));
+        // 日终余额：100, 100, 300, 250
+        accumulator.add(snapshot("C1", 0, "100"));
+        accumulator.add(snapshot("C1", 2, "300"));
+        accumulator.add(snapshot("C1", 3, "250"));
+
+        assertEquals(0, new BigDecimal("187.50").compareTo(accumulator.getAverage()));
+        assertEquals(3, accumulator.getCount());
+    }
+
+    @Test
+    void openingBalanceCountsUntilFirstSnapshot() {
+        DailyBalanceAccumulator accumulator = new DailyBalanceAccumulator(FIRST_DAY, FIRST_DAY.plusDays(1));
+        accumulator.seed("C1", new BigDecimal("50"));
+        accumulator.seed("C2", new BigDecimal("500"));
+        accumulator.add(snapshot("C1", 0, "60"));
+        // C2第二天才有交易，第一天按期初余额500计
+        accumulator.add(snapshot("C2", 1, "400"));
+
+        // 第一天 60 + 500，第二天 60 + 400
+        assertEquals(0, new BigDecimal("510.00").compareTo(accumulator.getAverage()));
+    }
+
+    @Test
+    void idleCardCountsEveryDay() {
+        DailyBalanceAccumulator accumulator = new DailyBalanceAccumulator(FIRST_DAY, FIRST_DAY.plusDays(3));
+        accumulator.seed("C1", new BigDecimal("100"));
+        // C2区间内没有交易
+        accumulator.seed("C2", new BigDecimal("1000"));
+        accumulator.add(snapshot("C1", 2, "300"));
+
+        // 100 + 100 + 300 + 300，每天再加1000
+        assertEquals(0, new BigDecimal("1200.00").compareTo(accumulator.getAverage()));
+    }
+
+    @Test
+    void ignoresOutOfRangeSnapshots() {
+        DailyBalanceAccumulator accumulator = new DailyBalanceAccumulator(FIRST_DAY, FIRST_DAY);
+        accumulator.seed("C1", new BigDecimal("42"));
+        accumulator.add(snapshot("C1", 1, "999"));
+        accumulator.add(snapshot("C1", -1, "999"));
+
+        assertEquals(0, accumulator.getCount());
+        assertEquals(0, new BigDecimal("42").compareTo(accumulator.getAverage()));
+    }
+
+    private static CardDailyBalance snapshot(String cardId, int day, String closingBalance) {
+        CardDailyBalance snapshot = new CardDailyBalance();
+        snapshot.setCardId(cardId);
+        snapshot.setBalanceDate(FIRST_DAY.plusDays(day));
+        snapshot.setClosingBalance(new BigDecimal(closingBalance));
+        return snapshot;
+    }
+}
@@ -0,0 +1,205 @@
+package com.zychen.bank.utils;
+
+import com.zychen.bank.mapper.IdSequenceMapper;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 号段分配：并发取号不重复、单节点号段内连续；用到80%时后台预取下一段；
+ * 序列首次使用时从已有最大用户ID起步；两个节点共用同一序列行时号段互不重叠
+ * 预取在后台线程中独立提交，使用独立的内存库且不开启测试事务
+ */
+@MybatisTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:id-block;"
+        + "MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1")
+@Import({IDGenerator.class, IdBlockAllocator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdBlockAllocatorTests {
+
+    @Autowired
+    private IdBlockAllocator idBlockAllocator;
+
+    @Autowired
+    private IDGenerator idGenerator;
+
+    @Autowired
+    private IdSequenceMapper idSequenceMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicInteger phoneSeq = new AtomicInteger();
+
+    @Test
+    void concurrentNextHasNoDuplicatesOrGaps() throws Exception {
+        int threads = 8;
+        int perThread = 250;
+        List<Long> values = takeConcurrently(List.of(idBlockAllocator), "concurrent_seq", 100, threads, perThread);
+
+        // 单个节点没有重启，发出的值正好是 1..N
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        for (int i = 0; i < sorted.size(); i++) {
+            assertEquals(i + 1L, sorted.get(i));
+        }
+        assertEquals(threads * perThread, sorted.size());
+        assertTrue(idSequenceMapper.findNextValue("concurrent_seq") >= threads * perThread + 1);
+    }
+
+    @Test
+    void nextBlockIsPrefetchedAtEightyPercent() throws Exception {
+        String seq = "prefetch_seq";
+        for (int i = 1; i <= 8; i++) {
+            assertEquals(i, idBlockAllocator.next(seq, 10, () -> 1));
+        }
+        assertEquals(11L, idSequenceMapper.findNextValue(seq));
+
+        // 第9个值（号段的80%）触发后台预取，当前号段照常发放
+        assertEquals(9L, idBlockAllocator.next(seq, 10, () -> 1));
+        awaitNextValue(seq, 21L);
+        assertEquals(10L, idBlockAllocator.next(seq, 10, () -> 1));
+
+        // 切换到预取好的号段，不再同步访问数据库
+        assertEquals(11L, idBlockAllocator.next(seq, 10, () -> 1));
+        assertEquals(21L, idSequenceMapper.findNextValue(seq));
+    }
+
+    @Test
+    void firstUseStartsAfterExistingMaxUserId() {
+        insertUser("U0000041");
+        insertUser("U0000007");
+        insertUser("ADMIN005");
+
+        assertEquals("U0000042", idGenerator.generateUserId());
+        assertEquals("U0000043", idGenerator.generateUserId());
+        assertEquals("ADMIN006", idGenerator.generateAdminId());
+
+        // 只有序列行不存在时才取初始值
+        AtomicInteger seeded = new AtomicInteger();
+        for (int i = 0; i < 25; i++) {
+            assertEquals(100L + i, idBlockAllocator.next("seeded_seq", 10, () -> {
+                seeded.incrementAndGet();
+                return 100;
+            }));
+        }
+        assertEquals(1, seeded.get());
+    }
+
+    @Test
+    void twoNodesSharingOneSequenceDoNotOverlap() throws Exception {
+        // 两个分配器实例模拟两个节点，各自持有号段
+        IdBlockAllocator other = new IdBlockAllocator(transactionManager);
+        ReflectionTestUtils.setField(other, "idSequenceMapper", idSequenceMapper);
+        int blockSize = 50;
+        try {
+            Map<IdBlockAllocator, Set<Long>> byNode = new IdentityHashMap<>();
+            byNode.put(idBlockAllocator, ConcurrentHashMap.newKeySet());
+            byNode.put(other, ConcurrentHashMap.newKeySet());
+            List<Long> values = takeConcurrently(List.of(idBlockAllocator, other), "shared_seq", blockSize, 8, 300, byNode);
+
+            assertEquals(8 * 300, new TreeSet<>(values).size());
+            // 每个节点拿到的都是整段：同一号段内的值全部来自同一个节点
+            assertBlocksOwnedByOneNode(byNode.get(idBlockAllocator), byNode.get(other), blockSize);
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    private void assertBlocksOwnedByOneNode(Set<Long> first, Set<Long> second, int blockSize) {
+        Set<Long> firstBlocks = new TreeSet<>();
+        for (Long value : first) {
+            firstBlocks.add((value - 1) / blockSize);
+        }
+        for (Long value : second) {
+            assertFalse(firstBlocks.contains((value - 1) / blockSize), "block shared by two nodes: " + value);
+        }
+    }
+
+    private List<Long> takeConcurrently(List<IdBlockAllocator> allocators, String seq, int blockSize,
+                                        int threads, int perThread) throws Exception {
+        return takeConcurrently(allocators, seq, blockSize, threads, perThread, null);
+    }
+
+    private List<Long> takeConcurrently(List<IdBlockAllocator> allocators, String seq, int blockSize,
+                                        int threads, int perThread,
+                                        Map<IdBlockAllocator, Set<Long>> byNode) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                IdBlockAllocator allocator = allocators.get(t % allocators.size());
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<Long> taken = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        taken.add(allocator.next(seq, blockSize, () -> 1));
+                    }
+                    if (byNode != null) {
+                        byNode.get(allocator).addAll(taken);
+                    }
+                    return taken;
+                }));
+            }
+            start.countDown();
+            List<Long> values = new ArrayList<>();
+            for (Future<List<Long>> future : futures) {
+                values.addAll(future.get(30, TimeUnit.SECONDS));
+            }
+            return values;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitNextValue(String seq, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (idSequenceMapper.findNextValue(seq) != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, idSequenceMapper.findNextValue(seq));
+    }
+
+    private void insertUser(String userId) {
+        jdbcTemplate.update("INSERT INTO user (user_id, username, phone, password, role, account_status, created_time) "
+                        + "VALUES (?, ?, ?, 'x', 0, 0, ?)",
+                userId, "id_" + userId, String.format("136%08d", phoneSeq.incrementAndGet()),
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
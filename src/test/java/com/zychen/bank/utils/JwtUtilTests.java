@@ -0,0 +1,94 @@
+package com.zychen.bank.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * token解析结果缓存：命中时直接返回同一身份；缓存过的token过期后被拒绝；缓存条目数不超过上限
+ */
+class JwtUtilTests {
+
+    private static final String SECRET = "jwt-util-tests-secret-key-at-least-32-bytes";
+
+    @Test
+    void resolvedPrincipalIsCached() {
+        JwtUtil jwtUtil = newJwtUtil(60_000L, 100);
+        String token = jwtUtil.generateToken("U0000001", 1);
+
+        JwtPrincipal principal = jwtUtil.resolvePrincipal(token);
+        assertNotNull(principal);
+        assertEquals("U0000001", principal.getUserId());
+        assertEquals(1, principal.getRole());
+        assertSame(principal, jwtUtil.resolvePrincipal(token));
+        assertEquals("U0000001", jwtUtil.getUserIdFromToken(token));
+
+        Map<String, Object> stats = jwtUtil.getCacheStatistics();
+        assertEquals(1L, stats.get("misses"));
+        assertEquals(2L, stats.get("hits"));
+
+        // 篡改过的token签名校验失败，不进缓存
+        assertNull(jwtUtil.resolvePrincipal(token.substring(0, token.length() - 2) + "xx"));
+        assertEquals(1, jwtUtil.getCacheStatistics().get("size"));
+    }
+
+    @Test
+    void cachedTokenIsRejectedAfterExpiry() throws InterruptedException {
+        // JWT的过期时间精确到秒，留出余量保证生成后立即解析时尚未过期
+        JwtUtil jwtUtil = newJwtUtil(1500L, 100);
+        String token = jwtUtil.generateToken("U0000001", 0);
+        assertNotNull(jwtUtil.resolvePrincipal(token));
+        assertNotNull(jwtUtil.resolvePrincipal(token));
+
+        Thread.sleep(2100);
+        assertNull(jwtUtil.resolvePrincipal(token));
+        assertEquals(true, jwtUtil.isTokenExpired(token));
+        assertNull(jwtUtil.getRoleFromToken(token));
+        assertEquals(0, jwtUtil.getCacheStatistics().get("size"));
+    }
+
+    @Test
+    void evictionKeepsSizeBound() {
+        JwtUtil jwtUtil = newJwtUtil(60_000L, 3);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tokens.add(jwtUtil.generateToken(String.format("U%07d", i), 0));
+        }
+
+        for (String token : tokens) {
+            assertNotNull(jwtUtil.resolvePrincipal(token));
+            // 第一个token一直在用，不应被淘汰
+            assertNotNull(jwtUtil.resolvePrincipal(tokens.get(0)));
+        }
+
+        Map<String, Object> stats = jwtUtil.getCacheStatistics();
+        assertEquals(3, stats.get("size"));
+        assertEquals(7L, stats.get("evictions"));
+        long misses = (Long) stats.get("misses");
+
+        // 最近用过的仍在缓存中，最早的被淘汰后需要重新解析
+        jwtUtil.resolvePrincipal(tokens.get(0));
+        jwtUtil.resolvePrincipal(tokens.get(9));
+        assertEquals(misses, jwtUtil.getCacheStatistics().get("misses"));
+        assertNotNull(jwtUtil.resolvePrincipal(tokens.get(1)));
+        assertEquals(misses + 1, jwtUtil.getCacheStatistics().get("misses"));
+        assertEquals(3, jwtUtil.getCacheStatistics().get("size"));
+    }
+
+    private static JwtUtil newJwtUtil(long expiration, int cacheMaxSize) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", expiration);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", cacheMaxSize);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+}
@@ -0,0 +1,151 @@
+package com.zychen.bank.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.zychen.bank.mapper.OperationLogMapper;
+import com.zychen.bank.model.OperationLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class OperationLogWriterTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void overflowIsSpilledAndReplayedOnNextStart() throws Exception {
+        Path spillFile = tempDir.resolve("spill.jsonl");
+
+        // 写库阻塞，队列容量1、每批1条，后续日志溢出落盘
+        CountDownLatch release = new CountDownLatch(1);
+        OperationLogMapper blockedMapper = mock(OperationLogMapper.class);
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return 0;
+        }).when(blockedMapper).insertBatch(anyList());
+
+        OperationLogWriter writer = newWriter(blockedMapper, spillFile, 1, 1, 50L);
+        for (int i = 0; i < 5; i++) {
+            writer.submit(newLog("U000000" + i));
+        }
+        release.countDown();
+        writer.shutdown();
+
+        assertTrue(Files.exists(spillFile));
+        assertTrue((Long) writer.getStatistics().get("spilled") >= 3);
+
+        // 重新启动时补写落盘的日志
+        List<OperationLog> replayed = new ArrayList<>();
+        CountDownLatch replayDone = new CountDownLatch(1);
+        OperationLogMapper mapper = mock(OperationLogMapper.class);
+        doAnswer(invocation -> {
+            replayed.addAll(invocation.getArgument(0));
+            replayDone.countDown();
+            return 0;
+        }).when(mapper).insertBatch(anyList());
+
+        OperationLogWriter restarted = newWriter(mapper, spillFile, 1, 10, 50L);
+        assertTrue(replayDone.await(5, TimeUnit.SECONDS));
+        restarted.shutdown();
+
+        assertEquals(writer.getStatistics().get("spilled"), (long) replayed.size());
+        assertEquals("TRANSACTION", replayed.get(0).getModule());
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    void logsWithinFlushIntervalAreWrittenAsOneBatch() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        CountDownLatch written = new CountDownLatch(1);
+        OperationLogMapper mapper = mock(OperationLogMapper.class);
+        doAnswer(invocation -> {
+            batchSizes.add(((List<?>) invocation.getArgument(0)).size());
+            written.countDown();
+            return 0;
+        }).when(mapper).insertBatch(anyList());
+
+        OperationLogWriter writer = newWriter(mapper, tempDir.resolve("spill.jsonl"), 100, 50, 1000L);
+        // 第一条之后的日志陆续到达，都在刷新间隔内
+        for (int i = 0; i < 20; i++) {
+            writer.submit(newLog("U000000" + i));
+            Thread.sleep(10);
+        }
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        writer.shutdown();
+
+        assertEquals(List.of(20), batchSizes);
+        assertEquals(1L, writer.getStatistics().get("batches"));
+        verify(mapper, times(1)).insertBatch(anyList());
+    }
+
+    @Test
+    void fullBatchIsWrittenWithoutWaitingForInterval() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        OperationLogMapper mapper = mock(OperationLogMapper.class);
+        doAnswer(invocation -> {
+            assertEquals(5, ((List<?>) invocation.getArgument(0)).size());
+            written.countDown();
+            return 0;
+        }).when(mapper).insertBatch(anyList());
+
+        OperationLogWriter writer = newWriter(mapper, tempDir.resolve("spill.jsonl"), 100, 5, 2000L);
+        for (int i = 0; i < 5; i++) {
+            writer.submit(newLog("U000000" + i));
+        }
+        // 凑满一批后立即写入，不等刷新间隔
+        assertTrue(written.await(1, TimeUnit.SECONDS));
+        writer.shutdown();
+    }
+
+    private OperationLogWriter newWriter(OperationLogMapper mapper, Path spillFile,
+                                         int queueCapacity, int batchSize, long flushIntervalMs) {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        OperationLogWriter writer = new OperationLogWriter();
+        ReflectionTestUtils.setField(writer, "operationLogMapper", mapper);
+        ReflectionTestUtils.setField(writer, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(writer, "async", true);
+        ReflectionTestUtils.setField(writer, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(writer, "batchSize", batchSize);
+        ReflectionTestUtils.setField(writer, "flushIntervalMs", flushIntervalMs);
+        ReflectionTestUtils.setField(writer, "overflowPolicy", OperationLogWriter.OverflowPolicy.SPILL);
+        ReflectionTestUtils.setField(writer, "spillFile", spillFile.toString());
+        writer.init();
+        return writer;
+    }
+
+    private OperationLog newLog(String userId) {
+        OperationLog log = new OperationLog();
+        log.setUserId(userId);
+        log.setUserRole(0);
+        log.setModule("TRANSACTION");
+        log.setOperationType("DEPOSIT");
+        log.setStatus(1);
+        log.setExecutionTime(0);
+        log.setCreatedTime(LocalDateTime.now());
+        return log;
+    }
+}
@@ -0,0 +1,107 @@
+package com.zychen.bank.utils;
+
+import com.zychen.bank.dto.ReportResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReportCacheTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void evictedReportIsReadBackFromDisk() {
+        ReportCache cache = newCache(2, tempDir.toString());
+        cache.put(newReport("RPT202401M1"));
+        cache.put(newReport("RPT202401M2"));
+        cache.put(newReport("RPT202401M3"));
+
+        assertEquals(1L, cache.getStatistics().get("evictions"));
+        ReportResponseDTO report = cache.get("RPT202401M1");
+        assertNotNull(report);
+        assertEquals(new BigDecimal("123.45"), report.getSummary().getEndBalance());
+        assertEquals(LocalDateTime.of(2024, 1, 5, 9, 30), report.getTransactions().get(0).getTransTime());
+        assertEquals(1L, cache.getStatistics().get("diskHits"));
+        cache.shutdown();
+    }
+
+    @Test
+    void reportSurvivesRestart() {
+        ReportCache cache = newCache(10, tempDir.toString());
+        cache.put(newReport("RPT202401M1"));
+        cache.shutdown();
+
+        ReportCache restarted = newCache(10, tempDir.toString());
+        assertNotNull(restarted.get("RPT202401M1"));
+        restarted.shutdown();
+    }
+
+    @Test
+    void expiredFilesAreRemoved() throws Exception {
+        ReportCache cache = newCache(10, tempDir.toString());
+        cache.put(newReport("RPT202401M1"));
+        Path file = tempDir.resolve("RPT202401M1.json");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 2 * 60 * 60 * 1000));
+
+        ReportCache restarted = newCache(10, tempDir.toString());
+        restarted.removeExpired();
+        assertFalse(Files.exists(file));
+        assertNull(restarted.get("RPT202401M1"));
+        cache.shutdown();
+        restarted.shutdown();
+    }
+
+    @Test
+    void memoryOnlyCacheDropsEvictedReports() {
+        ReportCache cache = newCache(1, "");
+        cache.put(newReport("RPT202401M1"));
+        cache.put(newReport("RPT202401M2"));
+
+        assertNull(cache.get("RPT202401M1"));
+        assertNotNull(cache.get("RPT202401M2"));
+        assertNull(cache.get("../RPT202401M2"));
+        cache.shutdown();
+    }
+
+    private ReportCache newCache(int maxSize, String spillDir) {
+        ReportCache cache = new ReportCache();
+        ReflectionTestUtils.setField(cache, "maxSize", maxSize);
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(cache, "spillDir", spillDir);
+        ReflectionTestUtils.setField(cache, "cleanupIntervalMinutes", 60L);
+        cache.init();
+        return cache;
+    }
+
+    private ReportResponseDTO newReport(String reportId) {
+        ReportResponseDTO report = new ReportResponseDTO();
+        report.setReportId(reportId);
+        report.setUserId("U0000001");
+        report.setReportType("monthly");
+        report.setGeneratedTime(new Date());
+
+        ReportResponseDTO.ReportSummary summary = new ReportResponseDTO.ReportSummary();
+        summary.setEndBalance(new BigDecimal("123.45"));
+        report.setSummary(summary);
+
+        ReportResponseDTO.TransactionSummary transaction = new ReportResponseDTO.TransactionSummary();
+        transaction.setTransTime(LocalDateTime.of(2024, 1, 5, 9, 30));
+        transaction.setAmount(new BigDecimal("100.00"));
+        report.setTransactions(List.of(transaction));
+        return report;
+    }
+}
@@ -0,0 +1,42 @@
+package com.zychen.bank.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransactionCursorTests {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        LocalDateTime time = LocalDateTime.of(2025, 3, 1, 10, 15, 30, 123_000_000);
+        TransactionCursor decoded = TransactionCursor.decode(new TransactionCursor(time, 42L).encode());
+
+        assertEquals(time, decoded.getTransTime());
+        assertEquals(42L, decoded.getTransId());
+    }
+
+    @Test
+    void buildsFromDriverTypes() {
+        LocalDateTime time = LocalDateTime.of(2025, 3, 1, 10, 15, 30);
+        TransactionCursor cursor = TransactionCursor.of(Timestamp.valueOf(time), 7);
+
+        assertEquals(time, cursor.getTransTime());
+        assertEquals(7L, cursor.getTransId());
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertNull(TransactionCursor.decode(null));
+        assertNull(TransactionCursor.decode(""));
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThrows(RuntimeException.class, () -> TransactionCursor.decode("not-a-cursor"));
+    }
+}
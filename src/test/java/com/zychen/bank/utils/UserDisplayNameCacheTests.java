@@ -0,0 +1,92 @@
+package com.zychen.bank.utils;
+
+import com.zychen.bank.mapper.OperationLogMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用户展示名缓存：未命中的用户合并成一次查询，不存在的用户也缓存；失效后重新查询；条目数不超过上限
+ */
+class UserDisplayNameCacheTests {
+
+    private final OperationLogMapper operationLogMapper = mock(OperationLogMapper.class);
+
+    @Test
+    void missesAreLoadedInOneQueryAndCached() {
+        UserDisplayNameCache cache = newCache(100);
+
+        Map<String, UserDisplayNameCache.DisplayName> names = cache.getAll(List.of("U0000001", "U0000002", "U0000001"));
+        assertEquals("user_U0000001", names.get("U0000001").getUsername());
+        // 不存在的用户也有条目，字段为null
+        assertNull(names.get("U0000002").getUsername());
+        verify(operationLogMapper, times(1)).findUserDisplayNames(anyCollection());
+
+        cache.getAll(List.of("U0000001", "U0000002"));
+        verify(operationLogMapper, times(1)).findUserDisplayNames(anyCollection());
+
+        Map<String, Object> stats = cache.getStatistics();
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+        assertEquals(2, stats.get("size"));
+    }
+
+    @Test
+    void invalidatedUserIsLoadedAgain() {
+        UserDisplayNameCache cache = newCache(100);
+        cache.getAll(List.of("U0000001"));
+
+        cache.invalidate("U0000001");
+        cache.invalidate("U0000001");
+        assertEquals(1L, cache.getStatistics().get("invalidations"));
+
+        cache.getAll(List.of("U0000001"));
+        verify(operationLogMapper, times(2)).findUserDisplayNames(anyCollection());
+    }
+
+    @Test
+    void sizeIsBounded() {
+        UserDisplayNameCache cache = newCache(3);
+        for (int i = 0; i < 10; i++) {
+            cache.getAll(List.of(String.format("U%07d", i)));
+        }
+
+        Map<String, Object> stats = cache.getStatistics();
+        assertEquals(3, stats.get("size"));
+        assertEquals(7L, stats.get("evictions"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private UserDisplayNameCache newCache(int maxSize) {
+        when(operationLogMapper.findUserDisplayNames(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> userIds = invocation.getArgument(0);
+            // U0000002 不存在
+            return userIds.stream().filter(id -> !"U0000002".equals(id)).map(id -> {
+                Map<String, Object> row = new HashMap<>();
+                row.put("userId", id);
+                row.put("username", "user_" + id);
+                row.put("realName", "name_" + id);
+                return row;
+            }).collect(Collectors.toList());
+        });
+        UserDisplayNameCache cache = new UserDisplayNameCache();
+        ReflectionTestUtils.setField(cache, "operationLogMapper", operationLogMapper);
+        ReflectionTestUtils.setField(cache, "maxSize", maxSize);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+        cache.init();
+        return cache;
+    }
+}